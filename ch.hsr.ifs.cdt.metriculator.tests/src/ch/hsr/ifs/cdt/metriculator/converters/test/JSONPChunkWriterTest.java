@@ -0,0 +1,134 @@
+/******************************************************************************
+ * Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik 
+ * Rapperswil, University of applied sciences and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html 
+ *
+ * Contributors:
+ * 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+ ******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.converters.test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Arrays;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.junit.Assert;
+
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.converters.ModelToJSONPChunkWriter;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FolderNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionDefNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.ProjectNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.WorkspaceNode;
+import ch.hsr.ifs.cdt.metriculator.tests.MetriculatorCheckerTestCase;
+
+public class JSONPChunkWriterTest extends MetriculatorCheckerTestCase {
+
+	private AbstractNode root;
+	private AbstractMetric metricLsLoc;
+	private File directory;
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+
+		metricLsLoc = new LSLOCMetric(AbstractMetricChecker.getChecker(LSLOCMetricChecker.class), "LSLOC", "lines of code");
+		directory   = File.createTempFile("metriculator", "chunks");
+		directory.delete();
+
+		System.out.println(getName());
+		root = new WorkspaceNode("rootnotmodified");
+
+		FolderNode folder = new FolderNode(null, "testfolder1");
+		root.add(new ProjectNode("testproject"))
+			.add(folder)
+			.add(new FunctionDefNode("f\"1")).setNodeValue(metricLsLoc.getKey(), 5);
+	}
+
+	@Override
+	public void tearDown() throws Exception {
+		for(File f : directory.listFiles()){
+			f.delete();
+		}
+		directory.delete();
+		super.tearDown();
+	}
+
+	public void testProjectsAndFoldersAreChunked() throws IOException {
+		int chunks = new ModelToJSONPChunkWriter(Arrays.asList(metricLsLoc)).write(root, directory, 1);
+
+		Assert.assertEquals(3, chunks);
+		Assert.assertEquals("metriculator.index({\"metrics\":[\"lsloc\"],\"root\":0});\n", read(ModelToJSONPChunkWriter.INDEX_FILE));
+		Assert.assertEquals("metriculator.chunk(0,[{\"l\":\"testproject\",\"t\":\"projectnode\",\"v\":[5],\"k\":1}]);\n", read("c0.js"));
+		Assert.assertEquals("metriculator.chunk(1,[{\"l\":\"testfolder1\",\"t\":\"foldernode\",\"v\":[5],\"k\":2}]);\n", read("c1.js"));
+		Assert.assertEquals("metriculator.chunk(2,[{\"l\":\"f\\\"1\",\"t\":\"functiondefnode\",\"v\":[5]}]);\n", read("c2.js"));
+	}
+
+	public void testParallelWriteEqualsSequentialWrite() throws IOException {
+		new ModelToJSONPChunkWriter(Arrays.asList(metricLsLoc)).write(root, directory, 1);
+		String sequential = read("c0.js") + read("c1.js") + read("c2.js");
+
+		new ModelToJSONPChunkWriter(Arrays.asList(metricLsLoc)).write(root, directory, 4);
+		Assert.assertEquals(sequential, read("c0.js") + read("c1.js") + read("c2.js"));
+	}
+
+	public void testProgressCountsWrittenNodes() throws IOException {
+		CountingMonitor monitor        = new CountingMonitor();
+		ModelToJSONPChunkWriter writer = new ModelToJSONPChunkWriter(Arrays.asList(metricLsLoc));
+		writer.setProgressMonitor(monitor);
+
+		writer.write(root, directory, 4);
+		Assert.assertEquals(3, monitor.work);
+	}
+
+	public void testCanceledWriteStopsBeforeChunks() throws IOException {
+		CountingMonitor monitor        = new CountingMonitor();
+		ModelToJSONPChunkWriter writer = new ModelToJSONPChunkWriter(Arrays.asList(metricLsLoc));
+		writer.setProgressMonitor(monitor);
+		monitor.setCanceled(true);
+
+		try{
+			writer.write(root, directory, 4);
+			fail();
+		}catch(OperationCanceledException e){
+		}
+		Assert.assertEquals(0, monitor.work);
+		Assert.assertFalse(new File(directory, "c0.js").exists());
+	}
+
+	private String read(String name) throws IOException {
+		Reader in = new InputStreamReader(new FileInputStream(new File(directory, name)), "UTF-8");
+		try {
+			StringBuilder content = new StringBuilder();
+			char[] buffer = new char[1024];
+			for(int n = in.read(buffer); n >= 0; n = in.read(buffer)){
+				content.append(buffer, 0, n);
+			}
+			return content.toString();
+		} finally {
+			in.close();
+		}
+	}
+
+	private static class CountingMonitor extends NullProgressMonitor {
+		int work;
+
+		@Override
+		public void worked(int work) {
+			this.work += work;
+		}
+	}
+}
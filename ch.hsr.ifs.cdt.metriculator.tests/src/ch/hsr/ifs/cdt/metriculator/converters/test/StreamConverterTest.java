@@ -0,0 +1,135 @@
+/******************************************************************************
+ * Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik 
+ * Rapperswil, University of applied sciences and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html 
+ *
+ * Contributors:
+ * 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+ ******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.converters.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.junit.Assert;
+
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.checkers.McCabeMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.McCabeMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.converters.AbstractModelStreamConverter;
+import ch.hsr.ifs.cdt.metriculator.model.converters.ModelToCSVConverter;
+import ch.hsr.ifs.cdt.metriculator.model.converters.ModelToJSONConverter;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FolderNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.ProjectNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.WorkspaceNode;
+import ch.hsr.ifs.cdt.metriculator.tests.MetriculatorCheckerTestCase;
+
+public class StreamConverterTest extends MetriculatorCheckerTestCase {
+
+	private AbstractNode root;
+	private AbstractMetric metricLsLoc;
+	private AbstractMetric metricMcCabe;
+	private ByteArrayOutputStream out;
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+
+		metricLsLoc  = new LSLOCMetric(AbstractMetricChecker.getChecker(LSLOCMetricChecker.class), "LSLOC", "lines of code");
+		metricMcCabe = new McCabeMetric(AbstractMetricChecker.getChecker(McCabeMetricChecker.class), "McCabe", "CC");
+		out          = new ByteArrayOutputStream();
+
+		System.out.println(getName());
+		root = new WorkspaceNode("rootnotmodified");
+
+		FolderNode f1 = new FolderNode(null, "testfolder1");
+		f1.setNodeValue(metricLsLoc.getKey(), 10);
+		FolderNode f2 = new FolderNode(null, "test,folder\"2");
+		f2.setNodeValue(metricLsLoc.getKey(), 20);
+
+		root.add(new ProjectNode("testproject"))
+			.add(f1).getParent()
+			.add(f2);
+	}
+
+	public void testJSONNestedWithSelectedMetric() throws Exception {
+		int nodes = convert(new ModelToJSONConverter(out), Arrays.asList(metricLsLoc));
+
+		Assert.assertEquals(3, nodes);
+		Assert.assertEquals("{\"metrics\":[\"lsloc\"],\"nodes\":[" +
+				"{\"label\":\"testproject\",\"type\":\"projectnode\",\"values\":{\"lsloc\":30},\"children\":[" +
+				"{\"label\":\"testfolder1\",\"type\":\"foldernode\",\"values\":{\"lsloc\":10}}," +
+				"{\"label\":\"test,folder\\\"2\",\"type\":\"foldernode\",\"values\":{\"lsloc\":20}}]}]}\n", result());
+	}
+
+	public void testJSONNoMetrics() throws Exception {
+		convert(new ModelToJSONConverter(out), null);
+
+		Assert.assertTrue(result().startsWith("{\"metrics\":[],\"nodes\":[{\"label\":\"testproject\",\"type\":\"projectnode\",\"values\":{},\"children\":["));
+	}
+
+	public void testCSVFlatWithPaths() throws Exception {
+		int nodes = convert(new ModelToCSVConverter(out), Arrays.asList(metricLsLoc, metricMcCabe));
+
+		Assert.assertEquals(3, nodes);
+		Assert.assertEquals("path,label,type,lsloc,mccabe\r\n" +
+				"testproject,testproject,projectnode,30,1\r\n" +
+				"testproject/testfolder1,testfolder1,foldernode,10,1\r\n" +
+				"\"testproject/test,folder\"\"2\",\"test,folder\"\"2\",foldernode,20,1\r\n", result());
+	}
+
+	public void testConversionReportsProgressPerNode() throws Exception {
+		CountingMonitor monitor       = new CountingMonitor();
+		ModelToCSVConverter converter = new ModelToCSVConverter(out);
+		converter.setProgressMonitor(monitor);
+
+		convert(converter, Arrays.asList(metricLsLoc));
+
+		Assert.assertEquals(3, monitor.work);
+	}
+
+	public void testCanceledConversionStops() throws Exception {
+		CountingMonitor monitor        = new CountingMonitor();
+		ModelToJSONConverter converter = new ModelToJSONConverter(out);
+		converter.setProgressMonitor(monitor);
+		monitor.setCanceled(true);
+
+		try{
+			converter.convert(root, Arrays.asList(metricLsLoc));
+			fail();
+		}catch(OperationCanceledException e){
+		}
+		Assert.assertEquals(0, monitor.work);
+	}
+
+	private static class CountingMonitor extends NullProgressMonitor {
+		int work;
+
+		@Override
+		public void worked(int work) {
+			this.work += work;
+		}
+	}
+
+	private int convert(AbstractModelStreamConverter converter, Collection<AbstractMetric> metrics) {
+		converter.convert(root, metrics);
+		Assert.assertNull(converter.getError());
+		return converter.getResult().intValue();
+	}
+
+	private String result() throws UnsupportedEncodingException {
+		return out.toString("UTF-8");
+	}
+}
@@ -0,0 +1,118 @@
+/******************************************************************************
+ * Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik 
+ * Rapperswil, University of applied sciences and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html 
+ *
+ * Contributors:
+ * 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+ ******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.converters.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import org.junit.Assert;
+
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.checkers.McCabeMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.McCabeMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.TreePrinter;
+import ch.hsr.ifs.cdt.metriculator.model.converters.TextReportWriter;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FolderNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.ProjectNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.WorkspaceNode;
+import ch.hsr.ifs.cdt.metriculator.tests.MetriculatorCheckerTestCase;
+
+public class TextReportWriterTest extends MetriculatorCheckerTestCase {
+
+	private AbstractNode root;
+	private AbstractMetric metricLsLoc;
+	private AbstractMetric metricMcCabe;
+	private StringWriter out;
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+
+		metricLsLoc  = new LSLOCMetric(AbstractMetricChecker.getChecker(LSLOCMetricChecker.class), "LSLOC", "lines of code");
+		metricMcCabe = new McCabeMetric(AbstractMetricChecker.getChecker(McCabeMetricChecker.class), "McCabe", "CC");
+		out          = new StringWriter();
+
+		System.out.println(getName());
+		root = new WorkspaceNode("rootnotmodified");
+
+		FolderNode f1 = new FolderNode(null, "testfolder1");
+		f1.setNodeValue(metricLsLoc.getKey(), 10);
+		FolderNode f2 = new FolderNode(null, "testfolder2");
+		f2.setNodeValue(metricLsLoc.getKey(), 20);
+		FolderNode f3 = new FolderNode(null, "a_folder_with_a_very_long_name");
+		f3.setNodeValue(metricLsLoc.getKey(), 5);
+
+		root.add(new ProjectNode("testproject"))
+			.add(f1).getParent()
+			.add(f2).getParent()
+			.add(f3);
+	}
+
+	public void testSameLayoutAsTreePrinter() throws Exception {
+		ByteArrayOutputStream printed = new ByteArrayOutputStream();
+		TreePrinter.printTree(root, new PrintStream(printed), metricLsLoc, metricMcCabe);
+
+		int rows = new TextReportWriter(out, Arrays.asList(metricLsLoc, metricMcCabe)).write(root);
+
+		Assert.assertEquals(5, rows);
+		Assert.assertTrue(printed.toString().startsWith(out.toString() + "\n----------"));
+	}
+
+	public void testRowsArePaddedToColumns() throws Exception {
+		new TextReportWriter(out, Arrays.asList(metricLsLoc)).write(root);
+
+		String[] lines = out.toString().split("\n");
+		Assert.assertEquals("[metric columns: 'LSLOC']", lines[0]);
+		Assert.assertEquals("   testproject                   35 (0)" + spaces(12), lines[2]);
+		Assert.assertTrue(Arrays.asList(lines).contains("     testfolder1                 10 (10)" + spaces(11)));
+	}
+
+	public void testLongLabelIsCutAtTheFront() throws Exception {
+		new TextReportWriter(out, Arrays.asList(metricLsLoc)).write(root);
+
+		Assert.assertTrue(Arrays.asList(out.toString().split("\n")).contains("     lder_with_a_very_long_name  5 (5)" + spaces(13)));
+	}
+
+	public void testMaxDepthSkipsDeeperLevels() throws Exception {
+		TextReportWriter writer = new TextReportWriter(out, Arrays.asList(metricLsLoc));
+		writer.setMaxDepth(1);
+
+		Assert.assertEquals(2, writer.write(root));
+		Assert.assertFalse(out.toString().contains("testfolder"));
+	}
+
+	public void testTopCountWritesHighestValuesFirst() throws Exception {
+		TextReportWriter writer = new TextReportWriter(out, Arrays.asList(metricLsLoc));
+		writer.setTopCount(2, metricLsLoc);
+
+		Assert.assertEquals(4, writer.write(root));
+
+		String[] lines = out.toString().split("\n");
+		Assert.assertTrue(lines[3].startsWith("     testfolder2"));
+		Assert.assertTrue(lines[4].startsWith("     testfolder1"));
+		Assert.assertEquals("     ... 1 more", lines[5]);
+		Assert.assertEquals(6, lines.length);
+	}
+
+	private static String spaces(int count) {
+		char[] spaces = new char[count];
+		Arrays.fill(spaces, ' ');
+		return new String(spaces);
+	}
+}
@@ -12,9 +12,16 @@
 
 package ch.hsr.ifs.cdt.metriculator.converters.test;
 
+import java.io.ByteArrayOutputStream;
 import java.util.Arrays;
+import java.util.Collection;
+
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMResult;
 
 import org.junit.Assert;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 
 import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetric;
 import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetricChecker;
@@ -25,8 +32,11 @@ import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
 import ch.hsr.ifs.cdt.metriculator.model.converters.IModelConverter;
 import ch.hsr.ifs.cdt.metriculator.model.converters.MetriculatorXMLDocument;
 import ch.hsr.ifs.cdt.metriculator.model.converters.ModelToXMLConverter;
+import ch.hsr.ifs.cdt.metriculator.model.converters.ModelToXMLStreamWriter;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.FolderNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionDefNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.NamespaceNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.ProjectNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.WorkspaceNode;
 import ch.hsr.ifs.cdt.metriculator.tests.MetriculatorCheckerTestCase;
@@ -145,4 +155,64 @@ public class XMLModelConverterTest extends MetriculatorCheckerTestCase {
 
 		Assert.assertEquals(expected, resultString);
 	}
-}
\ No newline at end of file
+
+	public void testStreamedEqualsFormattedXML() throws Exception {
+
+		FolderNode f1 = new FolderNode(null, "testfolder1");
+		f1.setNodeValue(metricLsLoc.getKey(), 10);
+		f1.setNodeValue(metricMcCabe.getKey(), 7);
+
+		AbstractNode ns = f1.add(new NamespaceNode("ns"));
+		ns.add(new FunctionDefNode("f")).setNodeValue(metricLsLoc.getKey(), 3);
+
+		root.add(new ProjectNode("testproject")).add(f1);
+
+		Collection<AbstractMetric> metrics = Arrays.asList(new AbstractMetric[]{metricLsLoc, metricMcCabe});
+		ModelToXMLConverter conv = new ModelToXMLConverter();
+		conv.convert(root, metrics);
+
+		Assert.assertEquals(conv.getFormattedXML(), stream(root, metrics));
+	}
+
+	public void testStreamedNoMetrics() throws Exception {
+
+		root.add(new ProjectNode("testproject"))
+			.add(new FolderNode(null, "testfolder1"));
+
+		final String expected = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+				"<metriculator>\n" +
+				"  <properties/>\n" +
+				"  <node label=\"testproject\" type=\"projectnode\">\n" +
+				"    <metrics/>\n" +
+				"    <node label=\"testfolder1\" type=\"foldernode\">\n" +
+				"      <metrics/>\n" +
+				"    </node>\n" +
+				"  </node>\n" +
+				"</metriculator>\n";
+
+		Assert.assertEquals(expected, stream(root, null));
+	}
+
+	public void testSourceFeedsTransformer() throws Exception {
+
+		FolderNode f1 = new FolderNode(null, "testfolder1");
+		f1.setNodeValue(metricLsLoc.getKey(), 10);
+		root.add(new ProjectNode("testproject")).add(f1);
+
+		DOMResult result = new DOMResult();
+		Collection<AbstractMetric> metrics = Arrays.asList(new AbstractMetric[]{metricLsLoc});
+		TransformerFactory.newInstance().newTransformer().transform(new ModelToXMLStreamWriter().createSource(root, metrics), result);
+
+		Document doc = (Document) result.getNode();
+		Assert.assertEquals("metriculator", doc.getDocumentElement().getNodeName());
+		Assert.assertEquals(2, doc.getElementsByTagName("node").getLength());
+		Assert.assertEquals("testfolder1", ((Element) doc.getElementsByTagName("node").item(1)).getAttribute("label"));
+		Assert.assertEquals("10", doc.getElementsByTagName("lsloc").item(0).getTextContent());
+	}
+
+	private static String stream(AbstractNode node, Collection<AbstractMetric> metrics) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new ModelToXMLStreamWriter().write(node, metrics, out);
+		return out.toString("UTF-8");
+	}
+}
@@ -0,0 +1,92 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.headless.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import ch.hsr.ifs.cdt.metriculator.headless.HeadlessArguments;
+
+/**
+ * Test for {@see HeadlessArguments}.
+ */
+public class HeadlessArgumentsTest extends TestCase {
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+
+		System.out.println(getName());
+	}
+
+	public void testDefaults(){
+		HeadlessArguments arguments = HeadlessArguments.parse();
+
+		assertEquals(Arrays.asList(HeadlessArguments.FORMAT_TEXT), arguments.formats);
+		assertEquals(0, arguments.shard);
+		assertEquals(1, arguments.shardCount);
+		assertTrue(arguments.importLocations.isEmpty());
+	}
+
+	public void testParse(){
+		HeadlessArguments arguments = HeadlessArguments.parse("-import", "/src/a", "-import", "/src/b", "-project", "a", "-format", "html,text", "-output", "/out", "-shard", "2/4", "-threads", "8");
+
+		assertEquals(Arrays.asList("/src/a", "/src/b"), arguments.importLocations);
+		assertEquals(Arrays.asList("a"), arguments.projectNames);
+		assertEquals(Arrays.asList(HeadlessArguments.FORMAT_HTML, HeadlessArguments.FORMAT_TEXT), arguments.formats);
+		assertEquals("/out", arguments.outputDirectory);
+		assertEquals(2, arguments.shard);
+		assertEquals(4, arguments.shardCount);
+		assertEquals(8, arguments.threads);
+	}
+
+	public void testParseStreamFormats(){
+		HeadlessArguments arguments = HeadlessArguments.parse("-format", "json,csv");
+
+		assertEquals(Arrays.asList(HeadlessArguments.FORMAT_JSON, HeadlessArguments.FORMAT_CSV), arguments.formats);
+	}
+
+	public void testInvalidArguments(){
+		assertInvalid("-shard", "4/4");
+		assertInvalid("-shard", "1");
+		assertInvalid("-format", "pdf");
+		assertInvalid("-threads", "many");
+		assertInvalid("-output");
+	}
+
+	private static void assertInvalid(String... args){
+		try {
+			HeadlessArguments.parse(args);
+			fail("accepted " + Arrays.toString(args));
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	public void testShardsCoverAllItemsOnce(){
+		List<Integer> items = new ArrayList<Integer>();
+		for(int i = 0; i < 10; i++){
+			items.add(i);
+		}
+
+		List<Integer> covered = new ArrayList<Integer>();
+		for(int shard = 0; shard < 3; shard++){
+			covered.addAll(HeadlessArguments.selectShard(items, shard, 3));
+		}
+
+		assertEquals(Arrays.asList(0, 3, 6, 9), HeadlessArguments.selectShard(items, 0, 3));
+		assertEquals(items.size(), covered.size());
+		assertTrue(covered.containsAll(items));
+	}
+}
@@ -0,0 +1,163 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.ColumnarSnapshotReader;
+import ch.hsr.ifs.cdt.metriculator.model.ColumnarSnapshotWriter;
+import ch.hsr.ifs.cdt.metriculator.model.HybridTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FileNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionDefNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.LogicNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.NamespaceNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.ProjectNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.TypeDeclNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.TypeDefNode;
+
+/**
+ * Test for {@see ColumnarSnapshotWriter} and {@see ColumnarSnapshotReader}.
+ */
+public class ColumnarSnapshotTest extends TestCase {
+
+	private AbstractMetric lsloc;
+	private HybridTreeBuilder builder;
+	private File file;
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+
+		System.out.println(getName());
+		lsloc   = new LSLOCMetric(AbstractMetricChecker.getChecker(LSLOCMetricChecker.class), "LSLOC", "lines of code");
+		builder = new HybridTreeBuilder("wstest");
+		file    = File.createTempFile("metriculator", "." + ColumnarSnapshotWriter.FILE_EXTENSION);
+
+		AbstractNode project = builder.addChild(builder.root, new ProjectNode("testproject"));
+		AbstractNode file1   = builder.addChild(project, new FileNode("file1"));
+		builder.addChild(file1, new FunctionDefNode("f1")).setNodeValue(lsloc.getId(), 5);
+		builder.addChild(file1, new FunctionDefNode("f2")).setNodeValue(lsloc.getId(), 3);
+		builder.addChild(builder.addChild(project, new FileNode("file2")), new FunctionDefNode("f1")).setNodeValue(lsloc.getId(), 2);
+	}
+
+	@Override
+	public void tearDown() throws Exception {
+		file.delete();
+		super.tearDown();
+	}
+
+	public void testColumnsInPreOrder() throws IOException {
+		assertEquals(7, new ColumnarSnapshotWriter(Arrays.asList(lsloc)).write(builder.root, file));
+
+		ColumnarSnapshotReader reader = ColumnarSnapshotReader.open(file);
+		assertEquals(7, reader.getNodeCount());
+		assertEquals(Arrays.asList(lsloc.getKey()), reader.getMetricKeys());
+
+		ColumnarSnapshotReader.NodeView root = reader.getRoot();
+		assertEquals("wstest", root.getScopeName());
+		assertEquals("workspacenode", root.getType());
+		assertNull(root.getParent());
+		assertEquals(7, root.getSubtreeSize());
+		assertEquals(10, root.getAggregatedValueOf(lsloc));
+
+		List<ColumnarSnapshotReader.NodeView> files = root.getChildren().get(0).getChildren();
+		assertEquals(2, files.size());
+		assertEquals("file2", files.get(1).getScopeName());
+		assertEquals(8, files.get(0).getAggregatedValueOf(lsloc));
+		assertEquals("f1", files.get(1).getChildren().get(0).getScopeName());
+		assertEquals(2, files.get(1).getChildren().get(0).getNodeValue(lsloc));
+		assertEquals("testproject", files.get(1).getParent().getScopeName());
+	}
+
+	public void testTreeFromSnapshotNeedsNoAggregation() throws IOException {
+		new ColumnarSnapshotWriter(Arrays.asList(lsloc)).write(builder.root, file);
+
+		AbstractTreeBuilder tree = ColumnarSnapshotReader.open(file).createTreeBuilder();
+		AbstractNode project     = tree.root.getChildren().iterator().next();
+
+		assertFalse(tree.root.isStale(lsloc.getId()));
+		assertEquals(10, tree.root.getAggregatedValueOf(lsloc));
+		assertTrue(project instanceof ProjectNode);
+		assertEquals(2, project.getChildren().size());
+		assertEquals(builder.root.getChildren().iterator().next().getHybridId(), project.getHybridId());
+	}
+
+	public void testKeepsSiblingsWithEqualNames() throws IOException {
+		AbstractNode project = builder.root.getChildren().iterator().next();
+		AbstractNode file3   = builder.addChild(project, new FileNode("file3"));
+		builder.addChild(file3, withAstHash(new NamespaceNode(""), 11)).setNodeValue(lsloc.getId(), 1);
+		builder.addChild(file3, withAstHash(new NamespaceNode(""), 12)).setNodeValue(lsloc.getId(), 2);
+		builder.addChild(file3, withAstHash(new TypeDeclNode("A"), 13));
+		builder.addChild(file3, withAstHash(new TypeDefNode("A"), 14)).setNodeValue(lsloc.getId(), 4);
+		assertEquals(4, file3.getChildren().size());
+
+		new ColumnarSnapshotWriter(Arrays.asList(lsloc)).write(builder.root, file);
+
+		AbstractTreeBuilder tree = ColumnarSnapshotReader.open(file).createTreeBuilder();
+		AbstractNode copy        = tree.root.getChildBy(project.getHybridId()).getChildBy(file3.getHybridId());
+
+		assertEquals(4, copy.getChildren().size());
+		assertEquals(7, copy.getAggregatedValueOf(lsloc));
+		for(AbstractNode child : file3.getChildren()){
+			AbstractNode childCopy = copy.getChildBy(child.getHybridId());
+			assertEquals(child.getClass(), childCopy.getClass());
+			assertEquals(child.getNodeValue(lsloc.getId()), childCopy.getNodeValue(lsloc.getId()));
+		}
+	}
+
+	public void testCanceledWriterLeavesFileUntouched() throws IOException {
+		NullProgressMonitor monitor   = new NullProgressMonitor();
+		ColumnarSnapshotWriter writer = new ColumnarSnapshotWriter(Arrays.asList(lsloc));
+		writer.setProgressMonitor(monitor);
+		monitor.setCanceled(true);
+
+		try {
+			writer.write(builder.root, file);
+			fail();
+		} catch (OperationCanceledException e) {
+		}
+		assertEquals(0, file.length());
+	}
+
+	public void testRejectsOtherFiles() throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(new byte[64]);
+		out.close();
+
+		try {
+			ColumnarSnapshotReader.open(file);
+			fail();
+		} catch (IOException e) {
+		}
+	}
+
+	private static LogicNode withAstHash(LogicNode node, int astNodeHashCode) {
+		node.setAstNodeHashCode(astNodeHashCode);
+		return node;
+	}
+}
@@ -0,0 +1,193 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model.test;
+
+import java.util.Collection;
+
+import junit.framework.TestCase;
+import ch.hsr.ifs.cdt.metriculator.model.DeclarationIndex;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FileNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionDeclNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionDefNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.MemberNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.TypeDeclNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.TypeDefNode;
+
+/**
+ * Test for {@see DeclarationIndex}.
+ */
+public class DeclarationIndexTest extends TestCase {
+
+	private DeclarationIndex index;
+	private FileNode header;
+	private FileNode otherHeader;
+	private FileNode source;
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+
+		System.out.println(getName());
+		index       = new DeclarationIndex();
+		header      = new FileNode("calc.h");
+		otherHeader = new FileNode("calc_ext.h");
+		source      = new FileNode("calc.cpp");
+	}
+
+	public void testFindsDeclarationsOfDefinitionInOtherFiles(){
+		MemberNode decl      = addDeclaration(header, functionDecl("Calc", "add"));
+		MemberNode otherDecl = addDeclaration(otherHeader, functionDecl("Calc", "add"));
+		MemberNode def       = addTo(source, functionDef("Calc", "add"));
+
+		Collection<MemberNode> found = index.getDeclarationsOf(def);
+
+		assertEquals(2, found.size());
+		assertTrue(found.contains(decl));
+		assertTrue(found.contains(otherDecl));
+	}
+
+	public void testOnlyFindsDeclarationsOfSameOwnerNameAndKind(){
+		MemberNode decl = addDeclaration(header, functionDecl("Calc", "add"));
+		addDeclaration(header, functionDecl("Calc", "sub"));
+		addDeclaration(header, functionDecl("Other", "add"));
+		addDeclaration(header, typeDecl("Calc", "add"));
+
+		Collection<MemberNode> found = index.getDeclarationsOf(addTo(source, functionDef("Calc", "add")));
+
+		assertEquals(1, found.size());
+		assertSame(decl, found.iterator().next());
+	}
+
+	public void testFindsTypeDeclarations(){
+		MemberNode decl = addDeclaration(header, typeDecl("", "Calc"));
+
+		Collection<MemberNode> found = index.getDeclarationsOf(addTo(source, typeDef("", "Calc")));
+
+		assertEquals(1, found.size());
+		assertSame(decl, found.iterator().next());
+	}
+
+	public void testIgnoresDefinitions(){
+		MemberNode def = addTo(source, functionDef("Calc", "add"));
+		index.add(def);
+
+		assertTrue(index.getDeclarationsOf(def).isEmpty());
+	}
+
+	public void testDeclarationIsNoDefinition(){
+		MemberNode decl = addDeclaration(header, functionDecl("Calc", "add"));
+
+		assertTrue(index.getDeclarationsOf(decl).isEmpty());
+	}
+
+	public void testReplacesDeclarationOfReanalysedFile(){
+		MemberNode oldDecl   = addDeclaration(header, functionDecl("Calc", "add"));
+		MemberNode otherDecl = addDeclaration(otherHeader, functionDecl("Calc", "add"));
+		MemberNode def       = addTo(source, functionDef("Calc", "add"));
+
+		index.remove(oldDecl);
+		oldDecl.removeFromParent();
+		MemberNode newDecl = addDeclaration(header, functionDecl("Calc", "add"));
+
+		Collection<MemberNode> found = index.getDeclarationsOf(def);
+
+		assertEquals(2, found.size());
+		assertFalse(found.contains(oldDecl));
+		assertTrue(found.contains(newDecl));
+		assertTrue(found.contains(otherDecl));
+	}
+
+	public void testRemovesDeclarationsOfFileOnly(){
+		MemberNode decl      = addDeclaration(header, functionDecl("Calc", "add"));
+		MemberNode otherDecl = addDeclaration(otherHeader, functionDecl("Calc", "add"));
+		MemberNode def       = addTo(source, functionDef("Calc", "add"));
+
+		index.remove(decl);
+
+		assertEquals(1, index.getDeclarationsOf(def).size());
+		assertSame(otherDecl, index.getDeclarationsOf(def).iterator().next());
+
+		index.remove(otherDecl);
+
+		assertTrue(index.getDeclarationsOf(def).isEmpty());
+	}
+
+	public void testRemoveOfUnknownDeclarationKeepsOthers(){
+		MemberNode decl = addDeclaration(header, functionDecl("Calc", "add"));
+		MemberNode def  = addTo(source, functionDef("Calc", "add"));
+
+		index.remove(functionDecl("Calc", "add"));
+		index.remove(def);
+
+		assertEquals(1, index.getDeclarationsOf(def).size());
+		assertSame(decl, index.getDeclarationsOf(def).iterator().next());
+	}
+
+	public void testClear(){
+		addDeclaration(header, functionDecl("Calc", "add"));
+		MemberNode def = addTo(source, functionDef("Calc", "add"));
+
+		index.clear();
+
+		assertTrue(index.getDeclarationsOf(def).isEmpty());
+	}
+
+	private MemberNode addDeclaration(FileNode file, MemberNode decl) {
+		index.add(addTo(file, decl));
+		return decl;
+	}
+
+	private static MemberNode addTo(FileNode file, MemberNode member) {
+		file.add(member);
+		return member;
+	}
+
+	/*
+	 * the logical names are resolved from the bindings of the AST, they are set directly here
+	 */
+	private static MemberNode functionDecl(final String ownerName, final String name) {
+		return new FunctionDeclNode(name + "()"){
+			{
+				logicalOwnerName = ownerName;
+				logicalName      = name;
+			}
+		};
+	}
+
+	private static MemberNode functionDef(final String ownerName, final String name) {
+		return new FunctionDefNode(name + "()"){
+			{
+				logicalOwnerName = ownerName;
+				logicalName      = name;
+			}
+		};
+	}
+
+	private static MemberNode typeDecl(final String ownerName, final String name) {
+		return new TypeDeclNode(name){
+			{
+				logicalOwnerName = ownerName;
+				logicalName      = name;
+			}
+		};
+	}
+
+	private static MemberNode typeDef(final String ownerName, final String name) {
+		return new TypeDefNode(name){
+			{
+				logicalOwnerName = ownerName;
+				logicalName      = name;
+			}
+		};
+	}
+}
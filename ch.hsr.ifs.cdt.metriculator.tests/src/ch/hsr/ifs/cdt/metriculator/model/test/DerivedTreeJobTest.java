@@ -0,0 +1,161 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model.test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import ch.hsr.ifs.cdt.metriculator.model.AbstractTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.DerivedTreeJob;
+import ch.hsr.ifs.cdt.metriculator.model.FlatTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.HybridTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.ModelSnapshot;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FileNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionDefNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.ProjectNode;
+
+/**
+ * Test for {@see DerivedTreeJob}.
+ */
+public class DerivedTreeJobTest extends TestCase {
+
+	private static final long TIMEOUT_S = 10;
+
+	private AbstractTreeBuilder frozen;
+	private AtomicInteger running;
+	private AtomicInteger maxRunning;
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+
+		System.out.println(getName());
+		HybridTreeBuilder builder = new HybridTreeBuilder("wstest");
+		AbstractNode file         = builder.addChild(builder.addChild(builder.root, new ProjectNode("testproject")), new FileNode("file1"));
+		builder.addChild(file, new FunctionDefNode("f1"));
+
+		frozen     = ModelSnapshot.freeze(builder.root);
+		running    = new AtomicInteger();
+		maxRunning = new AtomicInteger();
+	}
+
+	public void testAwaitReturnsBuiltTree() throws InterruptedException {
+		TestJob job = new TestJob(new CountDownLatch(0));
+		job.schedule();
+
+		FlatTreeBuilder tree = job.await(new NullProgressMonitor());
+
+		assertNotNull(tree);
+		assertFalse(tree.root.getChildren().isEmpty());
+		assertTrue(job.isDone());
+		assertEquals(IStatus.OK, job.getResult().getSeverity());
+		assertSame(tree, job.await(new NullProgressMonitor()));
+		assertEquals(1, job.builds);
+		assertFalse(job.wasCanceled());
+	}
+
+	public void testAwaitReturnsNullIfCanceledBeforeRunning() throws InterruptedException {
+		TestJob job = new TestJob(new CountDownLatch(0));
+		job.schedule(TimeUnit.SECONDS.toMillis(TIMEOUT_S));
+		assertTrue(job.cancel());
+
+		assertNull(job.await(new NullProgressMonitor()));
+		assertFalse(job.isDone());
+		assertTrue(job.wasCanceled());
+		assertEquals(0, job.builds);
+	}
+
+	public void testCanceledWaitDoesNotCancelJob() throws InterruptedException {
+		CountDownLatch gate = new CountDownLatch(1);
+		TestJob job         = new TestJob(gate);
+		job.schedule();
+		assertTrue(job.started.await(TIMEOUT_S, TimeUnit.SECONDS));
+
+		IProgressMonitor canceled = new NullProgressMonitor();
+		canceled.setCanceled(true);
+		try{
+			job.await(canceled);
+			fail();
+		}catch(InterruptedException e){
+		}
+
+		gate.countDown();
+		job.join();
+
+		assertTrue(job.isDone());
+		assertNotNull(job.await(new NullProgressMonitor()));
+	}
+
+	public void testSerialJobsDoNotBuildAtTheSameTime() throws InterruptedException {
+		CountDownLatch gate = new CountDownLatch(1);
+		TestJob first       = new TestJob(gate);
+		TestJob second      = new TestJob(new CountDownLatch(0));
+		first.setRule(DerivedTreeJob.SERIAL);
+		second.setRule(DerivedTreeJob.SERIAL);
+
+		first.schedule();
+		assertTrue(first.started.await(TIMEOUT_S, TimeUnit.SECONDS));
+		second.schedule();
+
+		assertFalse(second.started.await(200, TimeUnit.MILLISECONDS));
+
+		gate.countDown();
+		first.join();
+		second.join();
+
+		assertEquals(1, maxRunning.get());
+		assertNotNull(second.await(new NullProgressMonitor()));
+	}
+
+	/**
+	 * Builds the flat tree once the gate is open and records how many jobs build at the same time.
+	 * */
+	private class TestJob extends DerivedTreeJob<FlatTreeBuilder> {
+
+		final CountDownLatch started = new CountDownLatch(1);
+		private final CountDownLatch gate;
+		volatile int builds = 0;
+
+		TestJob(CountDownLatch gate) {
+			super("Building flat metric tree", frozen);
+			this.gate = gate;
+		}
+
+		@Override
+		protected FlatTreeBuilder build(AbstractTreeBuilder source) {
+			builds++;
+			int concurrent = running.incrementAndGet();
+			int max;
+			do{
+				max = maxRunning.get();
+			}while(concurrent > max && !maxRunning.compareAndSet(max, concurrent));
+			started.countDown();
+			try{
+				gate.await(TIMEOUT_S, TimeUnit.SECONDS);
+			}catch(InterruptedException e){
+				Thread.currentThread().interrupt();
+			}finally{
+				running.decrementAndGet();
+			}
+			return FlatTreeBuilder.buildFrom(source);
+		}
+	}
+}
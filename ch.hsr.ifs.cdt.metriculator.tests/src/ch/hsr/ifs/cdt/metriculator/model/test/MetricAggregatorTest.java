@@ -0,0 +1,181 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model.test;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.checkers.McCabeMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.McCabeMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.FlatTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.HybridTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.MetricAggregator;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FileNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FolderNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionDefNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.NamespaceNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.ProjectNode;
+
+/**
+ * Test for {@see MetricAggregator}.
+ */
+public class MetricAggregatorTest extends TestCase {
+
+	private AbstractMetric lsloc;
+	private AbstractMetric mccabe;
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+
+		System.out.println(getName());
+		if (lsloc == null) {
+			lsloc  = new LSLOCMetric(AbstractMetricChecker.getChecker(LSLOCMetricChecker.class), "LSLOC", "lines of code");
+			mccabe = new McCabeMetric(AbstractMetricChecker.getChecker(McCabeMetricChecker.class), "McCabe", "CC");
+		}
+	}
+
+	public void testDeepNestingDoesNotOverflowStack(){
+		HybridTreeBuilder b = new HybridTreeBuilder("wstest");
+		AbstractNode node   = b.addChild(b.root, new ProjectNode("testproject"));
+
+		for(int i = 0; i < 100000; i++){
+			node = node.add(new NamespaceNode("ns" + i));
+			node.setNodeValue(lsloc.getId(), 1);
+		}
+
+		new MetricAggregator(lsloc).aggregate(b.root);
+
+		assertEquals(100000, b.root.getAggregatedValue(lsloc.getId()));
+	}
+
+	public void testAllMetricsInOneWalk(){
+		HybridTreeBuilder b = new HybridTreeBuilder("wstest");
+		AbstractNode file   = b.addChild(b.addChild(b.root, new ProjectNode("testproject")), new FileNode("file1"));
+		AbstractNode f1     = b.addChild(file, new FunctionDefNode("f1"));
+		AbstractNode f2     = b.addChild(file, new FunctionDefNode("f2"));
+		f1.setNodeValue(lsloc.getId(), 3);
+		f1.setNodeValue(mccabe.getId(), 2);
+		f2.setNodeValue(lsloc.getId(), 4);
+		f2.setNodeValue(mccabe.getId(), 1);
+
+		new MetricAggregator(Arrays.asList(lsloc, mccabe)).aggregate(b.root);
+
+		assertEquals(7, b.root.getAggregatedValue(lsloc.getId()));
+		assertEquals(3, f1.getAggregatedValue(mccabe.getId()));
+		assertEquals(2, f2.getAggregatedValue(mccabe.getId()));
+		assertEquals(4, file.getAggregatedValue(mccabe.getId()));
+	}
+
+	public void testParallelAggregationEqualsSequential(){
+		HybridTreeBuilder parallel   = createWideTree();
+		HybridTreeBuilder sequential = createWideTree();
+
+		new MetricAggregator(Arrays.asList(lsloc, mccabe)).aggregate(parallel.root, MetricAggregator.PARALLEL_THRESHOLD, 4);
+		new MetricAggregator(Arrays.asList(lsloc, mccabe)).aggregate(sequential.root);
+
+		assertEquals(sequential.root.getAggregatedValue(lsloc.getId()), parallel.root.getAggregatedValue(lsloc.getId()));
+		assertEquals(sequential.root.getAggregatedValue(mccabe.getId()), parallel.root.getAggregatedValue(mccabe.getId()));
+		assertEquals(2 * 10 * 20 * 5, parallel.root.getAggregatedValue(lsloc.getId()));
+	}
+
+	public void testInterruptedParallelAggregationLeavesTotalsStale(){
+		HybridTreeBuilder b = createWideTree();
+
+		Thread.currentThread().interrupt();
+		new MetricAggregator(lsloc).aggregate(b.root, MetricAggregator.PARALLEL_THRESHOLD, 4);
+
+		assertTrue(Thread.interrupted());
+		assertTrue(b.root.isStale(lsloc.getId()));
+		assertEquals(2 * 10 * 20 * 5, b.root.getAggregatedValueOf(lsloc));
+	}
+
+	public void testChangesMarkOnlyTheirPathStale(){
+		HybridTreeBuilder b = createWideTree();
+		new MetricAggregator(lsloc).aggregate(b.root);
+
+		AbstractNode folder   = b.root.getChildren().iterator().next().getChildren().iterator().next();
+		AbstractNode function = folder.getChildren().iterator().next().getChildren().iterator().next();
+		AbstractNode sibling  = (AbstractNode) folder.getChildren().toArray()[1];
+		assertFalse(b.root.isStale(lsloc.getId()));
+
+		function.setNodeValue(lsloc.getId(), 6);
+
+		assertTrue(b.root.isStale(lsloc.getId()));
+		assertTrue(folder.isStale(lsloc.getId()));
+		assertFalse(sibling.isStale(lsloc.getId()));
+		assertEquals(2 * 10 * 20 * 5 + 1, b.root.getAggregatedValueOf(lsloc));
+		assertFalse(b.root.isStale(lsloc.getId()));
+	}
+
+	public void testRemovedChildMarksParentStale(){
+		HybridTreeBuilder b = createWideTree();
+		new MetricAggregator(lsloc).aggregate(b.root);
+
+		AbstractNode folder = b.root.getChildren().iterator().next().getChildren().iterator().next();
+		folder.getChildren().iterator().next().removeFromParent();
+
+		assertEquals(2 * 10 * 20 * 5 - 5, b.root.getAggregatedValueOf(lsloc));
+	}
+
+	public void testFlatRootKeepsTotalsOfHybridRoot(){
+		HybridTreeBuilder b = createWideTree();
+		new MetricAggregator(Arrays.asList(lsloc, mccabe)).aggregate(b.root);
+
+		FlatTreeBuilder flat = FlatTreeBuilder.buildSorted(b, Arrays.asList(lsloc, mccabe));
+
+		assertEquals(b.root.getAggregatedValueOf(lsloc), flat.root.getAggregatedValueOf(lsloc));
+		assertEquals(b.root.getAggregatedValueOf(mccabe), flat.root.getAggregatedValueOf(mccabe));
+		assertEquals(2 * 10 * 20 * 5, flat.root.getAggregatedValueOf(lsloc));
+	}
+
+	public void testAggregatingAgainKeepsTotalsOfFlatRoot(){
+		HybridTreeBuilder b = createWideTree();
+		new MetricAggregator(Arrays.asList(lsloc, mccabe)).aggregate(b.root);
+		FlatTreeBuilder flat = FlatTreeBuilder.buildSorted(b, Arrays.asList(lsloc, mccabe));
+
+		new MetricAggregator(Arrays.asList(lsloc, mccabe)).aggregateChildrenAndStale(flat.root);
+
+		assertEquals(2 * 10 * 20 * 5, flat.root.getAggregatedValue(lsloc.getId()));
+	}
+
+	public void testAggregatesStaleRootWithItsChildren(){
+		HybridTreeBuilder b = createWideTree();
+
+		new MetricAggregator(lsloc).aggregateChildrenAndStale(b.root);
+
+		assertFalse(b.root.isStale(lsloc.getId()));
+		assertEquals(2 * 10 * 20 * 5, b.root.getAggregatedValue(lsloc.getId()));
+	}
+
+	private HybridTreeBuilder createWideTree(){
+		HybridTreeBuilder b = new HybridTreeBuilder("wstest");
+		for(int p = 0; p < 2; p++){
+			AbstractNode project = b.addChild(b.root, new ProjectNode("project" + p));
+			for(int d = 0; d < 10; d++){
+				AbstractNode folder = b.addChild(project, new FolderNode("folder" + d));
+				for(int f = 0; f < 20; f++){
+					AbstractNode function = b.addChild(b.addChild(folder, new FileNode("file" + f)), new FunctionDefNode("f"));
+					function.setNodeValue(lsloc.getId(), 5);
+					function.setNodeValue(mccabe.getId(), f % 3);
+				}
+			}
+		}
+		return b;
+	}
+}
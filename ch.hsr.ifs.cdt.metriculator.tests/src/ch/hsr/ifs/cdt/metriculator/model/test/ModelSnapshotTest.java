@@ -0,0 +1,114 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model.test;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.DerivedTreeJob;
+import ch.hsr.ifs.cdt.metriculator.model.FlatTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.HybridTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.ModelSnapshot;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FileNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionDefNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.ProjectNode;
+
+/**
+ * Test for {@see ModelSnapshot}.
+ */
+public class ModelSnapshotTest extends TestCase {
+
+	private AbstractMetric lsloc;
+	private HybridTreeBuilder builder;
+	private AbstractNode file;
+	private AbstractNode function;
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+
+		System.out.println(getName());
+		lsloc    = new LSLOCMetric(AbstractMetricChecker.getChecker(LSLOCMetricChecker.class), "LSLOC", "lines of code");
+		builder  = new HybridTreeBuilder("wstest");
+		file     = builder.addChild(builder.addChild(builder.root, new ProjectNode("testproject")), new FileNode("file1"));
+		function = builder.addChild(file, new FunctionDefNode("f1"));
+		function.setNodeValue(lsloc.getId(), 5);
+		lsloc.aggregate(builder.root);
+	}
+
+	public void testFrozenTreeHasSameStructureAndValues(){
+		AbstractTreeBuilder frozen = ModelSnapshot.freeze(builder.root);
+
+		AbstractNode frozenFile = frozen.root.getChildren().iterator().next().getChildren().iterator().next();
+		assertNotSame(file, frozenFile);
+		assertEquals(file.getHybridId(), frozenFile.getHybridId());
+		assertEquals(5, frozen.root.getAggregatedValueOf(lsloc));
+		assertFalse(frozen.root.isStale(lsloc.getId()));
+	}
+
+	public void testChangesOfLiveTreeAreNotVisibleInSnapshot(){
+		AbstractTreeBuilder frozen = ModelSnapshot.freeze(builder.root);
+
+		function.setNodeValue(lsloc.getId(), 8);
+		builder.addChild(file, new FunctionDefNode("f2")).setNodeValue(lsloc.getId(), 1);
+
+		assertEquals(9, builder.root.getAggregatedValueOf(lsloc));
+		assertEquals(5, frozen.root.getAggregatedValueOf(lsloc));
+		assertEquals(1, frozen.root.getChildren().iterator().next().getChildren().iterator().next().getChildren().size());
+	}
+
+	public void testFrozenTreeCanNotBeChangedThroughBuilder(){
+		AbstractTreeBuilder frozen = ModelSnapshot.freeze(builder.root);
+
+		try{
+			frozen.addChild(frozen.root, new ProjectNode("other"));
+			fail();
+		}catch(UnsupportedOperationException e){
+		}
+	}
+
+	public void testSnapshotWithoutJobsBuildsDerivedTrees(){
+		ModelSnapshot snapshot = new ModelSnapshot(1, ModelSnapshot.freeze(builder.root), null, null);
+
+		assertEquals(1, snapshot.getVersion());
+		assertEquals(5, snapshot.getFlatTreeBuilder().root.getAggregatedValueOf(lsloc));
+		assertSame(snapshot.getLogicTreeBuilder(), snapshot.getLogicTreeBuilder());
+		assertTrue(snapshot.getFlatTreeJob().isDone());
+		assertTrue(snapshot.getLogicTreeJob().isDone());
+	}
+
+	public void testCanceledSnapshotSchedulesNewJob(){
+		AbstractTreeBuilder frozen              = ModelSnapshot.freeze(builder.root);
+		DerivedTreeJob<FlatTreeBuilder> delayed = new DerivedTreeJob<FlatTreeBuilder>("Building flat metric tree", frozen) {
+			@Override
+			protected FlatTreeBuilder build(AbstractTreeBuilder source) {
+				return FlatTreeBuilder.buildFrom(source);
+			}
+		};
+		delayed.schedule(TimeUnit.SECONDS.toMillis(10));
+		ModelSnapshot snapshot = new ModelSnapshot(1, frozen, delayed, null);
+
+		snapshot.cancel();
+
+		assertEquals(5, snapshot.getFlatTreeBuilder().root.getAggregatedValueOf(lsloc));
+		assertTrue(delayed.wasCanceled());
+		assertNotSame(delayed, snapshot.getFlatTreeJob());
+		assertSame(snapshot.getFlatTreeBuilder(), snapshot.getFlatTreeBuilder());
+	}
+}
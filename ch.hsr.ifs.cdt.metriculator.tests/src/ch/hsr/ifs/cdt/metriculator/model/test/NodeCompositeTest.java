@@ -13,14 +13,19 @@
 package ch.hsr.ifs.cdt.metriculator.model.test;
 
 import junit.framework.TestCase;
+
+import org.eclipse.cdt.codan.internal.core.model.CodanProblem;
+
 import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetric;
 import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetricChecker;
 import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
 import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
 import ch.hsr.ifs.cdt.metriculator.model.AbstractTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.MetricRegistry;
 import ch.hsr.ifs.cdt.metriculator.model.TreePrinter;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.FileNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.HybridId;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.LogicNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.NamespaceNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.ProjectNode;
@@ -191,4 +196,82 @@ public class NodeCompositeTest extends TestCase {
 		assertEquals(320, ns32.getValueOf(metricLSLOC).aggregatedValue);
 		assertEquals(320, ns32.getValueOf(metricLSLOC).nodeValue);
 	}
-}
\ No newline at end of file
+
+	public void testMetricIdAndKeyAreInterchangeable() {
+		AbstractNode n = new FileNode("file1");
+		n.setNodeValue(metricLSLOC.getKey(), 5);
+
+		assertEquals(metricLSLOC.getId(), MetricRegistry.getId(metricLSLOC.getKey()));
+		assertEquals(metricLSLOC.getKey(), MetricRegistry.getKey(metricLSLOC.getId()));
+		assertEquals(5, n.getNodeValue(metricLSLOC.getId()));
+		assertEquals(0, new FileNode("file2").getNodeValue(metricLSLOC.getId()));
+	}
+
+	public void testShallowCloneCopiesMetricValues() {
+		AbstractNode n = new FileNode("file1");
+		n.setNodeValue(metricLSLOC.getId(), 5);
+
+		AbstractNode clone = n.shallowClone();
+		clone.addNodeValuesFrom(n);
+
+		assertEquals(5, n.getNodeValue(metricLSLOC.getId()));
+		assertEquals(10, clone.getNodeValue(metricLSLOC.getId()));
+	}
+
+	public void testShallowCloneCopiesProblems() {
+		AbstractNode n = new FileNode("file1");
+		n.addProblem(new CodanProblem("problem1", "problem 1"));
+
+		AbstractNode clone = n.shallowClone();
+		n.addProblem(new CodanProblem("problem2", "problem 2"));
+
+		assertEquals(2, n.getProblems().size());
+		assertEquals(1, clone.getProblems().size());
+		assertEquals("problem1", clone.getProblems().iterator().next().getId());
+	}
+
+	public void testValueOfIsACopy() {
+		AbstractNode n = new FileNode("file1");
+		n.setNodeValue(metricLSLOC.getId(), 5);
+
+		n.getValueOf(metricLSLOC).nodeValue = 7;
+
+		assertEquals(5, n.getValueOf(metricLSLOC).nodeValue);
+		assertEquals(5, n.getAggregatedValueOf(metricLSLOC));
+	}
+
+	public void testEqualHybridIdsOfSeparatelyBuiltPaths() {
+		HybridId project = new HybridId(root.getHybridId(), "testproject");
+		HybridId file1   = new HybridId(new HybridId(project, "src"), new String("file1"));
+		HybridId file2   = new HybridId(new HybridId(project, "src"), new String("file1"));
+
+		assertEquals(file1, file2);
+		assertEquals(file1.hashCode(), file2.hashCode());
+		assertSame(file1.getName(), file2.getName());
+		assertFalse(file1.equals(new HybridId(project, "file1")));
+		assertFalse(file1.equals(new HybridId(file1.getParent(), "file1", 42)));
+	}
+
+	public void testHybridIdToStringIsPath() {
+		HybridId ns = new NamespaceNode("ns1").createHybridId(new HybridId(root.getHybridId(), "testproject"));
+
+		assertEquals(TESTWORKSPACE + AbstractTreeBuilder.PATH_SEPARATOR + "testproject" + AbstractTreeBuilder.PATH_SEPARATOR + "ns1", ns.toString());
+	}
+
+	public void testCloneKeepsAggregatedValuesUntilChildrenAreAdded() {
+		AbstractNode file = new FileNode("file1");
+		AbstractNode ns   = file.add(new NamespaceNode("ns1"));
+		ns.setNodeValue(metricLSLOC.getId(), 5);
+		assertEquals(5, file.getAggregatedValueOf(metricLSLOC));
+
+		AbstractNode clone = file.shallowClone();
+		assertEquals(0, clone.getChildren().size());
+		assertEquals(5, clone.getAggregatedValueOf(metricLSLOC));
+
+		clone.add(ns.shallowClone()).setNodeValue(metricLSLOC.getId(), 7);
+
+		assertEquals(7, clone.getAggregatedValueOf(metricLSLOC));
+		assertEquals(5, file.getAggregatedValueOf(metricLSLOC));
+		assertEquals(5, ns.getNodeValue(metricLSLOC.getId()));
+	}
+}
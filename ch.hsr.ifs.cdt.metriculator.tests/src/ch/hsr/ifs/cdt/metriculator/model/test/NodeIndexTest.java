@@ -0,0 +1,81 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import junit.framework.TestCase;
+import ch.hsr.ifs.cdt.metriculator.model.NodeFilter;
+import ch.hsr.ifs.cdt.metriculator.model.NodeIndex;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FileNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionDefNode;
+
+/**
+ * Test for {@see NodeIndex}.
+ */
+public class NodeIndexTest extends TestCase {
+
+	private List<AbstractNode> nodes;
+	private Comparator<AbstractNode> byName;
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+
+		System.out.println(getName());
+		nodes = new ArrayList<AbstractNode>();
+		nodes.add(new FileNode("c"));
+		nodes.add(new FunctionDefNode("b"));
+		nodes.add(new FileNode("a"));
+		byName = new Comparator<AbstractNode>() {
+			@Override
+			public int compare(AbstractNode n1, AbstractNode n2) {
+				return n1.getScopeName().compareTo(n2.getScopeName());
+			}
+		};
+	}
+
+	public void testKeepsOrderWithoutFilterAndComparator(){
+		NodeIndex index = NodeIndex.of(nodes, null, null);
+
+		assertEquals(3, index.size());
+		for(int row = 0; row < nodes.size(); row++){
+			assertSame(nodes.get(row), index.get(row));
+		}
+	}
+
+	public void testFiltersAndSorts(){
+		NodeIndex index = NodeIndex.of(nodes, NodeFilter.file(), byName);
+
+		assertEquals(2, index.size());
+		assertEquals("a", index.get(0).getScopeName());
+		assertEquals("c", index.get(1).getScopeName());
+		assertEquals(-1, index.indexOf(nodes.get(1)));
+		assertEquals(1, index.indexOf(nodes.get(0)));
+	}
+
+	public void testDoesNotChangeTheNodes(){
+		NodeIndex.of(nodes, NodeFilter.none(), byName);
+
+		assertEquals("c", nodes.get(0).getScopeName());
+	}
+
+	public void testEmptyList(){
+		assertSame(NodeIndex.EMPTY, NodeIndex.of(Collections.<AbstractNode>emptyList(), NodeFilter.file(), byName));
+		assertEquals(0, NodeIndex.EMPTY.size());
+	}
+}
@@ -0,0 +1,107 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+
+package ch.hsr.ifs.cdt.metriculator.model.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import ch.hsr.ifs.cdt.metriculator.model.HybridTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.PartialResult;
+import ch.hsr.ifs.cdt.metriculator.model.PartialResultPublisher;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FileNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FolderNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionDefNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.ProjectNode;
+
+/**
+ * Test for {@see PartialResultPublisher}.
+ */
+public class PartialResultPublisherTest extends TestCase {
+
+	private HybridTreeBuilder builder;
+	private AbstractNode folder;
+	private List<PartialResult> published;
+	private PartialResultPublisher.Listener listener;
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+
+		System.out.println(getName());
+		builder   = new HybridTreeBuilder("wstest");
+		folder    = builder.addChild(builder.addChild(builder.root, new ProjectNode("testproject")), new FolderNode("src"));
+		published = new ArrayList<PartialResult>();
+		listener  = new PartialResultPublisher.Listener() {
+			@Override
+			public void published(PartialResult result) {
+				published.add(result);
+			}
+		};
+	}
+
+	private AbstractNode addFile(String name) {
+		AbstractNode file = builder.addChild(folder, new FileNode(name));
+		builder.addChild(file, new FunctionDefNode("f"));
+		return file;
+	}
+
+	public void testPublishesBatchesOfTheBatchSize(){
+		PartialResultPublisher publisher = new PartialResultPublisher(listener, 2, Long.MAX_VALUE);
+
+		for(int i = 0; i < 5; i++){
+			publisher.fileCompleted(addFile("file" + i + ".cpp"));
+		}
+		publisher.reset();
+
+		assertEquals(2, published.size());
+		assertEquals(2, published.get(0).getFiles().size());
+		assertEquals(2, published.get(1).getFiles().size());
+	}
+
+	public void testPublishesCopiesWithTheirProjectAndFolders(){
+		PartialResultPublisher publisher = new PartialResultPublisher(listener, 1, Long.MAX_VALUE);
+		AbstractNode file                = addFile("file.cpp");
+
+		publisher.fileCompleted(file);
+
+		AbstractNode project = published.get(0).getFiles().get(0);
+		assertTrue(project instanceof ProjectNode);
+		assertNotSame(folder.getParent(), project);
+		AbstractNode folderCopy = project.getChildren().iterator().next();
+		assertEquals("src", folderCopy.getScopeName());
+		AbstractNode fileCopy = folderCopy.getChildren().iterator().next();
+		assertNotSame(file, fileCopy);
+		assertEquals("file.cpp", fileCopy.getScopeName());
+		assertEquals(1, fileCopy.getChildren().size());
+		assertEquals(1, folder.getChildren().size());
+	}
+
+	public void testCopiesMergeIntoAPartialTree(){
+		PartialResultPublisher publisher = new PartialResultPublisher(listener, 2, Long.MAX_VALUE);
+		publisher.fileCompleted(addFile("a.cpp"));
+		publisher.fileCompleted(addFile("b.cpp"));
+
+		HybridTreeBuilder partialTree = new HybridTreeBuilder("wstest");
+		for(AbstractNode file : published.get(0).getFiles()){
+			partialTree.addChild(partialTree.root, file);
+		}
+
+		assertEquals(1, partialTree.root.getChildren().size());
+		AbstractNode project = partialTree.root.getChildren().iterator().next();
+		assertEquals(1, project.getChildren().size());
+		assertEquals(2, project.getChildren().iterator().next().getChildren().size());
+	}
+}
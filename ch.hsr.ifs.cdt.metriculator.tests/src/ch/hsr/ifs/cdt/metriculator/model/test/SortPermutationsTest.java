@@ -0,0 +1,105 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model.test;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.checkers.McCabeMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.McCabeMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.NodeFilter;
+import ch.hsr.ifs.cdt.metriculator.model.NodeIndex;
+import ch.hsr.ifs.cdt.metriculator.model.SortPermutations;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FileNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionDefNode;
+
+/**
+ * Test for {@see SortPermutations}.
+ */
+public class SortPermutationsTest extends TestCase {
+
+	private AbstractMetric lsloc;
+	private AbstractMetric mccabe;
+	private AbstractNode[] nodes;
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+
+		System.out.println(getName());
+		lsloc  = new LSLOCMetric(AbstractMetricChecker.getChecker(LSLOCMetricChecker.class), "LSLOC", "lines of code");
+		mccabe = new McCabeMetric(AbstractMetricChecker.getChecker(McCabeMetricChecker.class), "McCabe", "CC");
+		nodes  = new AbstractNode[]{ createNode("f0", 5), createNode("f1", -1), createNode("f2", 5), createNode("f3", 2) };
+	}
+
+	private AbstractNode createNode(String name, int value) {
+		AbstractNode node = new FunctionDefNode(name);
+		node.setNodeValue(lsloc.getId(), value);
+		return node;
+	}
+
+	public void testAscendingOrderKeepsModelOrderForEqualValues(){
+		int[] order = SortPermutations.ascendingOrder(nodes, lsloc);
+
+		assertTrue(Arrays.equals(new int[]{ 1, 3, 0, 2 }, order));
+	}
+
+	public void testIndexReadsTheOrderInBothDirections(){
+		int[] order = SortPermutations.ascendingOrder(nodes, lsloc);
+
+		NodeIndex ascending  = NodeIndex.of(nodes, order, false, null);
+		NodeIndex descending = NodeIndex.of(nodes, order, true, NodeFilter.none());
+
+		assertEquals(4, descending.size());
+		for(int row = 0; row < nodes.length; row++){
+			assertSame(ascending.get(row), descending.get(nodes.length - 1 - row));
+		}
+		assertEquals(-1, ascending.get(0).getAggregatedValueOf(lsloc));
+		assertEquals(5, descending.get(0).getAggregatedValueOf(lsloc));
+	}
+
+	public void testIndexFiltersInOrder(){
+		AbstractNode[] mixed = { nodes[0], new FileNode("file"), nodes[1] };
+		int[] order          = SortPermutations.ascendingOrder(mixed, lsloc);
+
+		NodeIndex index = NodeIndex.of(mixed, order, false, NodeFilter.function());
+
+		assertEquals(2, index.size());
+		assertSame(nodes[1], index.get(0));
+		assertSame(nodes[0], index.get(1));
+	}
+
+	public void testComputesOrderOncePerParentAndMetric(){
+		AbstractNode parent = new FileNode("file");
+		for(AbstractNode node : nodes){
+			parent.add(node);
+		}
+		SortPermutations permutations = new SortPermutations();
+		permutations.precompute(parent, Arrays.asList(lsloc, mccabe));
+
+		AbstractNode[] children = permutations.getChildren(parent);
+		int[] order             = permutations.getOrder(parent, lsloc);
+
+		assertEquals(nodes.length, children.length);
+		assertSame(children, permutations.getChildren(parent));
+		assertSame(order, permutations.getOrder(parent, lsloc));
+		assertNotSame(order, permutations.getOrder(parent, mccabe));
+		assertEquals(-1, children[order[0]].getAggregatedValueOf(lsloc));
+		assertEquals(5, children[order[order.length - 1]].getAggregatedValueOf(lsloc));
+	}
+}
@@ -31,6 +31,7 @@ import ch.hsr.ifs.cdt.metriculator.model.nodes.TypeDefNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.FileNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.FolderNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionDefNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.HybridId;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.NamespaceNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.ProjectNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.WorkspaceNode;
@@ -142,8 +143,9 @@ public class TreeBuilderTest extends MetriculatorCheckerTestCase {
 	}
 	
 	public void testCreateTreeFromPathAndMergeWithHybrid()  {
-		AbstractNode file1 = AbstractTreeBuilder.createTreeFromPath("workspace"+AbstractTreeBuilder.PATH_SEPARATOR+"project", new Path("/src/cute/folder1/test.cpp"), null);
-		AbstractNode file11 = AbstractTreeBuilder.createTreeFromPath("workspace"+AbstractTreeBuilder.PATH_SEPARATOR+"project", new Path("/src/cute/folder1/folder11/test.cpp"), null);
+		HybridId projectId  = new HybridId(new HybridId(null, "workspace"), "project");
+		AbstractNode file1  = AbstractTreeBuilder.createTreeFromPath(projectId, new Path("/src/cute/folder1/test.cpp"), null);
+		AbstractNode file11 = AbstractTreeBuilder.createTreeFromPath(projectId, new Path("/src/cute/folder1/folder11/test.cpp"), null);
 		AbstractNode fileSystemTop1  = file1.getRoot();
 		AbstractNode fileSystemTop11  = file11.getRoot();
 		
@@ -295,6 +297,35 @@ public class TreeBuilderTest extends MetriculatorCheckerTestCase {
 		root = b.root;
 	}
 	
+	public void testAddReplacingFiles(){
+		HybridTreeBuilder b = new HybridTreeBuilder("wstest");
+
+		FileNode f1  = new FileNode("file1");
+		FileNode f2  = new FileNode("file2");
+		f1.setAnalysedResource("/testproject/file1", 1);
+		f2.setAnalysedResource("/testproject/file2", 1);
+		AbstractNode proj = b.addChild(b.root, new ProjectNode("testproject"));
+		b.addChild(b.addChild(proj, f1), new NamespaceNode("ns1"));
+		b.addChild(proj, f2);
+
+		AbstractNode projCopy = new ProjectNode("testproject");
+		FileNode f1Changed    = new FileNode("file1");
+		f1Changed.setAnalysedResource("/testproject/file1", 2);
+		projCopy.add(f1Changed).add(new NamespaceNode("ns2"));
+
+		b.addReplacingFiles(projCopy);
+
+		assertEquals(1, b.root.getChildren().size());
+		assertEquals(2, proj.getChildren().size());
+		assertEquals(2, b.getFiles().size());
+		AbstractNode file1 = b.getChildBy(f1.getHybridId());
+		assertNotSame(f1, file1);
+		assertEquals(1, file1.getChildren().size());
+		assertEquals("ns2", file1.getChildren().iterator().next().getScopeName());
+
+		root = b.root;
+	}
+
 	public void testCreateLogicTree(){
 		HybridTreeBuilder b = new HybridTreeBuilder("wstest");
 		
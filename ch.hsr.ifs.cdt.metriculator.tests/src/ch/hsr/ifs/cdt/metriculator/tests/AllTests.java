@@ -16,25 +16,57 @@ import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 import ch.hsr.ifs.cdt.metriculator.converters.test.ASCIIModelConverterTest;
+import ch.hsr.ifs.cdt.metriculator.converters.test.JSONPChunkWriterTest;
+import ch.hsr.ifs.cdt.metriculator.converters.test.StreamConverterTest;
+import ch.hsr.ifs.cdt.metriculator.converters.test.TextReportWriterTest;
 import ch.hsr.ifs.cdt.metriculator.converters.test.XMLModelConverterTest;
+import ch.hsr.ifs.cdt.metriculator.headless.test.HeadlessArgumentsTest;
+import ch.hsr.ifs.cdt.metriculator.model.test.ColumnarSnapshotTest;
+import ch.hsr.ifs.cdt.metriculator.model.test.DeclarationIndexTest;
+import ch.hsr.ifs.cdt.metriculator.model.test.DerivedTreeJobTest;
+import ch.hsr.ifs.cdt.metriculator.model.test.MetricAggregatorTest;
+import ch.hsr.ifs.cdt.metriculator.model.test.ModelSnapshotTest;
 import ch.hsr.ifs.cdt.metriculator.model.test.NodeCompositeTest;
 import ch.hsr.ifs.cdt.metriculator.model.test.NodeFilterTest;
+import ch.hsr.ifs.cdt.metriculator.model.test.NodeIndexTest;
+import ch.hsr.ifs.cdt.metriculator.model.test.PartialResultPublisherTest;
+import ch.hsr.ifs.cdt.metriculator.model.test.SortPermutationsTest;
 import ch.hsr.ifs.cdt.metriculator.model.test.TreeBuilderIndexerTest;
 import ch.hsr.ifs.cdt.metriculator.model.test.TreeBuilderTest;
+import ch.hsr.ifs.cdt.metriculator.views.test.CellLabelProviderTest;
 
 @RunWith(Suite.class)
 @Suite.SuiteClasses({ 
 	NodeCompositeTest.class, 
+	MetricAggregatorTest.class,
+	ModelSnapshotTest.class,
+	DerivedTreeJobTest.class,
+	ColumnarSnapshotTest.class,
 	TreeBuilderTest.class,
 	TreeBuilderIndexerTest.class,
 	NodeFilterTest.class,
+	NodeIndexTest.class,
+	DeclarationIndexTest.class,
+	SortPermutationsTest.class,
+	PartialResultPublisherTest.class,
 	LSLOCMetricCheckerTest.class, 
 	McCabeMetricCheckerTest.class, 
 	NumberParamsCheckerTest.class,
 	NumberMembersCheckerTest.class,
 	EfferentCouplingMetricCheckerTest.class,
+	FusedMetricCheckerTest.class,
+	ProblemMarkerTest.class,
+	ParallelAnalysisTest.class,
+	IncrementalAnalysisTest.class,
+	MetricCacheTest.class,
+	AnalysisEventBusTest.class,
 	XMLModelConverterTest.class,
-	ASCIIModelConverterTest.class
+	ASCIIModelConverterTest.class,
+	JSONPChunkWriterTest.class,
+	StreamConverterTest.class,
+	TextReportWriterTest.class,
+	HeadlessArgumentsTest.class,
+	CellLabelProviderTest.class
 })
 
 public class AllTests {
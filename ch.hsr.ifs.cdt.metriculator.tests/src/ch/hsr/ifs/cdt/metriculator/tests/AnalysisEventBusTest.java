@@ -0,0 +1,144 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+
+package ch.hsr.ifs.cdt.metriculator.tests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import junit.framework.TestCase;
+import ch.hsr.ifs.cdt.metriculator.AnalysisEvent;
+import ch.hsr.ifs.cdt.metriculator.AnalysisEventBus;
+import ch.hsr.ifs.cdt.metriculator.model.HybridTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.PartialResult;
+import ch.hsr.ifs.cdt.metriculator.model.PartialResultPublisher;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FileNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.ProjectNode;
+
+/**
+ * Test for {@see AnalysisEventBus}.
+ */
+public class AnalysisEventBusTest extends TestCase {
+
+	private AnalysisEventBus bus;
+	private List<AnalysisEvent> handled;
+	private AnalysisEventBus.Listener<AnalysisEvent> listener;
+	private List<Runnable> tasks;
+	private Executor later;
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+
+		System.out.println(getName());
+		bus      = new AnalysisEventBus();
+		handled  = new ArrayList<AnalysisEvent>();
+		listener = new AnalysisEventBus.Listener<AnalysisEvent>() {
+			@Override
+			public void handle(AnalysisEvent event) {
+				handled.add(event);
+			}
+		};
+		tasks = new ArrayList<Runnable>();
+		later = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				tasks.add(command);
+			}
+		};
+	}
+
+	private void runTasks() {
+		while(!tasks.isEmpty()){
+			tasks.remove(0).run();
+		}
+	}
+
+	public void testSubscribesAListenerOncePerType(){
+		assertTrue(bus.subscribe(AnalysisEvent.class, listener, AnalysisEventBus.SYNCHRONOUS));
+		assertFalse(bus.subscribe(AnalysisEvent.class, listener, AnalysisEventBus.SYNCHRONOUS));
+
+		bus.publish(new AnalysisEvent.RunStarted(1, null));
+
+		assertEquals(1, handled.size());
+	}
+
+	public void testDeliversTheSubscribedTypeOnly(){
+		bus.subscribe(AnalysisEvent.RunStarted.class, listener, AnalysisEventBus.SYNCHRONOUS);
+
+		bus.publish(new AnalysisEvent.RunCompleted(1));
+		bus.publish(new AnalysisEvent.RunStarted(2, null));
+
+		assertEquals(1, handled.size());
+		assertTrue(handled.get(0) instanceof AnalysisEvent.RunStarted);
+	}
+
+	public void testPublishingDoesNotWaitForTheListener(){
+		bus.subscribe(AnalysisEvent.class, listener, later);
+
+		bus.publish(new AnalysisEvent.RunStarted(1, null));
+		bus.publish(new AnalysisEvent.RunCompleted(1));
+		bus.publish(new AnalysisEvent.RunStarted(2, null));
+
+		assertTrue(handled.isEmpty());
+		assertEquals(1, tasks.size());
+
+		runTasks();
+
+		assertEquals(3, handled.size());
+		assertTrue(handled.get(1) instanceof AnalysisEvent.RunCompleted);
+		assertEquals(2, handled.get(2).getVersion());
+	}
+
+	public void testMergesFilesWhenTheQueueIsFull(){
+		final List<PartialResult> results = new ArrayList<PartialResult>();
+		PartialResultPublisher publisher  = new PartialResultPublisher(new PartialResultPublisher.Listener() {
+			@Override
+			public void published(PartialResult result) {
+				results.add(result);
+			}
+		}, 1, Long.MAX_VALUE);
+		HybridTreeBuilder builder = new HybridTreeBuilder("wstest");
+		AbstractNode project      = builder.addChild(builder.root, new ProjectNode("testproject"));
+		int files                 = AnalysisEventBus.QUEUE_CAPACITY + 10;
+		for(int i = 0; i < files; i++){
+			publisher.fileCompleted(builder.addChild(project, new FileNode("file" + i + ".cpp")));
+		}
+		bus.subscribe(AnalysisEvent.FilesAnalyzed.class, listener, later);
+
+		for(PartialResult result : results){
+			bus.publish(new AnalysisEvent.FilesAnalyzed(1, result));
+		}
+		runTasks();
+
+		assertEquals(AnalysisEventBus.QUEUE_CAPACITY, handled.size());
+		int delivered = 0;
+		for(AnalysisEvent event : handled){
+			delivered += ((AnalysisEvent.FilesAnalyzed) event).getResult().getFiles().size();
+		}
+		assertEquals(files, delivered);
+	}
+
+	public void testUnsubscribedListenerGetsNoQueuedEvents(){
+		bus.subscribe(AnalysisEvent.class, listener, later);
+		bus.publish(new AnalysisEvent.RunStarted(1, null));
+
+		bus.unsubscribe(listener);
+		bus.publish(new AnalysisEvent.RunCompleted(1));
+		runTasks();
+
+		assertTrue(handled.isEmpty());
+	}
+}
@@ -0,0 +1,112 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
+import ch.hsr.ifs.cdt.metriculator.checkers.EfferentCouplingMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.EfferentCouplingMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.checkers.McCabeMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.McCabeMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.checkers.NumberMembersMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.NumberMembersMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.checkers.NumberParamsMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.NumberParamsMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.TreePrinter;
+
+/**
+ * Validates that the fused pass over a translation unit produces the same tree and values
+ * as analysing the translation unit with one metric checker at a time.
+ */
+public class FusedMetricCheckerTest extends MetriculatorCheckerTestCase {
+
+	private static final String[] PROBLEM_IDS = {
+		LSLOCMetricChecker.LSLOC_PROBLEM_ID,
+		McCabeMetricChecker.MCCABE_PROBLEM_ID,
+		NumberParamsMetricChecker.NBPARAMS_PROBLEM_ID,
+		NumberMembersMetricChecker.NBMEMBERS_PROBLEM_ID,
+		EfferentCouplingMetricChecker.EFFERENTCOUPLING_PROBLEM_ID
+	};
+
+	private AbstractMetric[] metrics;
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		System.out.println(super.getName());
+
+		if (metrics == null) {
+			metrics = new AbstractMetric[]{
+				new LSLOCMetric(AbstractMetricChecker.getChecker(LSLOCMetricChecker.class), "LSLOC", "lines of code"),
+				new McCabeMetric(AbstractMetricChecker.getChecker(McCabeMetricChecker.class), "McCabe", "CC"),
+				new NumberParamsMetric(AbstractMetricChecker.getChecker(NumberParamsMetricChecker.class), "NbParams", "number of parameters"),
+				new NumberMembersMetric(AbstractMetricChecker.getChecker(NumberMembersMetricChecker.class), "NbMembers", "number of members"),
+				new EfferentCouplingMetric(AbstractMetricChecker.getChecker(EfferentCouplingMetricChecker.class), "EC", "efferent coupling")
+			};
+		}
+	}
+
+	private String analyse(AbstractMetric metric, String... problemIds){
+		enableProblems(problemIds);
+		MetriculatorPluginActivator.getDefault().resetTreeBuilders();
+		runOnProject();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TreePrinter.printTree(MetriculatorPluginActivator.getDefault().getHybridTreeBuilder().root, new PrintStream(out), metric);
+		return out.toString();
+	}
+
+	private void assertFusedEqualsSingle(){
+		for(int i = 0; i < metrics.length; i++){
+			String single = analyse(metrics[i], PROBLEM_IDS[i]);
+			String fused  = analyse(metrics[i], PROBLEM_IDS);
+			assertEquals(single, fused);
+		}
+	}
+
+	//	namespace N {
+	//	class Foo;
+	//	class Bar {
+	//	public:
+	//		Bar(int i, int j);
+	//		int calc(int x, Foo* f);
+	//	private:
+	//		Foo* foo;
+	//		int value;
+	//	};
+	//	}
+	//
+	//	N::Bar::Bar(int i, int j):foo(0), value(i){
+	//		for(int k = 0; k < j; ++k){
+	//			value += k > 2 && k < 5 ? k : 0;
+	//		}
+	//	}
+	//
+	//	int main(int argc, char** argv){
+	//		N::Bar b(argc, 1);
+	//		if(argc > 1 || argv == 0){
+	//			return -1;
+	//		}
+	//		return b.calc(argc, 0);
+	//	}
+	public void testFusedPassEqualsSinglePasses(){
+		loadcode(getAboveComment());
+		assertFusedEqualsSingle();
+	}
+}
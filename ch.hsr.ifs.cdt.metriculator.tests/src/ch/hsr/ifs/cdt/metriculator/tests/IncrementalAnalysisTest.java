@@ -0,0 +1,126 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Path;
+
+import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.checkers.McCabeMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.McCabeMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.HybridTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.TreePrinter;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+
+/**
+ * Validates that a reused hybrid tree analyses only changed files and still aggregates the same values as a new tree.
+ */
+public class IncrementalAnalysisTest extends MetriculatorCheckerTestCase {
+
+	private AbstractMetric lsloc;
+	private AbstractMetric mccabe;
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		System.out.println(super.getName());
+
+		enableProblems(LSLOCMetricChecker.LSLOC_PROBLEM_ID, McCabeMetricChecker.MCCABE_PROBLEM_ID);
+
+		if (lsloc == null) {
+			lsloc  = new LSLOCMetric(AbstractMetricChecker.getChecker(LSLOCMetricChecker.class), "LSLOC", "lines of code");
+			mccabe = new McCabeMetric(AbstractMetricChecker.getChecker(McCabeMetricChecker.class), "McCabe", "CC");
+		}
+	}
+
+	private String printTree(HybridTreeBuilder builder){
+		builder.aggregate(lsloc);
+		builder.aggregate(mccabe);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TreePrinter.printTree(builder.root, new PrintStream(out), lsloc, mccabe);
+		return out.toString();
+	}
+
+	private String analyseAgain(){
+		HybridTreeBuilder builder = MetriculatorPluginActivator.getDefault().getHybridTreeBuilder();
+		builder.beginRun();
+		runOnProject();
+		return printTree(builder);
+	}
+
+	private String analyseNew(){
+		MetriculatorPluginActivator.getDefault().resetTreeBuilders();
+		runOnProject();
+		return printTree(MetriculatorPluginActivator.getDefault().getHybridTreeBuilder());
+	}
+
+	//	int calc(int x){
+	//		if(x > 0 && x < 10){
+	//			return x;
+	//		}
+	//		return 0;
+	//	}
+	public void testUnchangedFileIsKept(){
+		loadcode(getAboveComment());
+
+		String analysed       = analyseNew();
+		AbstractNode fileNode = getFirstChildInDepth(MetriculatorPluginActivator.getDefault().getHybridTreeBuilder().root, 1);
+
+		assertEquals(analysed, analyseAgain());
+		assertSame(fileNode, getFirstChildInDepth(MetriculatorPluginActivator.getDefault().getHybridTreeBuilder().root, 1));
+	}
+
+	//	int calc(int x){
+	//		return x;
+	//	}
+	public void testChangedFileIsAnalysedAgain() throws CoreException{
+		File file = loadcode(getAboveComment());
+		analyseNew();
+
+		IFile resource = ResourcesPlugin.getWorkspace().getRoot().getFileForLocation(new Path(file.getAbsolutePath()));
+		resource.setContents(new ByteArrayInputStream("int calc(int x){\n\tif(x > 0){\n\t\treturn x;\n\t}\n\treturn 0;\n}\n".getBytes()), true, false, null);
+
+		String reanalysed = analyseAgain();
+		assertEquals(analyseNew(), reanalysed);
+	}
+
+	public void testFileIsAnalysedAgainIfIncludedFileChanged() throws CoreException{
+		File header = loadcode("int calc(int x);\n", "calc.h");
+		File source = loadcode("#include \"calc.h\"\nint main(){\n\treturn calc(1);\n}\n", "main.cpp");
+		analyseNew();
+
+		IFile sourceResource = ResourcesPlugin.getWorkspace().getRoot().getFileForLocation(new Path(source.getAbsolutePath()));
+		IFile headerResource = ResourcesPlugin.getWorkspace().getRoot().getFileForLocation(new Path(header.getAbsolutePath()));
+		AbstractNode fileNode = MetriculatorPluginActivator.getDefault().getHybridTreeBuilder().getFile(sourceResource);
+		assertNotNull(fileNode);
+
+		headerResource.setContents(new ByteArrayInputStream("int calc(int x);\nint calc(int x, int y);\n".getBytes()), true, false, null);
+		// the file system may keep modification times in seconds only
+		header.setLastModified(header.lastModified() + 10000);
+
+		analyseAgain();
+		assertNotSame(fileNode, MetriculatorPluginActivator.getDefault().getHybridTreeBuilder().getFile(sourceResource));
+	}
+}
@@ -0,0 +1,139 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Path;
+
+import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.checkers.McCabeMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.McCabeMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.MetricCache;
+import ch.hsr.ifs.cdt.metriculator.model.TreePrinter;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+
+/**
+ * Validates that a file restored from the metric cache results in the same tree, values and problems as analysing it.
+ */
+public class MetricCacheTest extends MetriculatorCheckerTestCase {
+
+	private AbstractMetric lsloc;
+	private AbstractMetric mccabe;
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		System.out.println(super.getName());
+
+		enableProblems(LSLOCMetricChecker.LSLOC_PROBLEM_ID, McCabeMetricChecker.MCCABE_PROBLEM_ID);
+
+		if (lsloc == null) {
+			lsloc  = new LSLOCMetric(AbstractMetricChecker.getChecker(LSLOCMetricChecker.class), "LSLOC", "lines of code");
+			mccabe = new McCabeMetric(AbstractMetricChecker.getChecker(McCabeMetricChecker.class), "McCabe", "CC");
+		}
+		MetriculatorPluginActivator.getDefault().getMetricCache().setConfiguration(AbstractMetricChecker.describeConfiguration());
+	}
+
+	@Override
+	public void tearDown() throws CoreException {
+		MetriculatorPluginActivator.getDefault().getMetricCache().setConfiguration(null);
+		super.tearDown();
+	}
+
+	private String analyse(){
+		MetriculatorPluginActivator.getDefault().resetTreeBuilders();
+		runOnProject();
+
+		AbstractNode root         = MetriculatorPluginActivator.getDefault().getHybridTreeBuilder().root;
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TreePrinter.printTree(root, new PrintStream(out), lsloc, mccabe);
+		return out.toString() + countProblems(root);
+	}
+
+	private static int countProblems(AbstractNode node){
+		int count = node.getProblems().size();
+		for(AbstractNode child : node.getChildren()){
+			count += countProblems(child);
+		}
+		return count;
+	}
+
+	//	namespace N {
+	//	class Foo {
+	//	public:
+	//		int calc(int x);
+	//	};
+	//	}
+	//
+	//	int N::Foo::calc(int x){
+	//		if(x == 1 || x == 2 || x == 3 || x == 4 || x == 5 || x == 6 || x == 7 || x == 8 ||
+	//		   x == 9 || x == 10 || x == 11 || x == 12 || x == 13 || x == 14 || x == 15 || x == 16){
+	//			return x;
+	//		}
+	//		return 0;
+	//	}
+	public void testRestoredTreeEqualsAnalysedTree(){
+		loadcode(getAboveComment());
+		MetricCache cache = MetriculatorPluginActivator.getDefault().getMetricCache();
+
+		String analysed = analyse();
+		cache.save(MetriculatorPluginActivator.getDefault().getHybridTreeBuilder());
+
+		assertEquals(analysed, analyse());
+	}
+
+	//	int calc(int x){
+	//		return x;
+	//	}
+	public void testCacheIsReplacedWhileMapped(){
+		loadcode(getAboveComment());
+		MetricCache cache = MetriculatorPluginActivator.getDefault().getMetricCache();
+
+		String analysed = analyse();
+		cache.save(MetriculatorPluginActivator.getDefault().getHybridTreeBuilder());
+		assertEquals(analysed, analyse()); // restored from the mapped cache file
+		cache.save(MetriculatorPluginActivator.getDefault().getHybridTreeBuilder());
+
+		assertEquals(analysed, analyse());
+	}
+
+	public void testFileIsNotRestoredIfIncludedFileChanged() throws CoreException{
+		File header = loadcode("int calc(int x);\n", "calc.h");
+		File source = loadcode("#include \"calc.h\"\nint main(){\n\treturn calc(1);\n}\n", "main.cpp");
+		MetricCache cache = MetriculatorPluginActivator.getDefault().getMetricCache();
+
+		analyse();
+		cache.save(MetriculatorPluginActivator.getDefault().getHybridTreeBuilder());
+
+		IFile sourceResource = ResourcesPlugin.getWorkspace().getRoot().getFileForLocation(new Path(source.getAbsolutePath()));
+		IFile headerResource = ResourcesPlugin.getWorkspace().getRoot().getFileForLocation(new Path(header.getAbsolutePath()));
+		assertTrue(cache.contains(sourceResource));
+
+		headerResource.setContents(new ByteArrayInputStream("int calc(int x);\nint calc(int x, int y);\n".getBytes()), true, false, null);
+		// the file system may keep modification times in seconds only
+		header.setLastModified(header.lastModified() + 10000);
+
+		assertFalse(cache.contains(sourceResource));
+	}
+}
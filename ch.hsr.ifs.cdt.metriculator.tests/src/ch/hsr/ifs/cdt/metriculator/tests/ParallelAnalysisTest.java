@@ -0,0 +1,109 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import org.eclipse.core.runtime.CoreException;
+
+import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.checkers.McCabeMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.McCabeMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.TreePrinter;
+
+/**
+ * Validates that analysing translation units on worker threads results in the same tree as analysing them in the Codan job.
+ */
+public class ParallelAnalysisTest extends MetriculatorCheckerTestCase {
+
+	private AbstractMetric lsloc;
+	private AbstractMetric mccabe;
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		System.out.println(super.getName());
+
+		enableProblems(LSLOCMetricChecker.LSLOC_PROBLEM_ID, McCabeMetricChecker.MCCABE_PROBLEM_ID);
+
+		if (lsloc == null) {
+			lsloc  = new LSLOCMetric(AbstractMetricChecker.getChecker(LSLOCMetricChecker.class), "LSLOC", "lines of code");
+			mccabe = new McCabeMetric(AbstractMetricChecker.getChecker(McCabeMetricChecker.class), "McCabe", "CC");
+		}
+	}
+
+	@Override
+	public void tearDown() throws CoreException {
+		MetriculatorPluginActivator.getDefault().getPreferenceStore().setToDefault(MetriculatorPluginActivator.PREF_ANALYSIS_THREADS);
+		super.tearDown();
+	}
+
+	private String analyse(int threads){
+		MetriculatorPluginActivator.getDefault().getPreferenceStore().setValue(MetriculatorPluginActivator.PREF_ANALYSIS_THREADS, threads);
+		MetriculatorPluginActivator.getDefault().resetTreeBuilders();
+		runOnProject();
+		MetriculatorPluginActivator.getDefault().completeAnalysis();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		TreePrinter.printTree(MetriculatorPluginActivator.getDefault().getHybridTreeBuilder().root, new PrintStream(out), lsloc, mccabe);
+		return out.toString();
+	}
+
+	//	class Foo {
+	//	public:
+	//		int calc(int x);
+	//	};
+	//
+	//	int Foo::calc(int x){
+	//		if(x > 0 && x < 10){
+	//			return x;
+	//		}
+	//		return 0;
+	//	}
+	//
+	//	int main(){
+	//		Foo f;
+	//		return f.calc(3);
+	//	}
+	public void testWorkerThreadsBuildSameTree(){
+		loadcode(getAboveComment());
+
+		String sequential = analyse(1);
+		assertEquals(sequential, analyse(2));
+		assertEquals(sequential, analyse(4));
+	}
+
+	//	int calc(int x){
+	//		if(x > 0 && x < 10){
+	//			return x;
+	//		}
+	//		return 0;
+	//	}
+	public void testProblemsOfWorkerThreadsAreReported(){
+		loadcode(getAboveComment());
+		setPreferenceValue(LSLOCMetricChecker.LSLOC_PROBLEM_ID, AbstractMetricChecker.PREF_REPORT_CHECKER_PROBLEMS, Boolean.TRUE);
+		setPreferenceValue(LSLOCMetricChecker.LSLOC_PROBLEM_ID, LSLOCMetricChecker.PREF_LSLOC_MAXIMUM_PER_FUNCTION, "1");
+		setPreferenceValue(McCabeMetricChecker.MCCABE_PROBLEM_ID, AbstractMetricChecker.PREF_REPORT_CHECKER_PROBLEMS, Boolean.TRUE);
+		setPreferenceValue(McCabeMetricChecker.MCCABE_PROBLEM_ID, McCabeMetricChecker.PREF_MCCABE_MAXIMUM_PER_FUNCTION, "1");
+
+		analyse(2);
+
+		checkErrorLine(1, LSLOCMetricChecker.LSLOC_PROBLEM_ID);
+		checkErrorLine(1, McCabeMetricChecker.MCCABE_PROBLEM_ID);
+	}
+}
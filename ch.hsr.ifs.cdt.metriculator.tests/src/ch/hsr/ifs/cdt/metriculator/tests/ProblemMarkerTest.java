@@ -0,0 +1,71 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.tests;
+
+import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.checkers.McCabeMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
+
+/**
+ * Validates that every enabled metric checker keeps the markers of its problems,
+ * although all problems of a file are found in the fused pass of one metric checker.
+ */
+public class ProblemMarkerTest extends MetriculatorCheckerTestCase {
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+		System.out.println(super.getName());
+
+		enableProblems(LSLOCMetricChecker.LSLOC_PROBLEM_ID, McCabeMetricChecker.MCCABE_PROBLEM_ID);
+
+		setPreferenceValue(LSLOCMetricChecker.LSLOC_PROBLEM_ID, AbstractMetricChecker.PREF_REPORT_CHECKER_PROBLEMS, Boolean.TRUE);
+		setPreferenceValue(LSLOCMetricChecker.LSLOC_PROBLEM_ID, LSLOCMetricChecker.PREF_LSLOC_MAXIMUM_PER_FUNCTION, "1");
+		setPreferenceValue(McCabeMetricChecker.MCCABE_PROBLEM_ID, AbstractMetricChecker.PREF_REPORT_CHECKER_PROBLEMS, Boolean.TRUE);
+		setPreferenceValue(McCabeMetricChecker.MCCABE_PROBLEM_ID, McCabeMetricChecker.PREF_MCCABE_MAXIMUM_PER_FUNCTION, "1");
+	}
+
+	//	int calc(int x){
+	//		if(x > 0 && x < 10){
+	//			return x;
+	//		}
+	//		return 0;
+	//	}
+	public void testMarkersOfAllEnabledCheckers(){
+		loadcode(getAboveComment());
+		MetriculatorPluginActivator.getDefault().resetTreeBuilders();
+		runOnProject();
+
+		checkErrorLine(1, LSLOCMetricChecker.LSLOC_PROBLEM_ID);
+		checkErrorLine(1, McCabeMetricChecker.MCCABE_PROBLEM_ID);
+	}
+
+	//	int calc(int x){
+	//		if(x > 0 && x < 10){
+	//			return x;
+	//		}
+	//		return 0;
+	//	}
+	public void testMarkersOfUnchangedFileAreKept(){
+		loadcode(getAboveComment());
+		MetriculatorPluginActivator.getDefault().resetTreeBuilders();
+		runOnProject();
+
+		MetriculatorPluginActivator.getDefault().getHybridTreeBuilder().beginRun();
+		runOnProject();
+
+		checkErrorLine(1, LSLOCMetricChecker.LSLOC_PROBLEM_ID);
+		checkErrorLine(1, McCabeMetricChecker.MCCABE_PROBLEM_ID);
+	}
+}
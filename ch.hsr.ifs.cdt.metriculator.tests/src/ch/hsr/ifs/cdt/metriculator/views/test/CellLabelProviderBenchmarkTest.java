@@ -0,0 +1,136 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.views.test;
+
+import java.text.NumberFormat;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.resource.ImageRegistry;
+import org.eclipse.jface.viewers.ArrayContentProvider;
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.SWTError;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.TableItem;
+
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FileNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionDefNode;
+import ch.hsr.ifs.cdt.metriculator.views.MetriculatorCellLabelProvider;
+import ch.hsr.ifs.cdt.metriculator.views.MetricColumn;
+
+/**
+ * Scrolls a virtual table through all rows, so every cell is labeled once, and fails if that takes longer than {@link #TIME_LIMIT_MS}.
+ * Checks that the rows share the images of their icons instead of allocating one per cell.
+ * It is not part of {@link ch.hsr.ifs.cdt.metriculator.tests.AllTests}, since it needs a display and takes seconds, run it on its own.
+ */
+public class CellLabelProviderBenchmarkTest extends TestCase {
+
+	private static final int ROWS           = 100000;
+	private static final int PAGE           = 50;
+	private static final long TIME_LIMIT_MS = 20000;
+
+	private Display display;
+	private Shell shell;
+	private ImageRegistry images;
+	private TableViewer viewer;
+	private AbstractNode[] nodes;
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+
+		System.out.println(getName());
+		try{
+			display = Display.getDefault();
+		}catch(SWTError e){
+			System.out.println("no display available, " + e.getMessage());
+			return;
+		}
+
+		AbstractMetric lsloc = new LSLOCMetric(AbstractMetricChecker.getChecker(LSLOCMetricChecker.class), "LSLOC", "lines of code");
+		nodes = new AbstractNode[ROWS];
+		for(int i = 0; i < ROWS; i++){
+			nodes[i] = i % 2 == 0 ? new FileNode("file" + i) : new FunctionDefNode("f" + i);
+			nodes[i].setNodeValue(lsloc.getId(), i);
+		}
+
+		shell = new Shell(display);
+		shell.setLayout(new FillLayout());
+		shell.setSize(400, 800);
+		images = new ImageRegistry(display);
+
+		Table table = new Table(shell, SWT.VIRTUAL | SWT.FULL_SELECTION);
+		new TableColumn(table, SWT.LEFT).setWidth(200);
+		TableColumn metricColumn = new TableColumn(table, SWT.RIGHT);
+		metricColumn.setWidth(100);
+		MetricColumn.setMetric(lsloc, metricColumn);
+
+		viewer = new TableViewer(table);
+		viewer.setUseHashlookup(true);
+		viewer.setContentProvider(new ArrayContentProvider());
+		viewer.setLabelProvider(new MetriculatorCellLabelProvider(images));
+		viewer.setInput(nodes);
+		shell.open();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if(shell != null){
+			shell.dispose();
+			images.dispose();
+		}
+		super.tearDown();
+	}
+
+	public void testScrollingAllRowsSharesImages(){
+		if(shell == null){
+			return;
+		}
+		Table table = viewer.getTable();
+		assertEquals(ROWS, table.getItemCount());
+
+		long start = System.nanoTime();
+		for(int top = 0; top < ROWS; top += PAGE){
+			table.setTopIndex(top);
+			for(int row = top; row < Math.min(ROWS, top + PAGE); row++){
+				table.getItem(row).getText(1); // makes the virtual table label the row
+			}
+			while(display.readAndDispatch()){
+				// paint the page like a user scrolling through the rows
+			}
+		}
+		long elapsedMs = (System.nanoTime() - start) / 1000000;
+		assertTrue("labeling " + ROWS + " rows took " + elapsedMs + " ms", elapsedMs < TIME_LIMIT_MS);
+
+		Image fileImage     = table.getItem(0).getImage(0);
+		Image functionImage = table.getItem(1).getImage(0);
+		assertNotNull(fileImage);
+		assertNotSame(fileImage, functionImage);
+		for(int row = 0; row < ROWS; row++){
+			TableItem item = table.getItem(row);
+			assertSame(row % 2 == 0 ? fileImage : functionImage, item.getImage(0));
+		}
+		assertEquals(NumberFormat.getIntegerInstance().format(ROWS - 1), table.getItem(ROWS - 1).getText(1));
+	}
+}
@@ -0,0 +1,126 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.views.test;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.resource.ImageRegistry;
+import org.eclipse.jface.viewers.ArrayContentProvider;
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.SWTError;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.TableColumn;
+
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetric;
+import ch.hsr.ifs.cdt.metriculator.checkers.LSLOCMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FileNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionDefNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.LogicNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.NamespaceNode;
+import ch.hsr.ifs.cdt.metriculator.views.MetriculatorCellLabelProvider;
+import ch.hsr.ifs.cdt.metriculator.views.MetricColumn;
+
+/**
+ * Validates that labeling cells reuses the images of the registry instead of allocating an image per cell.
+ */
+public class CellLabelProviderTest extends TestCase {
+
+	private static final int ROWS = 6;
+
+	private Shell shell;
+	private ImageRegistry images;
+	private Table table;
+	private AbstractNode[] nodes;
+
+	@Override
+	public void setUp() throws Exception {
+		super.setUp();
+
+		System.out.println(getName());
+		Display display;
+		try{
+			display = Display.getDefault();
+		}catch(SWTError e){
+			System.out.println("no display available, " + e.getMessage());
+			return;
+		}
+
+		AbstractMetric lsloc = new LSLOCMetric(AbstractMetricChecker.getChecker(LSLOCMetricChecker.class), "LSLOC", "lines of code");
+		nodes = new AbstractNode[ROWS];
+		for(int i = 0; i < ROWS; i++){
+			nodes[i] = i % 2 == 0 ? new FileNode("file" + i) : new FunctionDefNode("f" + i);
+			if(i == ROWS - 1){
+				nodes[i] = new NamespaceNode("");
+			}
+			nodes[i].setNodeValue(lsloc.getId(), i / 2);
+		}
+
+		shell  = new Shell(display);
+		images = new ImageRegistry(display);
+		table  = new Table(shell, SWT.NONE);
+		new TableColumn(table, SWT.LEFT);
+		MetricColumn.setMetric(lsloc, new TableColumn(table, SWT.RIGHT));
+
+		TableViewer viewer = new TableViewer(table);
+		viewer.setContentProvider(new ArrayContentProvider());
+		viewer.setLabelProvider(new MetriculatorCellLabelProvider(images));
+		viewer.setInput(nodes);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		if(shell != null){
+			shell.dispose();
+			images.dispose();
+		}
+		super.tearDown();
+	}
+
+	public void testRowsShareTheImagesOfTheRegistry(){
+		if(shell == null){
+			return;
+		}
+		assertEquals(ROWS, table.getItemCount());
+
+		for(int row = 0; row < ROWS; row++){
+			assertNotNull(table.getItem(row).getImage(0));
+			assertSame(images.get(nodes[row].getIconPath()), table.getItem(row).getImage(0));
+		}
+		assertNotSame(table.getItem(0).getImage(0), table.getItem(1).getImage(0));
+	}
+
+	public void testFirstColumnShowsTheLabelOfTheNode(){
+		if(shell == null){
+			return;
+		}
+		for(int row = 0; row < ROWS; row++){
+			assertEquals(nodes[row].toString(), table.getItem(row).getText(0));
+		}
+		assertEquals(LogicNode.ANONYMOUS_LABEL, table.getItem(ROWS - 1).getText(0));
+	}
+
+	public void testCellsShowTheValues(){
+		if(shell == null){
+			return;
+		}
+		for(int row = 0; row < ROWS; row++){
+			assertEquals(String.valueOf(row / 2), table.getItem(row).getText(1));
+		}
+	}
+}
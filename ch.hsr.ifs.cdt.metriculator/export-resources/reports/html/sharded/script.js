@@ -0,0 +1,184 @@
+/*
+ * Renders the tree of the sharded report. The nodes are read from the chunk scripts in data/,
+ * the children of a project or folder are loaded when it is expanded.
+ * Only the rows in view are rendered, spacer rows stand in for the others.
+ */
+var metriculator = (function () {
+
+    var ROW_HEIGHT = 22,
+        OVERSCAN   = 20;
+
+    var metrics   = [],
+        roots     = [],
+        rows      = [],
+        callbacks = {},
+        sortColumn = -1,
+        sortDescending = false,
+        container, tbody;
+
+    function loadChunk(id, callback) {
+        if (callbacks[id]) {
+            callbacks[id].push(callback);
+            return;
+        }
+        callbacks[id] = [callback];
+        var script = document.createElement("script");
+        script.src = "data/c" + id + ".js";
+        document.body.appendChild(script);
+    }
+
+    function chunk(id, nodes) {
+        var pending = callbacks[id] || [];
+        delete callbacks[id];
+        sortNodes(nodes);
+        for (var i = 0; i < pending.length; i++) {
+            pending[i](nodes);
+        }
+    }
+
+    function index(idx) {
+        metrics   = idx.metrics;
+        container = document.getElementById("tree");
+        tbody     = container.getElementsByTagName("tbody")[0];
+
+        container.onscroll = render;
+        tbody.onclick = function (e) {
+            var tr = (e || window.event).target;
+            while (tr && tr.nodeName !== "TR") {
+                tr = tr.parentNode;
+            }
+            if (tr && tr.getAttribute("data-row") !== null) {
+                toggle(rows[+tr.getAttribute("data-row")].node);
+            }
+        };
+
+        var headers = container.getElementsByTagName("th");
+        for (var i = 0; i < headers.length; i++) {
+            headers[i].onclick = (function (column) {
+                return function () { sortBy(column); };
+            })(i - 1);
+        }
+
+        loadChunk(idx.root, function (nodes) {
+            roots = nodes;
+            refresh();
+        });
+    }
+
+    function toggle(node) {
+        if (!node.c && node.k === undefined) {
+            return;
+        }
+        node.open = !node.open;
+        if (node.open && !node.c) {
+            node.loading = true;
+            loadChunk(node.k, function (nodes) {
+                node.loading = false;
+                node.c = nodes;
+                refresh();
+            });
+        }
+        refresh();
+    }
+
+    /* the visible rows of the open nodes, flattened without recursion */
+    function flatten() {
+        var result = [],
+            stack  = [];
+        for (var i = roots.length - 1; i >= 0; i--) {
+            stack.push({node: roots[i], depth: 0});
+        }
+        while (stack.length) {
+            var row = stack.pop();
+            result.push(row);
+            if (row.node.open && row.node.c) {
+                for (var j = row.node.c.length - 1; j >= 0; j--) {
+                    stack.push({node: row.node.c[j], depth: row.depth + 1});
+                }
+            }
+        }
+        return result;
+    }
+
+    function refresh() {
+        rows = flatten();
+        render();
+    }
+
+    function render() {
+        var first = Math.max(0, Math.floor(container.scrollTop / ROW_HEIGHT) - OVERSCAN),
+            last  = Math.min(rows.length, Math.ceil((container.scrollTop + container.clientHeight) / ROW_HEIGHT) + OVERSCAN),
+            html  = [spacer(first)];
+
+        for (var i = first; i < last; i++) {
+            html.push(rowHtml(rows[i], i));
+        }
+        html.push(spacer(rows.length - last));
+        replaceRows(html.join(""));
+    }
+
+    /* older browsers do not allow setting innerHTML of a tbody, so the whole table body is replaced */
+    function replaceRows(html) {
+        var div = document.createElement("div");
+        div.innerHTML = "<table><tbody>" + html + "</tbody></table>";
+        var fresh = div.getElementsByTagName("tbody")[0];
+        fresh.onclick = tbody.onclick;
+        tbody.parentNode.replaceChild(fresh, tbody);
+        tbody = fresh;
+    }
+
+    function spacer(count) {
+        if (count <= 0) {
+            return "";
+        }
+        return '<tr class="spacer" style="height:' + (count * ROW_HEIGHT) + 'px"><td colspan="' + (metrics.length + 1) + '"></td></tr>';
+    }
+
+    function rowHtml(row, i) {
+        var node    = row.node,
+            classes = node.t + " indent-" + row.depth + (node.loading ? " loading" : ""),
+            marker  = (node.c || node.k !== undefined) ? (node.open ? "-" : "+") : "",
+            html    = ['<tr class="', classes, '" data-row="', i, '"><td class="label"><b class="toggle">', marker, '</b><span>', escape(node.l), '</span></td>'];
+
+        for (var m = 0; m < metrics.length; m++) {
+            html.push('<td class="', metrics[m], ' value ', node.s ? node.s[m] : "", '">', node.v[m], '</td>');
+        }
+        html.push("</tr>");
+        return html.join("");
+    }
+
+    function escape(text) {
+        return text.replace(/&/g, "&amp;").replace(/</g, "&lt;").replace(/>/g, "&gt;");
+    }
+
+    function compare(a, b) {
+        var result = sortColumn < 0 ? (a.l < b.l ? -1 : a.l > b.l ? 1 : 0) : a.v[sortColumn] - b.v[sortColumn];
+        return sortDescending ? -result : result;
+    }
+
+    /* the loaded nodes are sorted in place, chunks loaded later are sorted when they arrive */
+    function sortNodes(nodes) {
+        if (sortColumn < 0 && !sortDescending) {
+            return;
+        }
+        var stack = [nodes];
+        while (stack.length) {
+            var list = stack.pop();
+            list.sort(compare);
+            for (var i = 0; i < list.length; i++) {
+                if (list[i].c) {
+                    stack.push(list[i].c);
+                }
+            }
+        }
+    }
+
+    function sortBy(column) {
+        sortDescending = sortColumn === column ? !sortDescending : column >= 0;
+        sortColumn = column;
+        sortNodes(roots);
+        refresh();
+    }
+
+    return {index: index, chunk: chunk};
+})();
@@ -0,0 +1,124 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik 
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html 
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+
+package ch.hsr.ifs.cdt.metriculator;
+
+import ch.hsr.ifs.cdt.metriculator.model.HybridTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.ModelSnapshot;
+import ch.hsr.ifs.cdt.metriculator.model.PartialResult;
+
+/**
+ * Events of an analysis run, delivered by the {@link AnalysisEventBus}. Every event carries the number of the run it belongs to.
+ * */
+public abstract class AnalysisEvent {
+
+	private final long version;
+
+	protected AnalysisEvent(long version) {
+		this.version = version;
+	}
+
+	/**
+	 * @return number of the run, increases with every run.
+	 * */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Called if a queue of the bus is full.
+	 * @return an event that stands for this and the later event, null if both have to be delivered
+	 * */
+	protected AnalysisEvent mergeWith(AnalysisEvent later) {
+		return null;
+	}
+
+	/**
+	 * The metric checkers are about to run, the tree builders are prepared.
+	 * */
+	public static final class RunStarted extends AnalysisEvent {
+
+		private final HybridTreeBuilder partialTree;
+
+		/**
+		 * @param partialTree tree to show while the run is in progress, null if there is none
+		 * */
+		public RunStarted(long version, HybridTreeBuilder partialTree) {
+			super(version);
+			this.partialTree = partialTree;
+		}
+
+		/**
+		 * @return tree to which the view adds the files of the run as they are completed, null if there is none.
+		 * It holds the projects of the previous run, copied before the run started.
+		 * */
+		public HybridTreeBuilder getPartialTree() {
+			return partialTree;
+		}
+	}
+
+	/**
+	 * Files were completed while the run is in progress.
+	 * */
+	public static final class FilesAnalyzed extends AnalysisEvent {
+
+		private final PartialResult result;
+
+		public FilesAnalyzed(long version, PartialResult result) {
+			super(version);
+			this.result = result;
+		}
+
+		public PartialResult getResult() {
+			return result;
+		}
+
+		/**
+		 * Files of the same run are merged into one event, so no file is lost if a listener falls behind.
+		 * */
+		@Override
+		protected AnalysisEvent mergeWith(AnalysisEvent later) {
+			if(later instanceof FilesAnalyzed && later.getVersion() == getVersion()){
+				return new FilesAnalyzed(getVersion(), result.followedBy(((FilesAnalyzed) later).result));
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * The result of the run was published as snapshot, its derived trees are still being built in the background.
+	 * */
+	public static final class SnapshotPublished extends AnalysisEvent {
+
+		private final ModelSnapshot snapshot;
+
+		public SnapshotPublished(ModelSnapshot snapshot) {
+			super(snapshot.getVersion());
+			this.snapshot = snapshot;
+		}
+
+		public ModelSnapshot getSnapshot() {
+			return snapshot;
+		}
+	}
+
+	/**
+	 * The analysis job is done, after its snapshot was published.
+	 * */
+	public static final class RunCompleted extends AnalysisEvent {
+
+		public RunCompleted(long version) {
+			super(version);
+		}
+	}
+}
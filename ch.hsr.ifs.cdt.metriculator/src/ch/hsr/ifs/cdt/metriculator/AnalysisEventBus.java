@@ -0,0 +1,143 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik 
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html 
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+
+package ch.hsr.ifs.cdt.metriculator;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Delivers the {@link AnalysisEvent}s to the listeners subscribed to their type, each listener on the executor it was subscribed with.
+ * Publishing does not wait for the listeners: the events are queued per subscription and the executor drains the queue in one task at a time,
+ * so a listener gets the events in the order they were published. Listeners that depend on the order of events of different types
+ * subscribe to a common super type. A listener is subscribed at most once per type.
+ * */
+public class AnalysisEventBus {
+
+	/**
+	 * Number of events a subscription queues. Further events are merged into the last queued one if possible,
+	 * events that can not be merged are rare and still queued.
+	 * */
+	public static final int QUEUE_CAPACITY = 64;
+
+	/**
+	 * Runs the listeners on the publishing thread, for listeners that must have seen the event when publishing returns.
+	 * Such listeners have to return quickly.
+	 * */
+	public static final Executor SYNCHRONOUS = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+	};
+
+	public interface Listener<E extends AnalysisEvent> {
+		void handle(E event);
+	}
+
+	private final CopyOnWriteArrayList<Subscription<?>> subscriptions = new CopyOnWriteArrayList<Subscription<?>>();
+
+	/**
+	 * @return false if the listener is already subscribed to the type.
+	 * */
+	public synchronized <E extends AnalysisEvent> boolean subscribe(Class<E> type, Listener<? super E> listener, Executor executor) {
+		for(Subscription<?> s : subscriptions){
+			if(s.type == type && s.listener == listener){
+				return false;
+			}
+		}
+		subscriptions.add(new Subscription<E>(type, listener, executor));
+		return true;
+	}
+
+	/**
+	 * Removes the subscriptions of the listener, it gets no events afterwards, not even queued ones.
+	 * */
+	public synchronized void unsubscribe(Listener<?> listener) {
+		for(Subscription<?> s : subscriptions){
+			if(s.listener == listener){
+				s.active = false;
+				subscriptions.remove(s);
+			}
+		}
+	}
+
+	public void publish(AnalysisEvent event) {
+		for(Subscription<?> s : subscriptions){
+			if(s.type.isInstance(event)){
+				s.offer(event);
+			}
+		}
+	}
+
+	private static final class Subscription<E extends AnalysisEvent> implements Runnable {
+
+		final Class<E> type;
+		final Listener<? super E> listener;
+		private final Executor executor;
+		private final ArrayDeque<AnalysisEvent> queue = new ArrayDeque<AnalysisEvent>();
+		private boolean scheduled;
+		volatile boolean active = true;
+
+		Subscription(Class<E> type, Listener<? super E> listener, Executor executor) {
+			this.type     = type;
+			this.listener = listener;
+			this.executor = executor;
+		}
+
+		void offer(AnalysisEvent event) {
+			synchronized (this) {
+				enqueue(event);
+				if(scheduled){
+					return; // the running task delivers it
+				}
+				scheduled = true;
+			}
+			executor.execute(this);
+		}
+
+		private void enqueue(AnalysisEvent event) {
+			if(queue.size() >= QUEUE_CAPACITY){
+				AnalysisEvent merged = queue.peekLast().mergeWith(event);
+				if(merged != null){
+					queue.pollLast();
+					queue.addLast(merged);
+					return;
+				}
+			}
+			queue.addLast(event);
+		}
+
+		@Override
+		public void run() {
+			while(true){
+				AnalysisEvent event;
+				synchronized (this) {
+					event = queue.pollFirst();
+					if(event == null){
+						scheduled = false;
+						return;
+					}
+				}
+				if(active){
+					try {
+						listener.handle(type.cast(event));
+					} catch (RuntimeException e) {
+						e.printStackTrace(); // the other events are delivered anyway
+					}
+				}
+			}
+		}
+	}
+}
@@ -1,33 +0,0 @@
-/******************************************************************************
-* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik 
-* Rapperswil, University of applied sciences and others.
-* All rights reserved. This program and the accompanying materials
-* are made available under the terms of the Eclipse Public License v1.0
-* which accompanies this distribution, and is available at
-* http://www.eclipse.org/legal/epl-v10.html 
-*
-* Contributors:
-* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
-******************************************************************************/
-
-package ch.hsr.ifs.cdt.metriculator;
-
-import java.util.Observable;
-
-public class JobObservable extends Observable {
-
-	public void setChangedAndNotifyJobDone() {
-		super.setChanged();
-		super.notifyObservers(JobState.JOB_DONE);
-	}
-	
-	public void setChangedAndNotifyJobAboutToRun() {
-		super.setChanged();
-		super.notifyObservers(JobState.JOB_ABOUT_TO_RUN);
-	}
-	
-	public enum JobState{
-		JOB_ABOUT_TO_RUN,
-		JOB_DONE
-	}
-}
\ No newline at end of file
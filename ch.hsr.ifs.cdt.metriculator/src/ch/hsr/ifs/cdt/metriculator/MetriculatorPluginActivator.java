@@ -15,9 +15,10 @@ package ch.hsr.ifs.cdt.metriculator;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Observable;
 
 import org.eclipse.cdt.codan.internal.ui.CodanUIMessages;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.IJobChangeEvent;
 import org.eclipse.core.runtime.jobs.IJobChangeListener;
 import org.eclipse.core.runtime.jobs.Job;
@@ -31,9 +32,20 @@ import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
 
 import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.DerivedTreeJob;
 import ch.hsr.ifs.cdt.metriculator.model.FlatTreeBuilder;
 import ch.hsr.ifs.cdt.metriculator.model.HybridTreeBuilder;
 import ch.hsr.ifs.cdt.metriculator.model.LogicTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.MetricCache;
+import ch.hsr.ifs.cdt.metriculator.model.ModelSnapshot;
+import ch.hsr.ifs.cdt.metriculator.model.ParallelTranslationUnitAnalysis;
+import ch.hsr.ifs.cdt.metriculator.model.PartialResult;
+import ch.hsr.ifs.cdt.metriculator.model.PartialResultPublisher;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.report.HTMLReportGenerator;
+import ch.hsr.ifs.cdt.metriculator.report.ReportExportJob;
 import ch.hsr.ifs.cdt.metriculator.views.MetriculatorView;
 
 /**
@@ -45,18 +57,46 @@ public class MetriculatorPluginActivator extends AbstractUIPlugin {
 	// The plug-in ID
 	public static final String PLUGIN_ID = "ch.hsr.ifs.cdt.metriculator"; //$NON-NLS-1$
 	
+	// Number of threads that analyse translation units, values below 2 analyse in the Codan job itself
+	public static final String PREF_ANALYSIS_THREADS = "analysis_threads"; //$NON-NLS-1$
+	public static final int DEFAULT_ANALYSIS_THREADS = 1;
+
+	private static final String METRIC_CACHE_FILE = "metrics.cache"; //$NON-NLS-1$
+
 	// The shared instance
 	private static MetriculatorPluginActivator plugin;
 
-	private JobObservable observable = new JobObservable();
+	private final AnalysisEventBus events = new AnalysisEventBus();
+	private final PartialResultPublisher partialResults = new PartialResultPublisher(new PartialResultPublisher.Listener() {
+		@Override
+		public void published(PartialResult result) {
+			events.publish(new AnalysisEvent.FilesAnalyzed(getVersion(), result));
+		}
+	});
 	HashMap<Class<AbstractMetric>, AbstractMetric> metrics = new HashMap<Class<AbstractMetric>, AbstractMetric>();
 
 	private HybridTreeBuilder hybridTreeBuilder;
 	private FlatTreeBuilder flatTreeBuilder;
 	private LogicTreeBuilder logicTreeBuilder;
+	private volatile ModelSnapshot snapshot;
+	private long version;
+	private ParallelTranslationUnitAnalysis parallelAnalysis;
+	private Integer analysisThreadsOverride;
+	private String analysedConfiguration;
+	private MetricCache metricCache;
 
-	public Observable getObservable() {
-		return observable;
+	/**
+	 * @return bus of the events of the analysis runs.
+	 * */
+	public AnalysisEventBus getEvents() {
+		return events;
+	}
+
+	/**
+	 * @return publisher of the files completed during the current run, the listeners get them as {@link AnalysisEvent.FilesAnalyzed}.
+	 * */
+	public PartialResultPublisher getPartialResults() {
+		return partialResults;
 	}
 
 	/**
@@ -87,6 +127,8 @@ public class MetriculatorPluginActivator extends AbstractUIPlugin {
 	 * )
 	 */
 	public void stop(BundleContext context) throws Exception {
+		Job.getJobManager().cancel(ReportExportJob.FAMILY);
+		HTMLReportGenerator.clearTemplates();
 		plugin = null;
 		super.stop(context);
 	}
@@ -113,30 +155,184 @@ public class MetriculatorPluginActivator extends AbstractUIPlugin {
 	}
 
 	public void resetTreeBuilders() {
+		cancelParallelAnalysis();
+		discardSnapshot();
 		hybridTreeBuilder = new HybridTreeBuilder("Workspace");
 		flatTreeBuilder = null;
 		logicTreeBuilder = null;
+		analysedConfiguration = null;
+	}
+
+	/**
+	 * Keeps the hybrid tree of the previous run if the metric problems are configured as they were, 
+	 * so only files that changed since then are analysed again.
+	 * */
+	private void prepareTreeBuilders() {
+		String configuration = AbstractMetricChecker.describeConfiguration();
+		getMetricCache().setConfiguration(configuration);
+		if(!configuration.equals(analysedConfiguration)){
+			resetTreeBuilders();
+			analysedConfiguration = configuration;
+			return;
+		}
+		cancelParallelAnalysis();
+		hybridTreeBuilder.beginRun();
+		flatTreeBuilder = null;
+		logicTreeBuilder = null;
+	}
+
+	private synchronized void cancelParallelAnalysis() {
+		if(parallelAnalysis != null){
+			parallelAnalysis.shutdown();
+			parallelAnalysis = null;
+		}
+	}
+
+	/**
+	 * @return the analysis of the current run, if translation units are to be analysed on worker threads. Otherwise null.
+	 * */
+	public synchronized ParallelTranslationUnitAnalysis getParallelAnalysis() {
+		int threads = getAnalysisThreads();
+		if(threads < 2){
+			return null;
+		}
+		if(parallelAnalysis == null){
+			parallelAnalysis = new ParallelTranslationUnitAnalysis(threads, hybridTreeBuilder.root.getScopeName());
+		}
+		return parallelAnalysis;
+	}
+
+	/**
+	 * Stops the worker threads of the run. Their subtrees were grafted into the hybrid tree in the sessions of their files.
+	 * If the analysis of files failed, the hybrid tree is incomplete and a warning is logged.
+	 * */
+	public void completeAnalysis() {
+		ParallelTranslationUnitAnalysis analysis;
+		synchronized (this) {
+			analysis         = parallelAnalysis;
+			parallelAnalysis = null;
+		}
+		if(analysis != null){
+			analysis.shutdown();
+			if(!analysis.getFailedFiles().isEmpty()){
+				getLog().log(new Status(IStatus.WARNING, PLUGIN_ID, "Metrics are incomplete, the analysis of " + analysis.getFailedFiles().size() + " files failed")); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
 	}
 	
+	/**
+	 * @return the cache of analysed files, kept in the workspace state location of this plug-in.
+	 * */
+	public synchronized MetricCache getMetricCache() {
+		if(metricCache == null){
+			metricCache = new MetricCache(getStateLocation().append(METRIC_CACHE_FILE).toFile());
+		}
+		return metricCache;
+	}
+
+	/**
+	 * @return the tree the metric checkers write to. Readers should use {@link #getSnapshot()} instead.
+	 * */
 	public HybridTreeBuilder getHybridTreeBuilder(){
 		return hybridTreeBuilder;
 	}
+
+	/**
+	 * @return result of the last completed analysis run, null if there is none. 
+	 * The snapshot does not change, even if further runs complete.
+	 * */
+	public ModelSnapshot getSnapshot(){
+		return snapshot;
+	}
 	
+	/**
+	 * @return the flat tree of the last completed run, or of the hybrid tree as it is now if a run is in progress.
+	 * */
 	public FlatTreeBuilder getFlatTreeBuilder(){
-		
-		if(flatTreeBuilder == null){
-			flatTreeBuilder = FlatTreeBuilder.buildFrom(hybridTreeBuilder);
+		ModelSnapshot current = getCurrentSnapshot();
+		if(current != null){
+			return current.getFlatTreeBuilder();
+		}
+
+		synchronized (this) {
+			if(flatTreeBuilder == null){
+				flatTreeBuilder = FlatTreeBuilder.buildFrom(hybridTreeBuilder);
+			}
+			return flatTreeBuilder;
 		}
-		
-		return flatTreeBuilder;
 	}
 	
+	/**
+	 * @return the logical tree of the last completed run, or of the hybrid tree as it is now if a run is in progress.
+	 * */
 	public LogicTreeBuilder getLogicTreeBuilder(){
-		if(logicTreeBuilder == null){
-			logicTreeBuilder = LogicTreeBuilder.buildFrom(hybridTreeBuilder);
+		ModelSnapshot current = getCurrentSnapshot();
+		if(current != null){
+			return current.getLogicTreeBuilder();
+		}
+
+		synchronized (this) {
+			if(logicTreeBuilder == null){
+				logicTreeBuilder = LogicTreeBuilder.buildFrom(hybridTreeBuilder);
+			}
+			return logicTreeBuilder;
+		}
+	}
+
+	/**
+	 * @return number of the current or last run.
+	 * */
+	private synchronized long getVersion(){
+		return version;
+	}
+
+	/**
+	 * @return the last snapshot if the hybrid tree has not changed since it was published, otherwise null.
+	 * */
+	private synchronized ModelSnapshot getCurrentSnapshot(){
+		if(snapshot != null && snapshot.getVersion() == version){
+			return snapshot;
+		}
+		return null;
+	}
+
+	/**
+	 * Publishes a frozen copy of the aggregated hybrid tree and starts building its flat and logical tree in background jobs.
+	 * The jobs run in parallel if the analysis runs on more than one thread.
+	 * */
+	private synchronized void publishSnapshot(){
+		AbstractTreeBuilder frozen = ModelSnapshot.freeze(hybridTreeBuilder.root);
+
+		DerivedTreeJob<FlatTreeBuilder> flatTreeJob = new DerivedTreeJob<FlatTreeBuilder>("Building flat metric tree", frozen) {
+			@Override
+			protected FlatTreeBuilder build(AbstractTreeBuilder source) {
+				return FlatTreeBuilder.buildSorted(source, getMetrics()); // the table reuses the sort orders for every column and direction
+			}
+		};
+		DerivedTreeJob<LogicTreeBuilder> logicTreeJob = new DerivedTreeJob<LogicTreeBuilder>("Building logical metric tree", frozen) {
+			@Override
+			protected LogicTreeBuilder build(AbstractTreeBuilder source) {
+				return LogicTreeBuilder.buildFrom(source);
+			}
+		};
+
+		if(getAnalysisThreads() < 2){
+			flatTreeJob.setRule(DerivedTreeJob.SERIAL);
+			logicTreeJob.setRule(DerivedTreeJob.SERIAL);
+		}
+
+		discardSnapshot(); // the previous snapshot schedules its jobs again if a reader still needs its trees
+		logicTreeJob.schedule();
+		flatTreeJob.schedule();
+		snapshot = new ModelSnapshot(version, frozen, flatTreeJob, logicTreeJob);
+		events.publish(new AnalysisEvent.SnapshotPublished(snapshot));
+	}
+
+	private synchronized void discardSnapshot(){
+		if(snapshot != null){
+			snapshot.cancel();
+			snapshot = null;
 		}
-		
-		return logicTreeBuilder;
 	}
 	
 	private void showMetriculatorView() {
@@ -154,7 +350,6 @@ public class MetriculatorPluginActivator extends AbstractUIPlugin {
 						public void partClosed(IWorkbenchPartReference partRef) {
 							if(partRef.getId().equals(MetriculatorView.VIEW_ID)){
 								resetTreeBuilders();
-								resetMetricCaches();
 								System.gc();
 							}
 						}
@@ -214,13 +409,13 @@ public class MetriculatorPluginActivator extends AbstractUIPlugin {
 			public void done(IJobChangeEvent event) {
 				if(event.getJob().getName().equals(CodanUIMessages.Job_TitleRunningAnalysis)){
 					
-					aggregateMetricValues();
+					endAnalysis();
 					
 					if(isAnyMetricProblemEnabled()){
 						showMetriculatorView();
 					}
 					
-					observable.setChangedAndNotifyJobDone();
+					events.publish(new AnalysisEvent.RunCompleted(getVersion()));
 				}
 			}
 			
@@ -230,26 +425,77 @@ public class MetriculatorPluginActivator extends AbstractUIPlugin {
 
 			public void aboutToRun(IJobChangeEvent event) {
 				if(event.getJob().getName().equals(CodanUIMessages.Job_TitleRunningAnalysis)){
-					resetTreeBuilders();
-					resetMetricCaches();
-					System.gc();
-					observable.setChangedAndNotifyJobAboutToRun();
+					beginAnalysis();
 				}
 			}
 		});
 	}
 	
-	private void aggregateMetricValues() {
-		for(AbstractMetric m : getMetrics()){
-			hybridTreeBuilder.root.getValueOf(m);
-			m.useCachedValue = true;
+	/**
+	 * Prepares the tree builders and the metric values for a run of the metric checkers.
+	 * */
+	public void beginAnalysis() {
+		ModelSnapshot previous = snapshot;
+		prepareTreeBuilders();
+		partialResults.reset();
+		long run;
+		synchronized (this) {
+			run = ++version;
 		}
+		HybridTreeBuilder partialTree = createPartialTree(previous);
+		System.gc();
+		events.publish(new AnalysisEvent.RunStarted(run, partialTree));
 	}
-	
-	private void resetMetricCaches() {
-		for(AbstractMetric m : getMetrics()){
-			m.useCachedValue = false;
+
+	/**
+	 * Builds the tree the view shows while the run is in progress on the thread starting the run, not on the display thread.
+	 * The tree starts as a copy of the hybrid tree of the previous snapshot, whose files are replaced as the run completes them.
+	 * The snapshot is not changed.
+	 * */
+	private HybridTreeBuilder createPartialTree(ModelSnapshot previous) {
+		HybridTreeBuilder partialTree = new HybridTreeBuilder(hybridTreeBuilder.root.getScopeName());
+		if(previous != null){
+			Collection<AbstractNode> projects = ModelSnapshot.freeze(previous.getHybridTreeBuilder().root).root.getChildren();
+			for(AbstractNode project : projects.toArray(new AbstractNode[projects.size()])){
+				partialTree.addChild(partialTree.root, project);
+			}
+		}
+		return partialTree;
+	}
+
+	/**
+	 * Completes the hybrid tree after a run of the metric checkers, aggregates the metric values and updates the metric cache.
+	 * The result is published as a new snapshot, whose derived trees are built in the background.
+	 * */
+	public void endAnalysis() {
+		partialResults.reset(); // the snapshot holds the files not published yet
+		completeAnalysis();
+		hybridTreeBuilder.removeDeletedFiles();
+		aggregateMetricValues();
+		getMetricCache().save(hybridTreeBuilder);
+		publishSnapshot();
+	}
+
+	private void aggregateMetricValues() {
+		hybridTreeBuilder.aggregate(getMetrics(), getAnalysisThreads());
+	}
+
+	/**
+	 * @return the number of threads that analyse translation units, see {@link #PREF_ANALYSIS_THREADS}.
+	 * */
+	public synchronized int getAnalysisThreads() {
+		if(analysisThreadsOverride != null){
+			return analysisThreadsOverride.intValue();
 		}
+		return getPreferenceStore().getInt(PREF_ANALYSIS_THREADS);
+	}
+
+	/**
+	 * Uses the given number of analysis threads instead of the preference until the plug-in is stopped.
+	 * Unlike the preference, the number is not stored in the workspace, e.g. for a headless run.
+	 * */
+	public synchronized void overrideAnalysisThreads(int threads) {
+		analysisThreadsOverride = Integer.valueOf(threads);
 	}
 	
 	private boolean isAnyMetricProblemEnabled() {
@@ -13,10 +13,11 @@
 package ch.hsr.ifs.cdt.metriculator.checkers;
 
 import org.eclipse.cdt.codan.core.model.IProblemWorkingCopy;
-import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 
 import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
 import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.ScopedASTVisitor;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionNode;
 import ch.hsr.ifs.cdt.metriculator.resources.MetricLabels;
@@ -38,20 +39,17 @@ public class EfferentCouplingMetricChecker extends AbstractMetricChecker{
 		super.initPreferences(problem);
 
 		addPreference(problem, PREF_EFFERENTCOUPLING_MAXIMUM_PER_TYPE, MetricLabels.EFFERENTCOUPLING_Maximum_Per_Type, "4"); //$NON-NLS-1$
-		MetriculatorPluginActivator.getDefault().getObservable().addObserver(this);
 	}
 	
 	@Override
-	protected void processTanslationUnit(IASTTranslationUnit tu) {
-		EfferentCouplingScopedASTVisitor visitor = new EfferentCouplingScopedASTVisitor(currentScopeNode, builder);
-		visitor.add(this);
-		tu.accept(visitor);
+	protected ScopedASTVisitor createScopedASTVisitor(AbstractNode scopeNode, AbstractTreeBuilder builder) {
+		return new EfferentCouplingScopedASTVisitor(scopeNode, builder);
 	}
 
 	protected void reportProblemsFor(AbstractNode node){
 		if(node instanceof FunctionNode){
 			Integer maxCouplingPerType = getPreferenceAsInteger(EFFERENTCOUPLING_PROBLEM_ID, PREF_EFFERENTCOUPLING_MAXIMUM_PER_TYPE, getFile());
-			if(node.getValueOf(metric).aggregatedValue > maxCouplingPerType){
+			if(node.getAggregatedValueOf(metric) > maxCouplingPerType){
 				reportProblem(EFFERENTCOUPLING_PROBLEM_ID, node, maxCouplingPerType);
 			}				
 		}
@@ -34,7 +34,7 @@ import ch.hsr.ifs.cdt.metriculator.model.nodes.TypeDefNode;
 
 public class EfferentCouplingScopedASTVisitor extends ScopedASTVisitor {
 
-	String key = AbstractMetric.getKeyFor(EfferentCouplingMetric.class);
+	int metricId = AbstractMetric.getIdFor(EfferentCouplingMetric.class);
 	private HashMap<LogicNode, HashSet<IIndexBinding>> countedBindingsInNode = new HashMap<LogicNode, HashSet<IIndexBinding>>();
 	private LogicNode currType = null;
 
@@ -106,7 +106,7 @@ public class EfferentCouplingScopedASTVisitor extends ScopedASTVisitor {
 	}
 
 	private void count(){
-		scopeNode.setNodeValue(key, scopeNode.getNodeValue(key) + 1);
+		scopeNode.setNodeValue(metricId, scopeNode.getNodeValue(metricId) + 1);
 	}
 	
 	private static IIndexBinding getBindingFor(IASTName name, IASTTranslationUnit tu) {
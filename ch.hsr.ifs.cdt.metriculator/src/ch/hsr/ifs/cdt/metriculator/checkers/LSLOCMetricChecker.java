@@ -18,6 +18,8 @@ import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
 import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
 import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.ScopedASTVisitor;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.FileNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionNode;
@@ -28,7 +30,7 @@ public class LSLOCMetricChecker extends AbstractMetricChecker{
 	public static final String PREF_LSLOC_MAXIMUM_PER_FILE     = "max_per_file"; //$NON-NLS-1$
 	public static final String PREF_LSLOC_MAXIMUM_PER_FUNCTION = "max_per_function"; //$NON-NLS-1$
 	public static final String LSLOC_PROBLEM_ID                = "ch.hsr.ifs.cdt.metriculator.lsloc"; //$NON-NLS-1$
-	private final String key                                   = AbstractMetric.getKeyFor(LSLOCMetric.class);
+	private final int metricId                                 = AbstractMetric.getIdFor(LSLOCMetric.class);
 	private LSLOCMetric metric;
 	
 	public LSLOCMetricChecker(){
@@ -52,30 +54,31 @@ public class LSLOCMetricChecker extends AbstractMetricChecker{
 	}
 
 	@Override
-	protected void processTanslationUnit(IASTTranslationUnit tu) {
+	protected ScopedASTVisitor createScopedASTVisitor(AbstractNode scopeNode, AbstractTreeBuilder builder) {
+		return new LSLOCScopedASTVisitor(scopeNode, builder);
+	}
 
-		LSLOCScopedASTVisitor visitor = new LSLOCScopedASTVisitor(currentScopeNode, builder);
-		visitor.add(this);
-		tu.accept(visitor);
+	@Override
+	protected void processedTranslationUnit(IASTTranslationUnit tu, AbstractNode fileNode) {
 		
 		if(tu.getAllPreprocessorStatements().length > 0){
-			currentScopeNode.setNodeValue(key, currentScopeNode.getNodeValue(key) + tu.getAllPreprocessorStatements().length);
+			fileNode.setNodeValue(metricId, fileNode.getNodeValue(metricId) + tu.getAllPreprocessorStatements().length);
 		}
 		
-		reportProblemsFor((FileNode)currentScopeNode);
+		reportProblemsFor((FileNode)fileNode);
 	}
 
 	protected void reportProblemsFor(AbstractNode node){
 		if(node instanceof FunctionNode){
 			Integer maxLSLOCPerFunction = getPreferenceAsInteger(LSLOC_PROBLEM_ID, PREF_LSLOC_MAXIMUM_PER_FUNCTION, getFile());
-			if(node.getValueOf(metric).aggregatedValue > maxLSLOCPerFunction){
+			if(node.getAggregatedValueOf(metric) > maxLSLOCPerFunction){
 				reportProblem(LSLOC_PROBLEM_ID, node, maxLSLOCPerFunction);
 			}				
 		}
 		else		
 		if(node instanceof FileNode){
 			Integer maxLSLOCPerFile = getPreferenceAsInteger(LSLOC_PROBLEM_ID, PREF_LSLOC_MAXIMUM_PER_FILE, getFile());
-			if(node.getValueOf(metric).aggregatedValue > maxLSLOCPerFile){
+			if(node.getAggregatedValueOf(metric) > maxLSLOCPerFile){
 				reportProblem(LSLOC_PROBLEM_ID, node, maxLSLOCPerFile);
 			}	
 		}
@@ -45,7 +45,7 @@ import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
 public class LSLOCScopedASTVisitor extends ScopedASTVisitor {
 
 	private List<IASTNode> astNodesToIgnore = new ArrayList<IASTNode>();
-	private String key = AbstractMetric.getKeyFor(LSLOCMetric.class);
+	private int metricId = AbstractMetric.getIdFor(LSLOCMetric.class);
 
 	public LSLOCScopedASTVisitor(AbstractNode scopeNode, AbstractTreeBuilder builder) {
 		super(scopeNode, builder);
@@ -53,7 +53,7 @@ public class LSLOCScopedASTVisitor extends ScopedASTVisitor {
 
 	private void count(IASTNode node){
 		if(!astNodesToIgnore.contains(node)){
-			scopeNode.setNodeValue(key, scopeNode.getNodeValue(key) + 1);
+			scopeNode.setNodeValue(metricId, scopeNode.getNodeValue(metricId) + 1);
 		}
 	}
 	
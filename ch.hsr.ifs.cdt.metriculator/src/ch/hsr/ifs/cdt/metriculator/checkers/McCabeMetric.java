@@ -15,7 +15,6 @@ package ch.hsr.ifs.cdt.metriculator.checkers;
 import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
 import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
-import ch.hsr.ifs.cdt.metriculator.model.nodes.CompositeValue;
 
 public class McCabeMetric extends AbstractMetric {
 	
@@ -24,16 +23,16 @@ public class McCabeMetric extends AbstractMetric {
 	}
 	
 	@Override
-	public int aggregate(AbstractNode node) {
-		CompositeValue metricValue = node.getValueOrDefaultOf(AbstractMetric.getKeyFor(McCabeMetric.class));
-		metricValue.aggregatedValue = 0;
+	public int updateAggregatedValue(AbstractNode node) {
+		int aggregatedValue = 0;
 
 		for(AbstractNode child : node.getChildren()){
-			metricValue.aggregatedValue += aggregate(child);
+			aggregatedValue += child.getAggregatedValue(getId());
 		}
 		
-		metricValue.aggregatedValue = metricValue.nodeValue + metricValue.aggregatedValue - node.getChildren().size() + 1;
+		aggregatedValue = node.getNodeValue(getId()) + aggregatedValue - node.getChildren().size() + 1;
 
-		return metricValue.aggregatedValue;
+		node.setAggregatedValue(getId(), aggregatedValue);
+		return aggregatedValue;
 	}
 }
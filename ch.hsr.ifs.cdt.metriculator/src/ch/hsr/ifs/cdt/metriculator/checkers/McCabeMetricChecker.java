@@ -13,10 +13,11 @@
 package ch.hsr.ifs.cdt.metriculator.checkers;
 
 import org.eclipse.cdt.codan.core.model.IProblemWorkingCopy;
-import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 
 import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
 import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.ScopedASTVisitor;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionNode;
 import ch.hsr.ifs.cdt.metriculator.resources.MetricLabels;
@@ -34,10 +35,8 @@ public class McCabeMetricChecker extends AbstractMetricChecker{
 	}
 	
 	@Override
-	protected void processTanslationUnit(IASTTranslationUnit tu) {
-		McCabeScopedASTVisitor visitor = new McCabeScopedASTVisitor(currentScopeNode, builder);
-		visitor.add(this);
-		tu.accept(visitor);
+	protected ScopedASTVisitor createScopedASTVisitor(AbstractNode scopeNode, AbstractTreeBuilder builder) {
+		return new McCabeScopedASTVisitor(scopeNode, builder);
 	}
 	
 	@Override
@@ -50,7 +49,7 @@ public class McCabeMetricChecker extends AbstractMetricChecker{
 	protected void reportProblemsFor(AbstractNode node){
 		if(node instanceof FunctionNode){
 			Integer maxMcCabePerFunction = getPreferenceAsInteger(MCCABE_PROBLEM_ID, PREF_MCCABE_MAXIMUM_PER_FUNCTION, getFile());
-			if(node.getValueOf(metric).aggregatedValue > maxMcCabePerFunction){
+			if(node.getAggregatedValueOf(metric) > maxMcCabePerFunction){
 				reportProblem(MCCABE_PROBLEM_ID, node, maxMcCabePerFunction);
 			}				
 		}
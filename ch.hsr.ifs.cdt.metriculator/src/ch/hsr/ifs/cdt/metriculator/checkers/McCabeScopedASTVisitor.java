@@ -35,7 +35,7 @@ import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
 
 public class McCabeScopedASTVisitor extends ScopedASTVisitor {
 	
-	String key = AbstractMetric.getKeyFor(McCabeMetric.class);
+	int metricId = AbstractMetric.getIdFor(McCabeMetric.class);
 
 	public McCabeScopedASTVisitor(AbstractNode scopeNode, AbstractTreeBuilder builder) {
 		super(scopeNode, builder);
@@ -78,7 +78,7 @@ public class McCabeScopedASTVisitor extends ScopedASTVisitor {
 	}
 
 	private void count(){
-		scopeNode.setNodeValue(key, scopeNode.getNodeValue(key) + 1);
+		scopeNode.setNodeValue(metricId, scopeNode.getNodeValue(metricId) + 1);
 	}
 
 	private boolean isComplexity(IASTStatement statement) {
@@ -13,10 +13,11 @@
 package ch.hsr.ifs.cdt.metriculator.checkers;
 
 import org.eclipse.cdt.codan.core.model.IProblemWorkingCopy;
-import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 
 import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
 import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.ScopedASTVisitor;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.TypeDefNode;
 import ch.hsr.ifs.cdt.metriculator.resources.MetricLabels;
@@ -35,10 +36,8 @@ public class NumberMembersMetricChecker extends AbstractMetricChecker{
 	
 	
 	@Override
-	protected void processTanslationUnit(IASTTranslationUnit tu) {
-		NumberMembersScopedASTVisitor visitor = new NumberMembersScopedASTVisitor(currentScopeNode, builder);
-		visitor.add(this);
-		tu.accept(visitor);
+	protected ScopedASTVisitor createScopedASTVisitor(AbstractNode scopeNode, AbstractTreeBuilder builder) {
+		return new NumberMembersScopedASTVisitor(scopeNode, builder);
 	}
 
 	@Override
@@ -51,7 +50,7 @@ public class NumberMembersMetricChecker extends AbstractMetricChecker{
 	protected void reportProblemsFor(AbstractNode node){
 		if(node instanceof TypeDefNode){
 			Integer maxNbMembersPerType = getPreferenceAsInteger(NBMEMBERS_PROBLEM_ID, PREF_NBMEMBERS_MAXIMUM_PER_TYPE, getFile());
-			if(node.getValueOf(metric).aggregatedValue > maxNbMembersPerType){
+			if(node.getAggregatedValueOf(metric) > maxNbMembersPerType){
 				reportProblem(NBMEMBERS_PROBLEM_ID, node, maxNbMembersPerType);
 			}					
 		}
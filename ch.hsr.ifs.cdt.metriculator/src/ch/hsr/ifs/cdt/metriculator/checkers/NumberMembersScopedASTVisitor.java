@@ -27,7 +27,7 @@ import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
 
 public class NumberMembersScopedASTVisitor extends ScopedASTVisitor {
 	
-	String key = AbstractMetric.getKeyFor(NumberMembersMetric.class);
+	int metricId = AbstractMetric.getIdFor(NumberMembersMetric.class);
 
 	public NumberMembersScopedASTVisitor(AbstractNode scopeNode, AbstractTreeBuilder builder) {
 		super(scopeNode, builder);
@@ -68,6 +68,6 @@ public class NumberMembersScopedASTVisitor extends ScopedASTVisitor {
 	}
 	
 	private void count(){
-		scopeNode.setNodeValue(key, scopeNode.getNodeValue(key) + 1);
+		scopeNode.setNodeValue(metricId, scopeNode.getNodeValue(metricId) + 1);
 	}
 }
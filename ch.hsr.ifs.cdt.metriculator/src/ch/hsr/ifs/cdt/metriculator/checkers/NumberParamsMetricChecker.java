@@ -13,10 +13,11 @@
 package ch.hsr.ifs.cdt.metriculator.checkers;
 
 import org.eclipse.cdt.codan.core.model.IProblemWorkingCopy;
-import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 
 import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
 import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.ScopedASTVisitor;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionNode;
 import ch.hsr.ifs.cdt.metriculator.resources.MetricLabels;
@@ -41,17 +42,15 @@ public class NumberParamsMetricChecker extends AbstractMetricChecker{
 	}
 	
 	@Override
-	protected void processTanslationUnit(IASTTranslationUnit tu) {
-		NumberParamsScopedASTVisitor visitor = new NumberParamsScopedASTVisitor(currentScopeNode, builder);
-		visitor.add(this);
-		tu.accept(visitor);
+	protected ScopedASTVisitor createScopedASTVisitor(AbstractNode scopeNode, AbstractTreeBuilder builder) {
+		return new NumberParamsScopedASTVisitor(scopeNode, builder);
 	}
 
 	@Override
 	protected void reportProblemsFor(AbstractNode node){
 		if(node instanceof FunctionNode){
 			Integer maxNbParamsPerFunction = getPreferenceAsInteger(NBPARAMS_PROBLEM_ID, PREF_NBPARAMS_MAXIMUM_PER_FUNCTION, getFile());
-			if(node.getValueOf(metric).aggregatedValue > maxNbParamsPerFunction){
+			if(node.getAggregatedValueOf(metric) > maxNbParamsPerFunction){
 				reportProblem(NBPARAMS_PROBLEM_ID, node, maxNbParamsPerFunction);
 			}				
 		}
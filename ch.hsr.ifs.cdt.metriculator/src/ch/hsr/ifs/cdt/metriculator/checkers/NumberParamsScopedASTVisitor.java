@@ -24,7 +24,7 @@ import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionDefNode;
 
 public class NumberParamsScopedASTVisitor extends ScopedASTVisitor {
 
-	String key = AbstractMetric.getKeyFor(NumberParamsMetric.class);
+	int metricId = AbstractMetric.getIdFor(NumberParamsMetric.class);
 
 	public NumberParamsScopedASTVisitor(AbstractNode scopeNode, AbstractTreeBuilder builder) {
 		super(scopeNode, builder);
@@ -46,6 +46,6 @@ public class NumberParamsScopedASTVisitor extends ScopedASTVisitor {
 	}
 
 	private void count(){
-		scopeNode.setNodeValue(key, scopeNode.getNodeValue(key) + 1);
+		scopeNode.setNodeValue(metricId, scopeNode.getNodeValue(metricId) + 1);
 	}
 }
@@ -0,0 +1,224 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.headless;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.eclipse.cdt.codan.core.CodanRuntime;
+import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.cdt.core.index.IIndexManager;
+import org.eclipse.cdt.core.model.CoreModel;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IProjectDescription;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceVisitor;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceDescription;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Path;
+
+import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetricChecker;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.report.CSVReportGenerator;
+import ch.hsr.ifs.cdt.metriculator.report.FileReportGenerator;
+import ch.hsr.ifs.cdt.metriculator.report.HTMLReportGenerator;
+import ch.hsr.ifs.cdt.metriculator.report.JSONReportGenerator;
+import ch.hsr.ifs.cdt.metriculator.report.ReportConfigurationStore;
+import ch.hsr.ifs.cdt.metriculator.report.SnapshotReportGenerator;
+import ch.hsr.ifs.cdt.metriculator.report.TextReportGenerator;
+
+/**
+ * Runs the metric checkers on the translation units of a shard of the workspace and writes the reports, without any UI.
+ * */
+public class BatchAnalysis {
+
+	private final HeadlessArguments arguments;
+	private int analysedFiles = 0;
+	private int violations    = 0;
+
+	public BatchAnalysis(HeadlessArguments arguments) {
+		this.arguments = arguments;
+	}
+
+	public void run(IProgressMonitor monitor) throws Exception {
+		disableAutoBuild();
+		importProjects(monitor);
+
+		CCorePlugin.getIndexManager().joinIndexer(IIndexManager.FOREVER, monitor);
+
+		List<IFile> files = HeadlessArguments.selectShard(collectTranslationUnits(), arguments.shard, arguments.shardCount);
+
+		MetriculatorPluginActivator activator = MetriculatorPluginActivator.getDefault();
+		activator.overrideAnalysisThreads(arguments.threads); // not stored in the workspace of the CI job
+		AbstractMetricChecker.getMetricCheckers(); // the checkers register their metrics
+
+		activator.beginAnalysis();
+		monitor.beginTask("metriculator", files.size()); //$NON-NLS-1$
+		for(IFile file : files){
+			if(monitor.isCanceled()){
+				throw new OperationCanceledException();
+			}
+			CodanRuntime.getInstance().getBuilder().processResource(file, monitor);
+			monitor.worked(1);
+			analysedFiles++;
+		}
+		monitor.done();
+		activator.endAnalysis();
+
+		AbstractNode root = activator.getHybridTreeBuilder().root;
+		violations        = countProblems(root);
+		writeReports(root, activator.getMetrics());
+	}
+
+	public int getAnalysedFiles() {
+		return analysedFiles;
+	}
+
+	/**
+	 * @return number of problems reported for exceeded metric thresholds.
+	 * */
+	public int getViolations() {
+		return violations;
+	}
+
+	/**
+	 * Imported projects would otherwise be built by their C/C++ builders.
+	 * */
+	private static void disableAutoBuild() throws CoreException {
+		IWorkspace workspace              = ResourcesPlugin.getWorkspace();
+		IWorkspaceDescription description = workspace.getDescription();
+		if(description.isAutoBuilding()){
+			description.setAutoBuilding(false);
+			workspace.setDescription(description);
+		}
+	}
+
+	private void importProjects(IProgressMonitor monitor) throws CoreException {
+		IWorkspace workspace = ResourcesPlugin.getWorkspace();
+
+		for(String location : arguments.importLocations){
+			IPath projectLocation           = new Path(new File(location).getAbsolutePath());
+			IProjectDescription description = workspace.loadProjectDescription(projectLocation.append(IProjectDescription.DESCRIPTION_FILE_NAME));
+			IProject project                = workspace.getRoot().getProject(description.getName());
+
+			if(projectLocation.removeLastSegments(1).equals(workspace.getRoot().getLocation())){
+				description.setLocation(null); // the default location of a project must not be set explicitly
+			}
+
+			if(!project.exists()){
+				project.create(description, monitor);
+			}
+			project.open(monitor);
+		}
+	}
+
+	private List<IProject> getProjects() {
+		List<IProject> projects = new ArrayList<IProject>();
+
+		if(arguments.projectNames.isEmpty()){
+			for(IProject project : ResourcesPlugin.getWorkspace().getRoot().getProjects()){
+				if(project.isOpen() && CoreModel.hasCNature(project)){
+					projects.add(project);
+				}
+			}
+		}else{
+			for(String name : arguments.projectNames){
+				IProject project = ResourcesPlugin.getWorkspace().getRoot().getProject(name);
+				if(!project.isOpen()){
+					throw new IllegalArgumentException("Project " + name + " is not open in the workspace"); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+				projects.add(project);
+			}
+		}
+		return projects;
+	}
+
+	/**
+	 * @return translation units of the analysed projects, sorted by their path so every process computes the same shards.
+	 * */
+	private List<IFile> collectTranslationUnits() throws CoreException {
+		final List<IFile> files = new ArrayList<IFile>();
+
+		for(IProject project : getProjects()){
+			project.accept(new IResourceVisitor() {
+				@Override
+				public boolean visit(IResource resource) throws CoreException {
+					if(resource.isDerived()){
+						return false;
+					}
+					if(resource instanceof IFile && CoreModel.isValidTranslationUnitName(resource.getProject(), resource.getName())){
+						files.add((IFile) resource);
+					}
+					return true;
+				}
+			});
+		}
+
+		Collections.sort(files, new Comparator<IFile>() {
+			@Override
+			public int compare(IFile f1, IFile f2) {
+				return f1.getFullPath().toString().compareTo(f2.getFullPath().toString());
+			}
+		});
+		return files;
+	}
+
+	private static int countProblems(AbstractNode node) {
+		int count = node.getProblems().size();
+		for(AbstractNode child : node.getChildren()){
+			count += countProblems(child);
+		}
+		return count;
+	}
+
+	private void writeReports(AbstractNode root, Collection<AbstractMetric> metrics) throws Exception {
+		IPath exportDirectory = new Path(new File(arguments.outputDirectory).getAbsolutePath());
+		if(arguments.shardCount > 1){
+			exportDirectory = exportDirectory.append("shard-" + arguments.shard); //$NON-NLS-1$
+		}
+
+		ReportConfigurationStore configStore = new ReportConfigurationStore();
+		configStore.set(FileReportGenerator.class, FileReportGenerator.CONFIG_EXPORT_DIR, exportDirectory);
+		configStore.set(FileReportGenerator.class, FileReportGenerator.CONFIG_REVEAL_RESULT, false);
+		configStore.set(HTMLReportGenerator.class, HTMLReportGenerator.CONFIG_WRITE_MODEL, true); // build servers keep the model for further processing
+
+		for(String format : arguments.formats){
+			createReportGenerator(format).run(configStore, root, metrics);
+		}
+	}
+
+	private static FileReportGenerator createReportGenerator(String format) {
+		if(HeadlessArguments.FORMAT_HTML.equals(format)){
+			return new HTMLReportGenerator();
+		}else if(HeadlessArguments.FORMAT_JSON.equals(format)){
+			return new JSONReportGenerator();
+		}else if(HeadlessArguments.FORMAT_CSV.equals(format)){
+			return new CSVReportGenerator();
+		}else if(HeadlessArguments.FORMAT_SNAPSHOT.equals(format)){
+			return new SnapshotReportGenerator();
+		}
+		return new TextReportGenerator();
+	}
+}
@@ -0,0 +1,123 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.headless;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line arguments of the headless metriculator application.
+ * */
+public class HeadlessArguments {
+
+	public static final String FORMAT_HTML     = "html"; //$NON-NLS-1$
+	public static final String FORMAT_TEXT     = "text"; //$NON-NLS-1$
+	public static final String FORMAT_JSON     = "json"; //$NON-NLS-1$
+	public static final String FORMAT_CSV      = "csv"; //$NON-NLS-1$
+	public static final String FORMAT_SNAPSHOT = "snapshot"; //$NON-NLS-1$
+
+	public static final String USAGE =
+		"Usage: eclipse -nosplash -data <workspace> -application ch.hsr.ifs.cdt.metriculator.headless\n" + //$NON-NLS-1$
+		"  -import <directory>   import the project in the directory into the workspace, repeatable\n" + //$NON-NLS-1$
+		"  -project <name>       analyse this project only, repeatable. Default: all open C/C++ projects\n" + //$NON-NLS-1$
+		"  -format <formats>     comma separated report formats: html (includes model.xml), text, json, csv,\n" + //$NON-NLS-1$
+		"                        snapshot (binary archive the view can open). Default: text\n" + //$NON-NLS-1$
+		"  -output <directory>   directory the reports are written to. Default: ./metriculator-export\n" + //$NON-NLS-1$
+		"  -shard <k>/<n>        analyse only the k-th of n shards of the files, k counts from 0\n" + //$NON-NLS-1$
+		"  -threads <n>          number of threads that analyse translation units\n" + //$NON-NLS-1$
+		"Exit code: 0 no problems, 1 metric thresholds exceeded, 2 error"; //$NON-NLS-1$
+
+	public final List<String> importLocations = new ArrayList<String>();
+	public final List<String> projectNames    = new ArrayList<String>();
+	public final List<String> formats         = new ArrayList<String>();
+	public String outputDirectory             = "metriculator-export"; //$NON-NLS-1$
+	public int shard                          = 0;
+	public int shardCount                     = 1;
+	public int threads                        = 0;
+
+	/**
+	 * @throws IllegalArgumentException if an argument has no or an invalid value.
+	 * */
+	public static HeadlessArguments parse(String... args) {
+		HeadlessArguments arguments = new HeadlessArguments();
+
+		for(int i = 0; i < args.length; i++){
+			String name = args[i];
+
+			if("-import".equals(name)){ //$NON-NLS-1$
+				arguments.importLocations.add(valueOf(args, ++i, name));
+			}else if("-project".equals(name)){ //$NON-NLS-1$
+				arguments.projectNames.add(valueOf(args, ++i, name));
+			}else if("-format".equals(name)){ //$NON-NLS-1$
+				for(String format : valueOf(args, ++i, name).split(",")){ //$NON-NLS-1$
+					if(!FORMAT_HTML.equals(format) && !FORMAT_TEXT.equals(format) && !FORMAT_JSON.equals(format) && !FORMAT_CSV.equals(format) && !FORMAT_SNAPSHOT.equals(format)){
+						throw new IllegalArgumentException("Unknown report format: " + format); //$NON-NLS-1$
+					}
+					arguments.formats.add(format);
+				}
+			}else if("-output".equals(name)){ //$NON-NLS-1$
+				arguments.outputDirectory = valueOf(args, ++i, name);
+			}else if("-shard".equals(name)){ //$NON-NLS-1$
+				arguments.parseShard(valueOf(args, ++i, name));
+			}else if("-threads".equals(name)){ //$NON-NLS-1$
+				arguments.threads = intValueOf(valueOf(args, ++i, name), name);
+			}else{
+				System.err.println("Ignoring argument " + name); //$NON-NLS-1$
+			}
+		}
+
+		if(arguments.formats.isEmpty()){
+			arguments.formats.add(FORMAT_TEXT);
+		}
+		return arguments;
+	}
+
+	private void parseShard(String value) {
+		String[] parts = value.split("/"); //$NON-NLS-1$
+		if(parts.length != 2){
+			throw new IllegalArgumentException("Shard must be given as <k>/<n>: " + value); //$NON-NLS-1$
+		}
+		shard      = intValueOf(parts[0], "-shard"); //$NON-NLS-1$
+		shardCount = intValueOf(parts[1], "-shard"); //$NON-NLS-1$
+		if(shardCount < 1 || shard < 0 || shard >= shardCount){
+			throw new IllegalArgumentException("Shard " + value + " does not exist"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	private static String valueOf(String[] args, int index, String name) {
+		if(index >= args.length){
+			throw new IllegalArgumentException("Missing value of " + name); //$NON-NLS-1$
+		}
+		return args[index];
+	}
+
+	private static int intValueOf(String value, String name) {
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid number for " + name + ": " + value); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * Distributes the sorted items round-robin over the shards, so large folders are spread over all shards.
+	 * @return items of the given shard, in their order.
+	 * */
+	public static <T> List<T> selectShard(List<T> items, int shard, int shardCount) {
+		List<T> selected = new ArrayList<T>();
+		for(int i = shard; i < items.size(); i += shardCount){
+			selected.add(items.get(i));
+		}
+		return selected;
+	}
+}
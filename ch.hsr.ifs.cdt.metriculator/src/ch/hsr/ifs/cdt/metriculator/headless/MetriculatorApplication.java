@@ -0,0 +1,71 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.headless;
+
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.equinox.app.IApplication;
+import org.eclipse.equinox.app.IApplicationContext;
+
+/**
+ * Headless application for continuous integration, see {@link HeadlessArguments#USAGE}.
+ * Several processes, each with its own workspace, can share the work by analysing different shards.
+ * */
+public class MetriculatorApplication implements IApplication {
+
+	public static final Integer EXIT_VIOLATIONS = Integer.valueOf(1);
+	public static final Integer EXIT_ERROR      = Integer.valueOf(2);
+
+	@Override
+	public Object start(IApplicationContext context) throws Exception {
+		String[] args = (String[]) context.getArguments().get(IApplicationContext.APPLICATION_ARGS);
+
+		HeadlessArguments arguments;
+		try {
+			arguments = HeadlessArguments.parse(args == null ? new String[0] : args);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(HeadlessArguments.USAGE);
+			return EXIT_ERROR;
+		}
+
+		BatchAnalysis analysis = new BatchAnalysis(arguments);
+		try {
+			analysis.run(new NullProgressMonitor());
+		} catch (Exception e) {
+			e.printStackTrace();
+			return EXIT_ERROR;
+		} finally {
+			saveWorkspace();
+		}
+
+		System.out.println("metriculator: " + analysis.getAnalysedFiles() + " files analysed, " + analysis.getViolations() + " metric thresholds exceeded"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		return analysis.getViolations() > 0 ? EXIT_VIOLATIONS : EXIT_OK;
+	}
+
+	/**
+	 * Keeps imported projects and the index for the next run in the same workspace.
+	 * */
+	private static void saveWorkspace() {
+		try {
+			ResourcesPlugin.getWorkspace().save(true, new NullProgressMonitor());
+		} catch (CoreException e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public void stop() {
+	}
+}
@@ -13,36 +13,55 @@
 package ch.hsr.ifs.cdt.metriculator.model;
 
 import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
-import ch.hsr.ifs.cdt.metriculator.model.nodes.CompositeValue;
 
 abstract public class AbstractMetric {
 	
 	protected AbstractMetricChecker checker;
 	private String name;
 	private String description;
-	public boolean useCachedValue = false;
+	private final int id;
 	
 	protected AbstractMetric(AbstractMetricChecker checker, String name, String description){
 		this.checker     = checker;
 		this.name        = name;
 		this.description = description;
+		this.id          = MetricRegistry.getId(getKey());
 	}
 
 	public String getKey(){
 		return getClass().getName();
 	}
+
+	/**
+	 * @return dense id of the metric, nodes store the values of the metric at this index.
+	 * */
+	public int getId(){
+		return id;
+	}
 	
+	/**
+	 * Aggregates the subtree of the node for this metric only.
+	 * @see MetricAggregator to aggregate several metrics at once
+	 * */
 	public int aggregate(AbstractNode node){
-		CompositeValue metricValue  = node.getValueOrDefaultOf(getKey());
-		metricValue.aggregatedValue = 0;
+		new MetricAggregator(this).aggregate(node);
+
+		return node.getAggregatedValue(id);
+	}
+
+	/**
+	 * Computes the aggregated value of the node from its node value and the aggregated values of its children.
+	 * The children have to be aggregated already.
+	 * */
+	public int updateAggregatedValue(AbstractNode node){
+		int aggregatedValue = node.getNodeValue(id);
 
 		for(AbstractNode child : node.getChildren()) {
-			metricValue.aggregatedValue += aggregate(child);
+			aggregatedValue += child.getAggregatedValue(id);
 		}
 
-		metricValue.aggregatedValue += metricValue.nodeValue;
-
-		return metricValue.aggregatedValue;		
+		node.setAggregatedValue(id, aggregatedValue);
+		return aggregatedValue;
 	}
 	
 	public AbstractMetricChecker getChecker(){
@@ -52,6 +71,10 @@ abstract public class AbstractMetric {
 	public static String getKeyFor(Class<? extends AbstractMetric> metric) {
 		return metric.getName();
 	}
+
+	public static int getIdFor(Class<? extends AbstractMetric> metric) {
+		return MetricRegistry.getId(getKeyFor(metric));
+	}
 	
 	public String getName() {
 		return name;
@@ -16,8 +16,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Observable;
-import java.util.Observer;
+import java.util.List;
+import java.util.Map;
 
 import org.eclipse.cdt.codan.core.CodanRuntime;
 import org.eclipse.cdt.codan.core.cxx.model.AbstractIndexAstChecker;
@@ -25,66 +25,272 @@ import org.eclipse.cdt.codan.core.model.IChecker;
 import org.eclipse.cdt.codan.core.model.ICheckersRegistry;
 import org.eclipse.cdt.codan.core.model.IProblem;
 import org.eclipse.cdt.codan.core.model.IProblemLocation;
+import org.eclipse.cdt.codan.core.model.IProblemProfile;
 import org.eclipse.cdt.codan.core.model.IProblemWorkingCopy;
 import org.eclipse.cdt.codan.core.param.BasicProblemPreference;
 import org.eclipse.cdt.codan.core.param.IProblemPreferenceDescriptor.PreferenceType;
 import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.OperationCanceledException;
 
-import ch.hsr.ifs.cdt.metriculator.JobObservable;
+import ch.hsr.ifs.cdt.metriculator.AnalysisEvent;
+import ch.hsr.ifs.cdt.metriculator.AnalysisEventBus;
 import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FileNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.ProjectNode;
 import ch.hsr.ifs.cdt.metriculator.resources.MetricLabels;
 
-public abstract class AbstractMetricChecker extends AbstractIndexAstChecker implements Observer, IScopeListener {
+public abstract class AbstractMetricChecker extends AbstractIndexAstChecker implements IScopeListener {
 
-	private static final String PREF_REPORT_CHECKER_PROBLEMS = "report_problems";
+	public static final String PREF_REPORT_CHECKER_PROBLEMS = "report_problems"; //$NON-NLS-1$
 	private final String PROBLEM_ID;
-	private HashMap<String, Collection<IProblem>> reportedProblems = new HashMap<String, Collection<IProblem>>();
 	protected AbstractNode currentScopeNode;
 	protected HybridTreeBuilder builder;
+	private ThreadLocal<IFile> analysedFile = new ThreadLocal<IFile>();
+
+	/**
+	 * Problems found for a file, e.g. in the fused pass of another metric checker, 
+	 * that are reported once this checker processes the file in its own Codan session.
+	 * */
+	private final Map<IFile, List<PendingProblem>> pendingProblems = new HashMap<IFile, List<PendingProblem>>();
+
+	/**
+	 * Forgets the tree of the previous run before the checkers run again, on the thread that starts the run.
+	 * */
+	private final AnalysisEventBus.Listener<AnalysisEvent.RunStarted> runStartedListener = new AnalysisEventBus.Listener<AnalysisEvent.RunStarted>() {
+		@Override
+		public void handle(AnalysisEvent.RunStarted event) {
+			currentScopeNode = null;
+			builder = null;
+			synchronized (pendingProblems) {
+				pendingProblems.clear();
+			}
+		}
+	};
 
 	protected AbstractMetricChecker(String problemId){
 		PROBLEM_ID = problemId;
+		MetriculatorPluginActivator.getDefault().getEvents().subscribe(AnalysisEvent.RunStarted.class, runStartedListener, AnalysisEventBus.SYNCHRONOUS);
 	}
 	
+	/**
+	 * Reports the problems found for a file only after it has been processed, 
+	 * problems of this checker may have been found in the fused pass of another metric checker.
+	 * Codan removes the markers of this checker that are not reported in this checker's session of the file.
+	 * */
 	@Override
 	public synchronized boolean processResource(IResource resource)	throws OperationCanceledException {
+		boolean processChildren = analyseResource(resource);
+		if(resource instanceof IFile){
+			reportPendingProblems((IFile) resource);
+		}
+		return processChildren;
+	}
+
+	private boolean analyseResource(IResource resource) {
 		builder          = MetriculatorPluginActivator.getDefault().getHybridTreeBuilder();
+		if(resource instanceof IFile){
+			if(!builder.claim(resource)){
+				return false; // already analysed by the fused pass of another metric checker
+			}
+
+			ParallelTranslationUnitAnalysis analysis = MetriculatorPluginActivator.getDefault().getParallelAnalysis();
+			if(analysis != null && analysis.isSubmitted((IFile) resource)){
+				builder.removeFile((IFile) resource);
+				analysis.mergeInto(builder, (IFile) resource);
+				return false; // analysed on a worker thread ahead of this session
+			}
+
+			if(builder.isUpToDate((IFile) resource)){
+				if(shouldProduceProblems(resource)){
+					replayProblems(builder.getFile((IFile) resource), (IFile) resource, getEnabledMetricCheckers(resource));
+				}
+				return false; // unchanged since the previous run
+			}
+			builder.removeFile((IFile) resource);
+
+			if(shouldProduceProblems(resource) && MetriculatorPluginActivator.getDefault().getMetricCache().restore((IFile) resource, builder, getEnabledMetricCheckers(resource))){
+				FileNode restored = builder.getFile((IFile) resource);
+				if(restored != null){
+					MetriculatorPluginActivator.getDefault().getPartialResults().fileCompleted(restored);
+				}
+				return false; // unchanged since it was cached
+			}
+
+			if(analysis != null){
+				if(shouldProduceProblems(resource)){
+					analysis.submit((IFile) resource, getEnabledMetricCheckers(resource));
+					submitSiblings((IFile) resource, analysis);
+					analysis.mergeInto(builder, (IFile) resource);
+				}
+				return false;
+			}
+		}
 		currentScopeNode = builder.addChild(builder.root, new ProjectNode(resource.getProject()));
 
 		return super.processResource(resource);
 	}
 
+	/**
+	 * Submits the other files of the container that Codan is about to process, so the workers analyse them 
+	 * while the checkers wait for the file of the current session. Files that are unchanged or cached are left to their sessions.
+	 * */
+	private void submitSiblings(IFile file, ParallelTranslationUnitAnalysis analysis) {
+		if(!analysis.beginSubmitting(file.getParent())){
+			return;
+		}
+
+		IResource[] members;
+		try {
+			members = file.getParent().members();
+		} catch (CoreException e) {
+			e.printStackTrace();
+			return;
+		}
+
+		MetricCache cache = MetriculatorPluginActivator.getDefault().getMetricCache();
+		for(IResource member : members){
+			if(member instanceof IFile && !builder.isClaimed(member) && !analysis.isSubmitted((IFile) member)
+					&& enabledInContext(member) && shouldProduceProblems(member)
+					&& !builder.isUpToDate((IFile) member) && !cache.contains((IFile) member)){
+				analysis.submit((IFile) member, getEnabledMetricCheckers(member));
+			}
+		}
+	}
+
 	@Override
 	public boolean runInEditor() {
 		return false; // do not run this checker 'as you type'. only run on user command.
 	}
 	
 	public void processAst(IASTTranslationUnit ast) {
+		analyse(ast, getFile(), builder, (ProjectNode) currentScopeNode, getEnabledMetricCheckers(getFile()));
+	}
+
+	/**
+	 * Walks the translation unit once for all given metric checkers and adds its FileNode subtree below the project node.
+	 * The builder and the tree below the project node must not be shared with other threads during this call.
+	 * */
+	static void analyse(IASTTranslationUnit ast, IFile file, HybridTreeBuilder builder, ProjectNode projectNode, Collection<AbstractMetricChecker> checkers) {
 		
 		// ignore c files, #201
 		if(ast.getFilePath().lastIndexOf(".c") == ast.getFilePath().length() - 2){
 			return;
 		}
 		
-		AbstractNode fileSystemLeaf = AbstractTreeBuilder.createTreeFromPath((ProjectNode) currentScopeNode, ast);
+		AbstractNode fileSystemLeaf = AbstractTreeBuilder.createTreeFromPath(projectNode, ast);
 		AbstractNode fileSystemTop  = fileSystemLeaf.getRoot(); 
 
-		currentScopeNode = builder.addChild(currentScopeNode, fileSystemTop);
-		currentScopeNode = builder.getChildBy(fileSystemLeaf.getHybridId());
+		if(fileSystemLeaf instanceof FileNode){
+			((FileNode) fileSystemLeaf).setAnalysedResource(file.getFullPath().toString(), file.getModificationStamp());
+			((FileNode) fileSystemLeaf).setIncludes(getIncludes(file, ast));
+		}
+
+		builder.addChild(projectNode, fileSystemTop);
+		AbstractNode fileNode = builder.getChildBy(fileSystemLeaf.getHybridId());
+
+		FusedScopedASTVisitor visitor = new FusedScopedASTVisitor(fileNode, builder);
 
-		processTanslationUnit(ast);
+		for(AbstractMetricChecker checker : checkers){
+			checker.analysedFile.set(file);
+			ScopedASTVisitor metricVisitor = checker.createScopedASTVisitor(fileNode, builder);
+			metricVisitor.add(checker);
+			visitor.add(metricVisitor);
+		}
+
+		try{
+			ast.accept(visitor);
+
+			for(AbstractMetricChecker checker : checkers){
+				checker.processedTranslationUnit(ast, fileNode);
+			}
+		}finally{
+			for(AbstractMetricChecker checker : checkers){
+				checker.analysedFile.remove();
+			}
+		}
 		
 		builder.mergeDeclarationsAndDefinitions(ast);
+		MetriculatorPluginActivator.getDefault().getPartialResults().fileCompleted(fileNode);
+	}
 
-		currentScopeNode = fileSystemTop.getParent();
+	/**
+	 * @return the files the translation unit includes, null if they are not known. The index is locked while the translation unit is analysed.
+	 * */
+	private static IncludeClosure getIncludes(IFile file, IASTTranslationUnit ast) {
+		if(ast.getIndex() == null){
+			return null;
+		}
+		try {
+			return IncludeClosure.of(file, ast.getIndex());
+		} catch (CoreException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Reports the problems of the given checkers for a subtree that was not built by traversing its translation unit, 
+	 * e.g. because it was restored from the metric cache or is unchanged since the previous run. Nodes are reported children first, like the scopes are left.
+	 * */
+	static void replayProblems(AbstractNode fileNode, IFile file, Collection<AbstractMetricChecker> checkers) {
+		for(AbstractMetricChecker checker : checkers){
+			checker.analysedFile.set(file);
+		}
+		try{
+			replayProblems(fileNode, checkers);
+		}finally{
+			for(AbstractMetricChecker checker : checkers){
+				checker.analysedFile.remove();
+			}
+		}
 	}
 
-	protected abstract void processTanslationUnit(IASTTranslationUnit tu);
+	private static void replayProblems(AbstractNode node, Collection<AbstractMetricChecker> checkers) {
+		for(AbstractNode child : node.getChildren()){
+			replayProblems(child, checkers);
+		}
+		for(AbstractMetricChecker checker : checkers){
+			checker.reportProblemsFor(node);
+		}
+	}
+
+	/**
+	 * @return the visitor that holds the counting logic of this checker's metric.
+	 * */
+	protected abstract ScopedASTVisitor createScopedASTVisitor(AbstractNode scopeNode, AbstractTreeBuilder builder);
+
+	/**
+	 * Called after the translation unit has been traversed, with the FileNode of the translation unit.
+	 * */
+	protected void processedTranslationUnit(IASTTranslationUnit tu, AbstractNode fileNode) {
+	}
+
+	/**
+	 * While this checker takes part in a fused pass on the current thread, the file of that pass is returned.
+	 * */
+	@Override
+	protected IFile getFile() {
+		if(analysedFile.get() != null){
+			return analysedFile.get();
+		}
+		return super.getFile();
+	}
+
+	private Collection<AbstractMetricChecker> getEnabledMetricCheckers(IResource resource){
+		Collection<AbstractMetricChecker> checkers = new ArrayList<AbstractMetricChecker>();
+		for(AbstractMetricChecker checker : getMetricCheckers()){
+			if(checker == this || checker.isEnabledFor(resource)){
+				checkers.add(checker);
+			}
+		}
+		return checkers;
+	}
 
 	public static <T extends AbstractMetricChecker> T getChecker(Class<T> clazz) {
 		for (IChecker checker : CodanRuntime.getInstance().getCheckersRegistry()) {
@@ -105,8 +311,52 @@ public abstract class AbstractMetricChecker extends AbstractIndexAstChecker impl
 		return Collections.unmodifiableCollection(checkers);
 	}
 
+	/**
+	 * @return problems this checker reported for the node, null if there are none.
+	 * */
 	public Collection<IProblem> getProblemsFor(AbstractNode node){
-		return reportedProblems.get(node.getHybridId());
+		Collection<IProblem> problems = null;
+		for(IProblem problem : node.getProblems()){
+			if(problem.getId().equals(PROBLEM_ID)){
+				if(problems == null){
+					problems = new ArrayList<IProblem>();
+				}
+				problems.add(problem);
+			}
+		}
+		return problems;
+	}
+
+	/**
+	 * @return a description of the enabled state and the preferences of all metric problems, 
+	 * in the workspace profile and the profiles of the open projects. 
+	 * */
+	public static String describeConfiguration() {
+		ICheckersRegistry checkersRegistry = CodanRuntime.getInstance().getCheckersRegistry();
+		IProject[] projects                = ResourcesPlugin.getWorkspace().getRoot().getProjects();
+		StringBuilder configuration        = new StringBuilder();
+
+		for(AbstractMetricChecker checker : getMetricCheckers()){
+			for(IProblem p : checkersRegistry.getRefProblems(checker)){
+				describe(checkersRegistry.getWorkspaceProfile().findProblem(p.getId()), configuration);
+				for(IProject project : projects){
+					if(project.isAccessible()){
+						describe(checkersRegistry.getResourceProfile(project).findProblem(p.getId()), configuration);
+					}
+				}
+			}
+		}
+		return configuration.toString();
+	}
+
+	private static void describe(IProblem problem, StringBuilder configuration) {
+		if(problem != null){
+			configuration.append(problem.getId()).append('=').append(problem.isEnabled());
+			if(problem.getPreference() != null){
+				configuration.append(problem.getPreference().exportValue());
+			}
+			configuration.append(';');
+		}
 	}
 
 	public boolean hasEnabledProblems() {
@@ -127,23 +377,64 @@ public abstract class AbstractMetricChecker extends AbstractIndexAstChecker impl
 		return false;
 	}
 
+	public boolean isEnabledFor(IResource resource) {
+		ICheckersRegistry checkersRegistry = CodanRuntime.getInstance().getCheckersRegistry();
+		IProblemProfile profile            = checkersRegistry.getResourceProfile(resource);
+
+		for(IProblem p : checkersRegistry.getRefProblems(this)){
+			IProblem profileProblem = profile.findProblem(p.getId());
+			if(profileProblem != null && profileProblem.isEnabled()){
+				return true;
+			}
+		}
+		return false;
+	}
+
 	public void reportProblem(String problemId, AbstractNode abstractNode, Object... messageParameters) {
 
-		if(reportedProblems.get(abstractNode.getHybridId()) == null){
-			reportedProblems.put(abstractNode.getHybridId(), new ArrayList<IProblem>());
+		if(!hasProblem(abstractNode, problemId)){ // a replayed node keeps its problems
+			abstractNode.addProblem(getProblemById(problemId, getFile()));
 		}
-		reportedProblems.get(abstractNode.getHybridId()).add(getProblemById(problemId, getFile()));
-		reportedProblems.put(abstractNode.getHybridId(), reportedProblems.get(abstractNode.getHybridId()));
 		
 		if(getShouldReportProblems()){
-			IProblemLocation loc = abstractNode.getEditorInfo().createAndGetProblemLocation(getFile());
+			IFile file           = getFile();
+			IProblemLocation loc = abstractNode.getEditorInfo().createAndGetProblemLocation(file);
 	
 			if (loc != null){
-				super.reportProblem(problemId, loc, messageParameters);
+				// the problem reporter belongs to the session of this checker, see processResource
+				synchronized (pendingProblems) {
+					List<PendingProblem> problems = pendingProblems.get(file);
+					if(problems == null){
+						problems = new ArrayList<PendingProblem>();
+						pendingProblems.put(file, problems);
+					}
+					problems.add(new PendingProblem(problemId, loc, messageParameters));
+				}
 			}
 		}
 	}	
 
+	private static boolean hasProblem(AbstractNode node, String problemId) {
+		for(IProblem problem : node.getProblems()){
+			if(problem.getId().equals(problemId)){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void reportPendingProblems(IFile file) {
+		List<PendingProblem> problems;
+		synchronized (pendingProblems) {
+			problems = pendingProblems.remove(file);
+		}
+		if(problems != null){
+			for(PendingProblem problem : problems){
+				super.reportProblem(problem.problemId, problem.location, problem.messageParameters);
+			}
+		}
+	}
+
 	public Integer getPreferenceAsInteger(String problemId, String prefKey, IFile file) {
 		Object prefValue = getPreference(getProblemById(problemId, file), prefKey);
 
@@ -167,19 +458,6 @@ public abstract class AbstractMetricChecker extends AbstractIndexAstChecker impl
 						MetricLabels.REPORT_CHECKER_PROBLEMS, 
 						PreferenceType.TYPE_BOOLEAN),
 				false);
-		
-		MetriculatorPluginActivator.getDefault().getObservable().addObserver(this);
-	}	
-	
-	@Override
-	public void update(Observable observable, Object state) {
-		if(state instanceof JobObservable.JobState){
-			if(((JobObservable.JobState)state) == JobObservable.JobState.JOB_ABOUT_TO_RUN){
-				reportedProblems.clear();
-				currentScopeNode = null;
-				builder = null;
-			}
-		}
 	}
 	
 	@Override
@@ -192,4 +470,16 @@ public abstract class AbstractMetricChecker extends AbstractIndexAstChecker impl
 	}
 	
 	protected abstract void reportProblemsFor(AbstractNode node);
+
+	private static final class PendingProblem {
+		final String problemId;
+		final IProblemLocation location;
+		final Object[] messageParameters;
+
+		PendingProblem(String problemId, IProblemLocation location, Object[] messageParameters) {
+			this.problemId         = problemId;
+			this.location          = location;
+			this.messageParameters = messageParameters;
+		}
+	}
 }
\ No newline at end of file
@@ -21,6 +21,7 @@ import org.eclipse.core.runtime.Path;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.FileNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.FolderNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.HybridId;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.ProjectNode;
 
 public abstract class AbstractTreeBuilder {
@@ -28,7 +29,15 @@ public abstract class AbstractTreeBuilder {
 	public AbstractNode root;
 	public static final String PATH_SEPARATOR = "#";
 	public static final String LOGIC_SEPARATOR = "::";
+	private final SortPermutations sortPermutations = new SortPermutations();
 	
+	/**
+	 * @return sort orders of the nodes of this tree, see {@link SortPermutations} for when they can be used.
+	 * */
+	public SortPermutations getSortPermutations() {
+		return sortPermutations;
+	}
+
 	public AbstractNode addChild(AbstractNode parent, AbstractNode child){
 		child = parent.add(child);
 		return child;
@@ -58,16 +67,17 @@ public abstract class AbstractTreeBuilder {
 	 * @see TreeBuilder.createTreeFromPath(ProjectNode, IASTTranslationUnit) for a description
 	 * */
 	public static AbstractNode createTreeFromPath(IPath projectRelativePath, IASTTranslationUnit tu){
-		return createTreeFromPath("", projectRelativePath, tu);
+		return createTreeFromPath(null, projectRelativePath, tu);
 	}
 	
 	/**
 	 * @see AbstractTreeBuilder#createTreeFromPath(IProject, IASTTranslationUnit)
+	 * @param hybridIdPrefix id of the node the tree will be added to, can be null
 	 * @param projectRelativePath
 	 * @param tu used in FileNode and FolderNode constructors, can be null
 	 * @return
 	 */
-	public static AbstractNode createTreeFromPath(String hybridIdPrefix, IPath projectRelativePath, IASTTranslationUnit tu){
+	public static AbstractNode createTreeFromPath(HybridId hybridIdPrefix, IPath projectRelativePath, IASTTranslationUnit tu){
 		AbstractNode currentNode = null;
 		String segment           = null;
 		int nrOfSegments         = projectRelativePath.segmentCount();
@@ -79,10 +89,10 @@ public abstract class AbstractTreeBuilder {
 			AbstractNode newNode 	= isLastSegment ? new FileNode(tu, segment) : new FolderNode(tu, segment);
 			
 			if (currentNode == null) {
-				newNode.setHybridId(combine(AbstractTreeBuilder.PATH_SEPARATOR, hybridIdPrefix, newNode.getScopeUniqueName()));
+				newNode.setHybridId(newNode.createHybridId(hybridIdPrefix));
 				currentNode = newNode;
 			} else {
-				newNode.setHybridId(buildPath(hybridIdPrefix, currentNode, newNode));
+				newNode.setHybridId(newNode.createHybridId(currentNode.getHybridId()));
 				currentNode = currentNode.add(newNode);
 			}
 		}
@@ -90,15 +100,6 @@ public abstract class AbstractTreeBuilder {
 		return currentNode;
 	}
 	
-	private static String buildPath(String prefix, AbstractNode parent, AbstractNode child){
-		
-		if(prefix != null && prefix.length() > 0){
-			return combine(AbstractTreeBuilder.PATH_SEPARATOR, prefix, parent.getPath(), child.getScopeUniqueName());
-		}
-		
-		return combine(AbstractTreeBuilder.PATH_SEPARATOR, parent.getPath(), child.getScopeUniqueName());
-	}
-	
 	/**
 	 * @see http://stackoverflow.com/questions/1515437/java-function-for-arrays-like-phps-join/1515548#1515548
 	 * */
@@ -0,0 +1,297 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+package ch.hsr.ifs.cdt.metriculator.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.LogicNode;
+
+/**
+ * Reads a file written by {@link ColumnarSnapshotWriter}. The file is mapped into memory and the columns are read where they are,
+ * opening a file costs the same for every size. Nodes are exposed as read-only {@link NodeView}s,
+ * {@link #createSnapshot()} turns the file into a model the view can show.
+ * */
+public final class ColumnarSnapshotReader {
+
+	/**
+	 * Version of the snapshots created from files, analysis runs count from 1.
+	 * */
+	public static final long ARCHIVED_VERSION = 0;
+
+	private static final Charset UTF8         = Charset.forName(ColumnarSnapshotWriter.ENCODING);
+	private static final String[] TYPE_NAMES = new String[ColumnarSnapshotWriter.FUNCTION_DECL + 1];
+
+	static {
+		for(byte type = 0; type < TYPE_NAMES.length; type++){
+			TYPE_NAMES[type] = ColumnarSnapshotWriter.createNode(type, "").getClass().getSimpleName().toLowerCase(); //$NON-NLS-1$
+		}
+	}
+
+	private final int nodeCount;
+	private final long creationTime;
+	private final IntBuffer parents;
+	private final IntBuffer sizes;
+	private final IntBuffer nameIds;
+	private final IntBuffer astHashCodes;
+	private final IntBuffer[] valueColumns;
+	private final IntBuffer nameOffsets;
+	private final ByteBuffer types;
+	private final ByteBuffer nameBytes;
+	private final String[] names;
+	private final List<String> metricKeys;
+	private final HashMap<String, Integer> metricColumns = new HashMap<String, Integer>();
+
+	/**
+	 * Maps the file, the mapping stays valid after the file is closed.
+	 * @throws IOException if the file can not be read or is no snapshot of a supported version
+	 * */
+	public static ColumnarSnapshotReader open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+		try {
+			FileChannel channel = raf.getChannel();
+			return new ColumnarSnapshotReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			raf.close();
+		}
+	}
+
+	private ColumnarSnapshotReader(MappedByteBuffer buffer) throws IOException {
+		if(buffer.capacity() < ColumnarSnapshotWriter.HEADER_SIZE || buffer.getInt(0) != ColumnarSnapshotWriter.MAGIC){
+			throw new IOException("not a metriculator snapshot"); //$NON-NLS-1$
+		}
+		if(buffer.getInt(4) != ColumnarSnapshotWriter.FORMAT_VERSION){
+			throw new IOException("unsupported snapshot version " + buffer.getInt(4)); //$NON-NLS-1$
+		}
+		nodeCount        = buffer.getInt(8);
+		int metricCount  = buffer.getInt(12);
+		int nameCount    = buffer.getInt(16);
+		int nameByteSize = buffer.getInt(20);
+		creationTime     = buffer.getLong(24);
+		if(nodeCount < 1){
+			throw new IOException("empty snapshot"); //$NON-NLS-1$
+		}
+
+		try {
+			int offset   = ColumnarSnapshotWriter.HEADER_SIZE;
+			parents      = intColumn(buffer, offset, nodeCount);
+			sizes        = intColumn(buffer, offset += 4 * nodeCount, nodeCount);
+			nameIds      = intColumn(buffer, offset += 4 * nodeCount, nodeCount);
+			astHashCodes = intColumn(buffer, offset += 4 * nodeCount, nodeCount);
+			valueColumns = new IntBuffer[2 * metricCount];
+			for(int c = 0; c < valueColumns.length; c++){
+				valueColumns[c] = intColumn(buffer, offset += 4 * nodeCount, nodeCount);
+			}
+			nameOffsets = intColumn(buffer, offset += 4 * nodeCount, nameCount + 1);
+			types       = byteColumn(buffer, offset += 4 * (nameCount + 1), nodeCount);
+			nameBytes   = byteColumn(buffer, offset += nodeCount, nameByteSize);
+
+			ByteBuffer keys = byteColumn(buffer, offset += nameByteSize, buffer.capacity() - offset);
+			String[] key    = new String[metricCount];
+			for(int m = 0; m < metricCount; m++){
+				byte[] utf = new byte[keys.getShort() & 0xFFFF];
+				keys.get(utf);
+				key[m] = new String(utf, UTF8); // keys are ASCII class names, modified UTF-8 does not matter
+				metricColumns.put(key[m], Integer.valueOf(m));
+			}
+			metricKeys = Collections.unmodifiableList(Arrays.asList(key));
+		} catch (RuntimeException e) {
+			throw new IOException("truncated snapshot: " + e); //$NON-NLS-1$
+		}
+		names = new String[nameCount];
+	}
+
+	private static IntBuffer intColumn(ByteBuffer buffer, int offset, int length) {
+		return byteColumn(buffer, offset, 4 * length).asIntBuffer();
+	}
+
+	private static ByteBuffer byteColumn(ByteBuffer buffer, int offset, int length) {
+		ByteBuffer column = buffer.duplicate();
+		column.position(offset);
+		column.limit(offset + length);
+		return column.slice();
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * @return time the snapshot was written, in milliseconds since the epoch.
+	 * */
+	public long getCreationTime() {
+		return creationTime;
+	}
+
+	/**
+	 * @return keys of the metrics the snapshot holds values for.
+	 * */
+	public List<String> getMetricKeys() {
+		return metricKeys;
+	}
+
+	public NodeView getRoot() {
+		return getNode(0);
+	}
+
+	public NodeView getNode(int row) {
+		if(row < 0 || row >= nodeCount){
+			throw new IndexOutOfBoundsException(Integer.toString(row));
+		}
+		return new NodeView(row);
+	}
+
+	/**
+	 * Names are decoded on first use, every distinct name once.
+	 * */
+	private String getName(int row) {
+		int id      = nameIds.get(row);
+		String name = names[id];
+		if(name == null){
+			int start       = nameOffsets.get(id);
+			byte[] encoded  = new byte[nameOffsets.get(id + 1) - start];
+			ByteBuffer from = nameBytes.duplicate();
+			from.position(start);
+			from.get(encoded);
+			name      = new String(encoded, UTF8);
+			names[id] = name;
+		}
+		return name;
+	}
+
+	private int getValue(int row, String metricKey, int column) {
+		Integer m = metricColumns.get(metricKey);
+		return m == null ? 0 : valueColumns[2 * m.intValue() + column].get(row);
+	}
+
+	/**
+	 * Builds nodes from the columns, the values are copied as they are, nothing is aggregated.
+	 * Members are not regrouped in the logical view, since the logical names are not part of the snapshot.
+	 * @return tree that can not be changed through the builder
+	 * */
+	public AbstractTreeBuilder createTreeBuilder() {
+		AbstractNode[] nodes = new AbstractNode[nodeCount];
+		for(int row = 0; row < nodeCount; row++){
+			AbstractNode node = ColumnarSnapshotWriter.createNode(types.get(row), getName(row));
+			int parent        = parents.get(row);
+			if(node instanceof LogicNode){
+				((LogicNode) node).setAstNodeHashCode(astHashCodes.get(row));
+			}
+			if(parent >= 0){
+				node.setHybridId(node.createHybridId(nodes[parent].getHybridId()));
+				nodes[parent].add(node);
+			}
+			nodes[row] = node;
+		}
+
+		// node values mark the ancestors stale, so they are set before the aggregated values
+		int[] ids = new int[metricKeys.size()];
+		for(int m = 0; m < ids.length; m++){
+			ids[m] = MetricRegistry.getId(metricKeys.get(m));
+			for(int row = 0; row < nodeCount; row++){
+				nodes[row].setNodeValue(ids[m], valueColumns[2 * m].get(row));
+			}
+		}
+		for(int m = 0; m < ids.length; m++){
+			for(int row = 0; row < nodeCount; row++){
+				nodes[row].setAggregatedValue(ids[m], valueColumns[2 * m + 1].get(row));
+			}
+		}
+		return new ModelSnapshot.FrozenTreeBuilder(nodes[0]);
+	}
+
+	/**
+	 * @return snapshot with version {@link #ARCHIVED_VERSION}, the flat and logical trees are built when they are asked for.
+	 * */
+	public ModelSnapshot createSnapshot() {
+		return new ModelSnapshot(ARCHIVED_VERSION, createTreeBuilder(), null, null);
+	}
+
+	/**
+	 * Read-only view of a node in the mapped file, it holds nothing but the row of the node.
+	 * */
+	public final class NodeView {
+
+		private final int row;
+
+		private NodeView(int row) {
+			this.row = row;
+		}
+
+		public int getRow() {
+			return row;
+		}
+
+		public String getScopeName() {
+			return getName(row);
+		}
+
+		/**
+		 * @return type like the exports write it, e.g. "functiondefnode".
+		 * */
+		public String getType() {
+			return TYPE_NAMES[types.get(row)];
+		}
+
+		/**
+		 * @return the parent, null for the root.
+		 * */
+		public NodeView getParent() {
+			int parent = parents.get(row);
+			return parent < 0 ? null : new NodeView(parent);
+		}
+
+		/**
+		 * The children follow the node, each one after the subtree of the previous child.
+		 * */
+		public List<NodeView> getChildren() {
+			List<NodeView> children = new ArrayList<NodeView>();
+			int end                 = row + sizes.get(row);
+			for(int child = row + 1; child < end; child += sizes.get(child)){
+				children.add(new NodeView(child));
+			}
+			return children;
+		}
+
+		/**
+		 * @return number of nodes in the subtree, including this one.
+		 * */
+		public int getSubtreeSize() {
+			return sizes.get(row);
+		}
+
+		public int getNodeValue(AbstractMetric metric) {
+			return getValue(row, metric.getKey(), 0);
+		}
+
+		public int getAggregatedValueOf(AbstractMetric metric) {
+			return getValue(row, metric.getKey(), 1);
+		}
+
+		@Override
+		public String toString() {
+			return getScopeName();
+		}
+	}
+}
@@ -0,0 +1,299 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FileNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FolderNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionDeclNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionDefNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.LogicNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.NamespaceNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.ProjectNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.TypeDeclNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.TypeDefNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.WorkspaceNode;
+
+/**
+ * Writes a tree as binary columns, which {@link ColumnarSnapshotReader} maps into memory.
+ * The nodes are numbered in pre-order, so the children of a node follow it and a subtree is a range of rows.
+ * <pre>
+ * header    magic, format version, node count, metric count, name count, name bytes, creation time (long)
+ * int       parent row, subtree size, name id,      one column each
+ *           AST hash code
+ * int       node value, aggregated value            two columns per metric
+ * int       name offsets                            name count + 1 entries into the name bytes
+ * byte      node type                               one column
+ * byte      names                                   UTF-8, every distinct scope name once
+ * utf       metric keys                             in the order of the value columns
+ * </pre>
+ * All numbers are big endian. Editor infos and problems are not written.
+ * The AST hash code tells apart siblings with equal names, e.g. anonymous namespaces, it is 0 for nodes that are no {@link LogicNode}.
+ * */
+public class ColumnarSnapshotWriter extends PreOrderTreeVisitor {
+
+	public static final String FILE_EXTENSION = "mcs"; //$NON-NLS-1$
+	static final int MAGIC                    = 0x4D435331; // "MCS1"
+	static final int FORMAT_VERSION           = 2;
+	static final int HEADER_SIZE              = 32;
+	static final String ENCODING              = "UTF-8"; //$NON-NLS-1$
+
+	static final byte WORKSPACE     = 0;
+	static final byte PROJECT       = 1;
+	static final byte FOLDER        = 2;
+	static final byte FILE          = 3;
+	static final byte NAMESPACE     = 4;
+	static final byte TYPE_DEF      = 5;
+	static final byte TYPE_DECL     = 6;
+	static final byte FUNCTION_DEF  = 7;
+	static final byte FUNCTION_DECL = 8;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final AbstractMetric[] metrics;
+	private final HashMap<String, Integer> nameIds = new HashMap<String, Integer>();
+	private final List<String> names               = new ArrayList<String>();
+	private int[] openRows                         = new int[16];
+	private int openCount;
+	private IProgressMonitor monitor               = new NullProgressMonitor();
+
+	private int count;
+	private int[] parentColumn;
+	private int[] sizeColumn;
+	private int[] nameColumn;
+	private int[] hashColumn;
+	private byte[] typeColumn;
+	private int[][] valueColumns;
+
+	public ColumnarSnapshotWriter(Collection<AbstractMetric> metrics) {
+		this.metrics = metrics.toArray(new AbstractMetric[metrics.size()]);
+	}
+
+	/**
+	 * @param monitor gets one unit of work per node written, canceling it stops the writer with an {@link OperationCanceledException}
+	 * */
+	public void setProgressMonitor(IProgressMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	/**
+	 * Writes the subtree of the node, an existing file is overwritten.
+	 * The nodes are collected before the file is opened, so a canceled writer leaves the file as it was.
+	 * @return number of nodes written
+	 * */
+	public int write(AbstractNode root, File file) throws IOException {
+		new MetricAggregator(Arrays.asList(metrics)).aggregateChildrenAndStale(root); // the root may show the totals of another tree
+		collect(root);
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+		try {
+			writeColumns(out);
+		} finally {
+			out.close();
+		}
+		return count;
+	}
+
+	private void collect(AbstractNode root) {
+		int capacity = 1024;
+		count        = 0;
+		openCount    = 0;
+		parentColumn = new int[capacity];
+		sizeColumn   = new int[capacity];
+		nameColumn   = new int[capacity];
+		hashColumn   = new int[capacity];
+		typeColumn   = new byte[capacity];
+		valueColumns = new int[2 * metrics.length][capacity];
+		nameIds.clear();
+		names.clear();
+
+		root.accept(this);
+		while(openCount > 0){
+			closeRow();
+		}
+	}
+
+	@Override
+	protected void visitNode(AbstractNode n) {
+		if(monitor.isCanceled()){
+			throw new OperationCanceledException();
+		}
+		monitor.worked(1);
+
+		if(count == parentColumn.length){
+			grow();
+		}
+		parentColumn[count] = openCount == 0 ? -1 : openRows[openCount - 1];
+		nameColumn[count]   = getNameId(n.getScopeName());
+		hashColumn[count]   = n instanceof LogicNode ? ((LogicNode) n).getAstNodeHashCode() : 0;
+		typeColumn[count]   = getType(n);
+		for(int m = 0; m < metrics.length; m++){
+			valueColumns[2 * m][count]     = n.getNodeValue(metrics[m].getId());
+			valueColumns[2 * m + 1][count] = n.getAggregatedValue(metrics[m].getId());
+		}
+
+		if(openCount == openRows.length){
+			openRows = Arrays.copyOf(openRows, 2 * openCount);
+		}
+		openRows[openCount++] = count++;
+	}
+
+	@Override
+	protected void leaveNode(AbstractNode n) {
+		closeRow();
+	}
+
+	private void closeRow() {
+		int row         = openRows[--openCount];
+		sizeColumn[row] = count - row;
+	}
+
+	private void grow() {
+		int capacity = 2 * parentColumn.length;
+		parentColumn = Arrays.copyOf(parentColumn, capacity);
+		sizeColumn   = Arrays.copyOf(sizeColumn, capacity);
+		nameColumn   = Arrays.copyOf(nameColumn, capacity);
+		hashColumn   = Arrays.copyOf(hashColumn, capacity);
+		typeColumn   = Arrays.copyOf(typeColumn, capacity);
+		for(int c = 0; c < valueColumns.length; c++){
+			valueColumns[c] = Arrays.copyOf(valueColumns[c], capacity);
+		}
+	}
+
+	private int getNameId(String name) {
+		Integer id = nameIds.get(name);
+		if(id == null){
+			id = Integer.valueOf(names.size());
+			nameIds.put(name, id);
+			names.add(name);
+		}
+		return id.intValue();
+	}
+
+	private void writeColumns(DataOutputStream out) throws IOException {
+		byte[][] encodedNames = new byte[names.size()][];
+		int nameBytes         = 0;
+		for(int i = 0; i < encodedNames.length; i++){
+			encodedNames[i] = names.get(i).getBytes(ENCODING);
+			nameBytes      += encodedNames[i].length;
+		}
+
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(count);
+		out.writeInt(metrics.length);
+		out.writeInt(encodedNames.length);
+		out.writeInt(nameBytes);
+		out.writeLong(System.currentTimeMillis());
+
+		writeColumn(out, parentColumn);
+		writeColumn(out, sizeColumn);
+		writeColumn(out, nameColumn);
+		writeColumn(out, hashColumn);
+		for(int[] column : valueColumns){
+			writeColumn(out, column);
+		}
+
+		int offset = 0;
+		for(byte[] name : encodedNames){
+			out.writeInt(offset);
+			offset += name.length;
+		}
+		out.writeInt(offset);
+
+		out.write(typeColumn, 0, count);
+		for(byte[] name : encodedNames){
+			out.write(name);
+		}
+		for(AbstractMetric m : metrics){
+			out.writeUTF(m.getKey());
+		}
+	}
+
+	private void writeColumn(DataOutputStream out, int[] column) throws IOException {
+		for(int i = 0; i < count; i++){
+			out.writeInt(column[i]);
+		}
+	}
+
+	static byte getType(AbstractNode node) {
+		if(node instanceof WorkspaceNode){
+			return WORKSPACE;
+		}
+		if(node instanceof ProjectNode){
+			return PROJECT;
+		}
+		if(node instanceof FolderNode){
+			return FOLDER;
+		}
+		if(node instanceof FileNode){
+			return FILE;
+		}
+		if(node instanceof NamespaceNode){
+			return NAMESPACE;
+		}
+		if(node instanceof TypeDefNode){
+			return TYPE_DEF;
+		}
+		if(node instanceof TypeDeclNode){
+			return TYPE_DECL;
+		}
+		if(node instanceof FunctionDefNode){
+			return FUNCTION_DEF;
+		}
+		if(node instanceof FunctionDeclNode){
+			return FUNCTION_DECL;
+		}
+		throw new IllegalArgumentException("unsupported node " + node.getClass().getName()); //$NON-NLS-1$
+	}
+
+	static AbstractNode createNode(byte type, String scopeName) {
+		switch(type){
+			case WORKSPACE:
+				return new WorkspaceNode(scopeName);
+			case PROJECT:
+				return new ProjectNode(scopeName);
+			case FOLDER:
+				return new FolderNode(scopeName);
+			case FILE:
+				return new FileNode(scopeName);
+			case NAMESPACE:
+				return new NamespaceNode(scopeName);
+			case TYPE_DEF:
+				return new TypeDefNode(scopeName);
+			case TYPE_DECL:
+				return new TypeDeclNode(scopeName);
+			case FUNCTION_DEF:
+				return new FunctionDefNode(scopeName);
+			case FUNCTION_DECL:
+				return new FunctionDeclNode(scopeName);
+			default:
+				throw new IllegalArgumentException("unknown node type " + type); //$NON-NLS-1$
+		}
+	}
+}
@@ -0,0 +1,138 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionDeclNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionDefNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.MemberNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.TypeDeclNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.TypeDefNode;
+
+/**
+ * Index of member declarations by logical owner name, logical name and kind,
+ * so the declarations of a definition are found without comparing it to every other member.
+ * */
+public class DeclarationIndex {
+
+	public enum Kind {
+		FUNCTION, TYPE
+	}
+
+	private final HashMap<Key, List<MemberNode>> declarations = new HashMap<Key, List<MemberNode>>();
+
+	/**
+	 * Adds the node if it is a function or type declaration, other nodes are ignored.
+	 * */
+	public void add(MemberNode node) {
+		Kind kind = getDeclarationKind(node);
+		if(kind == null){
+			return;
+		}
+
+		Key key                    = new Key(node.getLogicalOwnerName(), node.getLogicalName(), kind);
+		List<MemberNode> sameNamed = declarations.get(key);
+		if(sameNamed == null){
+			sameNamed = new ArrayList<MemberNode>(1);
+			declarations.put(key, sameNamed);
+		}
+		sameNamed.add(node);
+	}
+
+	public void remove(MemberNode node) {
+		Kind kind = getDeclarationKind(node);
+		if(kind == null){
+			return;
+		}
+
+		Key key                    = new Key(node.getLogicalOwnerName(), node.getLogicalName(), kind);
+		List<MemberNode> sameNamed = declarations.get(key);
+		if(sameNamed != null && sameNamed.remove(node) && sameNamed.isEmpty()){
+			declarations.remove(key);
+		}
+	}
+
+	/**
+	 * @return declarations of the function or type definition. Returns empty collection if none found or the node is no definition.
+	 * */
+	public Collection<MemberNode> getDeclarationsOf(MemberNode definition) {
+		Kind kind = getDefinitionKind(definition);
+		if(kind == null){
+			return Collections.emptyList();
+		}
+
+		List<MemberNode> sameNamed = declarations.get(new Key(definition.getLogicalOwnerName(), definition.getLogicalName(), kind));
+		if(sameNamed == null){
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableCollection(sameNamed);
+	}
+
+	public void clear() {
+		declarations.clear();
+	}
+
+	private static Kind getDeclarationKind(MemberNode node) {
+		if(node instanceof FunctionDeclNode){
+			return Kind.FUNCTION;
+		}
+		if(node instanceof TypeDeclNode){
+			return Kind.TYPE;
+		}
+		return null;
+	}
+
+	private static Kind getDefinitionKind(MemberNode node) {
+		if(node instanceof FunctionDefNode){
+			return Kind.FUNCTION;
+		}
+		if(node instanceof TypeDefNode){
+			return Kind.TYPE;
+		}
+		return null;
+	}
+
+	private static final class Key {
+
+		private final String ownerName;
+		private final String name;
+		private final Kind kind;
+		private final int hash;
+
+		Key(String ownerName, String name, Kind kind) {
+			this.ownerName = ownerName;
+			this.name      = name;
+			this.kind      = kind;
+			this.hash      = 31 * (31 * ownerName.hashCode() + name.hashCode()) + kind.ordinal();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Key)){
+				return false;
+			}
+			Key other = (Key) obj;
+			return kind == other.kind && name.equals(other.name) && ownerName.equals(other.ownerName);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+
+/**
+ * Builds a tree derived from the hybrid tree in the background, so the result is ready when the view asks for it.
+ * Callers wait for the result with {@link #await(IProgressMonitor)}, which can be canceled through the monitor.
+ * */
+public abstract class DerivedTreeJob<T extends AbstractTreeBuilder> extends Job {
+
+	/**
+	 * Rule for jobs that must not build their trees at the same time.
+	 * */
+	public static final ISchedulingRule SERIAL = new ISchedulingRule() {
+
+		@Override
+		public boolean contains(ISchedulingRule rule) {
+			return rule == this;
+		}
+
+		@Override
+		public boolean isConflicting(ISchedulingRule rule) {
+			return rule == this;
+		}
+	};
+
+	private static final long POLL_INTERVAL_MS = 100;
+
+	private final AbstractTreeBuilder source;
+	private final CountDownLatch done = new CountDownLatch(1);
+	private volatile boolean started;
+	private volatile T result;
+
+	public DerivedTreeJob(String name, AbstractTreeBuilder source) {
+		super(name);
+		this.source = source;
+		setSystem(true);
+		setPriority(Job.LONG);
+	}
+
+	/**
+	 * Builds the derived tree, called on the job's thread.
+	 * */
+	protected abstract T build(AbstractTreeBuilder source);
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		try{
+			if(monitor.isCanceled()){
+				return Status.CANCEL_STATUS;
+			}
+			monitor.beginTask(getName(), IProgressMonitor.UNKNOWN);
+			started = true;
+			result  = build(source);
+			return Status.OK_STATUS;
+		}finally{
+			monitor.done();
+			done.countDown();
+		}
+	}
+
+	/**
+	 * @return true if the job has finished, successfully or not.
+	 * */
+	public boolean isDone() {
+		return done.getCount() == 0;
+	}
+
+	/**
+	 * @return true if the job will not build the tree, because it was canceled before it started to build it or it was never scheduled.
+	 * */
+	public boolean wasCanceled() {
+		if(isDone()){
+			return !started;
+		}
+		return getState() == Job.NONE && !isDone(); // the job may have finished since
+	}
+
+	/**
+	 * Waits until the job has built the tree.
+	 * @return the tree, null if the job was canceled or failed
+	 * @throws InterruptedException if waiting was canceled through the monitor
+	 * */
+	public T await(IProgressMonitor monitor) throws InterruptedException {
+		monitor.beginTask(getName(), IProgressMonitor.UNKNOWN);
+		try{
+			while(!done.await(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)){
+				if(monitor.isCanceled()){
+					throw new InterruptedException();
+				}
+				if(getState() == Job.NONE){
+					break; // canceled before it started to run
+				}
+				monitor.worked(1);
+			}
+			return result;
+		}finally{
+			monitor.done();
+		}
+	}
+}
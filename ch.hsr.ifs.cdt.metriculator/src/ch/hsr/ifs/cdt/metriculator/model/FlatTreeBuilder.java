@@ -12,6 +12,8 @@
 
 package ch.hsr.ifs.cdt.metriculator.model;
 
+import java.util.Collection;
+
 import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
 
 public class FlatTreeBuilder extends AbstractTreeBuilder {
@@ -24,6 +26,18 @@ public class FlatTreeBuilder extends AbstractTreeBuilder {
 		PreOrderTreeVisitor visitor = new PreOrderFlatTreeVisitor();
 
 		visitor.visit(treeBuilder.root);
+		visitor.rootNode.shareValuesOf(treeBuilder.root); // the root shows the totals, not the sum over the listed nodes
 		return new FlatTreeBuilder(visitor.rootNode);
 	}
+
+	/**
+	 * Builds the flat tree of an aggregated tree and computes the sort orders of the listed nodes.
+	 * The root keeps the totals of the given tree.
+	 * */
+	public static FlatTreeBuilder buildSorted(AbstractTreeBuilder treeBuilder, Collection<AbstractMetric> metrics){
+		FlatTreeBuilder flatTree = buildFrom(treeBuilder);
+		new MetricAggregator(metrics).aggregateChildrenOf(flatTree.root);
+		flatTree.getSortPermutations().precompute(flatTree.root, metrics);
+		return flatTree;
+	}
 }
@@ -0,0 +1,192 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.cdt.core.dom.ast.IASTDeclSpecifier;
+import org.eclipse.cdt.core.dom.ast.IASTDeclaration;
+import org.eclipse.cdt.core.dom.ast.IASTDeclarator;
+import org.eclipse.cdt.core.dom.ast.IASTExpression;
+import org.eclipse.cdt.core.dom.ast.IASTParameterDeclaration;
+import org.eclipse.cdt.core.dom.ast.IASTStatement;
+import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
+import org.eclipse.cdt.core.dom.ast.cpp.ICPPASTNamespaceDefinition;
+
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+
+/**
+ * Traverses a translation unit once on behalf of several metric visitors.
+ *
+ * The scope is tracked (and the tree is built) only by this visitor, every AST event is then
+ * dispatched to the counting logic of the registered metric visitors in registration order.
+ * The traversal is controlled by the scope logic only, the return values of the metric visitors are ignored.
+ * */
+public class FusedScopedASTVisitor extends ScopedASTVisitor {
+
+	private List<ScopedASTVisitor> visitors = new ArrayList<ScopedASTVisitor>();
+	private int scopeResult = PROCESS_CONTINUE;
+
+	public FusedScopedASTVisitor(AbstractNode scopeNode, AbstractTreeBuilder builder) {
+		super(scopeNode, builder);
+	}
+
+	public void add(ScopedASTVisitor visitor) {
+		visitor.drivenBy(this);
+		visitors.add(visitor);
+
+		shouldVisitExpressions           |= visitor.shouldVisitExpressions;
+		shouldVisitTranslationUnit       |= visitor.shouldVisitTranslationUnit;
+		shouldVisitParameterDeclarations |= visitor.shouldVisitParameterDeclarations;
+	}
+
+	/**
+	 * @return the traversal decision of the scope logic for the current AST node.
+	 * */
+	int getScopeResult() {
+		return scopeResult;
+	}
+
+	private int scoped(int result) {
+		scopeResult = result;
+		for(ScopedASTVisitor visitor : visitors){
+			visitor.scopeNode = scopeNode;
+		}
+		return result;
+	}
+
+	@Override
+	protected void notifyVisiting(AbstractNode node) {
+		super.notifyVisiting(node);
+		for(ScopedASTVisitor visitor : visitors){
+			visitor.notifyVisiting(node);
+		}
+	}
+
+	@Override
+	protected void notifyLeaving(AbstractNode node) {
+		super.notifyLeaving(node);
+		for(ScopedASTVisitor visitor : visitors){
+			visitor.notifyLeaving(node);
+		}
+	}
+
+	@Override
+	public int visit(ICPPASTNamespaceDefinition namespaceDefinition) {
+		int result = scoped(super.visit(namespaceDefinition));
+		for(ScopedASTVisitor visitor : visitors){
+			visitor.visit(namespaceDefinition);
+		}
+		return result;
+	}
+
+	@Override
+	public int leave(ICPPASTNamespaceDefinition namespaceDefinition) {
+		for(ScopedASTVisitor visitor : visitors){
+			visitor.leave(namespaceDefinition);
+		}
+		return scoped(super.leave(namespaceDefinition));
+	}
+
+	@Override
+	public int visit(IASTDeclaration declaration) {
+		int result = scoped(super.visit(declaration));
+		for(ScopedASTVisitor visitor : visitors){
+			visitor.visit(declaration);
+		}
+		return result;
+	}
+
+	@Override
+	public int leave(IASTDeclaration declaration) {
+		for(ScopedASTVisitor visitor : visitors){
+			visitor.leave(declaration);
+		}
+		return scoped(super.leave(declaration));
+	}
+
+	@Override
+	public int visit(IASTDeclarator declarator) {
+		int result = scoped(super.visit(declarator));
+		for(ScopedASTVisitor visitor : visitors){
+			visitor.visit(declarator);
+		}
+		return result;
+	}
+
+	@Override
+	public int leave(IASTDeclarator declarator) {
+		for(ScopedASTVisitor visitor : visitors){
+			visitor.leave(declarator);
+		}
+		return scoped(super.leave(declarator));
+	}
+
+	@Override
+	public int visit(IASTDeclSpecifier declSpec) {
+		int result = scoped(super.visit(declSpec));
+		for(ScopedASTVisitor visitor : visitors){
+			visitor.visit(declSpec);
+		}
+		return result;
+	}
+
+	@Override
+	public int leave(IASTDeclSpecifier declSpec) {
+		for(ScopedASTVisitor visitor : visitors){
+			visitor.leave(declSpec);
+		}
+		return scoped(super.leave(declSpec));
+	}
+
+	@Override
+	public int visit(IASTStatement statement) {
+		for(ScopedASTVisitor visitor : visitors){
+			if(visitor.shouldVisitStatements){
+				visitor.visit(statement);
+			}
+		}
+		return PROCESS_CONTINUE;
+	}
+
+	@Override
+	public int visit(IASTExpression expression) {
+		for(ScopedASTVisitor visitor : visitors){
+			if(visitor.shouldVisitExpressions){
+				visitor.visit(expression);
+			}
+		}
+		return PROCESS_CONTINUE;
+	}
+
+	@Override
+	public int visit(IASTParameterDeclaration parameterDeclaration) {
+		for(ScopedASTVisitor visitor : visitors){
+			if(visitor.shouldVisitParameterDeclarations){
+				visitor.visit(parameterDeclaration);
+			}
+		}
+		return PROCESS_CONTINUE;
+	}
+
+	@Override
+	public int visit(IASTTranslationUnit tu) {
+		for(ScopedASTVisitor visitor : visitors){
+			if(visitor.shouldVisitTranslationUnit){
+				visitor.visit(tu);
+			}
+		}
+		return PROCESS_CONTINUE;
+	}
+}
@@ -12,7 +12,11 @@
 
 package ch.hsr.ifs.cdt.metriculator.model;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 
 import org.eclipse.cdt.core.dom.IName;
 import org.eclipse.cdt.core.dom.ast.IASTDeclaration;
@@ -22,17 +26,28 @@ import org.eclipse.cdt.core.dom.ast.IASTSimpleDeclaration;
 import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
 import org.eclipse.cdt.core.dom.ast.cpp.ICPPASTElaboratedTypeSpecifier;
 import org.eclipse.cdt.core.index.IIndexBinding;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.Path;
 
 import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FileNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FolderNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionDeclNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.HybridId;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.MemberNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.ProjectNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.TypeDeclNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.WorkspaceNode;
 
 public class HybridTreeBuilder extends AbstractTreeBuilder {
 
-	private HashMap<String,AbstractNode> descendants     = new HashMap<String,AbstractNode>();
+	private HashMap<HybridId,AbstractNode> descendants   = new HashMap<HybridId,AbstractNode>();
 	private HashMap<IIndexBinding, MemberNode> declarations = new HashMap<IIndexBinding, MemberNode>();
+	private HashSet<String> analysedResources               = new HashSet<String>();
+	private HashMap<String, FileNode> files                 = new HashMap<String, FileNode>();
+	private HashMap<String, Long> includeModificationTimes  = new HashMap<String, Long>();
 
 	public HybridTreeBuilder(String workspace){
 		root = new WorkspaceNode(workspace);
@@ -41,8 +56,8 @@ public class HybridTreeBuilder extends AbstractTreeBuilder {
 	@Override
 	public AbstractNode addChild(AbstractNode parent, AbstractNode child){
 
-		String childsHybridId = combine(AbstractTreeBuilder.PATH_SEPARATOR, parent.getHybridId(), child.getScopeUniqueName());
-		AbstractNode existing = parent.getChildBy(childsHybridId);
+		HybridId childsHybridId = child.createHybridId(parent.getHybridId());
+		AbstractNode existing   = parent.getChildBy(childsHybridId);
 
 		prepareDeclBinding(child);
 
@@ -56,6 +71,9 @@ public class HybridTreeBuilder extends AbstractTreeBuilder {
 				@Override
 				protected void visitNode(AbstractNode n) {
 					descendants.put(n.getHybridId(), n);
+					if(n instanceof FileNode && ((FileNode) n).getResourcePath() != null){
+						files.put(((FileNode) n).getResourcePath(), (FileNode) n);
+					}
 				}
 			};
 			visitor.visit(child);
@@ -64,19 +82,144 @@ public class HybridTreeBuilder extends AbstractTreeBuilder {
 		return child;
 	}
 
+	/**
+	 * Adds the subtree of the project below the root. The files of the subtree replace the subtrees of the same files this tree holds.
+	 * */
+	public synchronized AbstractNode addReplacingFiles(AbstractNode projectNode){
+		new PreOrderTreeVisitor() {
+			@Override
+			protected void visitNode(AbstractNode n) {
+				if(n instanceof FileNode && files.containsKey(((FileNode) n).getResourcePath())){
+					removeSubtree(files.get(((FileNode) n).getResourcePath()));
+				}
+			}
+		}.visit(projectNode);
+		return addChild(root, projectNode);
+	}
+
 	private void mergeChildrenOf(AbstractNode node, AbstractNode intoParent){
 		for(AbstractNode n : node.getChildren()){
 			addChild(intoParent, n);
 		}
 	}
 
-	public AbstractNode getChildBy(String hybridId){
+	/**
+	 * Marks the resource as analysed by this builder's run.
+	 * @return false if the resource was already claimed, e.g. by the fused pass of another metric checker.
+	 * */
+	public synchronized boolean claim(IResource resource){
+		return analysedResources.add(resource.getFullPath().toString());
+	}
+
+	public synchronized boolean isClaimed(IResource resource){
+		return analysedResources.contains(resource.getFullPath().toString());
+	}
+
+	/**
+	 * Starts another run on this tree. The subtrees of files that did not change since the last run are kept.
+	 * */
+	public synchronized void beginRun(){
+		analysedResources.clear();
+		includeModificationTimes.clear();
+	}
+
+	/**
+	 * @return true if the tree holds the subtree of the file as it is now, i.e. neither the file nor the files it includes changed.
+	 * */
+	public synchronized boolean isUpToDate(IFile file){
+		FileNode node = files.get(file.getFullPath().toString());
+		if(node == null || node.getModificationStamp() != file.getModificationStamp()){
+			return false;
+		}
+		return node.getIncludes() == null || node.getIncludes().isUpToDate(includeModificationTimes);
+	}
+
+	/**
+	 * @return node of the file, null if the tree holds no subtree of it.
+	 * */
+	public synchronized FileNode getFile(IFile file){
+		return files.get(file.getFullPath().toString());
+	}
+
+	/**
+	 * @return file nodes of the analysed workspace files.
+	 * */
+	public synchronized Collection<FileNode> getFiles(){
+		return new ArrayList<FileNode>(files.values());
+	}
+
+	/**
+	 * Removes the subtree of the file, if the tree holds one.
+	 * */
+	public synchronized void removeFile(IFile file){
+		FileNode node = files.get(file.getFullPath().toString());
+		if(node != null){
+			removeSubtree(node);
+		}
+	}
+
+	/**
+	 * Removes the subtrees of files and projects that do not exist anymore.
+	 * */
+	public synchronized void removeDeletedFiles(){
+		for(ProjectNode project : root.getChildren(ProjectNode.class)){
+			if(project.getProject() != null && !project.getProject().isAccessible()){
+				removeSubtree(project);
+			}
+		}
+		for(String path : new ArrayList<String>(files.keySet())){
+			if(ResourcesPlugin.getWorkspace().getRoot().findMember(new Path(path)) == null){
+				removeSubtree(files.get(path));
+			}
+		}
+	}
+
+	private void removeSubtree(AbstractNode node){
+		AbstractNode parent = node.getParent();
+
+		new PreOrderTreeVisitor() {
+			@Override
+			protected void visitNode(AbstractNode n) {
+				descendants.remove(n.getHybridId());
+				if(n instanceof FileNode){
+					files.remove(((FileNode) n).getResourcePath());
+				}
+			}
+		}.visit(node);
+		node.removeFromParent();
+
+		while(parent instanceof FolderNode && parent.getChildren().isEmpty()){
+			AbstractNode emptyFolder = parent;
+			parent = parent.getParent();
+			descendants.remove(emptyFolder.getHybridId());
+			emptyFolder.removeFromParent();
+		}
+	}
+
+	public void aggregate(AbstractMetric metric){
+		aggregate(Collections.singleton(metric), 1);
+	}
+
+	/**
+	 * Aggregates the values of the metrics in one walk. If the tree is reused from a previous run, only the nodes
+	 * marked stale by changes since then are aggregated again, i.e. the subtrees of reanalysed files and their ancestors.
+	 * @param threads number of threads a large tree is aggregated on
+	 * */
+	public void aggregate(Collection<AbstractMetric> metrics, int threads){
+		new MetricAggregator(metrics).aggregate(root, descendants.size(), threads);
+	}
+
+	public AbstractNode getChildBy(HybridId hybridId){
 		return descendants.get(hybridId);
 	}
 
 	private void prepareDeclBinding(AbstractNode child) {
 		if(child instanceof FunctionDeclNode || child instanceof TypeDeclNode){
-			declarations.put(((MemberNode) child).getIndexBinding(), (MemberNode) child);
+			// grafted and restored subtrees were merged already, their bindings are cleared
+			IIndexBinding binding = ((MemberNode) child).getIndexBinding();
+			if(binding != null){
+				declarations.put(binding, (MemberNode) child);
+			}
 		}
 	}
 
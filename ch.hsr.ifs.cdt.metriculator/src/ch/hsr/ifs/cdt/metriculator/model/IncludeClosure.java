@@ -0,0 +1,92 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model;
+
+import java.io.File;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.cdt.core.index.IIndex;
+import org.eclipse.cdt.core.index.IIndexFile;
+import org.eclipse.cdt.core.index.IIndexFileLocation;
+import org.eclipse.cdt.core.index.IIndexInclude;
+import org.eclipse.cdt.core.index.IndexLocationFactory;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * The files a file includes directly or indirectly according to the index, with their modification times at the time it was analysed.
+ * The metrics of a file are only up to date as long as none of its included files changed.
+ * */
+public final class IncludeClosure {
+
+	private final String[] paths;
+	private final long[] modificationTimes;
+
+	IncludeClosure(String[] paths, long[] modificationTimes) {
+		this.paths             = paths;
+		this.modificationTimes = modificationTimes;
+	}
+
+	/**
+	 * The caller has to hold a read lock on the index.
+	 * @return the included files of the file as they are now.
+	 * */
+	public static IncludeClosure of(IFile file, IIndex index) throws CoreException {
+		Set<String> included = new LinkedHashSet<String>();
+		for(IIndexFile indexFile : index.getFiles(IndexLocationFactory.getWorkspaceIFL(file))){
+			for(IIndexInclude include : index.findIncludes(indexFile, IIndex.DEPTH_INFINITE)){
+				IIndexFileLocation location = include.getIncludesLocation();
+				IPath path                  = location != null ? IndexLocationFactory.getAbsolutePath(location) : null;
+				if(path != null){
+					included.add(path.toOSString());
+				}
+			}
+		}
+
+		String[] paths           = included.toArray(new String[included.size()]);
+		long[] modificationTimes = new long[paths.length];
+		for(int i = 0; i < paths.length; i++){
+			modificationTimes[i] = new File(paths[i]).lastModified();
+		}
+		return new IncludeClosure(paths, modificationTimes);
+	}
+
+	/**
+	 * @param modificationTimes times already looked up in this run, by path. Looked up times are added.
+	 * @return true if none of the included files changed since this closure was taken.
+	 * */
+	public boolean isUpToDate(Map<String, Long> modificationTimes) {
+		for(int i = 0; i < paths.length; i++){
+			Long time = modificationTimes.get(paths[i]);
+			if(time == null){
+				time = Long.valueOf(new File(paths[i]).lastModified());
+				modificationTimes.put(paths[i], time);
+			}
+			if(time.longValue() != this.modificationTimes[i]){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public String[] getPaths() {
+		return paths.clone();
+	}
+
+	public long[] getModificationTimes() {
+		return modificationTimes.clone();
+	}
+}
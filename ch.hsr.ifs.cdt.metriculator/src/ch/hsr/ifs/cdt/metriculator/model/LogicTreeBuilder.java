@@ -12,7 +12,6 @@
 
 package ch.hsr.ifs.cdt.metriculator.model;
 
-import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
 
 public class LogicTreeBuilder extends AbstractTreeBuilder {
@@ -22,17 +21,13 @@ public class LogicTreeBuilder extends AbstractTreeBuilder {
 	}
 
 	public static LogicTreeBuilder buildFrom(AbstractTreeBuilder treeBuilder){
-		PreOrderLogicTreeVisitor visitor = new PreOrderLogicTreeVisitor();
+		PreOrderLogicTreeVisitor visitor = new PreOrderLogicTreeVisitor(new DeclarationIndex());
 		
 		visitor.visit(treeBuilder.root);
 		
 		visitor.mergeMembers();
 		visitor.mergeDefinitionsAndDeclarations();
 		
-		for(AbstractMetric m : MetriculatorPluginActivator.getDefault().getMetrics()){
-			m.useCachedValue = false;
-		}
-		
 		return new LogicTreeBuilder(visitor.rootNode);
 	}
 
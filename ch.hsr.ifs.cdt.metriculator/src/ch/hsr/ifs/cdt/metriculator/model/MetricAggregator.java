@@ -0,0 +1,217 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+
+/**
+ * Aggregates the values of several metrics in one post-order walk over a tree.
+ * The walk uses an explicit stack, so deeply nested scopes do not overflow the call stack.
+ * Large trees are split into subtrees below the projects, which are aggregated on a pool of threads.
+ * */
+public class MetricAggregator {
+
+	/**
+	 * Trees with fewer nodes are aggregated by the calling thread only.
+	 * */
+	public static final int PARALLEL_THRESHOLD = 50000;
+
+	private final AbstractMetric[] metrics;
+
+	public MetricAggregator(Collection<AbstractMetric> metrics) {
+		this.metrics = metrics.toArray(new AbstractMetric[metrics.size()]);
+	}
+
+	public MetricAggregator(AbstractMetric metric) {
+		this(Collections.singleton(metric));
+	}
+
+	/**
+	 * Aggregates the subtree of the node.
+	 * */
+	public void aggregate(AbstractNode node) {
+		aggregate(node, Collections.<AbstractNode>emptySet());
+	}
+
+	/**
+	 * Aggregates the subtrees of the children of the node, but not the node itself.
+	 * Used for roots that show the totals of another tree, e.g. the root of a flat tree, whose children are the nodes of all levels.
+	 * */
+	public void aggregateChildrenOf(AbstractNode node) {
+		for(AbstractNode child : node.getChildren()){
+			aggregate(child);
+		}
+	}
+
+	/**
+	 * Aggregates the subtrees of the children of the node, and the node itself only if it is stale.
+	 * Used by writers that get either the root of a flat tree, which keeps the totals of the hybrid tree, or the root of a tree that was never aggregated.
+	 * */
+	public void aggregateChildrenAndStale(AbstractNode node) {
+		aggregateChildrenOf(node);
+		if(isStale(node)){
+			updateAggregatedValues(node);
+		}
+	}
+
+	/**
+	 * Aggregates the subtree of the node, on the given number of threads if the tree has at least {@link #PARALLEL_THRESHOLD} nodes.
+	 * If the calling thread is interrupted, the aggregation is aborted with the interrupt flag set. 
+	 * The nodes that were not aggregated yet and their ancestors stay stale, so their values are aggregated when they are read.
+	 * @param nodeCount number of nodes in the subtree, if known by the caller
+	 * */
+	public void aggregate(AbstractNode node, int nodeCount, int threads) {
+		if(threads < 2 || nodeCount < PARALLEL_THRESHOLD){
+			aggregate(node);
+			return;
+		}
+
+		List<AbstractNode> subtrees = split(node, 4 * threads);
+		if(aggregateInParallel(subtrees, threads)){
+			aggregate(node, new HashSet<AbstractNode>(subtrees));
+		}
+	}
+
+	/**
+	 * Computes the aggregated values of the node from its node values and the aggregated values of its children.
+	 * The children have to be aggregated already.
+	 * */
+	public void updateAggregatedValues(AbstractNode node) {
+		for(AbstractMetric metric : metrics){
+			metric.updateAggregatedValue(node);
+		}
+	}
+
+	/**
+	 * Post-order walk that does not enter the aggregated subtrees and subtrees that are up to date.
+	 * Nodes are collected in pre-order and updated in reverse, so every node is updated after all its descendants.
+	 * */
+	private void aggregate(AbstractNode node, Set<AbstractNode> aggregated) {
+		List<AbstractNode> preOrder = new ArrayList<AbstractNode>();
+		List<AbstractNode> stack    = new ArrayList<AbstractNode>();
+		stack.add(node);
+
+		while(!stack.isEmpty()){
+			AbstractNode current = stack.remove(stack.size() - 1);
+			preOrder.add(current);
+			for(AbstractNode child : current.getChildren()){
+				if(isStale(child) && !aggregated.contains(child)){
+					stack.add(child);
+				}
+			}
+		}
+
+		for(int i = preOrder.size() - 1; i >= 0; i--){
+			updateAggregatedValues(preOrder.get(i));
+		}
+	}
+
+	private boolean isStale(AbstractNode node) {
+		for(AbstractMetric metric : metrics){
+			if(node.isStale(metric.getId())){
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return disjoint subtrees below the node, at least the given number if the upper levels of the tree are wide enough.
+	 * */
+	private static List<AbstractNode> split(AbstractNode node, int minimum) {
+		List<AbstractNode> subtrees = new ArrayList<AbstractNode>(node.getChildren());
+
+		for(int level = 0; level < 2 && subtrees.size() < minimum; level++){
+			List<AbstractNode> next = new ArrayList<AbstractNode>();
+			for(AbstractNode subtree : subtrees){
+				if(subtree.getChildren().isEmpty()){
+					next.add(subtree);
+				}else{
+					next.addAll(subtree.getChildren());
+				}
+			}
+			subtrees = next;
+		}
+		return subtrees;
+	}
+
+	/**
+	 * @return false if the calling thread was interrupted. The subtrees that were started are completed before it returns.
+	 * */
+	private boolean aggregateInParallel(List<AbstractNode> subtrees, int threads) {
+		ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int count = 0;
+
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread worker = new Thread(r, "metriculator aggregation worker " + ++count); //$NON-NLS-1$
+				worker.setDaemon(true);
+				return worker;
+			}
+		});
+
+		List<Future<Object>> results = new ArrayList<Future<Object>>();
+		try{
+			for(final AbstractNode subtree : subtrees){
+				results.add(pool.submit(new Callable<Object>() {
+					@Override
+					public Object call() throws Exception {
+						aggregate(subtree);
+						return null;
+					}
+				}));
+			}
+			for(Future<Object> result : results){
+				result.get();
+			}
+			return true;
+		} catch (InterruptedException e) {
+			for(Future<Object> result : results){
+				result.cancel(false);
+			}
+			awaitTermination(pool); // no worker may write to the tree after the caller went on
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}finally{
+			pool.shutdownNow();
+		}
+	}
+
+	private static void awaitTermination(ExecutorService pool) {
+		pool.shutdown();
+		while(true){
+			try {
+				pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+				return;
+			} catch (InterruptedException e) {
+				// the interrupt is restored by the caller
+			}
+		}
+	}
+}
@@ -0,0 +1,433 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.cdt.core.index.IIndex;
+import org.eclipse.cdt.core.model.CoreModel;
+import org.eclipse.cdt.core.parser.IScannerInfo;
+import org.eclipse.cdt.core.parser.IScannerInfoProvider;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+
+import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FileNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.NodeSerializer;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.ProjectNode;
+
+/**
+ * Keeps the FileNode subtrees of analysed files on disk, so unchanged files need not be parsed again after a restart.
+ *
+ * An entry is keyed by the workspace path of the file, a digest of its contents and a digest of the configuration
+ * it was analysed with, i.e. the metric problem preferences, the include paths and macros of the file
+ * and the modification times of the files it includes.
+ * The cache file is memory-mapped and an entry is only decoded when its file is restored.
+ * */
+public class MetricCache {
+
+	private static final int MAGIC   = 0x4D455452;
+	private static final int VERSION = 2;
+	private static final String CHARSET = "UTF-8"; //$NON-NLS-1$
+
+	private final File location;
+	private String configuration;
+	private Map<String, Entry> entries;
+	private MappedByteBuffer mapping;
+	private HashMap<String, Key> keys = new HashMap<String, Key>();
+
+	public MetricCache(File location) {
+		this.location = location;
+	}
+
+	/**
+	 * Files are only restored from entries written with the same configuration. Without a configuration, nothing is restored.
+	 * */
+	public synchronized void setConfiguration(String configuration) {
+		if(configuration == null || !configuration.equals(this.configuration)){
+			keys.clear();
+		}
+		this.configuration = configuration;
+	}
+
+	/**
+	 * @return true if the cache holds an entry for the file as it is now, i.e. {@link #restore} would restore it.
+	 * */
+	public synchronized boolean contains(IFile file) {
+		if(configuration == null){
+			return false;
+		}
+
+		Key key = createKey(file, readIncludes(file));
+		if(key == null){
+			return false;
+		}
+		keys.put(file.getFullPath().toString(), key);
+
+		Entry entry = getEntries().get(file.getFullPath().toString());
+		return entry != null && entry.key.equals(key);
+	}
+
+	/**
+	 * Adds the subtree of the file to the builder, if the cache holds an entry for the file as it is now.
+	 * The problems of the given checkers are reported for the restored nodes.
+	 * @return true if the file was restored, false if it has to be analysed.
+	 * */
+	public synchronized boolean restore(IFile file, HybridTreeBuilder builder, Collection<AbstractMetricChecker> checkers) {
+		if(configuration == null){
+			return false;
+		}
+
+		String path             = file.getFullPath().toString();
+		IncludeClosure includes = readIncludes(file);
+		Key key                 = createKey(file, includes);
+		if(key == null){
+			return false;
+		}
+		keys.put(path, key);
+
+		Entry entry = getEntries().get(path);
+		if(entry == null || !entry.key.equals(key)){
+			return false;
+		}
+
+		try {
+			ProjectNode projectNode = (ProjectNode) builder.addChild(builder.root, new ProjectNode(file.getProject()));
+			FileNode fileNode       = NodeSerializer.readFile(new DataInputStream(new ByteBufferInputStream(entry.data.duplicate())), projectNode.getHybridId());
+
+			fileNode.setAnalysedResource(path, file.getModificationStamp());
+			fileNode.setIncludes(includes);
+			builder.addChild(projectNode, fileNode.getRoot());
+
+			AbstractMetricChecker.replayProblems(builder.getChildBy(fileNode.getHybridId()), file, checkers);
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the subtrees of all files of the builder that were analysed or restored with the current configuration.
+	 * Entries of other files are kept as long as their files exist.
+	 * */
+	public synchronized void save(HybridTreeBuilder builder) {
+		if(configuration == null){
+			return;
+		}
+
+		Map<String, Entry> written = new LinkedHashMap<String, Entry>();
+		for(FileNode fileNode : builder.getFiles()){
+			Key key = keys.get(fileNode.getResourcePath());
+			if(key == null){
+				continue;
+			}
+			try {
+				ByteArrayOutputStream data = new ByteArrayOutputStream();
+				NodeSerializer.writeFile(fileNode, new DataOutputStream(data));
+				written.put(fileNode.getResourcePath(), new Entry(key, ByteBuffer.wrap(data.toByteArray())));
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		for(Map.Entry<String, Entry> old : getEntries().entrySet()){
+			if(!written.containsKey(old.getKey()) && ResourcesPlugin.getWorkspace().getRoot().findMember(new Path(old.getKey())) != null){
+				written.put(old.getKey(), old.getValue());
+			}
+		}
+
+		File temporary = new File(location.getPath() + ".tmp"); //$NON-NLS-1$
+		try {
+			write(written, temporary);
+		} catch (IOException e) {
+			e.printStackTrace();
+			temporary.delete();
+			return;
+		}
+
+		releaseMapping();
+		if(!temporary.renameTo(location)){
+			// the target of a rename must not exist on some platforms
+			location.delete();
+			if(!temporary.renameTo(location)){
+				temporary.delete();
+				MetriculatorPluginActivator.getDefault().getLog().log(new Status(IStatus.ERROR, MetriculatorPluginActivator.PLUGIN_ID, "The metric cache " + location + " could not be replaced")); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+	}
+
+	/**
+	 * Drops the entries and unmaps the cache file, a mapped file can not be replaced on some platforms.
+	 * Java offers no API to unmap a buffer, the cleaner of the buffer is called if the VM has one.
+	 * Otherwise the file is unmapped once the buffer is garbage collected.
+	 * */
+	private void releaseMapping() {
+		entries = null;
+		if(mapping == null){
+			return;
+		}
+		try {
+			Method getCleaner = mapping.getClass().getMethod("cleaner"); //$NON-NLS-1$
+			getCleaner.setAccessible(true);
+			Object cleaner = getCleaner.invoke(mapping);
+			if(cleaner != null){
+				cleaner.getClass().getMethod("clean").invoke(cleaner); //$NON-NLS-1$
+			}
+		} catch (Exception e) {
+			// not supported by this VM
+		}
+		mapping = null;
+	}
+
+	private static void write(Map<String, Entry> entries, File file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(entries.size());
+
+			for(Map.Entry<String, Entry> entry : entries.entrySet()){
+				byte[] path = entry.getKey().getBytes(CHARSET);
+				byte[] data = new byte[entry.getValue().data.remaining()];
+				entry.getValue().data.duplicate().get(data);
+
+				out.writeInt(path.length);
+				out.write(path);
+				out.writeLong(entry.getValue().key.content);
+				out.writeLong(entry.getValue().key.configuration);
+				out.writeInt(data.length);
+				out.write(data);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private Map<String, Entry> getEntries() {
+		if(entries == null){
+			entries = new HashMap<String, Entry>();
+			if(location.isFile()){
+				try {
+					mapping = read(location, entries);
+				} catch (IOException e) {
+					e.printStackTrace();
+					entries.clear();
+				} catch (BufferUnderflowException e) {
+					e.printStackTrace();
+					entries.clear();
+				}
+			}
+		}
+		return entries;
+	}
+
+	/**
+	 * @return the mapping of the file, the entries are slices of it.
+	 * */
+	private static MappedByteBuffer read(File file, Map<String, Entry> into) throws IOException {
+		RandomAccessFile input = new RandomAccessFile(file, "r"); //$NON-NLS-1$
+		MappedByteBuffer buffer;
+		try {
+			buffer = input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, input.length());
+		} finally {
+			input.close();
+		}
+
+		if(buffer.remaining() < 12 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION){
+			return buffer;
+		}
+
+		int count = buffer.getInt();
+		for(int i = 0; i < count; i++){
+			byte[] path = new byte[buffer.getInt()];
+			buffer.get(path);
+			Key key     = new Key(buffer.getLong(), buffer.getLong());
+
+			int length      = buffer.getInt();
+			ByteBuffer data = buffer.duplicate();
+			data.limit(data.position() + length);
+			buffer.position(buffer.position() + length);
+
+			into.put(new String(path, CHARSET), new Entry(key, data.slice()));
+		}
+		return buffer;
+	}
+
+	/**
+	 * @return the files the file includes, null if the index can not be read.
+	 * */
+	private static IncludeClosure readIncludes(IFile file) {
+		try {
+			IIndex index = CCorePlugin.getIndexManager().getIndex(CoreModel.getDefault().create(file.getProject()));
+			index.acquireReadLock();
+			try {
+				return IncludeClosure.of(file, index);
+			} finally {
+				index.releaseReadLock();
+			}
+		} catch (CoreException e) {
+			e.printStackTrace();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return null;
+	}
+
+	/**
+	 * @return null if the key can not be created, e.g. because the included files are not known.
+	 * */
+	private Key createKey(IFile file, IncludeClosure includes) {
+		if(includes == null){
+			return null;
+		}
+		try {
+			MessageDigest digest = MessageDigest.getInstance("MD5"); //$NON-NLS-1$
+			InputStream contents = file.getContents(true);
+			try {
+				byte[] buffer = new byte[8192];
+				for(int read = contents.read(buffer); read != -1; read = contents.read(buffer)){
+					digest.update(buffer, 0, read);
+				}
+			} finally {
+				contents.close();
+			}
+			long contentDigest = toLong(digest.digest());
+
+			digest.update(configuration.getBytes(CHARSET));
+			digest.update(describeScannerInfo(file).getBytes(CHARSET));
+			digest.update(describeIncludes(includes).getBytes(CHARSET));
+
+			return new Key(contentDigest, toLong(digest.digest()));
+		} catch (CoreException e) {
+			e.printStackTrace();
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (NoSuchAlgorithmException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	private static String describeScannerInfo(IFile file) {
+		StringBuilder description     = new StringBuilder();
+		IScannerInfoProvider provider = CCorePlugin.getDefault().getScannerInfoProvider(file.getProject());
+		IScannerInfo info             = provider != null ? provider.getScannerInformation(file) : null;
+
+		if(info != null){
+			for(String includePath : info.getIncludePaths()){
+				description.append(includePath).append(';');
+			}
+			if(info.getDefinedSymbols() != null){
+				description.append(new TreeMap<String, String>(info.getDefinedSymbols()));
+			}
+		}
+		return description.toString();
+	}
+
+	private static String describeIncludes(IncludeClosure includes) {
+		StringBuilder description = new StringBuilder();
+		String[] paths            = includes.getPaths();
+		long[] modificationTimes  = includes.getModificationTimes();
+
+		for(int i = 0; i < paths.length; i++){
+			description.append(paths[i]).append('=').append(modificationTimes[i]).append(';');
+		}
+		return description.toString();
+	}
+
+	private static long toLong(byte[] digest) {
+		long value = 0;
+		for(int i = 0; i < 8; i++){
+			value = value << 8 | (digest[i] & 0xFF);
+		}
+		return value;
+	}
+
+	private static class Key {
+		private final long content;
+		private final long configuration;
+
+		Key(long content, long configuration) {
+			this.content       = content;
+			this.configuration = configuration;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Key && ((Key) obj).content == content && ((Key) obj).configuration == configuration;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (content ^ configuration);
+		}
+	}
+
+	private static class Entry {
+		private final Key key;
+		private final ByteBuffer data;
+
+		Entry(Key key, ByteBuffer data) {
+			this.key  = key;
+			this.data = data;
+		}
+	}
+
+	private static class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if(!buffer.hasRemaining()){
+				return -1;
+			}
+			length = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, length);
+			return length;
+		}
+	}
+}
@@ -0,0 +1,53 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Assigns dense ids to metric keys, so nodes can keep their metric values in primitive arrays indexed by metric id.
+ * Ids are never reused.
+ * */
+public final class MetricRegistry {
+
+	private static final HashMap<String, Integer> ids  = new HashMap<String, Integer>();
+	private static final ArrayList<String> keys        = new ArrayList<String>();
+
+	private MetricRegistry(){
+	}
+
+	/**
+	 * @return id of the metric key, a new id is assigned on first use.
+	 * */
+	public static synchronized int getId(String metricKey) {
+		Integer id = ids.get(metricKey);
+		if(id == null){
+			id = Integer.valueOf(keys.size());
+			ids.put(metricKey, id);
+			keys.add(metricKey);
+		}
+		return id.intValue();
+	}
+
+	public static synchronized String getKey(int metricId) {
+		return keys.get(metricId);
+	}
+
+	/**
+	 * @return number of assigned ids, all ids are below this number.
+	 * */
+	public static synchronized int size() {
+		return keys.size();
+	}
+}
@@ -0,0 +1,207 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+
+/**
+ * The result of a completed analysis run. The hybrid tree of the snapshot is a frozen copy of the tree
+ * the metric checkers write to, so readers can keep using a snapshot while the next run updates the tree.
+ * The copy shares the metric values with the written tree until the next run changes them.
+ * The flat and logical trees are built from the frozen copy by background jobs.
+ * If there is no job for a tree or its job was canceled, a new job is scheduled when the tree is asked for.
+ * */
+public final class ModelSnapshot {
+
+	private final long version;
+	private final AbstractTreeBuilder hybridTreeBuilder;
+	private DerivedTreeJob<FlatTreeBuilder> flatTreeJob;
+	private DerivedTreeJob<LogicTreeBuilder> logicTreeJob;
+
+	/**
+	 * @param hybridTreeBuilder frozen tree, see {@link #freeze(AbstractNode)}
+	 * @param flatTreeJob scheduled job building the flat tree from the frozen tree, can be null
+	 * @param logicTreeJob scheduled job building the logical tree from the frozen tree, can be null
+	 * */
+	public ModelSnapshot(long version, AbstractTreeBuilder hybridTreeBuilder, DerivedTreeJob<FlatTreeBuilder> flatTreeJob, DerivedTreeJob<LogicTreeBuilder> logicTreeJob) {
+		this.version           = version;
+		this.hybridTreeBuilder = hybridTreeBuilder;
+		this.flatTreeJob       = flatTreeJob;
+		this.logicTreeJob      = logicTreeJob;
+	}
+
+	/**
+	 * @return number of the analysis run this snapshot is the result of, increases with every run.
+	 * */
+	public long getVersion() {
+		return version;
+	}
+
+	public AbstractTreeBuilder getHybridTreeBuilder() {
+		return hybridTreeBuilder;
+	}
+
+	/**
+	 * @return job building the flat tree, a new one is scheduled if there is none or it was canceled.
+	 * */
+	public synchronized DerivedTreeJob<FlatTreeBuilder> getFlatTreeJob() {
+		if(flatTreeJob == null || flatTreeJob.wasCanceled()){
+			flatTreeJob = new DerivedTreeJob<FlatTreeBuilder>("Building flat metric tree", hybridTreeBuilder) {
+				@Override
+				protected FlatTreeBuilder build(AbstractTreeBuilder source) {
+					return FlatTreeBuilder.buildFrom(source);
+				}
+			};
+			schedule(flatTreeJob);
+		}
+		return flatTreeJob;
+	}
+
+	/**
+	 * @return job building the logical tree, a new one is scheduled if there is none or it was canceled.
+	 * */
+	public synchronized DerivedTreeJob<LogicTreeBuilder> getLogicTreeJob() {
+		if(logicTreeJob == null || logicTreeJob.wasCanceled()){
+			logicTreeJob = new DerivedTreeJob<LogicTreeBuilder>("Building logical metric tree", hybridTreeBuilder) {
+				@Override
+				protected LogicTreeBuilder build(AbstractTreeBuilder source) {
+					return LogicTreeBuilder.buildFrom(source);
+				}
+			};
+			schedule(logicTreeJob);
+		}
+		return logicTreeJob;
+	}
+
+	/**
+	 * @return the flat tree, waits for the job if it is still building the tree.
+	 * */
+	public FlatTreeBuilder getFlatTreeBuilder() {
+		FlatTreeBuilder tree = null;
+		while(tree == null){
+			tree = awaitDerivedTree(getFlatTreeJob()); // null if the job was canceled meanwhile
+		}
+		return tree;
+	}
+
+	/**
+	 * @return the logical tree, waits for the job if it is still building the tree.
+	 * */
+	public LogicTreeBuilder getLogicTreeBuilder() {
+		LogicTreeBuilder tree = null;
+		while(tree == null){
+			tree = awaitDerivedTree(getLogicTreeJob()); // null if the job was canceled meanwhile
+		}
+		return tree;
+	}
+
+	/**
+	 * Cancels the jobs, e.g. if no reader will ask for the derived trees anymore.
+	 * */
+	public synchronized void cancel() {
+		if(flatTreeJob != null){
+			flatTreeJob.cancel();
+		}
+		if(logicTreeJob != null){
+			logicTreeJob.cancel();
+		}
+	}
+
+	/**
+	 * The jobs scheduled for readers build one tree at a time, since the reader is waiting for them anyway.
+	 * */
+	private static void schedule(DerivedTreeJob<?> job) {
+		job.setRule(DerivedTreeJob.SERIAL);
+		job.schedule();
+	}
+
+	/**
+	 * Waits for the job even if the calling thread is interrupted, the interrupt is kept for the caller.
+	 * @return the tree, null if the job was canceled
+	 * @throws IllegalStateException if the job failed to build the tree
+	 * */
+	private static <T extends AbstractTreeBuilder> T awaitDerivedTree(DerivedTreeJob<T> job) {
+		boolean interrupted = false;
+		try {
+			while(true){
+				try {
+					T tree = job.await(new NullProgressMonitor());
+					if(tree == null && !job.wasCanceled()){
+						throw new IllegalStateException(job.getName() + " failed"); //$NON-NLS-1$
+					}
+					return tree;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} finally {
+			if(interrupted){
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Copies the structure of the tree. The nodes of the copy share metric values, ids and names with the original nodes,
+	 * later changes of either tree are not visible in the other one.
+	 * @return builder of the copy, which can not be changed through the builder
+	 * */
+	public static AbstractTreeBuilder freeze(AbstractNode root) {
+		List<AbstractNode> originals = new ArrayList<AbstractNode>();
+		List<AbstractNode> copies    = new ArrayList<AbstractNode>();
+		List<AbstractNode> stack     = new ArrayList<AbstractNode>();
+
+		AbstractNode rootCopy = root.shallowClone();
+		originals.add(root);
+		copies.add(rootCopy);
+		stack.add(root);
+		stack.add(rootCopy);
+
+		while(!stack.isEmpty()){
+			AbstractNode copy     = stack.remove(stack.size() - 1);
+			AbstractNode original = stack.remove(stack.size() - 1);
+			for(AbstractNode child : original.getChildren()){
+				AbstractNode childCopy = copy.add(child.shallowClone());
+				originals.add(child);
+				copies.add(childCopy);
+				stack.add(child);
+				stack.add(childCopy);
+			}
+		}
+
+		for(int i = 0; i < copies.size(); i++){
+			copies.get(i).shareValuesOf(originals.get(i)); // adding the children marked the copies stale
+		}
+		return new FrozenTreeBuilder(rootCopy);
+	}
+
+	/**
+	 * Builder of a tree that is only read, e.g. a frozen copy or a tree read from a file.
+	 * */
+	static final class FrozenTreeBuilder extends AbstractTreeBuilder {
+
+		FrozenTreeBuilder(AbstractNode root) {
+			this.root = root;
+		}
+
+		@Override
+		public AbstractNode addChild(AbstractNode parent, AbstractNode child) {
+			throw new UnsupportedOperationException("snapshot trees can not be changed"); //$NON-NLS-1$
+		}
+	}
+}
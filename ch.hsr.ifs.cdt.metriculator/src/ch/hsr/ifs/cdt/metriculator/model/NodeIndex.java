@@ -0,0 +1,106 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+
+/**
+ * The rows a viewer shows for a list of nodes: the nodes that pass the filter, in the order of the comparator.
+ * It is computed once per list, so a virtual viewer only looks up the rows it paints.
+ * */
+public final class NodeIndex {
+
+	public static final NodeIndex EMPTY = new NodeIndex(new AbstractNode[0]);
+
+	private final AbstractNode[] rows;
+
+	private NodeIndex(AbstractNode[] rows) {
+		this.rows = rows;
+	}
+
+	/**
+	 * @param filter can be null to keep all nodes
+	 * @param comparator can be null to keep the order of the nodes
+	 * */
+	public static NodeIndex of(Collection<AbstractNode> nodes, NodeFilter filter, Comparator<? super AbstractNode> comparator) {
+		if(nodes.isEmpty()){
+			return EMPTY;
+		}
+
+		AbstractNode[] rows = nodes.toArray(new AbstractNode[nodes.size()]);
+		if(filter != null && !(filter instanceof NodeFilter.NoneFilter)){
+			int size = 0;
+			for(AbstractNode node : rows){
+				if(filter.canPassThrough(node)){
+					rows[size++] = node;
+				}
+			}
+			rows = Arrays.copyOf(rows, size);
+		}
+
+		if(comparator != null){
+			Arrays.sort(rows, comparator);
+		}
+		return new NodeIndex(rows);
+	}
+
+	/**
+	 * Takes the nodes in the precomputed order instead of sorting them, see {@link SortPermutations}.
+	 * @param order positions in nodes, ascending by value
+	 * @param descending reads the order backwards
+	 * @param filter can be null to keep all nodes
+	 * */
+	public static NodeIndex of(AbstractNode[] nodes, int[] order, boolean descending, NodeFilter filter) {
+		if(nodes.length == 0){
+			return EMPTY;
+		}
+
+		boolean filtered    = filter != null && !(filter instanceof NodeFilter.NoneFilter);
+		AbstractNode[] rows = new AbstractNode[order.length];
+		int size            = 0;
+		for(int i = 0; i < order.length; i++){
+			AbstractNode node = nodes[order[descending ? order.length - 1 - i : i]];
+			if(!filtered || filter.canPassThrough(node)){
+				rows[size++] = node;
+			}
+		}
+		return new NodeIndex(size == rows.length ? rows : Arrays.copyOf(rows, size));
+	}
+
+	public int size() {
+		return rows.length;
+	}
+
+	/**
+	 * @return the node shown in the row.
+	 * */
+	public AbstractNode get(int row) {
+		return rows[row];
+	}
+
+	/**
+	 * @return row of the node, -1 if it is not shown.
+	 * */
+	public int indexOf(AbstractNode node) {
+		for(int row = 0; row < rows.length; row++){
+			if(rows[row] == node){
+				return row;
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,175 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.cdt.core.CCorePlugin;
+import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
+import org.eclipse.cdt.core.index.IIndex;
+import org.eclipse.cdt.core.model.CoreModel;
+import org.eclipse.cdt.core.model.ICElement;
+import org.eclipse.cdt.core.model.ITranslationUnit;
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+
+import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.ProjectNode;
+
+/**
+ * Analyses translation units on a pool of worker threads.
+ *
+ * Every worker parses its translation unit and builds the FileNode subtree in a private HybridTreeBuilder,
+ * including the merge of declarations and definitions. Files are submitted ahead of their Codan session,
+ * and a subtree is grafted into the hybrid tree in the session of its file, so the problems of the file 
+ * are reported in that session and the resulting tree does not depend on the number of workers.
+ * */
+public class ParallelTranslationUnitAnalysis {
+
+	private final ExecutorService workers;
+	private final String workspaceName;
+	private final Map<IFile, Future<AbstractNode>> results = new HashMap<IFile, Future<AbstractNode>>();
+	private final Set<IContainer> submittedContainers      = new HashSet<IContainer>();
+	private final Collection<IFile> failedFiles            = new ArrayList<IFile>();
+
+	public ParallelTranslationUnitAnalysis(int threads, String workspaceName) {
+		this.workspaceName = workspaceName;
+		this.workers       = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int count = 0;
+
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread worker = new Thread(r, "metriculator analysis worker " + ++count); //$NON-NLS-1$
+				worker.setDaemon(true);
+				return worker;
+			}
+		});
+	}
+
+	/**
+	 * Starts the analysis of the file, unless it was already submitted.
+	 * */
+	public synchronized void submit(final IFile file, final Collection<AbstractMetricChecker> checkers) {
+		if(results.containsKey(file)){
+			return;
+		}
+		results.put(file, workers.submit(new Callable<AbstractNode>() {
+			@Override
+			public AbstractNode call() throws Exception {
+				return analyse(file, checkers);
+			}
+		}));
+	}
+
+	public synchronized boolean isSubmitted(IFile file) {
+		return results.containsKey(file);
+	}
+
+	/**
+	 * @return false if the files of the container were already submitted ahead of their sessions.
+	 * */
+	public synchronized boolean beginSubmitting(IContainer container) {
+		return submittedContainers.add(container);
+	}
+
+	/**
+	 * @return the project node of the private tree that holds the FileNode subtree, null if the file is not a translation unit.
+	 * */
+	private AbstractNode analyse(IFile file, Collection<AbstractMetricChecker> checkers) throws Exception {
+		ICElement element = CoreModel.getDefault().create(file);
+		if(!(element instanceof ITranslationUnit)){
+			return null;
+		}
+
+		ITranslationUnit tu = (ITranslationUnit) element;
+		IIndex index        = CCorePlugin.getIndexManager().getIndex(tu.getCProject());
+
+		index.acquireReadLock();
+		try{
+			IASTTranslationUnit ast = tu.getAST(index, ITranslationUnit.AST_SKIP_INDEXED_HEADERS);
+			if(ast == null){
+				return null;
+			}
+
+			HybridTreeBuilder subtreeBuilder = new HybridTreeBuilder(workspaceName);
+			ProjectNode projectNode          = (ProjectNode) subtreeBuilder.addChild(subtreeBuilder.root, new ProjectNode(file.getProject()));
+			AbstractMetricChecker.analyse(ast, file, subtreeBuilder, projectNode, checkers);
+
+			return projectNode;
+		}finally{
+			index.releaseReadLock();
+		}
+	}
+
+	/**
+	 * Waits for the analysis of the file and grafts its subtree into the builder. 
+	 * Only the calling thread modifies the builder.
+	 * @return false if the file was not submitted, its analysis failed or the calling thread was interrupted.
+	 * */
+	public boolean mergeInto(HybridTreeBuilder builder, IFile file) {
+		Future<AbstractNode> result;
+		synchronized (this) {
+			result = results.remove(file);
+		}
+		if(result == null){
+			return false;
+		}
+
+		try {
+			AbstractNode projectNode = result.get();
+			if(projectNode != null){
+				builder.addChild(builder.root, projectNode);
+			}
+			return true;
+		} catch (InterruptedException e) {
+			result.cancel(true);
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException e) {
+			synchronized (this) {
+				failedFiles.add(file);
+			}
+			MetriculatorPluginActivator.getDefault().getLog().log(new Status(IStatus.ERROR, MetriculatorPluginActivator.PLUGIN_ID, "Analysis of " + file.getFullPath() + " failed", e.getCause())); //$NON-NLS-1$ //$NON-NLS-2$
+			return false;
+		}
+	}
+
+	/**
+	 * @return files whose analysis failed, their subtrees are missing in the hybrid tree.
+	 * */
+	public synchronized Collection<IFile> getFailedFiles() {
+		return Collections.unmodifiableCollection(new ArrayList<IFile>(failedFiles));
+	}
+
+	/**
+	 * Stops the workers. Files submitted ahead of a session that did not take place, e.g. because the run was cancelled, are dropped.
+	 * */
+	public void shutdown() {
+		workers.shutdownNow();
+	}
+}
@@ -0,0 +1,50 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+
+package ch.hsr.ifs.cdt.metriculator.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+
+/**
+ * Files completed since the previous partial result of a run that is still in progress, see {@link PartialResultPublisher}.
+ * */
+public final class PartialResult {
+
+	private final List<AbstractNode> files;
+
+	PartialResult(List<AbstractNode> files) {
+		this.files = Collections.unmodifiableList(files);
+	}
+
+	/**
+	 * @return one detached copy per file, made of its ProjectNode and FolderNodes with the frozen FileNode subtree below them.
+	 * The copies can be added to a {@link HybridTreeBuilder}, which merges the projects and folders by their hybrid id.
+	 * */
+	public List<AbstractNode> getFiles() {
+		return files;
+	}
+
+	/**
+	 * @return result with the files of this and the later result.
+	 * */
+	public PartialResult followedBy(PartialResult later) {
+		List<AbstractNode> both = new ArrayList<AbstractNode>(files.size() + later.files.size());
+		both.addAll(files);
+		both.addAll(later.files);
+		return new PartialResult(both);
+	}
+}
@@ -0,0 +1,108 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+
+package ch.hsr.ifs.cdt.metriculator.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.ProjectNode;
+
+/**
+ * Collects the subtrees of the files completed during a run and passes them to the listener in batches,
+ * every {@link #BATCH_SIZE} files or once {@link #BATCH_INTERVAL_MS} passed since the previous batch by default, so readers can show results before the run completes.
+ * The files are copied on the thread that completed them, the analysis keeps writing its own nodes and is never blocked by the readers.
+ * */
+public class PartialResultPublisher {
+
+	public static final int BATCH_SIZE         = 50;
+	public static final long BATCH_INTERVAL_MS = 500;
+
+	public interface Listener {
+		/**
+		 * Called on the thread that completed the last file of the batch, must not block.
+		 * */
+		void published(PartialResult result);
+	}
+
+	private final Listener listener;
+	private final int batchSize;
+	private final long batchInterval;
+	private List<AbstractNode> batch = new ArrayList<AbstractNode>();
+	private long batchStart          = System.currentTimeMillis();
+
+	public PartialResultPublisher(Listener listener) {
+		this(listener, BATCH_SIZE, BATCH_INTERVAL_MS);
+	}
+
+	/**
+	 * @param batchSize number of files after which a batch is published
+	 * @param batchInterval milliseconds after which a batch is published, with the next completed file
+	 * */
+	public PartialResultPublisher(Listener listener, int batchSize, long batchInterval) {
+		this.listener      = listener;
+		this.batchSize     = batchSize;
+		this.batchInterval = batchInterval;
+	}
+
+	/**
+	 * Drops the files not yet published, e.g. of a previous run.
+	 * */
+	public synchronized void reset() {
+		batch      = new ArrayList<AbstractNode>();
+		batchStart = System.currentTimeMillis();
+	}
+
+	/**
+	 * Copies the subtree of the file, which must not change during this call.
+	 * @param fileNode node of a completed file, below a ProjectNode
+	 * */
+	public void fileCompleted(AbstractNode fileNode) {
+		AbstractNode copy = copyWithAncestors(fileNode);
+		if(copy == null){
+			return;
+		}
+
+		List<AbstractNode> full = null;
+		synchronized (this) {
+			batch.add(copy);
+			long now = System.currentTimeMillis();
+			if(batch.size() >= batchSize || now - batchStart >= batchInterval){
+				full       = batch;
+				batch      = new ArrayList<AbstractNode>();
+				batchStart = now;
+			}
+		}
+		if(full != null){
+			listener.published(new PartialResult(full));
+		}
+	}
+
+	/**
+	 * Freezes the subtree and chains copies of the folders and the project above it.
+	 * @return the copy of the project, null if the node is not below a project
+	 * */
+	static AbstractNode copyWithAncestors(AbstractNode fileNode) {
+		AbstractNode copy = ModelSnapshot.freeze(fileNode).root;
+		for(AbstractNode ancestor = fileNode; !(ancestor instanceof ProjectNode); ancestor = ancestor.getParent()){
+			if(ancestor.getParent() == null){
+				return null;
+			}
+			AbstractNode parentCopy = ancestor.getParent().shallowClone();
+			parentCopy.add(copy);
+			copy = parentCopy;
+		}
+		return copy;
+	}
+}
@@ -15,19 +15,27 @@ package ch.hsr.ifs.cdt.metriculator.model;
 import java.util.HashMap;
 
 import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
-import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionDeclNode;
-import ch.hsr.ifs.cdt.metriculator.model.nodes.FunctionDefNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.LogicNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.MemberNode;
-import ch.hsr.ifs.cdt.metriculator.model.nodes.TypeDeclNode;
-import ch.hsr.ifs.cdt.metriculator.model.nodes.TypeDefNode;
 
 public class PreOrderLogicTreeVisitor extends PreOrderTreeVisitor{
 
 	private HashMap<String, AbstractNode> logicNodes  = new HashMap<String, AbstractNode>();
 	private HashMap<MemberNode, String> memberNodes = new HashMap<MemberNode, String>();
+	private final DeclarationIndex declarations;
 	private AbstractNode currentNode = null;
 
+	public PreOrderLogicTreeVisitor() {
+		this(new DeclarationIndex());
+	}
+
+	/**
+	 * @param declarations index the declarations of the visited members are added to
+	 * */
+	public PreOrderLogicTreeVisitor(DeclarationIndex declarations) {
+		this.declarations = declarations;
+	}
+
 	@Override
 	protected void visitNode(AbstractNode n) {
 		if(n.getParent() == null){
@@ -86,6 +94,7 @@ public class PreOrderLogicTreeVisitor extends PreOrderTreeVisitor{
 		if(node instanceof MemberNode){
 			if(((MemberNode) node).isMember()){
 				memberNodes.put((MemberNode) node, ((MemberNode) node).getLogicalOwnerName());
+				declarations.add((MemberNode) node);
 			}
 		}
 	}
@@ -102,38 +111,14 @@ public class PreOrderLogicTreeVisitor extends PreOrderTreeVisitor{
 		}
 	}
 
+	/**
+	 * Removes the declarations of members that are defined, looked up in the declaration index.
+	 * */
 	public void mergeDefinitionsAndDeclarations() {
 		for(MemberNode def : memberNodes.keySet()){
-			if(def instanceof FunctionDefNode){
-				replaceFuncDeclarationWith(def);
-			}else if(def instanceof TypeDefNode){
-				replaceTypeDeclarationWith(def);
-			}
-		}
-	}
-
-	private void replaceFuncDeclarationWith(MemberNode def) {
-		for(MemberNode decl : memberNodes.keySet()){
-			if(decl instanceof FunctionDeclNode){
-				removeDeclaration(def, decl);
-			}
-		}
-	}
-
-	private void replaceTypeDeclarationWith(MemberNode def) {
-		for(MemberNode decl : memberNodes.keySet()){
-			if(decl instanceof TypeDeclNode){
-				removeDeclaration(def, decl);
-			}
-		}
-	}
-	
-	private void removeDeclaration(MemberNode def, MemberNode decl) {
-		if(def.getLogicalOwnerName().equals(decl.getLogicalOwnerName())){
-			if(def.getLogicalName().equals(decl.getLogicalName())){
+			for(MemberNode decl : declarations.getDeclarationsOf(def)){
 				decl.removeFromParent();
 			}
 		}
 	}
-	
 }
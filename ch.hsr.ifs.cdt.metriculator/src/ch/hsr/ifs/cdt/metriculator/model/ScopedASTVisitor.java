@@ -41,6 +41,7 @@ public class ScopedASTVisitor extends ASTVisitor {
 
 	protected AbstractNode scopeNode;
 	AbstractTreeBuilder builder;
+	private FusedScopedASTVisitor driver;
 
 	public ScopedASTVisitor(AbstractNode scopeNode, AbstractTreeBuilder builder) {
 		this.scopeNode = scopeNode;
@@ -59,19 +60,52 @@ public class ScopedASTVisitor extends ASTVisitor {
 		listeners.add(listener);
 	}
 
+	/**
+	 * Hands the scope tracking of this visitor over to the given fused visitor. 
+	 * The scope node is then kept in sync by the driver and the scope methods of this visitor do not touch the tree anymore.
+	 * */
+	void drivenBy(FusedScopedASTVisitor driver) {
+		this.driver = driver;
+	}
+
+	private boolean isDriven() {
+		return driver != null;
+	}
+
+	protected void notifyVisiting(AbstractNode node) {
+		for(IScopeListener listener : listeners){
+			listener.visiting(node);
+		}
+	}
+
+	protected void notifyLeaving(AbstractNode node) {
+		for(IScopeListener listener : listeners){
+			listener.leaving(node);
+		}
+	}
+
 	@Override
 	public int visit(ICPPASTNamespaceDefinition namespaceDefinition) {
+		if(isDriven()){
+			return driver.getScopeResult();
+		}
 		scopeNode = builder.addChild(scopeNode, new NamespaceNode(namespaceDefinition));
 		return super.visit(namespaceDefinition);
 	}			
 	@Override
 	public int leave(ICPPASTNamespaceDefinition namespaceDefinition) {
+		if(isDriven()){
+			return PROCESS_CONTINUE;
+		}
 		scopeNode = scopeNode.getParent();
 		return super.leave(namespaceDefinition);
 	}
 
 	@Override
 	public int visit(IASTDeclaration declaration) {
+		if(isDriven()){
+			return driver.getScopeResult();
+		}
 		if(declaration instanceof ICPPASTFunctionDefinition){
 			scopeNode = builder.addChild(scopeNode, new FunctionDefNode(((ICPPASTFunctionDefinition)declaration)));
 		}
@@ -80,10 +114,11 @@ public class ScopedASTVisitor extends ASTVisitor {
 	}
 	@Override
 	public int leave(IASTDeclaration declaration) {
+		if(isDriven()){
+			return PROCESS_CONTINUE;
+		}
 		if(declaration instanceof ICPPASTFunctionDefinition){
-			for(IScopeListener listener : listeners){
-				listener.leaving((MemberNode) scopeNode);
-			}
+			notifyLeaving((MemberNode) scopeNode);
 			scopeNode = scopeNode.getParent();
 		}
 		return super.leave(declaration);
@@ -94,6 +129,9 @@ public class ScopedASTVisitor extends ASTVisitor {
 	 */
 	@Override
 	public int visit(IASTDeclarator declarator) {
+		if(isDriven()){
+			return driver.getScopeResult();
+		}
 		if(declarator instanceof ICPPASTFunctionDeclarator && !(declarator.getParent() instanceof ICPPASTFunctionDefinition)){
 			
 			if(declarator.getChildren().length > 0 && (declarator.getChildren()[0] instanceof IASTImplicitNameOwner)){
@@ -114,15 +152,16 @@ public class ScopedASTVisitor extends ASTVisitor {
 	}
 	@Override
 	public int leave(IASTDeclarator declarator) {
+		if(isDriven()){
+			return PROCESS_CONTINUE;
+		}
 		if(declarator instanceof ICPPASTFunctionDeclarator){
 			if((scopeNode instanceof FunctionDeclNode
 					|| scopeNode instanceof FunctionDefNode) 
 					&& !(declarator.getParent() instanceof ICPPASTFunctionDefinition) 
 					&& !(declarator.getParent() instanceof ICPPASTLambdaExpression)){
 				
-				for(IScopeListener listener : listeners){
-					listener.leaving((MemberNode) scopeNode);
-				}
+				notifyLeaving((MemberNode) scopeNode);
 				scopeNode = scopeNode.getParent();
 			}
 		}
@@ -132,6 +171,9 @@ public class ScopedASTVisitor extends ASTVisitor {
 
 	@Override
 	public int visit(IASTDeclSpecifier declSpec) {
+		if(isDriven()){
+			return driver.getScopeResult();
+		}
 
 		boolean scopeChanged = false;
 
@@ -152,19 +194,18 @@ public class ScopedASTVisitor extends ASTVisitor {
 		}
 		
 		if(scopeChanged){
-			for(IScopeListener listener : listeners){
-				listener.visiting(scopeNode);
-			}
+			notifyVisiting(scopeNode);
 		}
 
 		return super.visit(declSpec);
 	}	
 	@Override
 	public int leave(IASTDeclSpecifier declSpec) {
+		if(isDriven()){
+			return PROCESS_CONTINUE;
+		}
 		if(declSpec instanceof ICPPASTCompositeTypeSpecifier){
-			for(IScopeListener listener : listeners){
-				listener.leaving((TypeNode) scopeNode);
-			}
+			notifyLeaving((TypeNode) scopeNode);
 			scopeNode = scopeNode.getParent();
 		}
 		if(declSpec instanceof ICPPASTElaboratedTypeSpecifier){
@@ -0,0 +1,103 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+
+/**
+ * Orders of the children of a node by the aggregated value of a metric, computed once per node and metric.
+ * An order holds the positions of the children in {@link #getChildren(AbstractNode)}, ascending by value and in model order for equal values.
+ * Read backwards it is the descending order, so both directions share it.
+ * The orders are kept until the tree is dropped, so they are only meant for trees that are not changed anymore, e.g. snapshot trees.
+ * Safe to use from several threads, a background job may compute the orders while the view reads them.
+ * */
+public final class SortPermutations {
+
+	private final Map<AbstractNode, Entry> entries = new IdentityHashMap<AbstractNode, Entry>();
+
+	/**
+	 * @return the children of the node in the order the positions of the sort orders refer to.
+	 * */
+	public AbstractNode[] getChildren(AbstractNode parent) {
+		return entryOf(parent).children;
+	}
+
+	/**
+	 * @return positions in {@link #getChildren(AbstractNode)}, ascending by the aggregated value of the metric.
+	 * */
+	public int[] getOrder(AbstractNode parent, AbstractMetric metric) {
+		Entry entry = entryOf(parent);
+		Integer id  = Integer.valueOf(metric.getId());
+		synchronized (entry) {
+			int[] order = entry.orders.get(id);
+			if(order == null){
+				order = ascendingOrder(entry.children, metric);
+				entry.orders.put(id, order);
+			}
+			return order;
+		}
+	}
+
+	/**
+	 * Computes the orders of the children of the node for all metrics, e.g. in a job after the tree was aggregated.
+	 * */
+	public void precompute(AbstractNode parent, Collection<AbstractMetric> metrics) {
+		for(AbstractMetric metric : metrics){
+			getOrder(parent, metric);
+		}
+	}
+
+	private synchronized Entry entryOf(AbstractNode parent) {
+		Entry entry = entries.get(parent);
+		if(entry == null){
+			Collection<AbstractNode> children = parent.getChildren();
+			entry = new Entry(children.toArray(new AbstractNode[children.size()]));
+			entries.put(parent, entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * Reads the value of every node once and sorts value and position packed into a long,
+	 * so the sort compares primitives and equal values keep the order of the positions.
+	 * @return positions of the nodes, ascending by the aggregated value of the metric
+	 * */
+	public static int[] ascendingOrder(AbstractNode[] nodes, AbstractMetric metric) {
+		long[] keys = new long[nodes.length];
+		for(int i = 0; i < nodes.length; i++){
+			keys[i] = ((long) nodes[i].getAggregatedValueOf(metric) << 32) | i;
+		}
+		Arrays.sort(keys);
+
+		int[] order = new int[keys.length];
+		for(int i = 0; i < keys.length; i++){
+			order[i] = (int) keys[i]; // the lower half is the position
+		}
+		return order;
+	}
+
+	private static final class Entry {
+		final AbstractNode[] children;
+		final Map<Integer, int[]> orders = new HashMap<Integer, int[]>();
+
+		Entry(AbstractNode[] children) {
+			this.children = children;
+		}
+	}
+}
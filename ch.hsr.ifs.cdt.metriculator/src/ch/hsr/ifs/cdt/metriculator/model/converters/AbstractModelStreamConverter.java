@@ -0,0 +1,122 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model.converters;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.WorkspaceNode;
+
+/**
+ * Base of the converters that write their result to a stream while the tree is walked, instead of building it in memory.
+ * Only the metrics passed to {@link #convert(AbstractNode, Collection)} are written.
+ * The stream is flushed after the conversion but not closed, it belongs to the caller.
+ * The result is the number of nodes written.
+ * */
+public abstract class AbstractModelStreamConverter implements IModelConverter<Integer> {
+
+	protected static final String ENCODING = "UTF-8"; //$NON-NLS-1$
+	private static final int BUFFER_SIZE   = 64 * 1024;
+
+	private final OutputStream out;
+	protected Writer writer;
+	protected int nodeCount;
+	private IOException error;
+	private IProgressMonitor monitor = new NullProgressMonitor();
+
+	public AbstractModelStreamConverter(OutputStream out) {
+		this.out = out;
+	}
+
+	public AbstractModelStreamConverter(WritableByteChannel channel) {
+		this(Channels.newOutputStream(channel));
+	}
+
+	/**
+	 * @param monitor gets one unit of work per node written, canceling it stops the conversion with an {@link OperationCanceledException}
+	 * */
+	public void setProgressMonitor(IProgressMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	@Override
+	public void convert(AbstractNode node, Collection<AbstractMetric> metrics) {
+		if(metrics == null){
+			metrics = Collections.emptyList();
+		}
+		nodeCount = 0;
+		error     = null;
+		try {
+			writer = new BufferedWriter(new OutputStreamWriter(out, ENCODING), BUFFER_SIZE);
+			write(node, metrics.toArray(new AbstractMetric[metrics.size()]));
+			writer.flush();
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		} catch (IOException e) {
+			error = e;
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Called by subclasses after every node they wrote.
+	 * */
+	protected void nodeWritten() {
+		if(monitor.isCanceled()){
+			throw new OperationCanceledException();
+		}
+		nodeCount++;
+		monitor.worked(1);
+	}
+
+	protected abstract void write(AbstractNode node, AbstractMetric[] metrics) throws IOException;
+
+	/**
+	 * @return number of nodes written by the last conversion.
+	 * */
+	@Override
+	public Integer getResult() {
+		return Integer.valueOf(nodeCount);
+	}
+
+	/**
+	 * @return the exception that stopped the last conversion, null if it completed.
+	 * */
+	public IOException getError() {
+		return error;
+	}
+
+	/**
+	 * @return the children of a workspace node, which is not written itself, otherwise the node.
+	 * */
+	protected static Collection<AbstractNode> topLevelNodesOf(AbstractNode node) {
+		if(node instanceof WorkspaceNode){
+			return node.getChildren();
+		}
+		return Collections.singletonList(node);
+	}
+}
@@ -57,7 +57,10 @@ public class MetriculatorToXMLConverter extends ModelToXMLConverter {
 		}
 	}
 	
-	private Collection<IProblem> getProblemsFor(AbstractChecker checker){
+	/**
+	 * @return problems of the checker that are part of the workspace problem profile.
+	 * */
+	static Collection<IProblem> getProblemsFor(AbstractChecker checker){
 		ICheckersRegistry checkersRegistry = CodanRuntime.getInstance().getCheckersRegistry();
 		IProblem[] profileProblems         = checkersRegistry.getWorkspaceProfile().getProblems();
 		Collection<IProblem> problems = new ArrayList<IProblem>();
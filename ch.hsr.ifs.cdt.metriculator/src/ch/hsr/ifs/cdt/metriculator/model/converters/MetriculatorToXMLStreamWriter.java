@@ -0,0 +1,86 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model.converters;
+
+import java.util.Collection;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.eclipse.cdt.codan.core.model.IProblem;
+import org.eclipse.cdt.codan.core.param.BasicProblemPreference;
+import org.eclipse.cdt.codan.core.param.IProblemPreference;
+import org.eclipse.cdt.codan.core.param.MapProblemPreference;
+
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+
+/**
+ * Streaming counterpart of {@link MetriculatorToXMLConverter}, writes the problem preferences of the metrics into the properties element.
+ * */
+public class MetriculatorToXMLStreamWriter extends ModelToXMLStreamWriter {
+
+	@Override
+	protected void writeProperties(Collection<AbstractMetric> metrics) throws XMLStreamException {
+		startElement("properties"); //$NON-NLS-1$
+		writePreferences(metrics);
+		writeAdditionalProperties();
+		endElement();
+	}
+
+	/**
+	 * Subclasses may write further elements into the properties element, e.g. the theme of a report.
+	 * */
+	protected void writeAdditionalProperties() throws XMLStreamException {
+	}
+
+	private void writePreferences(Collection<AbstractMetric> metrics) throws XMLStreamException {
+		if(metrics.isEmpty()){
+			emptyElement("preferences"); //$NON-NLS-1$
+			return;
+		}
+
+		startElement("preferences"); //$NON-NLS-1$
+		for(AbstractMetric m : metrics){
+			Collection<IProblem> problems = MetriculatorToXMLConverter.getProblemsFor(m.getChecker());
+			if(problems.isEmpty()){
+				emptyElement(m.getName().toLowerCase());
+				continue;
+			}
+
+			IProblem last = null;
+			for(IProblem problem : problems){
+				last = problem;
+			}
+			startElement(m.getName().toLowerCase());
+			xml.writeAttribute("longname", last.getName()); //$NON-NLS-1$
+			xml.writeAttribute("shortname", m.getName()); //$NON-NLS-1$
+
+			for(IProblem problem : problems){
+				writeProblem(problem);
+			}
+			endElement();
+		}
+		endElement();
+	}
+
+	private void writeProblem(IProblem problem) throws XMLStreamException {
+		startElement("problem"); //$NON-NLS-1$
+		xml.writeAttribute("message", problem.getMessagePattern()); //$NON-NLS-1$
+
+		for(IProblemPreference pref : ((MapProblemPreference) problem.getPreference()).getChildDescriptors()){
+			if(pref instanceof BasicProblemPreference){
+				textElement(pref.getKey(), pref.getValue().toString());
+			}
+		}
+		endElement();
+	}
+}
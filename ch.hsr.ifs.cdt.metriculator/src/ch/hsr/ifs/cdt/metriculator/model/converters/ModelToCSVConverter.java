@@ -0,0 +1,117 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model.converters;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+
+/**
+ * Writes the tree as flat table with one line per node, in the order the nodes are shown in the tree.
+ * The path column holds the labels from the top level node down to the node, separated by slashes.
+ * <pre>
+ * path,label,type,lsloc,mccabe
+ * testproject,testproject,projectnode,30,8
+ * testproject/testfolder1,testfolder1,foldernode,10,8
+ * </pre>
+ * Fields are quoted as described in RFC 4180, lines are separated by CRLF.
+ * */
+public class ModelToCSVConverter extends AbstractModelStreamConverter {
+
+	private static final String LINE_SEPARATOR = "\r\n"; //$NON-NLS-1$
+	private static final char PATH_SEPARATOR   = '/';
+
+	public ModelToCSVConverter(OutputStream out) {
+		super(out);
+	}
+
+	public ModelToCSVConverter(WritableByteChannel channel) {
+		super(channel);
+	}
+
+	@Override
+	protected void write(AbstractNode node, AbstractMetric[] metrics) throws IOException {
+		writer.write("path,label,type"); //$NON-NLS-1$
+		for(AbstractMetric m : metrics){
+			writer.write(',');
+			writeField(m.getName().toLowerCase());
+		}
+		writer.write(LINE_SEPARATOR);
+
+		List<Iterator<AbstractNode>> stack = new ArrayList<Iterator<AbstractNode>>();
+		List<Integer> pathLengths          = new ArrayList<Integer>();
+		StringBuilder path                 = new StringBuilder();
+
+		stack.add(topLevelNodesOf(node).iterator());
+		pathLengths.add(Integer.valueOf(0));
+		while(!stack.isEmpty()){
+			Iterator<AbstractNode> children = stack.get(stack.size() - 1);
+			if(!children.hasNext()){
+				stack.remove(stack.size() - 1);
+				pathLengths.remove(pathLengths.size() - 1);
+				continue;
+			}
+
+			AbstractNode child = children.next();
+			String label       = ModelToXMLStreamWriter.getLabelOf(child);
+			int parentLength   = pathLengths.get(pathLengths.size() - 1).intValue();
+
+			path.setLength(parentLength);
+			if(parentLength > 0){
+				path.append(PATH_SEPARATOR);
+			}
+			path.append(label);
+			writeLine(child, label, path, metrics);
+
+			if(!child.getChildren().isEmpty()){
+				stack.add(child.getChildren().iterator());
+				pathLengths.add(Integer.valueOf(path.length()));
+			}
+		}
+	}
+
+	private void writeLine(AbstractNode node, String label, CharSequence path, AbstractMetric[] metrics) throws IOException {
+		writeField(path.toString());
+		writer.write(',');
+		writeField(label);
+		writer.write(',');
+		writer.write(node.getClass().getSimpleName().toLowerCase());
+		for(AbstractMetric m : metrics){
+			writer.write(',');
+			writer.write(Integer.toString(node.getAggregatedValueOf(m)));
+		}
+		writer.write(LINE_SEPARATOR);
+		nodeWritten();
+	}
+
+	private void writeField(String value) throws IOException {
+		boolean quote = false;
+		for(int i = 0; i < value.length() && !quote; i++){
+			char c = value.charAt(i);
+			quote  = c == ',' || c == '"' || c == '\n' || c == '\r';
+		}
+		if(!quote){
+			writer.write(value);
+			return;
+		}
+		writer.write('"');
+		writer.write(value.replace("\"", "\"\"")); //$NON-NLS-1$ //$NON-NLS-2$
+		writer.write('"');
+	}
+}
@@ -0,0 +1,133 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model.converters;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+
+/**
+ * Writes the tree as JSON document.
+ * <pre>
+ * {"metrics":["lsloc","mccabe"],"nodes":[
+ *   {"label":"testproject","type":"projectnode","values":{"lsloc":30,"mccabe":8},"problems":{"lsloc":"warning"},"children":[...]}
+ * ]}
+ * </pre>
+ * "problems" is left out if no problems were reported for the node, "children" if it has none.
+ * */
+public class ModelToJSONConverter extends AbstractModelStreamConverter {
+
+	public ModelToJSONConverter(OutputStream out) {
+		super(out);
+	}
+
+	public ModelToJSONConverter(WritableByteChannel channel) {
+		super(channel);
+	}
+
+	@Override
+	protected void write(AbstractNode node, AbstractMetric[] metrics) throws IOException {
+		String[] names = new String[metrics.length];
+		writer.write("{\"metrics\":["); //$NON-NLS-1$
+		for(int i = 0; i < metrics.length; i++){
+			if(i > 0){
+				writer.write(',');
+			}
+			names[i] = metrics[i].getName().toLowerCase();
+			ModelToJSONPChunkWriter.writeString(writer, names[i]);
+		}
+		writer.write("],\"nodes\":"); //$NON-NLS-1$
+		writeNodes(topLevelNodesOf(node).iterator(), metrics, names);
+		writer.write("}\n"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Pre-order walk with an explicit stack of child iterators, the object of a node is closed after its last child.
+	 * */
+	private void writeNodes(Iterator<AbstractNode> nodes, AbstractMetric[] metrics, String[] names) throws IOException {
+		List<Iterator<AbstractNode>> stack = new ArrayList<Iterator<AbstractNode>>();
+		boolean first                      = true;
+
+		writer.write('[');
+		stack.add(nodes);
+
+		while(!stack.isEmpty()){
+			Iterator<AbstractNode> children = stack.get(stack.size() - 1);
+			if(!children.hasNext()){
+				stack.remove(stack.size() - 1);
+				writer.write(stack.isEmpty() ? "]" : "]}"); //$NON-NLS-1$ //$NON-NLS-2$
+				first = false;
+				continue;
+			}
+
+			if(!first){
+				writer.write(',');
+			}
+			AbstractNode child = children.next();
+			writeNode(child, metrics, names);
+			nodeWritten();
+
+			if(child.getChildren().isEmpty()){
+				writer.write('}');
+				first = false;
+			}else{
+				writer.write(",\"children\":["); //$NON-NLS-1$
+				stack.add(child.getChildren().iterator());
+				first = true;
+			}
+		}
+	}
+
+	/**
+	 * Writes the opening brace and the properties of the node, without closing the object.
+	 * */
+	private void writeNode(AbstractNode node, AbstractMetric[] metrics, String[] names) throws IOException {
+		writer.write("{\"label\":"); //$NON-NLS-1$
+		ModelToJSONPChunkWriter.writeString(writer, ModelToXMLStreamWriter.getLabelOf(node));
+		writer.write(",\"type\":"); //$NON-NLS-1$
+		ModelToJSONPChunkWriter.writeString(writer, node.getClass().getSimpleName().toLowerCase());
+
+		writer.write(",\"values\":{"); //$NON-NLS-1$
+		for(int i = 0; i < metrics.length; i++){
+			if(i > 0){
+				writer.write(',');
+			}
+			ModelToJSONPChunkWriter.writeString(writer, names[i]);
+			writer.write(':');
+			writer.write(Integer.toString(node.getAggregatedValueOf(metrics[i])));
+		}
+		writer.write('}');
+
+		boolean anyProblem = false;
+		for(int i = 0; i < metrics.length; i++){
+			String state = ModelToXMLStreamWriter.getProblemStateOf(metrics[i], node);
+			if(state == null){
+				continue;
+			}
+			writer.write(anyProblem ? "," : ",\"problems\":{"); //$NON-NLS-1$ //$NON-NLS-2$
+			ModelToJSONPChunkWriter.writeString(writer, names[i]);
+			writer.write(':');
+			ModelToJSONPChunkWriter.writeString(writer, state);
+			anyProblem = true;
+		}
+		if(anyProblem){
+			writer.write('}');
+		}
+	}
+}
@@ -0,0 +1,332 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model.converters;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.MetricAggregator;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.FolderNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.ProjectNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.WorkspaceNode;
+
+/**
+ * Writes the tree as JSONP scripts for the sharded HTML report, which loads them with script elements, also from the file system.
+ * The children of every project and folder are written into a chunk of their own, the node itself only refers to the chunk by its id.
+ * The report loads a chunk when its node is expanded. Chunks are written on several threads, the progress is reported by the calling thread.
+ * <pre>
+ * data/index.js  metriculator.index({"metrics":["lsloc","mccabe"],"root":0});
+ * data/c0.js     metriculator.chunk(0,[{"l":"label","t":"projectnode","v":[30,8],"s":["","warning"],"k":1}, ...]);
+ * </pre>
+ * A node has either its children inline ("c") or the id of the chunk holding them ("k"). "s" is left out if no problems were reported.
+ * */
+public class ModelToJSONPChunkWriter {
+
+	public static final String INDEX_FILE = "index.js"; //$NON-NLS-1$
+	private static final String ENCODING  = "UTF-8"; //$NON-NLS-1$
+
+	private final AbstractMetric[] metrics;
+	private final IdentityHashMap<AbstractNode, Integer> chunkIds = new IdentityHashMap<AbstractNode, Integer>();
+	private final List<AbstractNode> chunkParents                 = new ArrayList<AbstractNode>();
+	private IProgressMonitor monitor                              = new NullProgressMonitor();
+
+	public ModelToJSONPChunkWriter(Collection<AbstractMetric> metrics) {
+		if(metrics == null){
+			metrics = Collections.emptyList();
+		}
+		this.metrics = metrics.toArray(new AbstractMetric[metrics.size()]);
+	}
+
+	/**
+	 * @param monitor gets one unit of work per node written, canceling it stops the writer with an {@link OperationCanceledException}
+	 * before the next chunk is started
+	 * */
+	public void setProgressMonitor(IProgressMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	/**
+	 * Writes the index and the chunks into the directory, which is created if necessary.
+	 * @param threads number of threads the chunks are written on
+	 * @return number of chunks written
+	 * */
+	public int write(AbstractNode root, File directory, int threads) throws IOException {
+		directory.mkdirs();
+		new MetricAggregator(Arrays.asList(metrics)).aggregateChildrenAndStale(root); // the workers only read values, the root may show the totals of another tree
+		assignChunks(root);
+
+		writeIndex(new File(directory, INDEX_FILE));
+		writeChunks(directory, Math.max(1, threads));
+		return chunkParents.size();
+	}
+
+	/**
+	 * Chunk 0 holds the top level nodes, the root itself if it is no workspace node. Every project and folder with children gets a chunk.
+	 * */
+	private void assignChunks(AbstractNode root) {
+		chunkIds.clear();
+		chunkParents.clear();
+		chunkParents.add(root);
+
+		List<AbstractNode> stack = new ArrayList<AbstractNode>(root.getChildren());
+		while(!stack.isEmpty()){
+			AbstractNode node = stack.remove(stack.size() - 1);
+			if(isChunked(node)){
+				chunkIds.put(node, Integer.valueOf(chunkParents.size()));
+				chunkParents.add(node);
+			}
+			stack.addAll(node.getChildren());
+		}
+	}
+
+	private static boolean isChunked(AbstractNode node) {
+		return (node instanceof ProjectNode || node instanceof FolderNode) && !node.getChildren().isEmpty();
+	}
+
+	private void writeIndex(File file) throws IOException {
+		Writer out = open(file);
+		try {
+			out.write("metriculator.index({\"metrics\":["); //$NON-NLS-1$
+			for(int i = 0; i < metrics.length; i++){
+				if(i > 0){
+					out.write(',');
+				}
+				writeString(out, metrics[i].getName().toLowerCase());
+			}
+			out.write("],\"root\":0});\n"); //$NON-NLS-1$
+		} finally {
+			out.close();
+		}
+	}
+
+	private void writeChunks(final File directory, int threads) throws IOException {
+		if(threads < 2){
+			for(int id = 0; id < chunkParents.size(); id++){
+				checkCanceled();
+				monitor.worked(writeChunk(directory, id));
+			}
+			return;
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private int count = 0;
+
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread worker = new Thread(r, "metriculator report worker " + ++count); //$NON-NLS-1$
+				worker.setDaemon(true);
+				return worker;
+			}
+		});
+
+		try{
+			List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+			for(int id = 0; id < chunkParents.size(); id++){
+				final int chunkId = id;
+				results.add(pool.submit(new Callable<Integer>() {
+					@Override
+					public Integer call() throws Exception {
+						checkCanceled();
+						return Integer.valueOf(writeChunk(directory, chunkId));
+					}
+				}));
+			}
+			for(Future<Integer> result : results){
+				monitor.worked(result.get().intValue()); // progress monitors are not thread safe
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("writing the report chunks was interrupted"); //$NON-NLS-1$
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof OperationCanceledException){
+				throw (OperationCanceledException) e.getCause();
+			}
+			if(e.getCause() instanceof IOException){
+				throw (IOException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}finally{
+			pool.shutdownNow();
+		}
+	}
+
+	private void checkCanceled() {
+		if(monitor.isCanceled()){
+			throw new OperationCanceledException();
+		}
+	}
+
+	/**
+	 * @return number of nodes written into the chunk
+	 * */
+	private int writeChunk(File directory, int id) throws IOException {
+		AbstractNode parent = chunkParents.get(id);
+		Collection<AbstractNode> nodes;
+		if(id == 0 && !(parent instanceof WorkspaceNode)){
+			nodes = Collections.singletonList(parent);
+		}else{
+			nodes = parent.getChildren();
+		}
+
+		Writer out = open(new File(directory, "c" + id + ".js")); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			out.write("metriculator.chunk(" + id + ","); //$NON-NLS-1$ //$NON-NLS-2$
+			int written = writeNodes(out, nodes);
+			out.write(");\n"); //$NON-NLS-1$
+			return written;
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the nodes as array, walking into the children that are not chunked with an explicit stack of child iterators.
+	 * @return number of nodes written
+	 * */
+	private int writeNodes(Writer out, Collection<AbstractNode> nodes) throws IOException {
+		List<Iterator<AbstractNode>> stack = new ArrayList<Iterator<AbstractNode>>();
+		List<Boolean> first                = new ArrayList<Boolean>();
+		int written                        = 0;
+
+		out.write('[');
+		stack.add(nodes.iterator());
+		first.add(Boolean.TRUE);
+
+		while(!stack.isEmpty()){
+			int top                      = stack.size() - 1;
+			Iterator<AbstractNode> nodeIt = stack.get(top);
+			if(!nodeIt.hasNext()){
+				stack.remove(top);
+				first.remove(top);
+				out.write(stack.isEmpty() ? "]" : "]}"); //$NON-NLS-1$ //$NON-NLS-2$
+				continue;
+			}
+
+			if(!first.get(top).booleanValue()){
+				out.write(',');
+			}
+			first.set(top, Boolean.FALSE);
+
+			AbstractNode node = nodeIt.next();
+			writeNodeProperties(out, node);
+			written++;
+
+			Integer chunkId = chunkIds.get(node);
+			if(chunkId != null){
+				out.write(",\"k\":" + chunkId + "}"); //$NON-NLS-1$ //$NON-NLS-2$
+			}else if(node.getChildren().isEmpty()){
+				out.write('}');
+			}else{
+				out.write(",\"c\":["); //$NON-NLS-1$
+				stack.add(node.getChildren().iterator());
+				first.add(Boolean.TRUE);
+			}
+		}
+		return written;
+	}
+
+	/**
+	 * Writes the opening brace and the properties of the node, without closing the object.
+	 * */
+	private void writeNodeProperties(Writer out, AbstractNode node) throws IOException {
+		out.write("{\"l\":"); //$NON-NLS-1$
+		writeString(out, ModelToXMLStreamWriter.getLabelOf(node));
+		out.write(",\"t\":"); //$NON-NLS-1$
+		writeString(out, node.getClass().getSimpleName().toLowerCase());
+
+		out.write(",\"v\":["); //$NON-NLS-1$
+		boolean anyProblem = false;
+		String[] states    = new String[metrics.length];
+		for(int i = 0; i < metrics.length; i++){
+			if(i > 0){
+				out.write(',');
+			}
+			out.write(Integer.toString(node.getAggregatedValue(metrics[i].getId())));
+			states[i]  = ModelToXMLStreamWriter.getProblemStateOf(metrics[i], node);
+			anyProblem = anyProblem || states[i] != null;
+		}
+		out.write(']');
+
+		if(anyProblem){
+			out.write(",\"s\":["); //$NON-NLS-1$
+			for(int i = 0; i < states.length; i++){
+				if(i > 0){
+					out.write(',');
+				}
+				writeString(out, states[i] == null ? "" : states[i]); //$NON-NLS-1$
+			}
+			out.write(']');
+		}
+	}
+
+	/**
+	 * Writes a JSON string literal, which is a valid JavaScript literal as well.
+	 * */
+	static void writeString(Writer out, String value) throws IOException {
+		out.write('"');
+		for(int i = 0; i < value.length(); i++){
+			char c = value.charAt(i);
+			switch(c){
+				case '"':
+					out.write("\\\""); //$NON-NLS-1$
+					break;
+				case '\\':
+					out.write("\\\\"); //$NON-NLS-1$
+					break;
+				case '\n':
+					out.write("\\n"); //$NON-NLS-1$
+					break;
+				case '\r':
+					out.write("\\r"); //$NON-NLS-1$
+					break;
+				case '\t':
+					out.write("\\t"); //$NON-NLS-1$
+					break;
+				default:
+					if(c < 0x20 || c == 0x2028 || c == 0x2029){ // line separators end JavaScript string literals
+						out.write(String.format("\\u%04x", Integer.valueOf(c))); //$NON-NLS-1$
+					}else{
+						out.write(c);
+					}
+			}
+		}
+		out.write('"');
+	}
+
+	private static Writer open(File file) throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), ENCODING));
+	}
+}
@@ -0,0 +1,278 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model.converters;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.Source;
+import javax.xml.transform.sax.SAXSource;
+
+import org.eclipse.cdt.codan.core.model.CodanSeverity;
+import org.eclipse.cdt.codan.core.model.IProblem;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.NamespaceNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.WorkspaceNode;
+
+/**
+ * Writes the same document as {@link ModelToXMLConverter}, but streams it to the output during one walk over the tree
+ * instead of building a DOM document first. Memory use does not depend on the size of the tree.
+ * */
+public class ModelToXMLStreamWriter {
+
+	private static final String ENCODING = "UTF-8"; //$NON-NLS-1$
+	private static final String INDENT   = "  "; //$NON-NLS-1$
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	protected XMLStreamWriter xml;
+	private int depth;
+	private IProgressMonitor monitor = new NullProgressMonitor();
+
+	/**
+	 * @param monitor gets one unit of work per node written, canceling it stops the writer with an {@link OperationCanceledException}
+	 * */
+	public void setProgressMonitor(IProgressMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	/**
+	 * Writes the document to the file, an existing file is overwritten.
+	 * */
+	public void write(AbstractNode node, Collection<AbstractMetric> metrics, File file) throws IOException, XMLStreamException {
+		FileOutputStream fos = new FileOutputStream(file);
+		OutputStream out     = new BufferedOutputStream(Channels.newOutputStream(fos.getChannel()), BUFFER_SIZE);
+		try {
+			write(node, metrics, out);
+			out.flush();
+		} finally {
+			out.close();
+		}
+	}
+
+	public void write(AbstractNode node, Collection<AbstractMetric> metrics, OutputStream out) throws XMLStreamException {
+		write(node, metrics, XMLOutputFactory.newInstance().createXMLStreamWriter(out, ENCODING));
+	}
+
+	/**
+	 * @return source that writes the document as SAX events to the transformer it is passed to, 
+	 * so the document is neither kept in memory nor parsed. The tree is walked again every time the source is read.
+	 * */
+	public Source createSource(final AbstractNode node, final Collection<AbstractMetric> metrics) {
+		XMLReader reader = new XMLFilterImpl() {
+			@Override
+			public void parse(InputSource input) throws SAXException {
+				try {
+					write(node, metrics, new SAXEventStreamWriter(getContentHandler()));
+				} catch (XMLStreamException e) {
+					throw new SAXException(e);
+				}
+			}
+
+			@Override
+			public void parse(String systemId) throws SAXException {
+				parse(new InputSource(systemId));
+			}
+
+			@Override
+			public boolean getFeature(String name) {
+				return false;
+			}
+
+			@Override
+			public void setFeature(String name, boolean value) {
+				// there is no parser to configure
+			}
+
+			@Override
+			public Object getProperty(String name) {
+				return null;
+			}
+
+			@Override
+			public void setProperty(String name, Object value) {
+				// there is no parser to configure
+			}
+		};
+		return new SAXSource(reader, new InputSource());
+	}
+
+	private void write(AbstractNode node, Collection<AbstractMetric> metrics, XMLStreamWriter writer) throws XMLStreamException {
+		if(metrics == null){
+			metrics = new ArrayList<AbstractMetric>();
+		}
+
+		xml   = writer;
+		depth = 0;
+
+		xml.writeStartDocument(ENCODING, "1.0"); //$NON-NLS-1$
+		startElement("metriculator"); //$NON-NLS-1$
+		writeProperties(metrics);
+		writeNodes(node, metrics);
+		endElement();
+		xml.writeCharacters("\n"); //$NON-NLS-1$
+		xml.writeEndDocument();
+		xml.flush();
+		xml.close();
+	}
+
+	/**
+	 * Writes the properties element. Subclasses may add content to it.
+	 * */
+	protected void writeProperties(Collection<AbstractMetric> metrics) throws XMLStreamException {
+		emptyElement("properties"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Pre-order walk with an explicit stack of child iterators, the element of a node is closed after its last child.
+	 * The workspace node itself is not written, like in {@link XMLBuilderVisitor}.
+	 * */
+	private void writeNodes(AbstractNode node, Collection<AbstractMetric> metrics) throws XMLStreamException {
+		List<Iterator<AbstractNode>> stack = new ArrayList<Iterator<AbstractNode>>();
+
+		if(node instanceof WorkspaceNode){
+			stack.add(node.getChildren().iterator());
+		}else{
+			startNode(node, metrics);
+			stack.add(node.getChildren().iterator());
+		}
+
+		while(!stack.isEmpty()){
+			Iterator<AbstractNode> children = stack.get(stack.size() - 1);
+			if(children.hasNext()){
+				AbstractNode child = children.next();
+				startNode(child, metrics);
+				stack.add(child.getChildren().iterator());
+			}else{
+				stack.remove(stack.size() - 1);
+				if(!stack.isEmpty() || !(node instanceof WorkspaceNode)){
+					endElement();
+				}
+			}
+		}
+	}
+
+	private void startNode(AbstractNode n, Collection<AbstractMetric> metrics) throws XMLStreamException {
+		if(monitor.isCanceled()){
+			throw new OperationCanceledException();
+		}
+		monitor.worked(1);
+
+		startElement("node"); //$NON-NLS-1$
+		xml.writeAttribute("label", getLabelOf(n)); //$NON-NLS-1$
+		xml.writeAttribute("type", n.getClass().getSimpleName().toLowerCase()); //$NON-NLS-1$
+
+		if(metrics.isEmpty()){
+			emptyElement("metrics"); //$NON-NLS-1$
+			return;
+		}
+
+		startElement("metrics"); //$NON-NLS-1$
+		for(AbstractMetric m : metrics){
+			indent();
+			xml.writeStartElement(m.getName().toLowerCase());
+			String problemState = getProblemStateOf(m, n);
+			if(problemState != null){
+				xml.writeAttribute("problem-state", problemState); //$NON-NLS-1$
+			}
+			xml.writeCharacters(Integer.toString(n.getAggregatedValueOf(m)));
+			xml.writeEndElement();
+		}
+		endElement();
+	}
+
+	static String getLabelOf(AbstractNode n) {
+		if(n instanceof NamespaceNode && ((NamespaceNode) n).isAnonymous()){
+			return "anonymous"; //$NON-NLS-1$
+		}
+		return n.getScopeName();
+	}
+
+	/**
+	 * @return state of the last problem of the metric reported for the node, null if there is none.
+	 * */
+	static String getProblemStateOf(AbstractMetric metric, AbstractNode node) {
+		Collection<IProblem> problems = metric.getChecker().getProblemsFor(node);
+		String state                  = null;
+
+		if(problems != null){
+			for(IProblem p : problems){
+				if(p.getSeverity() == CodanSeverity.Warning){
+					state = "warning"; //$NON-NLS-1$
+				}else if(p.getSeverity() == CodanSeverity.Error){
+					state = "error"; //$NON-NLS-1$
+				}else if(p.getSeverity() == CodanSeverity.Info){
+					state = "none"; //$NON-NLS-1$
+				}
+			}
+		}
+		return state;
+	}
+
+	protected void startElement(String name) throws XMLStreamException {
+		indent();
+		xml.writeStartElement(name);
+		depth++;
+	}
+
+	protected void emptyElement(String name) throws XMLStreamException {
+		indent();
+		xml.writeEmptyElement(name);
+	}
+
+	/**
+	 * Writes an element with text content on a line of its own.
+	 * */
+	protected void textElement(String name, String text) throws XMLStreamException {
+		indent();
+		xml.writeStartElement(name);
+		xml.writeCharacters(text);
+		xml.writeEndElement();
+	}
+
+	protected void endElement() throws XMLStreamException {
+		depth--;
+		indent();
+		xml.writeEndElement();
+	}
+
+	/**
+	 * Indents like {@link ModelToXMLConverter#getFormattedXML()}, so both documents look alike.
+	 * */
+	private void indent() throws XMLStreamException {
+		StringBuilder line = new StringBuilder("\n"); //$NON-NLS-1$
+		for(int i = 0; i < depth; i++){
+			line.append(INDENT);
+		}
+		xml.writeCharacters(line.toString());
+	}
+}
@@ -0,0 +1,393 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model.converters;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.NamespaceSupport;
+
+/**
+ * Passes what is written to a content handler as SAX events, so a document written by {@link ModelToXMLStreamWriter}
+ * can be fed into a transformer without being serialized and parsed again.
+ * Comments and CDATA sections are passed on if the handler is a {@link LexicalHandler}. A DTD is dropped, 
+ * since SAX has no event for its unparsed text. Namespaces are not repaired, prefixes have to be bound before they are used.
+ * */
+class SAXEventStreamWriter implements XMLStreamWriter {
+
+	private static final String CDATA = "CDATA"; //$NON-NLS-1$
+
+	private final ContentHandler handler;
+	private final List<Element> openElements  = new ArrayList<Element>();
+	private final AttributesImpl attributes   = new AttributesImpl();
+	private final NamespaceSupport namespaces = new NamespaceSupport();
+	private NamespaceContext namespaceContext;
+	private Element pendingElement;
+
+	SAXEventStreamWriter(ContentHandler handler) {
+		this.handler = handler;
+	}
+
+	/**
+	 * The start element event is sent when the next node is written, since it carries the attributes and namespace declarations.
+	 * */
+	private void flushPendingElement() throws SAXException {
+		if(pendingElement == null){
+			return;
+		}
+		Element element = pendingElement;
+		pendingElement  = null;
+
+		for(String prefix : element.declaredPrefixes){
+			handler.startPrefixMapping(prefix, namespaces.getURI(prefix));
+		}
+		handler.startElement(element.namespaceURI, element.localName, element.qName, attributes);
+		attributes.clear();
+
+		if(element.empty){
+			endElement(element);
+		}else{
+			openElements.add(element);
+		}
+	}
+
+	private void endElement(Element element) throws SAXException {
+		handler.endElement(element.namespaceURI, element.localName, element.qName);
+		for(String prefix : element.declaredPrefixes){
+			handler.endPrefixMapping(prefix);
+		}
+		namespaces.popContext();
+	}
+
+	private void startElement(String prefix, String localName, String namespaceURI, boolean empty) throws XMLStreamException {
+		try {
+			flushPendingElement();
+		} catch (SAXException e) {
+			throw new XMLStreamException(e);
+		}
+		namespaces.pushContext();
+		pendingElement = new Element(namespaceURI, localName, qualify(prefix, localName), empty);
+	}
+
+	private String getBoundPrefix(String namespaceURI) throws XMLStreamException {
+		String prefix = getPrefix(namespaceURI);
+		if(prefix == null){
+			throw new XMLStreamException("namespace " + namespaceURI + " is not bound to a prefix"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return prefix;
+	}
+
+	private static String qualify(String prefix, String localName) {
+		return prefix == null || prefix.length() == 0 ? localName : prefix + ':' + localName;
+	}
+
+	private void characters(char[] text, int start, int len) throws XMLStreamException {
+		try {
+			flushPendingElement();
+			handler.characters(text, start, len);
+		} catch (SAXException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	@Override
+	public void writeStartDocument() throws XMLStreamException {
+		try {
+			handler.startDocument();
+		} catch (SAXException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	@Override
+	public void writeStartDocument(String version) throws XMLStreamException {
+		writeStartDocument();
+	}
+
+	@Override
+	public void writeStartDocument(String encoding, String version) throws XMLStreamException {
+		writeStartDocument();
+	}
+
+	@Override
+	public void writeEndDocument() throws XMLStreamException {
+		try {
+			flushPendingElement();
+			while(!openElements.isEmpty()){
+				endElement(openElements.remove(openElements.size() - 1));
+			}
+			handler.endDocument();
+		} catch (SAXException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	@Override
+	public void writeStartElement(String localName) throws XMLStreamException {
+		startElement(null, localName, XMLConstants.NULL_NS_URI, false);
+	}
+
+	@Override
+	public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException {
+		startElement(getBoundPrefix(namespaceURI), localName, namespaceURI, false);
+	}
+
+	@Override
+	public void writeStartElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+		startElement(prefix, localName, namespaceURI, false);
+	}
+
+	@Override
+	public void writeEmptyElement(String localName) throws XMLStreamException {
+		startElement(null, localName, XMLConstants.NULL_NS_URI, true);
+	}
+
+	@Override
+	public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException {
+		startElement(getBoundPrefix(namespaceURI), localName, namespaceURI, true);
+	}
+
+	@Override
+	public void writeEmptyElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+		startElement(prefix, localName, namespaceURI, true);
+	}
+
+	@Override
+	public void writeAttribute(String localName, String value) throws XMLStreamException {
+		writeAttribute(null, XMLConstants.NULL_NS_URI, localName, value);
+	}
+
+	@Override
+	public void writeAttribute(String namespaceURI, String localName, String value) throws XMLStreamException {
+		writeAttribute(getBoundPrefix(namespaceURI), namespaceURI, localName, value);
+	}
+
+	@Override
+	public void writeAttribute(String prefix, String namespaceURI, String localName, String value) throws XMLStreamException {
+		if(pendingElement == null){
+			throw new XMLStreamException("attribute " + localName + " written outside of a start element"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		attributes.addAttribute(namespaceURI, localName, qualify(prefix, localName), CDATA, value);
+	}
+
+	@Override
+	public void writeNamespace(String prefix, String namespaceURI) throws XMLStreamException {
+		if(prefix == null || prefix.length() == 0 || XMLConstants.XMLNS_ATTRIBUTE.equals(prefix)){
+			writeDefaultNamespace(namespaceURI);
+			return;
+		}
+		declare(prefix, namespaceURI);
+	}
+
+	@Override
+	public void writeDefaultNamespace(String namespaceURI) throws XMLStreamException {
+		declare(XMLConstants.DEFAULT_NS_PREFIX, namespaceURI);
+	}
+
+	private void declare(String prefix, String namespaceURI) throws XMLStreamException {
+		if(pendingElement == null){
+			throw new XMLStreamException("namespace " + namespaceURI + " written outside of a start element"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		namespaces.declarePrefix(prefix, namespaceURI);
+		pendingElement.declaredPrefixes.add(prefix);
+	}
+
+	@Override
+	public void writeEndElement() throws XMLStreamException {
+		try {
+			flushPendingElement();
+			if(openElements.isEmpty()){
+				throw new XMLStreamException("no element to end"); //$NON-NLS-1$
+			}
+			endElement(openElements.remove(openElements.size() - 1));
+		} catch (SAXException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	@Override
+	public void writeCharacters(String text) throws XMLStreamException {
+		writeCharacters(text.toCharArray(), 0, text.length());
+	}
+
+	/**
+	 * Text outside of the document element, i.e. line breaks, is dropped, since it is not part of the document.
+	 * */
+	@Override
+	public void writeCharacters(char[] text, int start, int len) throws XMLStreamException {
+		if(openElements.isEmpty() && pendingElement == null){
+			return;
+		}
+		characters(text, start, len);
+	}
+
+	@Override
+	public void writeCData(String data) throws XMLStreamException {
+		if(!(handler instanceof LexicalHandler)){
+			writeCharacters(data);
+			return;
+		}
+		try {
+			flushPendingElement();
+			((LexicalHandler) handler).startCDATA();
+			handler.characters(data.toCharArray(), 0, data.length());
+			((LexicalHandler) handler).endCDATA();
+		} catch (SAXException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	@Override
+	public void writeComment(String data) throws XMLStreamException {
+		if(!(handler instanceof LexicalHandler)){
+			return;
+		}
+		try {
+			flushPendingElement();
+			((LexicalHandler) handler).comment(data.toCharArray(), 0, data.length());
+		} catch (SAXException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	@Override
+	public void writeProcessingInstruction(String target) throws XMLStreamException {
+		writeProcessingInstruction(target, ""); //$NON-NLS-1$
+	}
+
+	@Override
+	public void writeProcessingInstruction(String target, String data) throws XMLStreamException {
+		try {
+			flushPendingElement();
+			handler.processingInstruction(target, data);
+		} catch (SAXException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	@Override
+	public void writeDTD(String dtd) throws XMLStreamException {
+	}
+
+	@Override
+	public void writeEntityRef(String name) throws XMLStreamException {
+		try {
+			flushPendingElement();
+			handler.skippedEntity(name);
+		} catch (SAXException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	@Override
+	public void flush() throws XMLStreamException {
+	}
+
+	@Override
+	public void close() throws XMLStreamException {
+	}
+
+	@Override
+	public String getPrefix(String uri) throws XMLStreamException {
+		String defaultURI = namespaces.getURI(XMLConstants.DEFAULT_NS_PREFIX);
+		if(uri.equals(defaultURI != null ? defaultURI : XMLConstants.NULL_NS_URI)){
+			return XMLConstants.DEFAULT_NS_PREFIX;
+		}
+		String prefix = namespaces.getPrefix(uri);
+		if(prefix == null && namespaceContext != null){
+			prefix = namespaceContext.getPrefix(uri);
+		}
+		return prefix;
+	}
+
+	/**
+	 * Binds the prefix in the scope of the element written last, without writing a namespace declaration.
+	 * */
+	@Override
+	public void setPrefix(String prefix, String uri) throws XMLStreamException {
+		namespaces.declarePrefix(prefix, uri);
+	}
+
+	@Override
+	public void setDefaultNamespace(String uri) throws XMLStreamException {
+		namespaces.declarePrefix(XMLConstants.DEFAULT_NS_PREFIX, uri);
+	}
+
+	/**
+	 * The context is asked for prefixes that were not bound by this writer.
+	 * */
+	@Override
+	public void setNamespaceContext(NamespaceContext context) throws XMLStreamException {
+		namespaceContext = context;
+	}
+
+	@Override
+	public NamespaceContext getNamespaceContext() {
+		return new NamespaceContext() {
+			@Override
+			public String getNamespaceURI(String prefix) {
+				String uri = namespaces.getURI(prefix);
+				if(uri == null && namespaceContext != null){
+					uri = namespaceContext.getNamespaceURI(prefix);
+				}
+				return uri != null ? uri : XMLConstants.NULL_NS_URI;
+			}
+
+			@Override
+			public String getPrefix(String namespaceURI) {
+				try {
+					return SAXEventStreamWriter.this.getPrefix(namespaceURI);
+				} catch (XMLStreamException e) {
+					return null;
+				}
+			}
+
+			@Override
+			public Iterator<String> getPrefixes(String namespaceURI) {
+				String prefix = getPrefix(namespaceURI);
+				return prefix != null ? Collections.singleton(prefix).iterator() : Collections.<String>emptySet().iterator();
+			}
+		};
+	}
+
+	@Override
+	public Object getProperty(String name) throws IllegalArgumentException {
+		throw new IllegalArgumentException(name);
+	}
+
+	private static final class Element {
+		final String namespaceURI;
+		final String localName;
+		final String qName;
+		final boolean empty;
+		final List<String> declaredPrefixes = new ArrayList<String>(0);
+
+		Element(String namespaceURI, String localName, String qName, boolean empty) {
+			this.namespaceURI = namespaceURI;
+			this.localName    = localName;
+			this.qName        = qName;
+			this.empty        = empty;
+		}
+	}
+}
@@ -0,0 +1,231 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+package ch.hsr.ifs.cdt.metriculator.model.converters;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.TreePrinter;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+
+/**
+ * Writes the tree as fixed width text rows in the layout of {@link TreePrinter}, straight to the writer during one walk over the tree.
+ * Rows are assembled from precomputed padding, no format string is parsed and no row is kept in memory.
+ * The depth limit and the top N filter keep the report of a huge tree readable, by default the whole tree is written.
+ * <pre>
+ * [metric columns: 'LSLOC' 'McCabe']
+ *  testproject                    30 (0)          8 (0)          
+ *    file1                        30 (0)          8 (0)          
+ *    ... 12 more
+ * </pre>
+ * */
+public class TextReportWriter {
+
+	private static final String MORE_ROW = "... "; //$NON-NLS-1$
+
+	private final Writer out;
+	private final AbstractMetric[] metrics;
+	private char[] spaces = new char[0];
+	private int maxDepth  = Integer.MAX_VALUE;
+	private int topCount  = 0;
+	private AbstractMetric topMetric;
+	private IProgressMonitor monitor = new NullProgressMonitor();
+
+	/**
+	 * @param out should be buffered, the rows are written in small pieces
+	 * */
+	public TextReportWriter(Writer out, Collection<AbstractMetric> metrics) {
+		if(metrics == null){
+			metrics = Collections.emptyList();
+		}
+		this.out     = out;
+		this.metrics = metrics.toArray(new AbstractMetric[metrics.size()]);
+		ensurePadding(TreePrinter.labelColumnWidth + TreePrinter.valueColumnWidth);
+	}
+
+	/**
+	 * @param maxDepth deepest level written, the node passed to {@link #write(AbstractNode)} is on level 0. A negative depth writes all levels.
+	 * */
+	public void setMaxDepth(int maxDepth) {
+		this.maxDepth = maxDepth < 0 ? Integer.MAX_VALUE : maxDepth;
+	}
+
+	/**
+	 * Writes only the count children with the highest aggregated value of the metric below every node, in descending order.
+	 * A row tells how many children were left out.
+	 * @param count number of children written per node, 0 writes all children in their order
+	 * */
+	public void setTopCount(int count, AbstractMetric metric) {
+		this.topCount  = metric == null ? 0 : Math.max(0, count);
+		this.topMetric = metric;
+	}
+
+	/**
+	 * @param monitor gets one unit of work per row written, canceling it stops the writer with an {@link OperationCanceledException}
+	 * */
+	public void setProgressMonitor(IProgressMonitor monitor) {
+		this.monitor = monitor;
+	}
+
+	/**
+	 * Writes the header and the rows. The writer is neither flushed nor closed.
+	 * @return number of node rows written
+	 * */
+	public int write(AbstractNode root) throws IOException {
+		List<Iterator<AbstractNode>> stack = new ArrayList<Iterator<AbstractNode>>();
+		List<Integer> omitted              = new ArrayList<Integer>();
+		int rows                           = 1;
+
+		writeHeader();
+		writeRow(root, 0);
+		if(maxDepth > 0){
+			pushChildren(root, stack, omitted);
+		}
+
+		while(!stack.isEmpty()){
+			int top                        = stack.size() - 1;
+			Iterator<AbstractNode> children = stack.get(top);
+			if(!children.hasNext()){
+				stack.remove(top);
+				int left = omitted.remove(top).intValue();
+				if(left > 0){
+					writeMoreRow(left, top + 1);
+				}
+				continue;
+			}
+
+			AbstractNode child = children.next();
+			writeRow(child, top + 1);
+			rows++;
+			if(top + 1 < maxDepth){
+				pushChildren(child, stack, omitted);
+			}
+		}
+		return rows;
+	}
+
+	/**
+	 * Pushes the children to write, with the top N filter the selected ones along with the number of children left out.
+	 * The selection keeps a bounded heap of count children, whatever the number of children is.
+	 * */
+	private void pushChildren(AbstractNode node, List<Iterator<AbstractNode>> stack, List<Integer> omitted) {
+		Collection<AbstractNode> children = node.getChildren();
+		if(topCount == 0 || children.size() <= topCount){
+			stack.add(children.iterator());
+			omitted.add(Integer.valueOf(0));
+			return;
+		}
+
+		Comparator<AbstractNode> byValue = new Comparator<AbstractNode>() {
+			@Override
+			public int compare(AbstractNode a, AbstractNode b) {
+				int x = a.getAggregatedValueOf(topMetric);
+				int y = b.getAggregatedValueOf(topMetric);
+				return x < y ? -1 : (x == y ? 0 : 1);
+			}
+		};
+
+		PriorityQueue<AbstractNode> top = new PriorityQueue<AbstractNode>(topCount + 1, byValue);
+		for(AbstractNode child : children){
+			top.add(child);
+			if(top.size() > topCount){
+				top.poll();
+			}
+		}
+
+		AbstractNode[] selected = top.toArray(new AbstractNode[top.size()]);
+		Arrays.sort(selected, Collections.reverseOrder(byValue));
+		stack.add(Arrays.asList(selected).iterator());
+		omitted.add(Integer.valueOf(children.size() - selected.length));
+	}
+
+	private void writeHeader() throws IOException {
+		out.write("[metric columns:"); //$NON-NLS-1$
+		for(AbstractMetric metric : metrics){
+			out.write(" '"); //$NON-NLS-1$
+			out.write(metric.getName());
+			out.write('\'');
+		}
+		out.write(']');
+	}
+
+	/**
+	 * The label is cut at the front if it does not fit into the label column, the value columns are padded to their width.
+	 * */
+	private void writeRow(AbstractNode node, int level) throws IOException {
+		if(monitor.isCanceled()){
+			throw new OperationCanceledException();
+		}
+		monitor.worked(1);
+
+		String label  = node.toString();
+		int labelFill = TreePrinter.labelColumnWidth - 2 * level - label.length();
+		if(labelFill < 0){
+			label = label.substring(-labelFill);
+		}
+
+		out.write('\n');
+		writeSpaces(2 * level);
+		out.write(' ');
+		out.write(label);
+		out.write(' ');
+		writeSpaces(labelFill);
+		out.write(' ');
+
+		for(AbstractMetric metric : metrics){
+			String aggregated = Integer.toString(node.getAggregatedValueOf(metric));
+			String value      = Integer.toString(node.getNodeValue(metric.getId()));
+			out.write(aggregated);
+			out.write(" ("); //$NON-NLS-1$
+			out.write(value);
+			out.write(')');
+			writeSpaces(TreePrinter.valueColumnWidth - aggregated.length() - value.length());
+		}
+	}
+
+	private void writeMoreRow(int count, int level) throws IOException {
+		out.write('\n');
+		writeSpaces(2 * level);
+		out.write(' ');
+		out.write(MORE_ROW);
+		out.write(Integer.toString(count));
+		out.write(" more"); //$NON-NLS-1$
+	}
+
+	private void writeSpaces(int count) throws IOException {
+		if(count <= 0){
+			return;
+		}
+		ensurePadding(count);
+		out.write(spaces, 0, count);
+	}
+
+	private void ensurePadding(int count) {
+		if(spaces.length < count){
+			spaces = new char[Math.max(count, 2 * spaces.length)];
+			Arrays.fill(spaces, ' ');
+		}
+	}
+}
@@ -46,7 +46,7 @@ public class XMLBuilderVisitor implements INodeVisitor {
 		for(AbstractMetric m : this.metrics){
 			
 			Element metric = xml.doc.createElement(m.getName().toLowerCase());
-			int aggregatedValue = forNode.getValueOf(m).aggregatedValue;
+			int aggregatedValue = forNode.getAggregatedValueOf(m);
 			metric.setTextContent(Integer.valueOf(aggregatedValue).toString());
 			applyProblemsOf(m, forNode, metric);
 			metrics.appendChild(metric);
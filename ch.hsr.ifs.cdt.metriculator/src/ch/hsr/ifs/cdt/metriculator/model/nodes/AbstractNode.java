@@ -12,12 +12,17 @@
 
 package ch.hsr.ifs.cdt.metriculator.model.nodes;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 
 import org.eclipse.cdt.codan.core.CodanRuntime;
+import org.eclipse.cdt.codan.core.model.IProblem;
 import org.eclipse.cdt.codan.core.model.IProblemLocation;
 import org.eclipse.cdt.codan.core.model.IProblemLocationFactory;
 import org.eclipse.cdt.core.dom.ast.IASTFileLocation;
@@ -31,20 +36,24 @@ import org.eclipse.core.resources.IFile;
 import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
 import ch.hsr.ifs.cdt.metriculator.model.AbstractTreeBuilder;
 import ch.hsr.ifs.cdt.metriculator.model.INodeVisitorAccepter;
+import ch.hsr.ifs.cdt.metriculator.model.MetricRegistry;
 
 public abstract class AbstractNode implements Cloneable, INodeVisitorAccepter {
 
 	private final static String EMPTY_STRING = ""; //$NON-NLS-1$
+	private final static int[] NO_VALUES     = new int[0];
+	private final static long ALL_STALE      = -1L;
 	protected String scopeName;
 	protected AbstractNode parent;
-	private String hybridId;
+	private HybridId hybridId;
 	private EditorInfo editorInfo;
 
-	private String cachedPath;
-
-	private HashMap<String, AbstractNode> children        = new HashMap<String, AbstractNode>();
-	private ArrayList<AbstractNode>		  orderedChildren = new ArrayList<AbstractNode>();
-	private HashMap<String, CompositeValue> metricValues  = new HashMap<String, CompositeValue>();
+	private HashMap<HybridId, AbstractNode> children;
+	private ArrayList<AbstractNode>		  orderedChildren;
+	private int[]                         values          = NO_VALUES;
+	private boolean                       sharedValues    = false;
+	private long                          staleMetrics    = ALL_STALE;
+	private ArrayList<IProblem>           problems;
 	
 	protected AbstractNode(String scopeUniqueName) {
 		setScopeName(scopeUniqueName);
@@ -54,6 +63,10 @@ public abstract class AbstractNode implements Cloneable, INodeVisitorAccepter {
 		return editorInfo;
 	}
 
+	void setEditorInfo(EditorInfo editorInfo){
+		this.editorInfo = editorInfo;
+	}
+
 	protected AbstractNode(String scopeUniqueName, IASTNode astNode) {
 		this(scopeUniqueName);
 		if(astNode != null){
@@ -62,6 +75,9 @@ public abstract class AbstractNode implements Cloneable, INodeVisitorAccepter {
 	}
 
 	public Collection<AbstractNode> getChildren() {
+		if(orderedChildren == null){
+			return Collections.emptyList();
+		}
 		return Collections.unmodifiableCollection(orderedChildren);
 	}
 
@@ -75,24 +91,25 @@ public abstract class AbstractNode implements Cloneable, INodeVisitorAccepter {
 	 */
 	public AbstractNode add(AbstractNode childNode) {
 
+		if(children == null){
+			children        = new HashMap<HybridId, AbstractNode>(4);
+			orderedChildren = new ArrayList<AbstractNode>(4);
+		}
+
 		childNode.parent = this;
 		children.put(childNode.getHybridId(), childNode);
 		orderedChildren.add(childNode);
 
-		childNode.resetPath();
-		
+		markStale();
+
 		return childNode;
 	}
-	
-	public void resetPath() {
-		cachedPath = null;
-	}
 
 	/**
 	 * @return child with same hybridId (guid). Returns null if not available.
 	 */
-	public AbstractNode getChildBy(String hybridId) {
-		return children.get(hybridId);
+	public AbstractNode getChildBy(HybridId hybridId) {
+		return children == null ? null : children.get(hybridId);
 	}
 
 	/**
@@ -101,6 +118,9 @@ public abstract class AbstractNode implements Cloneable, INodeVisitorAccepter {
 	@SuppressWarnings("unchecked")
 	public <T extends AbstractNode> Collection<T> getChildren(Class<T> type) {
 		Collection<T> nodes = new ArrayList<T>();
+		if (children == null) {
+			return nodes;
+		}
 		for (AbstractNode n : children.values()) {
 			if (type.isInstance(n)) {
 				nodes.add((T) n);
@@ -109,25 +129,42 @@ public abstract class AbstractNode implements Cloneable, INodeVisitorAccepter {
 		return nodes;
 	}
 
-	public CompositeValue getValueOrDefaultOf(String metricKey) {
-		CompositeValue metricValue = metricValues.get(metricKey);
-		if (metricValue == null) {
-			metricValue = new CompositeValue();
-			metricValues.put(metricKey, metricValue);
+	/**
+	 * @return keys of the metrics this node has a node value for.
+	 * */
+	Collection<String> getMetricKeys() {
+		List<String> keys = new ArrayList<String>();
+		for(int id = 0; id < values.length / 2; id++){
+			if(values[2 * id] != 0){
+				keys.add(MetricRegistry.getKey(id));
+			}
 		}
-		return metricValue;
+		return keys;
 	}
-	
+
+	/**
+	 * Node and aggregated value of a metric are stored next to each other, at 2 * id and 2 * id + 1.
+	 * The array only grows up to the highest metric id this node holds a value for.
+	 * A row shared with a clone is copied before it is written.
+	 * */
+	private void prepareWrite(int metricId) {
+		if(sharedValues || values.length <= 2 * metricId + 1){
+			int[] own = new int[Math.max(values.length, 2 * Math.max(metricId + 1, MetricRegistry.size()))];
+			System.arraycopy(values, 0, own, 0, values.length);
+			values       = own;
+			sharedValues = false;
+		}
+	}
+
 	/**
 	 * Aggregate the node values of all descendant nodes and itself.
+	 * @return copy of the values of this node, changing it has no effect on the node.
 	 * */
 	public CompositeValue getValueOf(AbstractMetric metric) {
 
-		if(!metric.useCachedValue){
-			metric.aggregate(this);
-		}
+		int aggregatedValue = getAggregatedValueOf(metric);
 
-		return metricValues.get(metric.getKey());
+		return new CompositeValue(getNodeValue(metric.getId()), aggregatedValue);
 	}
 
 	public String getScopeUniqueName() {
@@ -162,30 +199,98 @@ public abstract class AbstractNode implements Cloneable, INodeVisitorAccepter {
 	/**
 	 * @return String path from the root node down to this one. The concatenated scopeUniqueNames are separated by period.
 	 * <code>e.g. Workspace1.Project0.FileX.ClassA</code>
+	 * The path is built on every call, it is meant for display and export only.
 	 * */
 	public String getPath() {
-		if(cachedPath == null){
-			cachedPath = getPath(new StringBuilder(EMPTY_STRING));
+		return getPath(new StringBuilder(EMPTY_STRING));
+	}
+
+	/**
+	 * Aggregates only the stale nodes of the subtree, returns the stored value if the node is up to date.
+	 * */
+	public int getAggregatedValueOf(AbstractMetric metric){
+		if(isStale(metric.getId())){
+			metric.aggregate(this);
 		}
-		return cachedPath;
+
+		return getAggregatedValue(metric.getId());
 	}
 
-	public int getAggregatedValueOf(AbstractMetric abstractMetric){
-		return getValueOf(abstractMetric).aggregatedValue;
+	/**
+	 * Bit i is set if the aggregated value of the metric with id i may be outdated.
+	 * If a bit is set for a node, it is set for all ancestors. Metrics with an id above 63 are always stale.
+	 * */
+	public boolean isStale(int metricId){
+		return metricId >= Long.SIZE || (staleMetrics & (1L << metricId)) != 0;
 	}
-	
+
+	/**
+	 * @return true if the aggregated value of any metric may be outdated.
+	 * */
+	public boolean isStale(){
+		return staleMetrics != 0;
+	}
+
+	/**
+	 * Marks the aggregated values of this node and its ancestors as outdated.
+	 * Stops at the first ancestor that is stale for all metrics, since its ancestors are as well.
+	 * */
+	public void markStale(){
+		for(AbstractNode n = this; n != null && n.staleMetrics != ALL_STALE; n = n.parent){
+			n.staleMetrics = ALL_STALE;
+		}
+	}
+
+	/**
+	 * @param metricId provided by AbstractMetric instance
+	 * */
+	public int getNodeValue(int metricId){
+		return 2 * metricId < values.length ? values[2 * metricId] : 0;
+	}
+
+	/**
+	 * @param metricId provided by AbstractMetric instance
+	 * */
+	public void setNodeValue(int metricId, int value){
+		if(getNodeValue(metricId) != value){
+			prepareWrite(metricId);
+			values[2 * metricId] = value;
+			markStale();
+		}
+	}
+
 	/**
 	 * @param key provided by AbstractMetric instance
 	 * */
 	public int getNodeValue(String key){
-		return getValueOrDefaultOf(key).nodeValue;
+		return getNodeValue(MetricRegistry.getId(key));
 	}
-	
+
 	/**
 	 * @param key provided by AbstractMetric instance
 	 * */
 	public void setNodeValue(String key, int value){
-		getValueOrDefaultOf(key).nodeValue = value;
+		setNodeValue(MetricRegistry.getId(key), value);
+	}
+
+	/**
+	 * @return last aggregated value of the metric, without aggregating.
+	 * */
+	public int getAggregatedValue(int metricId){
+		return 2 * metricId + 1 < values.length ? values[2 * metricId + 1] : 0;
+	}
+
+	/**
+	 * Stores the aggregated value of the metric, which is up to date afterwards.
+	 * */
+	public void setAggregatedValue(int metricId, int value){
+		if(getAggregatedValue(metricId) != value){
+			prepareWrite(metricId);
+			values[2 * metricId + 1] = value;
+		}
+		if(metricId < Long.SIZE){
+			staleMetrics &= ~(1L << metricId);
+		}
 	}
 
 	@Override
@@ -201,30 +306,38 @@ public abstract class AbstractNode implements Cloneable, INodeVisitorAccepter {
 		return getParent().getRoot();
 	}
 
-	public String getHybridId() {
+	public HybridId getHybridId() {
 		return hybridId;
 	}
 
-	public void setHybridId(String hybridId) {
+	public void setHybridId(HybridId hybridId) {
 		this.hybridId = hybridId;
-		resetPath();
+	}
+
+	/**
+	 * @return id of this node if it is added to a node with the given id.
+	 * */
+	public HybridId createHybridId(HybridId parentId) {
+		return new HybridId(parentId, scopeName);
 	}
 
 	public void removeFromParent() {
 		parent.removeChild(this);
-		
-		resetPath();
 	}
 
 	public void removeChild(AbstractNode node) {
+		if(children == null){
+			return;
+		}
 		children.remove(node.hybridId);
 		orderedChildren.remove(node);
-		
-		node.resetPath();
+
+		markStale();
 	}
 	
 	/**
-	 * Clones all primitive member variables and metric values. 
+	 * Creates a lightweight copy for the flat and logical views. The copy shares the metric values with 
+	 * this node until either of them changes a value, and keeps the aggregated values until children are added to it.
 	 * The new node has no children and has the same parent as the original node.
 	 * */
 	public AbstractNode shallowClone() {
@@ -232,14 +345,11 @@ public abstract class AbstractNode implements Cloneable, INodeVisitorAccepter {
 			AbstractNode clone = (AbstractNode) super.clone();
 			
 			clone.parent          = parent;
-			clone.children        = new HashMap<String, AbstractNode>();
-			clone.orderedChildren = new ArrayList<AbstractNode>();
-			clone.metricValues    = new HashMap<String, CompositeValue>();
-			
-			for(String k : metricValues.keySet()){
-				clone.metricValues.put(k, CompositeValue.copy(metricValues.get(k)));
-			}
-			
+			clone.children        = null;
+			clone.orderedChildren = null;
+			clone.problems        = problems == null ? null : new ArrayList<IProblem>(problems);
+			shareValuesWith(clone);
+
 			return clone;
 		} 
 		catch (CloneNotSupportedException e) { 
@@ -247,12 +357,50 @@ public abstract class AbstractNode implements Cloneable, INodeVisitorAccepter {
 		}
 	}
 
+	/**
+	 * The node shows the metric values of the other node, e.g. the root of the flat view those of the hybrid root.
+	 * */
+	public void shareValuesOf(AbstractNode node) {
+		node.shareValuesWith(this);
+	}
+
+	private void shareValuesWith(AbstractNode node) {
+		node.values       = values;
+		node.staleMetrics = staleMetrics;
+		if(values.length > 0){
+			sharedValues      = true;
+			node.sharedValues = true;
+		}
+	}
+
 	public void addNodeValuesFrom(AbstractNode copy) {
-		for(String metricKey : metricValues.keySet()){
-			metricValues.get(metricKey).nodeValue += copy.metricValues.get(metricKey).nodeValue;
+		for(int id = 0; id < copy.values.length / 2; id++){
+			if(copy.values[2 * id] != 0){
+				setNodeValue(id, getNodeValue(id) + copy.values[2 * id]);
+			}
 		}
 	}
 	
+	/**
+	 * Problems are stored with the node, so a subtree can be built by its own thread and grafted as a whole.
+	 * */
+	public void addProblem(IProblem problem) {
+		if(problems == null){
+			problems = new ArrayList<IProblem>();
+		}
+		problems.add(problem);
+	}
+
+	/**
+	 * @return problems reported for this node by all metric checkers. Returns empty collection if none reported.
+	 * */
+	public Collection<IProblem> getProblems() {
+		if(problems == null){
+			return Collections.emptyList();
+		}
+		return Collections.unmodifiableCollection(problems);
+	}
+
 	public abstract String getIconPath();
 	
 	public static class EditorInfo{
@@ -272,6 +420,33 @@ public abstract class AbstractNode implements Cloneable, INodeVisitorAccepter {
 			prepareProblemLocation(astNode);
 		}		
 
+		private EditorInfo(){
+		}
+
+		void writeTo(DataOutput out) throws IOException {
+			out.writeUTF(filePath);
+			out.writeInt(nodeOffSet);
+			out.writeInt(nodeLength);
+			out.writeInt(startingLineNumber);
+			out.writeInt(endingLineNumber);
+			out.writeInt(nodeOffSetStart);
+			out.writeInt(nodeOffsetEnd);
+			out.writeBoolean(isEclosedInMacroExpansion);
+		}
+
+		static EditorInfo readFrom(DataInput in) throws IOException {
+			EditorInfo info                = new EditorInfo();
+			info.filePath                  = in.readUTF();
+			info.nodeOffSet                = in.readInt();
+			info.nodeLength                = in.readInt();
+			info.startingLineNumber        = in.readInt();
+			info.endingLineNumber          = in.readInt();
+			info.nodeOffSetStart           = in.readInt();
+			info.nodeOffsetEnd             = in.readInt();
+			info.isEclosedInMacroExpansion = in.readBoolean();
+			return info;
+		}
+
 		public String getFilePath() {
 			return filePath;
 		}
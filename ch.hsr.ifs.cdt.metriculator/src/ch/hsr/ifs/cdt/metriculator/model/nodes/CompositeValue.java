@@ -24,7 +24,7 @@ public final class CompositeValue {
 		return new CompositeValue(c.nodeValue, c.aggregatedValue);
 	}
 	
-	private CompositeValue(int nodeValue, int aggregatedValue){
+	CompositeValue(int nodeValue, int aggregatedValue){
 		this.nodeValue = nodeValue;
 		this.aggregatedValue = aggregatedValue;
 	}
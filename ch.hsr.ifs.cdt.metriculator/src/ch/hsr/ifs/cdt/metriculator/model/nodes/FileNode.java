@@ -17,12 +17,16 @@ import org.eclipse.cdt.utils.PathUtil;
 import org.eclipse.core.runtime.Path;
 
 import ch.hsr.ifs.cdt.metriculator.model.INodeVisitor;
+import ch.hsr.ifs.cdt.metriculator.model.IncludeClosure;
 import ch.hsr.ifs.cdt.metriculator.resources.Icon;
 
 public class FileNode extends AbstractNode {
 
 	private String projectRelativePath;
 	private boolean isHeaderUnit = false;
+	private String resourcePath;
+	private long modificationStamp;
+	private IncludeClosure includes;
 	
 	public FileNode(String name) {
 		super(name);
@@ -43,6 +47,40 @@ public class FileNode extends AbstractNode {
 		return isHeaderUnit;
 	}
 
+	void setHeaderUnit(boolean isHeaderUnit) {
+		this.isHeaderUnit = isHeaderUnit;
+	}
+
+	/**
+	 * Remembers the workspace file and its state at the time this node was analysed.
+	 * */
+	public void setAnalysedResource(String resourcePath, long modificationStamp) {
+		this.resourcePath      = resourcePath;
+		this.modificationStamp = modificationStamp;
+	}
+
+	/**
+	 * @return full workspace path of the analysed file, null if this node was not built from a workspace file.
+	 * */
+	public String getResourcePath() {
+		return resourcePath;
+	}
+
+	public long getModificationStamp() {
+		return modificationStamp;
+	}
+
+	public void setIncludes(IncludeClosure includes) {
+		this.includes = includes;
+	}
+
+	/**
+	 * @return the files included by the analysed file at the time it was analysed, null if unknown.
+	 * */
+	public IncludeClosure getIncludes() {
+		return includes;
+	}
+
 	@Override
 	public String toString() {
 
@@ -20,6 +20,10 @@ import ch.hsr.ifs.cdt.metriculator.resources.Icon;
 
 public class FolderNode extends AbstractNode {
 
+	public FolderNode(String scopeUniqueName) {
+		super(scopeUniqueName);
+	}
+
 	public FolderNode(IASTTranslationUnit tu, String scopeUniqueName) {
 		super(scopeUniqueName, tu);
 	}
@@ -20,6 +20,10 @@ import ch.hsr.ifs.cdt.metriculator.model.INodeVisitor;
 
 public class FunctionDeclNode extends FunctionNode {
 
+	public FunctionDeclNode(String scopeUniqueName) {
+		super(scopeUniqueName);
+	}
+
 	public FunctionDeclNode(ICPPASTFunctionDeclarator fnNode) {
 		super(fnNode.getRawSignature(), fnNode);
 	}
@@ -0,0 +1,110 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model.nodes;
+
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
+import ch.hsr.ifs.cdt.metriculator.model.AbstractTreeBuilder;
+
+/**
+ * Identifies a node in the hybrid tree by the id of its parent and its own scope name.
+ * Names are shared through a name table, the hash code is computed once, so ids of siblings are compared in constant time.
+ * The full path is only built by {@link #toString()}.
+ * */
+public final class HybridId {
+
+	private static final WeakHashMap<String, WeakReference<String>> names = new WeakHashMap<String, WeakReference<String>>();
+
+	private final HybridId parent;
+	private final String name;
+	private final int discriminator;
+	private final int hash;
+
+	/**
+	 * @param parent id of the parent node, null for the root
+	 * @param discriminator distinguishes nodes with equal names, e.g. the AST hash code of logical nodes. 0 for none.
+	 * */
+	public HybridId(HybridId parent, String name, int discriminator) {
+		this.parent        = parent;
+		this.name          = intern(name);
+		this.discriminator = discriminator;
+		this.hash          = 31 * (31 * (parent == null ? 0 : parent.hash) + this.name.hashCode()) + discriminator;
+	}
+
+	public HybridId(HybridId parent, String name) {
+		this(parent, name, 0);
+	}
+
+	private static String intern(String name) {
+		synchronized (names) {
+			WeakReference<String> ref = names.get(name);
+			String interned           = ref == null ? null : ref.get();
+			if(interned == null){
+				interned = name;
+				names.put(interned, new WeakReference<String>(interned));
+			}
+			return interned;
+		}
+	}
+
+	public HybridId getParent() {
+		return parent;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(this == obj){
+			return true;
+		}
+		if(!(obj instanceof HybridId)){
+			return false;
+		}
+
+		HybridId other = (HybridId) obj;
+		if(hash != other.hash || name != other.name || discriminator != other.discriminator){
+			return false;
+		}
+		return parent == other.parent || (parent != null && parent.equals(other.parent));
+	}
+
+	/**
+	 * @return path from the root id down to this one, separated by {@link AbstractTreeBuilder#PATH_SEPARATOR}.
+	 * */
+	@Override
+	public String toString() {
+		StringBuilder path = new StringBuilder();
+		appendTo(path);
+		return path.toString();
+	}
+
+	private void appendTo(StringBuilder path) {
+		if(parent != null){
+			parent.appendTo(path);
+			path.append(AbstractTreeBuilder.PATH_SEPARATOR);
+		}
+		path.append(name);
+		if(discriminator != 0){
+			path.append(discriminator);
+		}
+	}
+}
@@ -18,7 +18,7 @@ import org.eclipse.cdt.core.dom.ast.IASTNode;
 public abstract class LogicNode extends AbstractNode {
 
 	protected boolean isFriend       = false;
-	protected String astNodeHashCode = "";
+	protected int astNodeHashCode    = 0;
 	
 	public final static String ANONYMOUS_LABEL = "(anonymous)"; //$NON-NLS-1$
 	
@@ -28,7 +28,21 @@ public abstract class LogicNode extends AbstractNode {
 	
 	protected LogicNode(String scopeUniqueName, IASTNode astNode) {
 		super(scopeUniqueName, astNode);
-		astNodeHashCode = Integer.valueOf(astNode.hashCode()).toString();
+		astNodeHashCode = astNode.hashCode();
+	}
+
+	/**
+	 * @return hash code of the AST node this node was created from, it tells apart siblings with equal names. 0 if there was none.
+	 * */
+	public int getAstNodeHashCode() {
+		return astNodeHashCode;
+	}
+
+	/**
+	 * Restores the hash code of a node read from a snapshot, it has to be set before the hybrid id is created.
+	 * */
+	public void setAstNodeHashCode(int astNodeHashCode) {
+		this.astNodeHashCode = astNodeHashCode;
 	}
 
 	public boolean isAnonymous(){
@@ -42,6 +56,17 @@ public abstract class LogicNode extends AbstractNode {
 	
 	@Override
 	public String getScopeUniqueName() {
+		if(astNodeHashCode == 0){
+			return scopeName;
+		}
 		return new StringBuilder(scopeName).append(astNodeHashCode).toString();
 	}
+
+	/**
+	 * The AST hash code is kept apart from the name, so the name can be shared with other ids.
+	 * */
+	@Override
+	public HybridId createHybridId(HybridId parentId) {
+		return new HybridId(parentId, scopeName, astNodeHashCode);
+	}
 }
@@ -0,0 +1,203 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.model.nodes;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.LinkedList;
+
+/**
+ * Writes the subtree of a FileNode, including the folders down to it, in a compact binary form and reads it back.
+ * Node values, editor infos and the logical names of members are kept, aggregated values and index bindings are not.
+ * */
+public final class NodeSerializer {
+
+	private static final byte FOLDER        = 0;
+	private static final byte FILE          = 1;
+	private static final byte NAMESPACE     = 2;
+	private static final byte TYPE_DEF      = 3;
+	private static final byte TYPE_DECL     = 4;
+	private static final byte FUNCTION_DEF  = 5;
+	private static final byte FUNCTION_DECL = 6;
+
+	private NodeSerializer(){
+	}
+
+	public static void writeFile(FileNode file, DataOutput out) throws IOException {
+		LinkedList<AbstractNode> folders = new LinkedList<AbstractNode>();
+		for(AbstractNode n = file.getParent(); n instanceof FolderNode; n = n.getParent()){
+			folders.addFirst(n);
+		}
+
+		out.writeShort(folders.size());
+		for(AbstractNode folder : folders){
+			writeNode(folder, out);
+		}
+		writeSubtree(file, out);
+	}
+
+	/**
+	 * @param hybridIdPrefix hybrid id of the node the topmost folder will be added to
+	 * @return the file node, its topmost folder is returned by getRoot()
+	 * */
+	public static FileNode readFile(DataInput in, HybridId hybridIdPrefix) throws IOException {
+		int folderCount     = in.readUnsignedShort();
+		AbstractNode parent = null;
+
+		for(int i = 0; i < folderCount; i++){
+			parent = attach(parent, hybridIdPrefix, readNode(in));
+		}
+
+		AbstractNode file = readSubtree(in, parent, hybridIdPrefix);
+		if(!(file instanceof FileNode)){
+			throw new IOException("file node expected"); //$NON-NLS-1$
+		}
+		return (FileNode) file;
+	}
+
+	private static void writeSubtree(AbstractNode node, DataOutput out) throws IOException {
+		writeNode(node, out);
+
+		out.writeInt(node.getChildren().size());
+		for(AbstractNode child : node.getChildren()){
+			writeSubtree(child, out);
+		}
+	}
+
+	private static AbstractNode readSubtree(DataInput in, AbstractNode parent, HybridId hybridIdPrefix) throws IOException {
+		AbstractNode node = attach(parent, hybridIdPrefix, readNode(in));
+
+		int childCount = in.readInt();
+		for(int i = 0; i < childCount; i++){
+			readSubtree(in, node, hybridIdPrefix);
+		}
+		return node;
+	}
+
+	private static AbstractNode attach(AbstractNode parent, HybridId hybridIdPrefix, AbstractNode node) {
+		HybridId parentId = parent == null ? hybridIdPrefix : parent.getHybridId();
+		node.setHybridId(node.createHybridId(parentId));
+
+		return parent == null ? node : parent.add(node);
+	}
+
+	private static void writeNode(AbstractNode node, DataOutput out) throws IOException {
+		out.writeByte(getTag(node));
+		out.writeUTF(node.getScopeName());
+
+		if(node instanceof LogicNode){
+			out.writeInt(((LogicNode) node).astNodeHashCode);
+			out.writeBoolean(((LogicNode) node).isFriend);
+		}
+		if(node instanceof MemberNode){
+			out.writeBoolean(((MemberNode) node).isMember);
+			out.writeUTF(((MemberNode) node).logicalName);
+			out.writeUTF(((MemberNode) node).logicalOwnerName);
+		}
+		if(node instanceof TypeNode){
+			out.writeInt(((TypeNode) node).typeKey);
+		}
+		if(node instanceof FileNode){
+			out.writeBoolean(((FileNode) node).isHeaderUnit());
+		}
+
+		out.writeBoolean(node.getEditorInfo() != null);
+		if(node.getEditorInfo() != null){
+			node.getEditorInfo().writeTo(out);
+		}
+
+		out.writeShort(node.getMetricKeys().size());
+		for(String key : node.getMetricKeys()){
+			out.writeUTF(key);
+			out.writeInt(node.getNodeValue(key));
+		}
+	}
+
+	private static AbstractNode readNode(DataInput in) throws IOException {
+		byte tag          = in.readByte();
+		AbstractNode node = createNode(tag, in.readUTF());
+
+		if(node instanceof LogicNode){
+			((LogicNode) node).astNodeHashCode = in.readInt();
+			((LogicNode) node).isFriend        = in.readBoolean();
+		}
+		if(node instanceof MemberNode){
+			((MemberNode) node).isMember         = in.readBoolean();
+			((MemberNode) node).logicalName      = in.readUTF();
+			((MemberNode) node).logicalOwnerName = in.readUTF();
+		}
+		if(node instanceof TypeNode){
+			((TypeNode) node).typeKey = in.readInt();
+		}
+		if(node instanceof FileNode){
+			((FileNode) node).setHeaderUnit(in.readBoolean());
+		}
+
+		if(in.readBoolean()){
+			node.setEditorInfo(AbstractNode.EditorInfo.readFrom(in));
+		}
+
+		int valueCount = in.readUnsignedShort();
+		for(int i = 0; i < valueCount; i++){
+			node.setNodeValue(in.readUTF(), in.readInt());
+		}
+		return node;
+	}
+
+	private static byte getTag(AbstractNode node) throws IOException {
+		if(node instanceof FolderNode){
+			return FOLDER;
+		}
+		if(node instanceof FileNode){
+			return FILE;
+		}
+		if(node instanceof NamespaceNode){
+			return NAMESPACE;
+		}
+		if(node instanceof TypeDefNode){
+			return TYPE_DEF;
+		}
+		if(node instanceof TypeDeclNode){
+			return TYPE_DECL;
+		}
+		if(node instanceof FunctionDefNode){
+			return FUNCTION_DEF;
+		}
+		if(node instanceof FunctionDeclNode){
+			return FUNCTION_DECL;
+		}
+		throw new IOException("unsupported node " + node.getClass().getName()); //$NON-NLS-1$
+	}
+
+	private static AbstractNode createNode(byte tag, String scopeName) throws IOException {
+		switch(tag){
+			case FOLDER:
+				return new FolderNode(scopeName);
+			case FILE:
+				return new FileNode(scopeName);
+			case NAMESPACE:
+				return new NamespaceNode(scopeName);
+			case TYPE_DEF:
+				return new TypeDefNode(scopeName);
+			case TYPE_DECL:
+				return new TypeDeclNode(scopeName);
+			case FUNCTION_DEF:
+				return new FunctionDefNode(scopeName);
+			case FUNCTION_DECL:
+				return new FunctionDeclNode(scopeName);
+			default:
+				throw new IOException("unknown node tag " + tag); //$NON-NLS-1$
+		}
+	}
+}
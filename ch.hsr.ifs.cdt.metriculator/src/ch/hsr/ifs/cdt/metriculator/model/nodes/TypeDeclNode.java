@@ -21,6 +21,10 @@ import ch.hsr.ifs.cdt.metriculator.model.INodeVisitor;
 
 public class TypeDeclNode extends TypeNode {
 
+	public TypeDeclNode(String scopeUniqueName) {
+		super(scopeUniqueName);
+	}
+
 	public TypeDeclNode(ICPPASTElaboratedTypeSpecifier astNode) {
 		super(astNode.getName().toString(), astNode);
 		typeKey = astNode.getKind();
@@ -22,7 +22,7 @@ public class WorkspaceNode extends AbstractNode implements INodeVisitorAccepter
 	
 	public WorkspaceNode(String name) {
 		super(name);
-		setHybridId(name);
+		setHybridId(new HybridId(null, name));
 	}
 
 	@Override
@@ -0,0 +1,28 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.preferences;
+
+import org.eclipse.core.runtime.preferences.AbstractPreferenceInitializer;
+
+import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
+
+/**
+ * Sets the default values of the preferences of the plug-in.
+ * */
+public class MetriculatorPreferenceInitializer extends AbstractPreferenceInitializer {
+
+	@Override
+	public void initializeDefaultPreferences() {
+		MetriculatorPluginActivator.getDefault().getPreferenceStore().setDefault(MetriculatorPluginActivator.PREF_ANALYSIS_THREADS, MetriculatorPluginActivator.DEFAULT_ANALYSIS_THREADS);
+	}
+}
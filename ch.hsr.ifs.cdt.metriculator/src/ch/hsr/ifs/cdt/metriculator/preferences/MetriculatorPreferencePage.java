@@ -0,0 +1,46 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.preferences;
+
+import org.eclipse.jface.preference.FieldEditorPreferencePage;
+import org.eclipse.jface.preference.IntegerFieldEditor;
+import org.eclipse.ui.IWorkbench;
+import org.eclipse.ui.IWorkbenchPreferencePage;
+
+import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
+import ch.hsr.ifs.cdt.metriculator.resources.MetricLabels;
+
+/**
+ * Preferences of the analysis that are not metric problem preferences, those are set in the Codan preferences.
+ * */
+public class MetriculatorPreferencePage extends FieldEditorPreferencePage implements IWorkbenchPreferencePage {
+
+	private static final int MAX_ANALYSIS_THREADS = 64;
+
+	public MetriculatorPreferencePage() {
+		super(GRID);
+		setPreferenceStore(MetriculatorPluginActivator.getDefault().getPreferenceStore());
+		setDescription(MetricLabels.PreferencePage_description);
+	}
+
+	@Override
+	public void init(IWorkbench workbench) {
+	}
+
+	@Override
+	protected void createFieldEditors() {
+		IntegerFieldEditor threads = new IntegerFieldEditor(MetriculatorPluginActivator.PREF_ANALYSIS_THREADS, MetricLabels.ANALYSIS_THREADS, getFieldEditorParent());
+		threads.setValidRange(1, MAX_ANALYSIS_THREADS);
+		addField(threads);
+	}
+}
@@ -6,11 +6,16 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
+import java.util.List;
 
 import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.SubMonitor;
 import org.osgi.framework.Bundle;
 
 import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
@@ -20,7 +25,11 @@ import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
 public abstract class FileReportGenerator {
 
 	public static final String CONFIG_EXPORT_DIR = "export_path";
+	public static final String CONFIG_REVEAL_RESULT = "reveal_result";
+	public static final int TOTAL_WORK = 100;
 	protected IPath export_to_dir = Path.EMPTY;
+	protected boolean reveal_result = true;
+	protected SubMonitor progress = SubMonitor.convert(null);
 	Collection<AbstractMetric> metrics;
 	AbstractNode root;
 
@@ -62,7 +71,46 @@ public abstract class FileReportGenerator {
 		}
 	}
 
-	private static File createFile(String filename) {
+	/**
+	 * Sets the monitor the next {@link #run(ReportConfigurationStore, AbstractNode, Collection)} reports to and checks for cancellation.
+	 * The report's phases share {@link #TOTAL_WORK} units of work.
+	 * */
+	public void setProgressMonitor(IProgressMonitor monitor) {
+		progress = SubMonitor.convert(monitor, TOTAL_WORK);
+	}
+
+	/**
+	 * Starts the next phase of the report.
+	 * @param share units of the total work the phase takes
+	 * @param nodes number of nodes processed in the phase, the returned monitor expects one unit of work per node
+	 * @throws OperationCanceledException if the report was canceled
+	 * */
+	protected IProgressMonitor beginPhase(String name, int share, int nodes) {
+		checkCanceled();
+		progress.subTask(name);
+		SubMonitor phase = progress.newChild(share);
+		phase.setWorkRemaining(Math.max(1, nodes));
+		return phase;
+	}
+
+	protected void checkCanceled() {
+		if(progress.isCanceled()){
+			throw new OperationCanceledException();
+		}
+	}
+
+	protected static int countNodes(AbstractNode root) {
+		int count               = 0;
+		List<AbstractNode> stack = new ArrayList<AbstractNode>();
+		stack.add(root);
+		while(!stack.isEmpty()){
+			count++;
+			stack.addAll(stack.remove(stack.size() - 1).getChildren());
+		}
+		return count;
+	}
+
+	protected static File createFile(String filename) {
 		File file = new File(filename);
 		file.getParentFile().mkdirs();
 		try {
@@ -73,7 +121,14 @@ public abstract class FileReportGenerator {
 		return file;
 	}
 	
+	protected void readFileConfiguration(ReportConfigurationStore configuration) {
+		reveal_result = (Boolean) configuration.get(FileReportGenerator.class, CONFIG_REVEAL_RESULT, reveal_result);
+	}
+
 	protected void openPathWithDefaultHandler(IPath filename) {
+		if(!reveal_result){
+			return;
+		}
 		File file = new File(filename.toOSString());
 		try {
 			if (System.getProperty("os.name").toLowerCase().contains("windows")) {
@@ -88,6 +143,9 @@ public abstract class FileReportGenerator {
 	}
 
 	protected void selectPathInOSFileBrowser(IPath filename) {
+		if(!reveal_result){
+			return;
+		}
 		File file = new File(filename.toOSString());
 		try {
 			String osname = System.getProperty("os.name").toLowerCase();
@@ -1,25 +1,33 @@
 package ch.hsr.ifs.cdt.metriculator.report;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.Source;
 import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
 import javax.xml.transform.TransformerException;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 
 import org.eclipse.core.runtime.IPath;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
 
 import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
-import ch.hsr.ifs.cdt.metriculator.model.converters.MetriculatorToXMLConverter;
-import ch.hsr.ifs.cdt.metriculator.model.converters.MetriculatorXMLDocument;
+import ch.hsr.ifs.cdt.metriculator.model.converters.MetriculatorToXMLStreamWriter;
+import ch.hsr.ifs.cdt.metriculator.model.converters.ModelToJSONPChunkWriter;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.WorkspaceNode;
 import ch.hsr.ifs.cdt.metriculator.report.views.ConfigurationView;
 import ch.hsr.ifs.cdt.metriculator.report.views.FileReportConfigurationView;
 import ch.hsr.ifs.cdt.metriculator.report.views.HTMLReportConfigurationView;
@@ -29,8 +37,12 @@ public class HTMLReportGenerator extends FileReportGenerator implements IConfigu
 
 	private static final String RESOURCES_BASE_PATH = "/export-resources/reports/html/";
 	public static final String CONFIG_REPORT = "report_template";
+	public static final String CONFIG_WRITE_MODEL = "write_model";
+	public static final String REPORT_SHARDED = "sharded";
+	private static final HashMap<String, Templates> templates = new HashMap<String, Templates>();
 	public String theme = "simple";
 	public String report = "static";
+	public boolean writeModel = true;
 	public HTMLReportGenerator() {
 		super();
 	}
@@ -38,51 +50,111 @@ public class HTMLReportGenerator extends FileReportGenerator implements IConfigu
 	@Override
 	public void run(ReportConfigurationStore configStore, AbstractNode root, Collection<AbstractMetric> metrics) throws Exception{
 		readConfiguration(configStore);
-		
-		MetriculatorToXMLConverter x = new MetriculatorToXMLConverter();
-		x.convert(root, metrics);
-
-		MetriculatorXMLDocument doc = x.getResult();
-		injectProperties(doc);
+		int nodes = countNodes(root);
 		
 		export_to_dir = export_to_dir.append(report);
+		beginPhase("Copying report resources", 10, 1);
 		copyResourcesTo(export_to_dir);
 		
-		IPath xmlFilename = export_to_dir.append("model").addFileExtension("xml");
-		String xml = x.getFormattedXML();
-		writeTo(xmlFilename, xml);
+		MetriculatorToXMLStreamWriter model = createXMLWriter();
+		if(writeModel){
+			IPath xmlFilename = export_to_dir.append("model").addFileExtension("xml");
+			model.setProgressMonitor(beginPhase("Writing model.xml", 20, nodes));
+			model.write(root, metrics, createFile(xmlFilename.toOSString()));
+		}
 		
 		IPath htmlFilename = export_to_dir.append("index").addFileExtension("html");
-		StreamSource xmlStream = new StreamSource(new File(xmlFilename.toOSString()));
-		StreamSource xslStream = new StreamSource(getProjectFile(RESOURCES_BASE_PATH+report+"/html.xslt"));		
+		AbstractNode pageRoot = root;
+		if(REPORT_SHARDED.equals(report)){
+			// the page only holds the header, the nodes are loaded from the chunks on demand
+			ModelToJSONPChunkWriter data = new ModelToJSONPChunkWriter(metrics);
+			data.setProgressMonitor(beginPhase("Writing report data", 30, nodes));
+			pageRoot = new WorkspaceNode(root.getScopeName());
+			data.write(root, export_to_dir.append("data").toFile(), Runtime.getRuntime().availableProcessors());
+		}
 		/*
 		 * if u get angry here, try setting your system locale to USA
 		 * http://netbeans.org/bugzilla/show_bug.cgi?id=64574
 		 * */
-		transform(xmlStream, xslStream, new StreamResult(htmlFilename.toOSString()));
+		model.setProgressMonitor(beginPhase("Transforming report", 40, pageRoot == root ? nodes : 1));
+		transform(model.createSource(pageRoot, metrics), htmlFilename.toFile());
+		checkCanceled();
 		selectPathInOSFileBrowser(htmlFilename);
 	}
 
-	private void injectProperties(MetriculatorXMLDocument xml) {
-		Node propEl = xml.propertiesElement;
-
-		Element themeEl = xml.doc.createElement("theme");
-		themeEl.setAttribute("name", theme);
-		propEl.appendChild(themeEl);
+	/**
+	 * The model is streamed to the file while the tree is walked, so no copy of the report is kept in memory.
+	 * */
+	private MetriculatorToXMLStreamWriter createXMLWriter() {
+		return new MetriculatorToXMLStreamWriter(){
+			@Override
+			protected void writeAdditionalProperties() throws XMLStreamException {
+				emptyElement("theme");
+				xml.writeAttribute("name", theme);
+			}
+		};
 	}
 
-	private void transform(StreamSource xmlStream, StreamSource xslStream, StreamResult result)  {
+	/**
+	 * Writes the transformed report to the file. If the transformation fails or is canceled, the incomplete file is deleted.
+	 * */
+	private void transform(Source xmlSource, File file) throws TransformerException, IOException {
+		OutputStream out  = new BufferedOutputStream(new FileOutputStream(file));
+		boolean completed = false;
 		try {
-			TransformerFactory factory = TransformerFactory.newInstance();
-			Templates template = factory.newTemplates(xslStream);
-			Transformer transformer = template.newTransformer();
+			Transformer transformer = getTemplates(report).newTransformer();
 
-			transformer.transform(xmlStream, result);
+			transformer.transform(xmlSource, new StreamResult(out));
+			completed = true;
 		} catch (TransformerException e) {
+			checkCanceled(); // the transformer wraps the cancellation of the model writer
+			throw e;
+		} finally {
+			out.close();
+			if(!completed){
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * @return the compiled stylesheet of the report, it is compiled on first use and kept until {@link #clearTemplates()}.
+	 * */
+	private Templates getTemplates(String report) throws TransformerConfigurationException {
+		synchronized (templates) {
+			Templates template = templates.get(report);
+			if(template == null){
+				InputStream xsl = getProjectFile(RESOURCES_BASE_PATH+report+"/html.xslt");
+				try {
+					template = TransformerFactory.newInstance().newTemplates(new StreamSource(xsl));
+				} finally {
+					close(xsl);
+				}
+				templates.put(report, template);
+			}
+			return template;
+		}
+	}
+
+	private static void close(InputStream stream) {
+		try {
+			if(stream != null){
+				stream.close();
+			}
+		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 
+	/**
+	 * Drops the compiled stylesheets, e.g. when the plug-in is stopped.
+	 * */
+	public static void clearTemplates() {
+		synchronized (templates) {
+			templates.clear();
+		}
+	}
+
 	private void copyResourcesTo(IPath export_location) {
 		copyBundleFolder(RESOURCES_BASE_PATH + report, export_location);
 	}
@@ -96,7 +168,9 @@ public class HTMLReportGenerator extends FileReportGenerator implements IConfigu
 	}
 
 	public void readConfiguration(ReportConfigurationStore configuration) {
+		readFileConfiguration(configuration);
 		report = (String) configuration.get(this.getClass(), CONFIG_REPORT, report);
+		writeModel = (Boolean) configuration.get(this.getClass(), CONFIG_WRITE_MODEL, writeModel);
 		export_to_dir = (IPath) configuration.get(FileReportGenerator.class, FileReportGenerator.CONFIG_EXPORT_DIR, export_to_dir);
 	}
 }
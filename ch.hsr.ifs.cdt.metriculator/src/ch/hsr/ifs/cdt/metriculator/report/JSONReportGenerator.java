@@ -0,0 +1,19 @@
+package ch.hsr.ifs.cdt.metriculator.report;
+
+import java.nio.channels.WritableByteChannel;
+
+import ch.hsr.ifs.cdt.metriculator.model.converters.AbstractModelStreamConverter;
+import ch.hsr.ifs.cdt.metriculator.model.converters.ModelToJSONConverter;
+
+public class JSONReportGenerator extends StreamReportGenerator {
+
+	@Override
+	protected AbstractModelStreamConverter createConverter(WritableByteChannel channel) {
+		return new ModelToJSONConverter(channel);
+	}
+
+	@Override
+	protected String getFileExtension() {
+		return "json";
+	}
+}
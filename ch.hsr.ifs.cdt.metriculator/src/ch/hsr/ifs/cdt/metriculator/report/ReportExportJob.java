@@ -0,0 +1,86 @@
+package ch.hsr.ifs.cdt.metriculator.report;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.MetricAggregator;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+
+/**
+ * Runs a report generator in the background. The generator reports its phases to the progress monitor of the job
+ * and stops when the job is canceled.
+ * */
+public class ReportExportJob extends Job {
+
+	/**
+	 * Family of all report jobs, see {@link Job#belongsTo(Object)}.
+	 * */
+	public static final Object FAMILY = ReportExportJob.class;
+
+	private final FileReportGenerator generator;
+	private final ReportConfigurationStore configStore;
+	private final AbstractNode root;
+	private final Collection<AbstractMetric> metrics;
+
+	public ReportExportJob(String name, FileReportGenerator generator, ReportConfigurationStore configStore, AbstractNode root, Collection<AbstractMetric> metrics) {
+		super(name);
+		this.generator   = generator;
+		this.configStore = configStore;
+		this.root        = root;
+		this.metrics     = metrics;
+		setUser(true);
+		setPriority(Job.LONG);
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		try{
+			if(monitor.isCanceled()){
+				return Status.CANCEL_STATUS;
+			}
+			monitor.beginTask(getName(), FileReportGenerator.TOTAL_WORK);
+			generator.setProgressMonitor(monitor);
+			generator.run(configStore, root, metrics);
+			return Status.OK_STATUS;
+		} catch (OperationCanceledException e) {
+			return Status.CANCEL_STATUS;
+		} catch (Exception e) {
+			return new Status(IStatus.ERROR, MetriculatorPluginActivator.PLUGIN_ID, getName() + " failed", e);
+		}finally{
+			monitor.done();
+		}
+	}
+
+	@Override
+	public boolean belongsTo(Object family) {
+		return family == FAMILY;
+	}
+
+	/**
+	 * Schedules a job per generator, the jobs run at the same time over the same tree.
+	 * The aggregated values of the tree are computed before, so the jobs only read the tree.
+	 * The root keeps its values, it may show the totals of another tree, e.g. as root of a flat tree.
+	 * @param names names of the jobs, in the order of the generators
+	 * @return the scheduled jobs
+	 * */
+	public static List<ReportExportJob> scheduleAll(List<String> names, List<? extends FileReportGenerator> generators, ReportConfigurationStore configStore, AbstractNode root, Collection<AbstractMetric> metrics) {
+		new MetricAggregator(metrics).aggregateChildrenOf(root);
+
+		List<ReportExportJob> jobs = new ArrayList<ReportExportJob>();
+		for(int i = 0; i < generators.size(); i++){
+			ReportExportJob job = new ReportExportJob(names.get(i), generators.get(i), configStore, root, metrics);
+			job.schedule();
+			jobs.add(job);
+		}
+		return jobs;
+	}
+}
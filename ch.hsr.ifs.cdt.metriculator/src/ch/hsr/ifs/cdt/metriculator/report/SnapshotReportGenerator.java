@@ -0,0 +1,47 @@
+package ch.hsr.ifs.cdt.metriculator.report;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.ColumnarSnapshotWriter;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.report.views.ConfigurationView;
+import ch.hsr.ifs.cdt.metriculator.report.views.FileReportConfigurationView;
+import ch.hsr.ifs.cdt.metriculator.report.views.IConfigurableReport;
+
+/**
+ * Archives the run as binary snapshot, which the view can open again without analysing the code.
+ * */
+public class SnapshotReportGenerator extends FileReportGenerator implements IConfigurableReport {
+
+	@Override
+	public void run(ReportConfigurationStore configStore, AbstractNode root, Collection<AbstractMetric> metrics) throws Exception {
+		readConfiguration(configStore);
+
+		IPath filename = export_to_dir.append("metrics").addFileExtension(ColumnarSnapshotWriter.FILE_EXTENSION);
+		ColumnarSnapshotWriter writer = new ColumnarSnapshotWriter(metrics);
+		writer.setProgressMonitor(beginPhase("Writing snapshot", TOTAL_WORK, countNodes(root)));
+		writer.write(root, createFile(filename.toOSString()));
+		selectPathInOSFileBrowser(filename);
+	}
+
+	@Override
+	public List<ConfigurationView> getConfigurationViews(ReportConfigurationStore config) {
+		List<ConfigurationView> views = new ArrayList<ConfigurationView>();
+		views.add(new FileReportConfigurationView(config));
+		return views;
+	}
+
+	public void readConfiguration(ReportConfigurationStore configuration) {
+		readFileConfiguration(configuration);
+		this.export_to_dir = (IPath) configuration.get(FileReportGenerator.class, FileReportGenerator.CONFIG_EXPORT_DIR, this.export_to_dir);
+		if (export_to_dir.isEmpty()) {
+			export_to_dir = Path.fromOSString(System.getProperty("user.home")).append("metriculator-export");
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package ch.hsr.ifs.cdt.metriculator.report;
+
+import java.io.FileOutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.Path;
+
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.converters.AbstractModelStreamConverter;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.report.views.ConfigurationView;
+import ch.hsr.ifs.cdt.metriculator.report.views.FileReportConfigurationView;
+import ch.hsr.ifs.cdt.metriculator.report.views.IConfigurableReport;
+import ch.hsr.ifs.cdt.metriculator.report.views.MetricSelectionConfigurationView;
+
+/**
+ * Writes the tree with a streaming converter directly into the report file, only the chosen metrics are written.
+ * */
+public abstract class StreamReportGenerator extends FileReportGenerator implements IConfigurableReport {
+
+	public static final String CONFIG_METRICS = "metrics";
+	private Collection<AbstractMetric> selectedMetrics;
+
+	@Override
+	public void run(ReportConfigurationStore configStore, AbstractNode root, Collection<AbstractMetric> metrics) throws Exception {
+		readConfiguration(configStore, metrics);
+
+		IPath filename = export_to_dir.append("metrics").addFileExtension(getFileExtension());
+		FileOutputStream fos = new FileOutputStream(createFile(filename.toOSString()));
+		try {
+			AbstractModelStreamConverter converter = createConverter(fos.getChannel());
+			converter.setProgressMonitor(beginPhase("Writing " + getFileExtension().toUpperCase() + " report", TOTAL_WORK, countNodes(root)));
+			converter.convert(root, selectedMetrics);
+			if(converter.getError() != null){
+				throw converter.getError();
+			}
+		} finally {
+			fos.close();
+		}
+		selectPathInOSFileBrowser(filename);
+	}
+
+	protected abstract AbstractModelStreamConverter createConverter(WritableByteChannel channel);
+
+	protected abstract String getFileExtension();
+
+	@Override
+	public List<ConfigurationView> getConfigurationViews(ReportConfigurationStore config) {
+		List<ConfigurationView> views = new ArrayList<ConfigurationView>();
+		views.add(new FileReportConfigurationView(config));
+		views.add(new MetricSelectionConfigurationView(config));
+		return views;
+	}
+
+	@SuppressWarnings("unchecked")
+	public void readConfiguration(ReportConfigurationStore configuration, Collection<AbstractMetric> metrics) {
+		readFileConfiguration(configuration);
+		selectedMetrics = (Collection<AbstractMetric>) configuration.get(StreamReportGenerator.class, CONFIG_METRICS, metrics);
+		export_to_dir = (IPath) configuration.get(FileReportGenerator.class, FileReportGenerator.CONFIG_EXPORT_DIR, export_to_dir);
+		if (export_to_dir.isEmpty()) {
+			export_to_dir = Path.fromOSString(System.getProperty("user.home")).append("metriculator-export");
+		}
+	}
+}
@@ -1,5 +1,9 @@
 package ch.hsr.ifs.cdt.metriculator.report;
 
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -8,24 +12,43 @@ import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
 
 import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
-import ch.hsr.ifs.cdt.metriculator.model.converters.IModelConverter;
-import ch.hsr.ifs.cdt.metriculator.model.converters.ModelToASCIIConverter;
+import ch.hsr.ifs.cdt.metriculator.model.converters.TextReportWriter;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
 import ch.hsr.ifs.cdt.metriculator.report.views.ConfigurationView;
 import ch.hsr.ifs.cdt.metriculator.report.views.FileReportConfigurationView;
 import ch.hsr.ifs.cdt.metriculator.report.views.IConfigurableReport;
+import ch.hsr.ifs.cdt.metriculator.report.views.TextReportConfigurationView;
 
+/**
+ * Streams the rows of the text report into the file, the report is never held in memory as a whole.
+ * */
 public class TextReportGenerator extends FileReportGenerator implements IConfigurableReport {
 
+	public static final String CONFIG_MAX_DEPTH  = "max_depth";
+	public static final String CONFIG_TOP_COUNT  = "top_count";
+	public static final String CONFIG_TOP_METRIC = "top_metric";
+	private static final int BUFFER_SIZE         = 64 * 1024;
+
+	private int maxDepth = -1;
+	private int topCount = 0;
+	private AbstractMetric topMetric;
+
 	@Override
-	public void run(ReportConfigurationStore configStore, AbstractNode root, Collection<AbstractMetric> metrics) {
+	public void run(ReportConfigurationStore configStore, AbstractNode root, Collection<AbstractMetric> metrics) throws Exception {
 		readConfiguration(configStore);
 		
-		IModelConverter<String> a = new ModelToASCIIConverter();
-		a.convert(root, metrics);
-	
 		IPath textFilename = export_to_dir.append("metrics").addFileExtension("txt");
-		writeTo(textFilename, a.getResult());
+		Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(createFile(textFilename.toOSString()))), BUFFER_SIZE);
+		try {
+			TextReportWriter writer = new TextReportWriter(out, metrics);
+			writer.setMaxDepth(maxDepth);
+			writer.setTopCount(topCount, topMetric);
+			writer.setProgressMonitor(beginPhase("Writing text report", TOTAL_WORK, countNodes(root)));
+			writer.write(root);
+			out.write("\n----------\n");
+		} finally {
+			out.close();
+		}
 		selectPathInOSFileBrowser(textFilename);
 	}
 
@@ -33,13 +56,18 @@ public class TextReportGenerator extends FileReportGenerator implements IConfigu
 	public List<ConfigurationView> getConfigurationViews(ReportConfigurationStore config) {
 		List<ConfigurationView> views = new ArrayList<ConfigurationView>();
 		views.add(new FileReportConfigurationView(config));
+		views.add(new TextReportConfigurationView(config));
 		return views;
 	}
 
 	public void readConfiguration(ReportConfigurationStore configuration) {
-		this.export_to_dir = (IPath) configuration.get(FileReportConfigurationView.class, FileReportConfigurationView.CONFIG_EXPORT_DIR, this.export_to_dir);
+		readFileConfiguration(configuration);
+		this.export_to_dir = (IPath) configuration.get(FileReportGenerator.class, FileReportGenerator.CONFIG_EXPORT_DIR, this.export_to_dir);
 		if (export_to_dir.isEmpty()) {
 			export_to_dir = Path.fromOSString(System.getProperty("user.home")).append("metriculator-export");
 		}
+		maxDepth  = (Integer) configuration.get(TextReportGenerator.class, CONFIG_MAX_DEPTH, maxDepth);
+		topCount  = (Integer) configuration.get(TextReportGenerator.class, CONFIG_TOP_COUNT, topCount);
+		topMetric = (AbstractMetric) configuration.get(TextReportGenerator.class, CONFIG_TOP_METRIC, topMetric);
 	}
 }
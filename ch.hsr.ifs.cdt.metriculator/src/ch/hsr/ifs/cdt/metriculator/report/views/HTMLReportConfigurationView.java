@@ -2,6 +2,7 @@ package ch.hsr.ifs.cdt.metriculator.report.views;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.layout.RowLayout;
+import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Group;
 import org.eclipse.swt.widgets.Label;
@@ -14,6 +15,7 @@ import ch.hsr.ifs.cdt.metriculator.report.ReportConfigurationStore;
 public class HTMLReportConfigurationView extends ConfigurationView {
 
 	private String report = "dynamic";
+	private boolean writeModel = true;
 	private List list;
 
 	public HTMLReportConfigurationView(ReportConfigurationStore config) {
@@ -32,6 +34,7 @@ public class HTMLReportConfigurationView extends ConfigurationView {
 		// TODO dynamically add items according to report sub-directory names
 		list.add("dynamic");
 		list.add("static");
+		list.add(HTMLReportGenerator.REPORT_SHARDED);
 		list.setSelection(0);
 		list.addListener (SWT.Selection, new Listener () {
 			public void handleEvent (Event e) {
@@ -41,10 +44,20 @@ public class HTMLReportConfigurationView extends ConfigurationView {
 		
 		Label label = new Label(parent, SWT.NONE);
 		label.setText("Choose report template");
+
+		final Button btnWriteModel = new Button(parent, SWT.CHECK);
+		btnWriteModel.setText("Write plain XML model (model.xml)");
+		btnWriteModel.setSelection(writeModel);
+		btnWriteModel.addListener (SWT.Selection, new Listener () {
+			public void handleEvent (Event e) {
+				writeModel = btnWriteModel.getSelection();
+			}
+		});
 	}
 
 	@Override
 	public void writeConfiguration() {
 		config.set(HTMLReportGenerator.class, HTMLReportGenerator.CONFIG_REPORT, this.report);
+		config.set(HTMLReportGenerator.class, HTMLReportGenerator.CONFIG_WRITE_MODEL, this.writeModel);
 	}
 }
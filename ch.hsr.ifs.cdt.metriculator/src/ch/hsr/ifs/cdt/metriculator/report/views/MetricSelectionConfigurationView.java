@@ -0,0 +1,53 @@
+package ch.hsr.ifs.cdt.metriculator.report.views;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.RowLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Group;
+
+import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.report.ReportConfigurationStore;
+import ch.hsr.ifs.cdt.metriculator.report.StreamReportGenerator;
+
+public class MetricSelectionConfigurationView extends ConfigurationView {
+
+	private Map<AbstractMetric, Button> buttons = new LinkedHashMap<AbstractMetric, Button>();
+
+	public MetricSelectionConfigurationView(ReportConfigurationStore config) {
+		super(config);
+	}
+
+	@Override
+	public void createViewControls(Group parent) {
+		parent.setText("Metrics");
+
+		RowLayout layout = new RowLayout();
+		layout.spacing = 10;
+		parent.setLayout(layout);
+
+		for(AbstractMetric metric : MetriculatorPluginActivator.getDefault().getMetrics()){
+			Button btnMetric = new Button(parent, SWT.CHECK);
+			btnMetric.setText(metric.getName());
+			btnMetric.setToolTipText(metric.getDescription());
+			btnMetric.setSelection(true);
+			buttons.put(metric, btnMetric);
+		}
+	}
+
+	@Override
+	public void writeConfiguration() {
+		Collection<AbstractMetric> selected = new ArrayList<AbstractMetric>();
+		for(Map.Entry<AbstractMetric, Button> entry : buttons.entrySet()){
+			if(entry.getValue().getSelection()){
+				selected.add(entry.getKey());
+			}
+		}
+		config.set(StreamReportGenerator.class, StreamReportGenerator.CONFIG_METRICS, selected);
+	}
+}
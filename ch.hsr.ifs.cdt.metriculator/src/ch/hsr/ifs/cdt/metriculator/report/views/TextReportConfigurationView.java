@@ -0,0 +1,66 @@
+package ch.hsr.ifs.cdt.metriculator.report.views;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.layout.RowLayout;
+import org.eclipse.swt.widgets.Combo;
+import org.eclipse.swt.widgets.Group;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Spinner;
+
+import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.report.ReportConfigurationStore;
+import ch.hsr.ifs.cdt.metriculator.report.TextReportGenerator;
+
+public class TextReportConfigurationView extends ConfigurationView {
+
+	private List<AbstractMetric> metrics = new ArrayList<AbstractMetric>();
+	private Spinner spnMaxDepth;
+	private Spinner spnTopCount;
+	private Combo cmbTopMetric;
+
+	public TextReportConfigurationView(ReportConfigurationStore config) {
+		super(config);
+	}
+
+	@Override
+	public void createViewControls(Group parent) {
+		parent.setText("Text Report");
+
+		RowLayout layout = new RowLayout();
+		layout.spacing = 10;
+		parent.setLayout(layout);
+
+		Label lblMaxDepth = new Label(parent, SWT.NONE);
+		lblMaxDepth.setText("Levels (0 = all)");
+		spnMaxDepth = new Spinner(parent, SWT.BORDER);
+		spnMaxDepth.setValues(0, 0, 99, 0, 1, 5);
+
+		Label lblTopCount = new Label(parent, SWT.NONE);
+		lblTopCount.setText("Children per node (0 = all)");
+		spnTopCount = new Spinner(parent, SWT.BORDER);
+		spnTopCount.setValues(0, 0, 9999, 0, 1, 10);
+
+		Label lblTopMetric = new Label(parent, SWT.NONE);
+		lblTopMetric.setText("ranked by");
+		cmbTopMetric = new Combo(parent, SWT.READ_ONLY);
+		for(AbstractMetric metric : MetriculatorPluginActivator.getDefault().getMetrics()){
+			metrics.add(metric);
+			cmbTopMetric.add(metric.getName());
+		}
+		if(!metrics.isEmpty()){
+			cmbTopMetric.select(0);
+		}
+	}
+
+	@Override
+	public void writeConfiguration() {
+		int selected = cmbTopMetric.getSelectionIndex();
+		config.set(TextReportGenerator.class, TextReportGenerator.CONFIG_MAX_DEPTH, spnMaxDepth.getSelection() == 0 ? -1 : spnMaxDepth.getSelection());
+		config.set(TextReportGenerator.class, TextReportGenerator.CONFIG_TOP_COUNT, spnTopCount.getSelection());
+		config.set(TextReportGenerator.class, TextReportGenerator.CONFIG_TOP_METRIC, selected < 0 ? null : metrics.get(selected));
+	}
+}
@@ -40,6 +40,8 @@ public final class MetricLabels extends NLS {
 	public static String 	EfferentCouplingMetric_description;
 	public static String 	EFFERENTCOUPLING_Maximum_Per_Type;
 	public static String    REPORT_CHECKER_PROBLEMS;
+	public static String    PreferencePage_description;
+	public static String    ANALYSIS_THREADS;
 
 	static {
 		NLS.initializeMessages(MetricLabels.class.getName(), MetricLabels.class);
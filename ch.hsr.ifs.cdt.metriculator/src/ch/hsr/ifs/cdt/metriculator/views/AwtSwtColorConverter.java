@@ -37,4 +37,5 @@ public class AwtSwtColorConverter {
 	
 	public static final org.eclipse.swt.graphics.Color LIGHT_ORANGE = fromAwt(new Color(255, 204, 51));
 	public static final org.eclipse.swt.graphics.Color LIGHT_RED    = fromAwt(new Color(255, 122, 122));
+	public static final org.eclipse.swt.graphics.Color WHITE        = fromAwt(Color.WHITE);
 }
@@ -1,8 +1,13 @@
 package ch.hsr.ifs.cdt.metriculator.views;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.jface.action.Action;
 import org.eclipse.jface.action.ActionContributionItem;
@@ -17,9 +22,13 @@ import org.eclipse.ui.actions.CompoundContributionItem;
 import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
 import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+import ch.hsr.ifs.cdt.metriculator.report.CSVReportGenerator;
 import ch.hsr.ifs.cdt.metriculator.report.FileReportGenerator;
 import ch.hsr.ifs.cdt.metriculator.report.HTMLReportGenerator;
+import ch.hsr.ifs.cdt.metriculator.report.JSONReportGenerator;
 import ch.hsr.ifs.cdt.metriculator.report.ReportConfigurationStore;
+import ch.hsr.ifs.cdt.metriculator.report.ReportExportJob;
+import ch.hsr.ifs.cdt.metriculator.report.SnapshotReportGenerator;
 import ch.hsr.ifs.cdt.metriculator.report.TextReportGenerator;
 import ch.hsr.ifs.cdt.metriculator.report.views.ConfigurationView;
 import ch.hsr.ifs.cdt.metriculator.report.views.IConfigurableReport;
@@ -43,40 +52,59 @@ public class ExportActionMenuCreator implements IMenuCreator {
 		private AbstractNode getRootFromActiveView() {
 			switch(metriculatorView.getViewMode()){
 				case Filtered:
-					return MetriculatorPluginActivator.getDefault().getFlatTreeBuilder().root;
+					return metriculatorView.getFlatTreeBuilder().root;
 				case Logical:
-					return MetriculatorPluginActivator.getDefault().getLogicTreeBuilder().root;
+					return metriculatorView.getLogicTreeBuilder().root;
 				default:
-					return MetriculatorPluginActivator.getDefault().getHybridTreeBuilder().root;
+					return metriculatorView.getHybridTreeBuilder().root;
 			}
 		}
 		
-		private void runReportGenerator(FileReportGenerator gen) {
-			try {
-				// feature: only export displayed metrics or choose metrics in wizard
-				final Collection<AbstractMetric> metrics = MetriculatorPluginActivator.getDefault().getMetrics();
-				final AbstractNode root = getRootFromActiveView();
-				
-				// possibly init settingsstore with defaults (from cookies etc.)
-				ReportConfigurationStore configStore = new ReportConfigurationStore();
-				configStore.set(MetriculatorView.class, "instance", metriculatorView);
-				
+		private void runReportGenerator(String format, FileReportGenerator gen) {
+			runReportGenerators(Collections.singletonList(format), Collections.singletonList(gen));
+		}
+
+		/**
+		 * Asks for the configuration of all generators in one dialog, each view is shown once even if several generators use it.
+		 * The generators run as concurrent jobs over the same tree.
+		 * */
+		private void runReportGenerators(List<String> formats, List<FileReportGenerator> generators) {
+			// feature: only export displayed metrics or choose metrics in wizard
+			final Collection<AbstractMetric> metrics = MetriculatorPluginActivator.getDefault().getMetrics();
+			final AbstractNode root = getRootFromActiveView();
+			
+			// possibly init settingsstore with defaults (from cookies etc.)
+			ReportConfigurationStore configStore = new ReportConfigurationStore();
+			configStore.set(MetriculatorView.class, "instance", metriculatorView);
+			
+			Map<Class<?>, ConfigurationView> views = new LinkedHashMap<Class<?>, ConfigurationView>();
+			for(FileReportGenerator gen : generators){
 				if (gen instanceof IConfigurableReport) {
-					List<ConfigurationView> views = ((IConfigurableReport) gen).getConfigurationViews(configStore);
-					int status = createConfigurationView(views).open();
-					
-					if(status != Window.OK){
-						return;
-					}
-					
-					for(ConfigurationView view : views){
-						view.writeConfiguration();
+					for(ConfigurationView view : ((IConfigurableReport) gen).getConfigurationViews(configStore)){
+						if(!views.containsKey(view.getClass())){
+							views.put(view.getClass(), view);
+						}
 					}
 				}
-				gen.run(configStore, root, metrics);
-			} catch (Exception e) {
-				e.printStackTrace();
 			}
+			
+			if(!views.isEmpty()){
+				int status = createConfigurationView(new ArrayList<ConfigurationView>(views.values())).open();
+				
+				if(status != Window.OK){
+					return;
+				}
+				
+				for(ConfigurationView view : views.values()){
+					view.writeConfiguration();
+				}
+			}
+			
+			List<String> jobNames = new ArrayList<String>();
+			for(String format : formats){
+				jobNames.add("Exporting " + format + " report");
+			}
+			ReportExportJob.scheduleAll(jobNames, generators, configStore, root, metrics);
 		}
 
 		private ReportConfigurationDialog createConfigurationView(List<ConfigurationView> views) {
@@ -95,7 +123,7 @@ public class ExportActionMenuCreator implements IMenuCreator {
 			Action exportHTMLAction = new Action() {
 				@Override
 				public void run() {
-					runReportGenerator(new HTMLReportGenerator());
+					runReportGenerator(getText(), new HTMLReportGenerator());
 				}
 			};
 			exportHTMLAction.setText("HTML");
@@ -105,12 +133,52 @@ public class ExportActionMenuCreator implements IMenuCreator {
 			Action exportTextAction = new Action() {
 				@Override
 				public void run() {
-					runReportGenerator(new TextReportGenerator());
+					runReportGenerator(getText(), new TextReportGenerator());
 				}
 			};
 			exportTextAction.setText("ASCII");
 			exportTextAction.setImageDescriptor(MetriculatorPluginActivator.getDefault().getImageDescriptor(Icon.Size16.TEXT));
 			itemList.add(new ActionContributionItem(exportTextAction));
+
+			Action exportJSONAction = new Action() {
+				@Override
+				public void run() {
+					runReportGenerator(getText(), new JSONReportGenerator());
+				}
+			};
+			exportJSONAction.setText("JSON");
+			exportJSONAction.setImageDescriptor(MetriculatorPluginActivator.getDefault().getImageDescriptor(Icon.Size16.TEXT));
+			itemList.add(new ActionContributionItem(exportJSONAction));
+
+			Action exportCSVAction = new Action() {
+				@Override
+				public void run() {
+					runReportGenerator(getText(), new CSVReportGenerator());
+				}
+			};
+			exportCSVAction.setText("CSV");
+			exportCSVAction.setImageDescriptor(MetriculatorPluginActivator.getDefault().getImageDescriptor(Icon.Size16.TEXT));
+			itemList.add(new ActionContributionItem(exportCSVAction));
+
+			Action exportSnapshotAction = new Action() {
+				@Override
+				public void run() {
+					runReportGenerator(getText(), new SnapshotReportGenerator());
+				}
+			};
+			exportSnapshotAction.setText("Binary Snapshot");
+			exportSnapshotAction.setImageDescriptor(MetriculatorPluginActivator.getDefault().getImageDescriptor(Icon.Size16.TEXT));
+			itemList.add(new ActionContributionItem(exportSnapshotAction));
+
+			Action exportAllAction = new Action() {
+				@Override
+				public void run() {
+					List<FileReportGenerator> generators = Arrays.<FileReportGenerator>asList(new HTMLReportGenerator(), new TextReportGenerator(), new JSONReportGenerator(), new CSVReportGenerator(), new SnapshotReportGenerator());
+					runReportGenerators(Arrays.asList("HTML", "ASCII", "JSON", "CSV", "Binary Snapshot"), generators);
+				}
+			};
+			exportAllAction.setText("All Formats");
+			itemList.add(new ActionContributionItem(exportAllAction));
 			
 			return itemList.toArray(new IContributionItem[0]);
 		}
@@ -0,0 +1,20 @@
+package ch.hsr.ifs.cdt.metriculator.views;
+
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+
+/**
+ * Order by the aggregated value of a metric, which the content providers take from the precomputed
+ * {@link ch.hsr.ifs.cdt.metriculator.model.SortPermutations} instead of comparing the nodes.
+ * */
+interface MetricSortOrder {
+
+	/**
+	 * @return metric the nodes are ordered by, null if the order does not depend on a metric.
+	 * */
+	AbstractMetric getMetric();
+
+	/**
+	 * @return true if the largest values come first.
+	 * */
+	boolean isDescending();
+}
@@ -0,0 +1,146 @@
+/******************************************************************************
+* Copyright (c) 2011 Institute for Software, HSR Hochschule fuer Technik 
+* Rapperswil, University of applied sciences and others.
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html 
+*
+* Contributors:
+* 	Ueli Kunz <kunz@ideadapt.net>, Jules Weder <julesweder@gmail.com> - initial API and implementation
+******************************************************************************/
+
+package ch.hsr.ifs.cdt.metriculator.views;
+
+import java.text.NumberFormat;
+import java.util.Collection;
+
+import org.eclipse.cdt.codan.core.model.CodanSeverity;
+import org.eclipse.cdt.codan.core.model.IProblem;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.jface.resource.ImageRegistry;
+import org.eclipse.jface.viewers.CellLabelProvider;
+import org.eclipse.jface.viewers.ViewerCell;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Table;
+import org.eclipse.swt.widgets.Tree;
+
+import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+
+/**
+ * Labels the cells of the tree and the table. Painting a cell allocates no SWT resources:
+ * the icons are taken from an image registry that holds one image per icon path and is disposed with the view,
+ * the background colors are shared constants and the values of small numbers are formatted once.
+ * */
+public class MetriculatorCellLabelProvider extends CellLabelProvider {
+
+	private static final int CACHED_VALUES = 4096;
+
+	private final ImageRegistry images;
+	private final NumberFormat numberFormat  = NumberFormat.getIntegerInstance();
+	private final String[] formattedValues   = new String[CACHED_VALUES];
+
+	/**
+	 * @param images registry the icons are put into, it is disposed by the owner of the viewers
+	 * */
+	public MetriculatorCellLabelProvider(ImageRegistry images) {
+		this.images = images;
+	}
+
+	@Override
+	public void update(ViewerCell cell) {
+		AbstractNode node = (AbstractNode) cell.getElement();
+
+		switch (cell.getColumnIndex()) {
+			case 0:
+				cell.setText(cell.getElement().toString());
+				cell.setImage(getImage(node.getIconPath()));
+				break;
+			default:
+				AbstractMetric metric = getMetric(cell.getControl(), cell.getColumnIndex());
+				
+				if(metric != null){
+					cell.setBackground(getBackground(metric, node));
+					cell.setText(format(node.getAggregatedValueOf(metric)));
+				}
+				break;
+		}
+	}
+
+	/**
+	 * @return the image of the icon, created on first use.
+	 * */
+	private Image getImage(String iconPath) {
+		Image image = images.get(iconPath);
+		if(image == null){
+			ImageDescriptor descriptor = MetriculatorPluginActivator.getDefault().getImageDescriptor(iconPath);
+			images.put(iconPath, descriptor);
+			image = images.get(iconPath);
+		}
+		return image;
+	}
+
+	private static AbstractMetric getMetric(Control control, int columnIndex) {
+		if(control instanceof Tree){
+			return MetricColumn.getMetric(((Tree) control).getColumn(columnIndex));
+		}
+		if(control instanceof Table){
+			return MetricColumn.getMetric(((Table) control).getColumn(columnIndex));
+		}
+		return null;
+	}
+
+	/**
+	 * @return color of the most recent problem the metric reported for the node, white if there is none.
+	 * */
+	private static Color getBackground(AbstractMetric metric, AbstractNode node) {
+		Collection<IProblem> problems = metric.getChecker().getProblemsFor(node);
+		Color background              = AwtSwtColorConverter.WHITE;
+		
+		if(problems != null){
+			for(IProblem p : problems){
+				if(p.getSeverity() == CodanSeverity.Warning){
+					background = AwtSwtColorConverter.LIGHT_ORANGE;
+				}else if(p.getSeverity() == CodanSeverity.Error){
+					background = AwtSwtColorConverter.LIGHT_RED;
+				}else if(p.getSeverity() == CodanSeverity.Info){
+					background = AwtSwtColorConverter.WHITE;
+				}
+			}
+		}
+		return background;
+	}
+
+	/**
+	 * Most metric values are small, their text is formatted once and reused for every cell showing the value.
+	 * */
+	private String format(int value) {
+		if(value < 0 || value >= CACHED_VALUES){
+			return numberFormat.format(value);
+		}
+		String text = formattedValues[value];
+		if(text == null){
+			text                   = numberFormat.format(value);
+			formattedValues[value] = text;
+		}
+		return text;
+	}
+
+	@Override
+	public String getToolTipText(Object element) {
+		if(element instanceof AbstractNode){
+			AbstractNode node = (AbstractNode) element;
+			return "'" + node.getPath() + "' , children: " + node.getChildren().size();
+		}
+		return null;
+	}
+
+	@Override
+	public int getToolTipDisplayDelayTime(Object object) {
+		return 100;
+	}
+}
@@ -12,34 +12,32 @@
 
 package ch.hsr.ifs.cdt.metriculator.views;
 
-import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
 import java.text.NumberFormat;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.Observable;
-import java.util.Observer;
+import java.util.concurrent.Executor;
 
-import org.eclipse.cdt.codan.core.model.CodanSeverity;
-import org.eclipse.cdt.codan.core.model.IProblem;
 import org.eclipse.cdt.codan.ui.CodanEditorUtility;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jface.action.Action;
 import org.eclipse.jface.action.IAction;
 import org.eclipse.jface.action.IContributionManager;
 import org.eclipse.jface.action.IMenuCreator;
 import org.eclipse.jface.action.MenuManager;
 import org.eclipse.jface.action.Separator;
-import org.eclipse.jface.viewers.CellLabelProvider;
+import org.eclipse.jface.operation.IRunnableWithProgress;
+import org.eclipse.jface.resource.ImageRegistry;
 import org.eclipse.jface.viewers.ColumnViewerToolTipSupport;
 import org.eclipse.jface.viewers.IOpenListener;
 import org.eclipse.jface.viewers.ISelection;
-import org.eclipse.jface.viewers.IStructuredContentProvider;
 import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.viewers.OpenEvent;
 import org.eclipse.jface.viewers.StructuredViewer;
 import org.eclipse.jface.viewers.TableViewer;
 import org.eclipse.jface.viewers.TreeViewer;
-import org.eclipse.jface.viewers.Viewer;
-import org.eclipse.jface.viewers.ViewerCell;
 import org.eclipse.jface.window.ToolTip;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.StackLayout;
@@ -48,6 +46,7 @@ import org.eclipse.swt.layout.FillLayout;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.FileDialog;
 import org.eclipse.swt.widgets.Menu;
 import org.eclipse.swt.widgets.Table;
 import org.eclipse.swt.widgets.TableColumn;
@@ -57,14 +56,24 @@ import org.eclipse.swt.widgets.TreeColumn;
 import org.eclipse.swt.widgets.Widget;
 import org.eclipse.ui.IEditorPart;
 import org.eclipse.ui.PartInitException;
+import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.part.ViewPart;
 import org.eclipse.ui.texteditor.ITextEditor;
 
-import ch.hsr.ifs.cdt.metriculator.JobObservable.JobState;
+import ch.hsr.ifs.cdt.metriculator.AnalysisEvent;
+import ch.hsr.ifs.cdt.metriculator.AnalysisEventBus;
 import ch.hsr.ifs.cdt.metriculator.MetriculatorPluginActivator;
 import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
 import ch.hsr.ifs.cdt.metriculator.model.AbstractTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.ColumnarSnapshotReader;
+import ch.hsr.ifs.cdt.metriculator.model.ColumnarSnapshotWriter;
+import ch.hsr.ifs.cdt.metriculator.model.DerivedTreeJob;
+import ch.hsr.ifs.cdt.metriculator.model.FlatTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.HybridTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.LogicTreeBuilder;
+import ch.hsr.ifs.cdt.metriculator.model.ModelSnapshot;
 import ch.hsr.ifs.cdt.metriculator.model.NodeFilter;
+import ch.hsr.ifs.cdt.metriculator.model.SortPermutations;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.FileNode;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.LogicNode;
@@ -75,7 +84,7 @@ import ch.hsr.ifs.cdt.metriculator.views.ToggleColumnActionItem.ToggleTreeColumn
 /**
  * @author Jules Weder, Ueli Kunz
  * */
-public class MetriculatorView extends ViewPart implements Observer, ITagCloudDataProvider {
+public class MetriculatorView extends ViewPart implements ITagCloudDataProvider {
 
 	private static final int INITIAL_SORT_ORDER           = TreeColumnViewerSorter.NONE;
 	private static final int SCOPE_COLUMN_DEFAULT_WIDTH   = 160;
@@ -87,7 +96,7 @@ public class MetriculatorView extends ViewPart implements Observer, ITagCloudDat
 	private HashMap<AbstractMetric, ToggleColumnActionItem<TableColumn>> metricsTableColumnActions   = new HashMap<AbstractMetric, ToggleColumnActionItem<TableColumn>>();
 	private TreeViewer treeViewer;
 	private TableViewer tableViewer;
-	private NodeViewerFilter viewerFilter;
+	private TableContentProvider tableContent;
 	private IAction actionHybridView;
 	private IAction actionExpandAll;
 	private IAction actionCollapseAll;
@@ -97,6 +106,10 @@ public class MetriculatorView extends ViewPart implements Observer, ITagCloudDat
 	private IAction actionFilterNamespace;
 	private IAction actionFilterFile;
 	private AbstractTreeBuilder currTreeBuilder;
+	private ModelSnapshot snapshot;
+	private HybridTreeBuilder partialTree;
+	private long partialVersion;
+	private boolean partialReloadScheduled;
 	private ViewMode viewMode;
 	private Menu tableHeaderMenu;
 	private Composite treeComposite;
@@ -105,6 +118,8 @@ public class MetriculatorView extends ViewPart implements Observer, ITagCloudDat
 	private StructuredViewer activeViewer;
 	private StackLayout stackLayout;
 	private Action actionExport;
+	private IAction actionOpenArchivedRun;
+	private ImageRegistry images;
 	
 	public enum ViewMode {
 		Hybrid,
@@ -112,13 +127,42 @@ public class MetriculatorView extends ViewPart implements Observer, ITagCloudDat
 		Filtered
 	}
 	
+	private static final Executor DISPLAY = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			Display.getDefault().asyncExec(command);
+		}
+	};
+
+	/**
+	 * Gets the events of all types through one subscription, so they arrive on the display thread in the order they were published.
+	 * */
+	private final AnalysisEventBus.Listener<AnalysisEvent> analysisListener = new AnalysisEventBus.Listener<AnalysisEvent>() {
+		@Override
+		public void handle(AnalysisEvent event) {
+			if(treeViewer == null || treeViewer.getControl().isDisposed()){
+				return;
+			}
+			if(event instanceof AnalysisEvent.RunStarted){
+				applyCodanStartedState((AnalysisEvent.RunStarted) event);
+			}else if(event instanceof AnalysisEvent.FilesAnalyzed){
+				addPartialResult((AnalysisEvent.FilesAnalyzed) event);
+			}else if(event instanceof AnalysisEvent.RunCompleted){
+				applyCodanFinishedState();
+			}
+		}
+	};
+	
 	public MetriculatorView() {
-		MetriculatorPluginActivator.getDefault().getObservable().addObserver(this);
+		MetriculatorPluginActivator.getDefault().getEvents().subscribe(AnalysisEvent.class, analysisListener, DISPLAY);
 	}
 	
 	@Override
 	public void dispose() {
-		MetriculatorPluginActivator.getDefault().getObservable().deleteObserver(this);
+		MetriculatorPluginActivator.getDefault().getEvents().unsubscribe(analysisListener);
+		if(images != null){
+			images.dispose();
+		}
 		super.dispose();
 	}
 	
@@ -127,6 +171,7 @@ public class MetriculatorView extends ViewPart implements Observer, ITagCloudDat
 		stackLayout = new StackLayout();
 		parent.setLayout(stackLayout);
 		parentComposite = parent;
+		images          = new ImageRegistry(parent.getDisplay());
 		
 		MetricColumnHeaderMenu.treeMenuManager  = new MenuManager();
 		MetricColumnHeaderMenu.tableMenuManager = new MenuManager();
@@ -152,10 +197,10 @@ public class MetriculatorView extends ViewPart implements Observer, ITagCloudDat
 		tableObject.setLinesVisible(true);
 		
 		tableViewer = new TableViewer(tableObject);
-		tableViewer.addFilter(viewerFilter);
+		tableContent = new TableContentProvider();
 		tableViewer.setUseHashlookup(true);
-		tableViewer.setContentProvider(new TableContentProvider());
-		tableViewer.setLabelProvider(new MetriculatorCellLabelProvider());
+		tableViewer.setContentProvider(tableContent);
+		tableViewer.setLabelProvider(new MetriculatorCellLabelProvider(images));
 		
 		ColumnViewerToolTipSupport.enableFor(tableViewer, ToolTip.NO_RECREATE);
 		addViewerOpenListener(tableViewer);
@@ -172,12 +217,10 @@ public class MetriculatorView extends ViewPart implements Observer, ITagCloudDat
 		treeObject.setHeaderVisible(true);
 		treeObject.setLinesVisible(true);
 		
-		viewerFilter = new NodeViewerFilter();
-		treeViewer   = new TreeViewer(treeObject);
-		treeViewer.addFilter(viewerFilter);
+		treeViewer = new TreeViewer(treeObject);
 		treeViewer.setUseHashlookup(true);
 		treeViewer.setContentProvider(new TreeContentProvider());
-		treeViewer.setLabelProvider(new MetriculatorCellLabelProvider());
+		treeViewer.setLabelProvider(new MetriculatorCellLabelProvider(images));
 		
 		ColumnViewerToolTipSupport.enableFor(treeViewer, ToolTip.NO_RECREATE);
 		addViewerOpenListener(treeViewer);
@@ -202,9 +245,7 @@ public class MetriculatorView extends ViewPart implements Observer, ITagCloudDat
 		colNodes.setResizable(true);
 		// make scope column sortable and set initial sorter
 		TableColumnViewerSorter scopeSorter = new TableColumnViewerSorter(tableViewer, colNodes) {
-			protected int doCompare(Viewer viewer, Object e1, Object e2) {
-				AbstractNode p1 = (AbstractNode) e1;
-				AbstractNode p2 = (AbstractNode) e2;
+			protected int doCompare(AbstractNode p1, AbstractNode p2) {
 				return p1.toString().compareToIgnoreCase(p2.toString());
 			}
 		};
@@ -220,9 +261,7 @@ public class MetriculatorView extends ViewPart implements Observer, ITagCloudDat
 		colNodes.setResizable(true);
 		// make scope column sortable and set initial sorter
 		TreeColumnViewerSorter scopeSorter = new TreeColumnViewerSorter(treeViewer, colNodes) {
-			protected int doCompare(Viewer viewer, Object e1, Object e2) {
-				AbstractNode p1 = (AbstractNode) e1;
-				AbstractNode p2 = (AbstractNode) e2;
+			protected int doCompare(AbstractNode p1, AbstractNode p2) {
 				return p1.toString().compareToIgnoreCase(p2.toString());
 			}
 		};
@@ -306,7 +345,7 @@ public class MetriculatorView extends ViewPart implements Observer, ITagCloudDat
 	
 	@Override
 	public Collection<AbstractNode> getNodes(){
-		Collection<AbstractNode> filteredNodes = viewerFilter.getNodeFilter().takeFrom(currTreeBuilder.root.getChildren());
+		Collection<AbstractNode> filteredNodes = tableContent.getNodeFilter().takeFrom(currTreeBuilder.root.getChildren());
 		return filteredNodes;
 	}
 	
@@ -320,6 +359,35 @@ public class MetriculatorView extends ViewPart implements Observer, ITagCloudDat
 		createActionFilterNamespace();
 		createActionFilterFile();
 		createActionExport();
+		createActionOpenArchivedRun();
+	}
+
+	private void createActionOpenArchivedRun() {
+		actionOpenArchivedRun = new Action("Open Archived Run...") {
+			@Override
+			public void run() {
+				FileDialog dialog = new FileDialog(getSite().getShell(), SWT.OPEN);
+				dialog.setFilterExtensions(new String[]{"*." + ColumnarSnapshotWriter.FILE_EXTENSION});
+				String path = dialog.open();
+				if(path != null){
+					showArchivedRun(new File(path));
+				}
+			}
+		};
+	}
+
+	/**
+	 * Shows a run written by {@link ColumnarSnapshotWriter} until the next analysis completes.
+	 * */
+	public void showArchivedRun(File file) {
+		try {
+			snapshot = ColumnarSnapshotReader.open(file).createSnapshot();
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+		applyViewMode(ViewMode.Hybrid, null);
+		updateViewerData();
 	}
 
 	private void createActionExport() {
@@ -350,6 +418,11 @@ public class MetriculatorView extends ViewPart implements Observer, ITagCloudDat
 
 	private void applyViewMode(ViewMode view, NodeFilter filter) {
 
+		if(!awaitDerivedTreeOf(view)){
+			view   = ViewMode.Hybrid;
+			filter = null;
+		}
+
 		viewMode = view;
 		actionLogicalView.setChecked(false);
 		actionHybridView.setChecked(false);
@@ -357,14 +430,14 @@ public class MetriculatorView extends ViewPart implements Observer, ITagCloudDat
 		switch(view){
 			case Logical:
 				actionLogicalView.setChecked(true);
-				currTreeBuilder = MetriculatorPluginActivator.getDefault().getLogicTreeBuilder();
+				currTreeBuilder = getLogicTreeBuilder();
 				applyFilterMode(NodeFilter.none());
 				bringToFront(treeComposite, treeViewer);
 				break;
 				
 			case Hybrid:
 				actionHybridView.setChecked(true);
-				currTreeBuilder = MetriculatorPluginActivator.getDefault().getHybridTreeBuilder();
+				currTreeBuilder = getHybridTreeBuilder();
 				applyFilterMode(NodeFilter.none());
 				bringToFront(treeComposite, treeViewer);
 				break;
@@ -382,13 +455,71 @@ public class MetriculatorView extends ViewPart implements Observer, ITagCloudDat
 		}
 	}
 
+	/**
+	 * Waits with progress for the background job that builds the tree of the view mode, the display keeps processing events meanwhile.
+	 * @return false if the user canceled waiting
+	 * */
+	private boolean awaitDerivedTreeOf(ViewMode view) {
+		if(snapshot == null){
+			return true;
+		}
+
+		final DerivedTreeJob<?> job;
+		switch(view){
+			case Logical:
+				job = snapshot.getLogicTreeJob();
+				break;
+			case Filtered:
+				job = snapshot.getFlatTreeJob();
+				break;
+			default:
+				return true;
+		}
+		if(job == null || job.isDone()){
+			return true;
+		}
+
+		try {
+			PlatformUI.getWorkbench().getProgressService().busyCursorWhile(new IRunnableWithProgress() {
+				@Override
+				public void run(IProgressMonitor monitor) throws InterruptedException {
+					job.await(monitor);
+				}
+			});
+		} catch (InvocationTargetException e) {
+			e.printStackTrace();
+		} catch (InterruptedException e) {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return the snapshot shown by this view, null if no analysis has completed since the view was opened.
+	 * */
+	public ModelSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	public AbstractTreeBuilder getHybridTreeBuilder() {
+		return snapshot != null ? snapshot.getHybridTreeBuilder() : MetriculatorPluginActivator.getDefault().getHybridTreeBuilder();
+	}
+
+	public FlatTreeBuilder getFlatTreeBuilder() {
+		return snapshot != null ? snapshot.getFlatTreeBuilder() : MetriculatorPluginActivator.getDefault().getFlatTreeBuilder();
+	}
+
+	public LogicTreeBuilder getLogicTreeBuilder() {
+		return snapshot != null ? snapshot.getLogicTreeBuilder() : MetriculatorPluginActivator.getDefault().getLogicTreeBuilder();
+	}
+
 	public ViewMode getViewMode() {
 		return viewMode;
 	}
 
 	private void applyFilterMode(NodeFilter filter) {
 
-		viewerFilter.setNodeFilter(filter);
+		tableContent.setNodeFilter(filter);
 		
 		actionFilterComposite.setChecked(filter instanceof NodeFilter.CompositeNodeFilter);
 		actionFilterFile.setChecked(filter instanceof NodeFilter.FileNodeFilter);
@@ -396,7 +527,7 @@ public class MetriculatorView extends ViewPart implements Observer, ITagCloudDat
 		actionFilterNamespace.setChecked(filter instanceof NodeFilter.NamespaceNodeFilter);
 
 		if (!(filter instanceof NodeFilter.NoneFilter)) {
-			currTreeBuilder = MetriculatorPluginActivator.getDefault().getFlatTreeBuilder();
+			currTreeBuilder = getFlatTreeBuilder();
 		}
 	}
 
@@ -534,6 +665,7 @@ public class MetriculatorView extends ViewPart implements Observer, ITagCloudDat
 			manager.add(actionCollapseAll);
 			manager.add(actionExport);
 		}
+		getViewSite().getActionBars().getMenuManager().add(actionOpenArchivedRun);
 	}
 
 	private void addViewerOpenListener(StructuredViewer viewer) {
@@ -547,7 +679,7 @@ public class MetriculatorView extends ViewPart implements Observer, ITagCloudDat
 
 	private void openSelectedNode(ISelection selection) {
 		AbstractNode node             = getFirstNodeFrom(selection);
-		boolean selectionSupportsOpen = node instanceof LogicNode || node instanceof FileNode;
+		boolean selectionSupportsOpen = (node instanceof LogicNode || node instanceof FileNode) && node.getEditorInfo() != null; // archived runs have no editor infos
 
 		if (selectionSupportsOpen) {
 			
@@ -588,107 +720,41 @@ public class MetriculatorView extends ViewPart implements Observer, ITagCloudDat
 		}
 	}
 
-	@Override
-	public void update(Observable o, Object arg) {
-		
-		if(((JobState)arg) == JobState.JOB_DONE){
-		
-			Display.getDefault().syncExec(new Runnable() {
-				@Override
-				public void run() {
-					applyCodanFinishedState();
-				}
-			});
+	/**
+	 * Merges the files into the partial tree. The viewer is refreshed once for all files merged until the display gets to the refresh.
+	 * */
+	private void addPartialResult(AnalysisEvent.FilesAnalyzed event) {
+		if(partialTree == null || event.getVersion() != partialVersion){
+			return;
 		}
-		
-		if(((JobState)arg) == JobState.JOB_ABOUT_TO_RUN){
-			
-			Display.getDefault().syncExec(new Runnable() {
+		for(AbstractNode file : event.getResult().getFiles()){
+			partialTree.addReplacingFiles(file);
+		}
+
+		if(!partialReloadScheduled){
+			partialReloadScheduled = true;
+			Display.getCurrent().asyncExec(new Runnable() {
 				@Override
 				public void run() {
-					applyCodanStartedState();
+					partialReloadScheduled = false;
+					reloadPartialTree();
 				}
 			});
 		}
 	}
-	
-	class TableContentProvider implements IStructuredContentProvider{
-
-		@Override
-		public void dispose() {
-		}
 
-		@Override
-		public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
-		}
-
-		@Override
-		public Object[] getElements(Object inputElement) {
-			return currTreeBuilder.root.getChildren().toArray();
+	private void reloadPartialTree() {
+		if(partialTree == null || treeViewer.getControl().isDisposed()){
+			return;
 		}
-	}
-
-	class MetriculatorCellLabelProvider extends CellLabelProvider{
-
-		@Override
-		public void update(ViewerCell cell) {
-			switch (cell.getColumnIndex()) {
-				case 0:
-					cell.setText(cell.getElement().toString());
-					cell.setImage(MetriculatorPluginActivator.getDefault().getImageDescriptor(((AbstractNode)cell.getElement()).getIconPath()).createImage());
-					break;
-				default:
-					AbstractMetric metric;
-					if(activeViewer instanceof TreeViewer){
-						metric = MetricColumn.getMetric(treeViewer.getTree().getColumn(cell.getColumnIndex()));
-					}else{
-						metric = MetricColumn.getMetric(tableViewer.getTable().getColumn(cell.getColumnIndex()));
-					}
-					
-					if(metric != null){
-						applyProblemsOf(metric, cell);
-						int metricValue = ((AbstractNode) cell.getElement()).getAggregatedValueOf(metric);
-						cell.setText(NumberFormat.getIntegerInstance().format(metricValue));
-					}
-					break;
-			}
-		}
-
-		private void applyProblemsOf(AbstractMetric metric, ViewerCell toCell) {
-			Collection<IProblem> problems = metric.getChecker().getProblemsFor((AbstractNode) toCell.getElement());
-			
-			if(problems != null){
-				for(IProblem p : problems){
-					if(p.getSeverity() == CodanSeverity.Warning){
-						toCell.setBackground(AwtSwtColorConverter.LIGHT_ORANGE);
-					}else if(p.getSeverity() == CodanSeverity.Error){
-						toCell.setBackground(AwtSwtColorConverter.LIGHT_RED);
-					}else if(p.getSeverity() == CodanSeverity.Info){
-						toCell.setBackground(AwtSwtColorConverter.fromAwt(Color.WHITE));
-					}
-				}
-			}else{
-				toCell.setBackground(AwtSwtColorConverter.fromAwt(Color.WHITE));
-			}
-		}
-
-		@Override
-		public String getToolTipText(Object element) {
-			if(element instanceof AbstractNode){
-				return String.format("'%s' , children: %s", 
-						((AbstractNode)element).getPath(), 
-						((AbstractNode) element).getChildren().size());
-			}
-			return null;
-		}
-
-		@Override
-		public int getToolTipDisplayDelayTime(Object object) {
-			return 100;
-		}		
+		NodeIndexContentProvider content = (NodeIndexContentProvider) treeViewer.getContentProvider();
+		content.setSortPermutations(new SortPermutations()); // the partial tree changes with every batch
+		content.reload();
 	}
 
 	private void applyCodanFinishedState(){
+		partialTree = null;
+		snapshot    = MetriculatorPluginActivator.getDefault().getSnapshot();
 		createAndUpdateMetricTreeColumns();
 		createAndUpdateMetricTableColumns();
 		applyViewMode(ViewMode.Hybrid, null);
@@ -697,12 +763,28 @@ public class MetriculatorView extends ViewPart implements Observer, ITagCloudDat
 		MetricColumnHeaderMenu.updateItemSelections(MetricColumnHeaderMenu.tableMenuManager);
 	}
 	
-	private void applyCodanStartedState(){
-		treeViewer.setInput(null);
+	/**
+	 * Shows the hybrid tree of the files the run has completed so far. The activator builds the tree before the run starts,
+	 * as a copy of the hybrid tree of the previous run, whose files are replaced as the run completes them.
+	 * */
+	private void applyCodanStartedState(AnalysisEvent.RunStarted event){
+		partialVersion  = event.getVersion();
+		partialTree     = event.getPartialTree();
+		if(partialTree == null){
+			partialTree = new HybridTreeBuilder(MetriculatorPluginActivator.getDefault().getHybridTreeBuilder().root.getScopeName());
+		}
+		currTreeBuilder = partialTree;
+		viewMode        = ViewMode.Hybrid;
+		actionHybridView.setChecked(true);
+		actionLogicalView.setChecked(false);
+		createAndUpdateMetricTreeColumns();
 		tableViewer.setInput(null);
+		bringToFront(treeComposite, treeViewer);
+		updateViewerData();
 	}
 
 	private void updateViewerData() {
+		((NodeIndexContentProvider) activeViewer.getContentProvider()).setSortPermutations(currTreeBuilder.getSortPermutations());
 		activeViewer.setInput(currTreeBuilder.root);
 		
 		if(activeViewer instanceof TableViewer){
@@ -0,0 +1,98 @@
+package ch.hsr.ifs.cdt.metriculator.views;
+
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+
+import ch.hsr.ifs.cdt.metriculator.model.AbstractMetric;
+import ch.hsr.ifs.cdt.metriculator.model.NodeFilter;
+import ch.hsr.ifs.cdt.metriculator.model.NodeIndex;
+import ch.hsr.ifs.cdt.metriculator.model.SortPermutations;
+import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
+
+/**
+ * Filters and sorts the children of a node once, when the viewer asks for the first of them, and keeps the result until the
+ * input, the filter or the order changes. Lazy viewers ignore filters and comparators, so they are applied here.
+ * Orders by a metric are taken from the sort permutations of the tree, so changing the column or direction does not compare any nodes.
+ * */
+abstract class NodeIndexContentProvider {
+
+	private final IdentityHashMap<AbstractNode, NodeIndex> indexes = new IdentityHashMap<AbstractNode, NodeIndex>();
+	private NodeFilter filter = NodeFilter.none();
+	private Comparator<AbstractNode> comparator;
+	private SortPermutations permutations = new SortPermutations();
+
+	protected NodeIndex indexOf(Object parent) {
+		if(!(parent instanceof AbstractNode)){
+			return NodeIndex.EMPTY;
+		}
+		NodeIndex index = indexes.get(parent);
+		if(index == null){
+			index = createIndex((AbstractNode) parent);
+			indexes.put((AbstractNode) parent, index);
+		}
+		return index;
+	}
+
+	private NodeIndex createIndex(AbstractNode parent) {
+		if(comparator instanceof MetricSortOrder){
+			MetricSortOrder order = (MetricSortOrder) comparator;
+			AbstractMetric metric = order.getMetric();
+			if(metric != null){
+				return NodeIndex.of(permutations.getChildren(parent), permutations.getOrder(parent, metric), order.isDescending(), filter);
+			}
+		}
+		return NodeIndex.of(parent.getChildren(), filter, comparator);
+	}
+
+	protected void clear() {
+		indexes.clear();
+	}
+
+	/**
+	 * Sets the sort orders of the tree shown next, the permutations are kept with the tree so they are computed once per tree.
+	 * */
+	public void setSortPermutations(SortPermutations permutations) {
+		this.permutations = permutations;
+		clear();
+	}
+
+	public NodeFilter getNodeFilter() {
+		return filter;
+	}
+
+	/**
+	 * The filter applies from the next input on, the viewer is not refreshed.
+	 * */
+	public void setNodeFilter(NodeFilter filter) {
+		this.filter = filter;
+		clear();
+	}
+
+	public Comparator<AbstractNode> getComparator() {
+		return comparator;
+	}
+
+	/**
+	 * Sorts the rows and refreshes the viewer.
+	 * @param comparator null shows the nodes in the order of the model
+	 * */
+	public void setComparator(Comparator<AbstractNode> comparator) {
+		this.comparator = comparator;
+		clear();
+		refresh();
+	}
+
+	/**
+	 * Indexes the children again and refreshes the viewer, e.g. after nodes were added to the input.
+	 * */
+	public void reload() {
+		clear();
+		refresh();
+	}
+
+	protected abstract void refresh();
+
+	public void dispose() {
+		clear();
+	}
+}
@@ -12,10 +12,9 @@
 
 package ch.hsr.ifs.cdt.metriculator.views;
 
-import org.eclipse.jface.viewers.StructuredViewer;
+import java.util.Comparator;
+
 import org.eclipse.jface.viewers.TableViewer;
-import org.eclipse.jface.viewers.Viewer;
-import org.eclipse.jface.viewers.ViewerComparator;
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.events.SelectionAdapter;
 import org.eclipse.swt.events.SelectionEvent;
@@ -28,23 +27,23 @@ import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
  * @see http://bingjava.appspot.com/snippet.jsp?id=2207
  * @author Ueli Kunz
  * */
-class TableColumnViewerSorter extends ViewerComparator {
+class TableColumnViewerSorter implements Comparator<AbstractNode>, MetricSortOrder {
 	public static final int ASC  = 1;
 	public static final int NONE = 0;
 	public static final int DESC = -1;
 
 	private int direction = 0;
 	protected TableColumn column;
-	protected StructuredViewer viewer;
+	protected NodeIndexContentProvider content;
 
 	public TableColumnViewerSorter(TableViewer tableViewer, TableColumn column) {
-		this.column = column;
-		this.viewer = tableViewer;
+		this.column  = column;
+		this.content = (NodeIndexContentProvider) tableViewer.getContentProvider();
 
 		this.column.addSelectionListener(new SelectionAdapter() {
 
 			public void widgetSelected(SelectionEvent e) {
-				ViewerComparator comparator = TableColumnViewerSorter.this.viewer.getComparator();
+				Comparator<AbstractNode> comparator = content.getComparator();
 				if(comparator != null && comparator == TableColumnViewerSorter.this) {
 					int tdirection = direction;
 
@@ -71,7 +70,7 @@ class TableColumnViewerSorter extends ViewerComparator {
 	private void setNoneSorter() {
 		column.getParent().setSortColumn(null);
 		column.getParent().setSortDirection(SWT.NONE);
-		viewer.setComparator(null);
+		content.setComparator(null);
 	}
 	
 	private void setSorterFor(TableColumnViewerSorter sorter, int direction) {
@@ -84,24 +83,31 @@ class TableColumnViewerSorter extends ViewerComparator {
 			column.getParent().setSortDirection(SWT.UP);
 		}
 		
-		if(viewer.getComparator() == sorter) {
-			viewer.refresh();
-		} else {
-			viewer.setComparator(sorter);
-		}
+		content.setComparator(sorter);
+	}
+
+	@Override
+	public AbstractMetric getMetric() {
+		return MetricColumn.getMetric(column);
+	}
+
+	/**
+	 * {@link #ASC} shows the largest values first, see {@link #doCompare(AbstractNode, AbstractNode)}.
+	 * */
+	@Override
+	public boolean isDescending() {
+		return direction == ASC;
 	}
 
 	@Override
-	public int compare(Viewer viewer, Object e1, Object e2) {
-		return direction * doCompare(viewer, e1, e2);
+	public int compare(AbstractNode n1, AbstractNode n2) {
+		return direction * doCompare(n1, n2);
 	}
 
-	protected int doCompare(Viewer viewer, Object e1, Object e2){
-		AbstractNode n1 = ((AbstractNode)e1);
-		AbstractNode n2 = ((AbstractNode)e2);
-		AbstractMetric metric = MetricColumn.getMetric(column);
-		int val1 = n1.getValueOf(metric).aggregatedValue;
-		int val2 = n2.getValueOf(metric).aggregatedValue;
+	protected int doCompare(AbstractNode n1, AbstractNode n2){
+		AbstractMetric metric = getMetric();
+		int val1 = n1.getAggregatedValueOf(metric);
+		int val2 = n2.getAggregatedValueOf(metric);
 		
 		return (val1 < val2) ? 1 : val1 == val2 ? 0 : -1;		
 	}
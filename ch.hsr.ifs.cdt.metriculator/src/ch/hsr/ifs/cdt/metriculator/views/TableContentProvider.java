@@ -0,0 +1,40 @@
+package ch.hsr.ifs.cdt.metriculator.views;
+
+import org.eclipse.jface.viewers.ILazyContentProvider;
+import org.eclipse.jface.viewers.TableViewer;
+import org.eclipse.jface.viewers.Viewer;
+
+import ch.hsr.ifs.cdt.metriculator.model.NodeIndex;
+
+/**
+ * Hands out the filtered and sorted children of the input as the virtual table paints them.
+ * */
+class TableContentProvider extends NodeIndexContentProvider implements ILazyContentProvider {
+
+	private TableViewer viewer;
+	private Object input;
+
+	@Override
+	public void updateElement(int index) {
+		NodeIndex rows = indexOf(input);
+		if(index < rows.size()){
+			viewer.replace(rows.get(index), index);
+		}
+	}
+
+	@Override
+	protected void refresh() {
+		if(viewer != null && input != null){
+			viewer.setItemCount(indexOf(input).size());
+			viewer.refresh();
+		}
+	}
+
+	@Override
+	public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+		this.viewer = (TableViewer) viewer;
+		this.input  = newInput;
+		clear();
+		this.viewer.setItemCount(indexOf(newInput).size());
+	}
+}
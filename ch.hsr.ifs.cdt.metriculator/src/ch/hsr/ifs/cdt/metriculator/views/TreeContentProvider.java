@@ -1,20 +1,38 @@
 package ch.hsr.ifs.cdt.metriculator.views;
 
-import org.eclipse.jface.viewers.ITreeContentProvider;
+import org.eclipse.jface.viewers.ILazyTreeContentProvider;
+import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.jface.viewers.Viewer;
 
+import ch.hsr.ifs.cdt.metriculator.model.NodeFilter;
+import ch.hsr.ifs.cdt.metriculator.model.NodeIndex;
 import ch.hsr.ifs.cdt.metriculator.model.nodes.AbstractNode;
 
-class TreeContentProvider implements ITreeContentProvider {
+/**
+ * Hands out the children of the nodes as the virtual tree paints them, a subtree is only indexed when it is expanded.
+ * */
+class TreeContentProvider extends NodeIndexContentProvider implements ILazyTreeContentProvider {
 	
+	private TreeViewer viewer;
+
 	@Override
-	public Object[] getChildren(Object parentElement) {
-		
-		if (parentElement instanceof AbstractNode){
-			return ((AbstractNode)parentElement).getChildren().toArray();
+	public void updateElement(Object parent, int index) {
+		NodeIndex children = indexOf(parent);
+		if(index >= children.size()){
+			return;
 		}
 		
-		return new Object[0];
+		AbstractNode child = children.get(index);
+		viewer.replace(parent, index, child);
+		viewer.setHasChildren(child, hasChildren(child));
+	}
+
+	@Override
+	public void updateChildCount(Object element, int currentChildCount) {
+		int count = indexOf(element).size();
+		if(count != currentChildCount){
+			viewer.setChildCount(element, count);
+		}
 	}
 
 	@Override
@@ -24,27 +42,27 @@ class TreeContentProvider implements ITreeContentProvider {
 		}
 		return null;
 	}
-	
-	@Override
-	public boolean hasChildren(Object element) {
-		
-		if (element instanceof AbstractNode){
-			return ((AbstractNode) element).getChildren().size() > 0;
+
+	/**
+	 * Without a filter the children need not be indexed to know whether there are any.
+	 * */
+	private boolean hasChildren(AbstractNode node) {
+		if(getNodeFilter() instanceof NodeFilter.NoneFilter){
+			return !node.getChildren().isEmpty();
 		}
-		
-		return false;
-	}
-	
-	@Override
-	public Object[] getElements(Object node) {
-		return getChildren(node);
+		return indexOf(node).size() > 0;
 	}
 
 	@Override
-	public void dispose() {
+	protected void refresh() {
+		if(viewer != null && viewer.getInput() != null){
+			viewer.refresh();
+		}
 	}
 
 	@Override
 	public void inputChanged(Viewer viewer, Object oldInput, Object newInput) {
+		this.viewer = (TreeViewer) viewer;
+		clear();
 	}
 }